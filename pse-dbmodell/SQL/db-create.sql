@@ -42,6 +42,7 @@ CREATE TABLE `community` (
   KEY `created_by_idx` (`created_by`),
   KEY `FK_community_private_user_idx` (`private_user`),
   KEY `confirmed_vy_idx` (`confirmed_by`),
+  KEY `unconfirmed_idx` (`confirmed_by`,`created_by`),
   CONSTRAINT `FK_community_private_user` FOREIGN KEY (`private_user`) REFERENCES `person` (`person_id`) ON DELETE NO ACTION ON UPDATE NO ACTION,
   CONSTRAINT `confirmed_vy` FOREIGN KEY (`confirmed_by`) REFERENCES `person` (`person_id`) ON UPDATE NO ACTION,
   CONSTRAINT `created_by` FOREIGN KEY (`created_by`) REFERENCES `person` (`person_id`) ON DELETE NO ACTION ON UPDATE NO ACTION
@@ -74,6 +75,7 @@ CREATE TABLE `community_member` (
   `confirmed_by` int(11) DEFAULT NULL,
   PRIMARY KEY (`community_member_id`),
   UNIQUE KEY `community_member_id_UNIQUE` (`community_member_id`),
+  UNIQUE KEY `IDX_community_member` (`community_id`,`person_id`),
   KEY `member_idx` (`person_id`),
   KEY `^community_idx` (`community_id`),
   KEY `confirmed_by_idx` (`confirmed_by`),
@@ -161,8 +163,8 @@ CREATE TABLE `mesasge_rating` (
   `created_at` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (`mesasge_rating_id`),
   UNIQUE KEY `mesasge_rating_id_UNIQUE` (`mesasge_rating_id`),
+  UNIQUE KEY `rated_message_person_UNIQUE` (`mesasge_id`,`rating_person_id`),
   KEY `rating_person_idx` (`rating_person_id`),
-  KEY `rated_message_idx` (`mesasge_id`),
   CONSTRAINT `rated_message` FOREIGN KEY (`mesasge_id`) REFERENCES `message` (`message_id`) ON DELETE NO ACTION ON UPDATE NO ACTION,
   CONSTRAINT `rating_person` FOREIGN KEY (`rating_person_id`) REFERENCES `person` (`person_id`) ON DELETE NO ACTION ON UPDATE NO ACTION
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COMMENT='Ein Eintrag in der table entspricht einem like';
@@ -205,8 +207,10 @@ CREATE TABLE `message` (
   KEY `document_icon_idx` (`document_icon_id`),
   KEY `document_attachment_idx` (`document_attachment_id`),
   KEY `posted_community_idx` (`posted_in`),
-  KEY `commented_on_idx` (`commented_on_message_id`),
+  KEY `commented_on_idx` (`commented_on_message_id`,`created_on`,`message_id`),
   KEY `delivered_by_idx` (`delivered_by`),
+  KEY `feed_idx` (`created_on`,`message_id`),
+  KEY `community_feed_idx` (`posted_in`,`created_on`,`message_id`),
   CONSTRAINT `commented_on` FOREIGN KEY (`commented_on_message_id`) REFERENCES `message` (`message_id`),
   CONSTRAINT `delivered_by` FOREIGN KEY (`delivered_by`) REFERENCES `delivery_system` (`delivery_system_id`) ON DELETE NO ACTION ON UPDATE NO ACTION,
   CONSTRAINT `document_attachment` FOREIGN KEY (`document_attachment_id`) REFERENCES `document` (`document_id`),
@@ -225,6 +229,37 @@ LOCK TABLES `message` WRITE;
 /*!40000 ALTER TABLE `message` ENABLE KEYS */;
 UNLOCK TABLES;
 
+--
+-- Table structure for table `message_rating_count`
+--
+
+DROP TABLE IF EXISTS `message_rating_count`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `message_rating_count` (
+  `message_id` int(11) NOT NULL,
+  `rating_count` int(11) NOT NULL DEFAULT '0',
+  PRIMARY KEY (`message_id`),
+  CONSTRAINT `rating_count_message` FOREIGN KEY (`message_id`) REFERENCES `message` (`message_id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COMMENT='Anzahl der likes pro message, wird verzoegert aus dem Speicher geschrieben';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Dumping data for table `message_rating_count`
+--
+
+LOCK TABLES `message_rating_count` WRITE;
+/*!40000 ALTER TABLE `message_rating_count` DISABLE KEYS */;
+/*!40000 ALTER TABLE `message_rating_count` ENABLE KEYS */;
+UNLOCK TABLES;
+
+--
+-- Initial counts from the existing likes
+--
+
+INSERT INTO `message_rating_count` (`message_id`, `rating_count`)
+SELECT `mesasge_id`, COUNT(*) FROM `mesasge_rating` WHERE `mesasge_id` IS NOT NULL GROUP BY `mesasge_id`;
+
 --
 -- Table structure for table `message_tag`
 --
@@ -285,6 +320,7 @@ CREATE TABLE `person` (
   PRIMARY KEY (`person_id`),
   UNIQUE KEY `user_name_UNIQUE` (`user_name`),
   KEY `FK_person_image_idx` (`document_image_id`),
+  KEY `directory_idx` (`last_name`,`first_name`,`person_id`),
   CONSTRAINT `FK_person_image` FOREIGN KEY (`document_image_id`) REFERENCES `document` (`document_id`) ON DELETE NO ACTION ON UPDATE NO ACTION
 ) ENGINE=InnoDB AUTO_INCREMENT=2 DEFAULT CHARSET=utf8;
 /*!40101 SET character_set_client = @saved_cs_client */;
@@ -409,6 +445,36 @@ LOCK TABLES `tag` WRITE;
 /*!40000 ALTER TABLE `tag` ENABLE KEYS */;
 UNLOCK TABLES;
 
+--
+-- Table structure for table `timeline_entry`
+--
+
+DROP TABLE IF EXISTS `timeline_entry`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `timeline_entry` (
+  `timeline_entry_id` int(11) NOT NULL AUTO_INCREMENT,
+  `person_id` int(11) NOT NULL,
+  `message_id` int(11) NOT NULL,
+  `created_on` datetime NOT NULL,
+  PRIMARY KEY (`timeline_entry_id`),
+  UNIQUE KEY `timeline_person_message_UNIQUE` (`person_id`,`message_id`),
+  KEY `timeline_idx` (`person_id`,`created_on`,`message_id`),
+  KEY `timeline_message_idx` (`message_id`),
+  CONSTRAINT `timeline_person` FOREIGN KEY (`person_id`) REFERENCES `person` (`person_id`) ON DELETE CASCADE,
+  CONSTRAINT `timeline_message` FOREIGN KEY (`message_id`) REFERENCES `message` (`message_id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COMMENT='Fan-out-on-write: ein Eintrag pro Empfaenger und Message, created_on ist eine Kopie von message.created_on';
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Dumping data for table `timeline_entry`
+--
+
+LOCK TABLES `timeline_entry` WRITE;
+/*!40000 ALTER TABLE `timeline_entry` DISABLE KEYS */;
+/*!40000 ALTER TABLE `timeline_entry` ENABLE KEYS */;
+UNLOCK TABLES;
+
 --
 -- Dumping routines for database 'pse'
 --
@@ -423,4 +489,4 @@ UNLOCK TABLES;
 /*!40111 SET SQL_NOTES=@OLD_SQL_NOTES */;
 
 -- Dump completed on 2015-10-04 19:46:40
-SET FOREIGN_KEY_CHECKS = 1;
\ No newline at end of file
+SET FOREIGN_KEY_CHECKS = 1;
\ No newline at end of file
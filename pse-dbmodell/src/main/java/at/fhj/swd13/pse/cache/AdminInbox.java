@@ -0,0 +1,138 @@
+package at.fhj.swd13.pse.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Application wide cache of the unconfirmed communities shown to each person,
+ * as community ids
+ *
+ * The ChatService invalidates all entries once the creation or confirmation
+ * of a community is committed. A result read while such a change is being
+ * committed could be cached with the old state, and communities changed
+ * elsewhere do not invalidate the entries, so they also expire after
+ * MAX_AGE_SECONDS.
+ *
+ * Administrators see all unconfirmed communities, other persons only the
+ * ones they created. An entry remembers for which of the two it was read, so
+ * gaining or losing admin rights reads the inbox again.
+ *
+ */
+@ApplicationScoped
+public class AdminInbox {
+
+	/**
+	 * seconds after which an entry is read from the database again
+	 */
+	public static final int MAX_AGE_SECONDS = 60;
+
+	private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<Integer, Entry>();
+
+	private final AtomicLong version = new AtomicLong();
+
+	private final long maxAgeNanos;
+
+	/**
+	 * Create an inbox whose entries expire after MAX_AGE_SECONDS
+	 */
+	public AdminInbox() {
+		this(TimeUnit.SECONDS.toNanos(MAX_AGE_SECONDS));
+	}
+
+	/**
+	 * Create an inbox
+	 *
+	 * @param maxAgeNanos age after which an entry expires
+	 */
+	public AdminInbox(final long maxAgeNanos) {
+		this.maxAgeNanos = maxAgeNanos;
+	}
+
+	/**
+	 * Get the current version, to be read before the communities are queried
+	 * and passed to put
+	 *
+	 * @return the version, changed by every invalidation
+	 */
+	public long getVersion() {
+		return version.get();
+	}
+
+	/**
+	 * Get the cached inbox of a person
+	 *
+	 * @param personId id of the person
+	 * @param admin whether the person currently has admin rights
+	 *
+	 * @return ids of the unconfirmed communities, null if not cached
+	 */
+	public int[] get(final int personId, final boolean admin) {
+
+		final Entry entry = entries.get(personId);
+
+		if (entry == null) {
+			return null;
+		}
+
+		if (entry.admin != admin || entry.version != version.get()
+				|| System.nanoTime() - entry.loadedAt > maxAgeNanos) {
+			entries.remove(personId, entry);
+			return null;
+		}
+
+		return entry.communityIds.clone();
+	}
+
+	/**
+	 * Cache the inbox of a person, unless it was invalidated since the given
+	 * version was read
+	 *
+	 * @param personId id of the person
+	 * @param admin whether the communities were queried for an administrator
+	 * @param readVersion the version read before the communities were queried
+	 * @param communityIds ids of the unconfirmed communities
+	 */
+	public void put(final int personId, final boolean admin, final long readVersion, final int[] communityIds) {
+
+		if (readVersion == version.get()) {
+			entries.put(personId, new Entry(admin, readVersion, communityIds.clone()));
+		}
+	}
+
+	/**
+	 * Invalidate the inboxes of all persons
+	 */
+	public void invalidate() {
+
+		version.incrementAndGet();
+		entries.clear();
+	}
+
+	/**
+	 * @return number of cached inboxes
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	private static final class Entry {
+
+		final boolean admin;
+
+		final long version;
+
+		final long loadedAt = System.nanoTime();
+
+		final int[] communityIds;
+
+		Entry(final boolean admin, final long version, final int[] communityIds) {
+
+			this.admin = admin;
+			this.version = version;
+			this.communityIds = communityIds;
+		}
+	}
+}
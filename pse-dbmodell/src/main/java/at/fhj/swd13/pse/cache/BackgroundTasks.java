@@ -0,0 +1,112 @@
+package at.fhj.swd13.pse.cache;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the background work of the in-memory caches and indexes on the
+ * container's managed scheduler
+ *
+ * A failing run is logged with the description of the task. A repeated task
+ * keeps its schedule, so whatever state the task maintains stays in use until
+ * the next run.
+ *
+ */
+@ApplicationScoped
+public class BackgroundTasks {
+
+	private static final Logger logger = LoggerFactory.getLogger(BackgroundTasks.class);
+
+	@Resource
+	private ManagedScheduledExecutorService scheduler;
+
+	/**
+	 * Run a task repeatedly with a fixed delay between the end of one run and
+	 * the start of the next
+	 *
+	 * @param description what the task does, e.g. "rebuild the typeahead index"
+	 * @param task the task to run
+	 * @param initialDelay delay before the first run
+	 * @param delay delay between two runs
+	 * @param unit unit of both delays
+	 *
+	 * @return the scheduled task, to be cancelled on shutdown
+	 *
+	 * @throws IllegalStateException outside of a container, there is no
+	 *             managed scheduler
+	 */
+	public ScheduledFuture<?> repeat(final String description, final Runnable task, final long initialDelay,
+			final long delay, final TimeUnit unit) {
+
+		return getScheduler(description).scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					task.run();
+				} catch (RuntimeException x) {
+					logger.error("could not {}, retrying in {} {}", description, delay,
+							unit.name().toLowerCase(), x);
+				}
+			}
+		}, initialDelay, delay, unit);
+	}
+
+	/**
+	 * Run a task once in the background
+	 *
+	 * @param description what the task does, e.g. "rebuild the typeahead index"
+	 * @param task the task to run
+	 *
+	 * @return the running task, its get() throws the failure
+	 *
+	 * @throws IllegalStateException outside of a container, there is no
+	 *             managed scheduler
+	 */
+	public Future<?> submit(final String description, final Runnable task) {
+
+		return getScheduler(description).submit(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					task.run();
+				} catch (RuntimeException x) {
+					logger.error("could not {}", description, x);
+					throw x;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Cancel a task
+	 *
+	 * @param task the task as returned by repeat or submit, may be null
+	 * @param interrupt true to interrupt a running task, false to let it
+	 *            finish
+	 */
+	public static void cancel(final Future<?> task, final boolean interrupt) {
+
+		if (task != null) {
+			task.cancel(interrupt);
+		}
+	}
+
+	private ManagedScheduledExecutorService getScheduler(final String description) {
+
+		if (scheduler == null) {
+			throw new IllegalStateException("no managed scheduler to " + description + " on");
+		}
+
+		return scheduler;
+	}
+}
@@ -0,0 +1,138 @@
+package at.fhj.swd13.pse.cache;
+
+import java.util.Arrays;
+
+/**
+ * Approximate counts of int keys in fixed memory (count-min sketch)
+ *
+ * Every key is counted in one cell of each of depth rows, picked by a
+ * different hash per row. The estimate of a key is the smallest of its cells:
+ * it is never lower than the true count and higher by at most about
+ * e / width of the total count (with high probability, more rows make an
+ * outlier less likely). Sketches of the same size can be subtracted, which
+ * allows sliding windows made of buckets.
+ *
+ * Not thread safe.
+ *
+ */
+public final class CountMinSketch {
+
+	private static final int[] SEEDS = { 0x9E3779B1, 0x85EBCA77, 0xC2B2AE3D, 0x27D4EB2F, 0x165667B1, 0xD3A2646C,
+			0xFD7046C5, 0xB55A4F09 };
+
+	private final int width;
+
+	private final int depth;
+
+	private final int[] cells;
+
+	private long total;
+
+	/**
+	 * Create an empty sketch
+	 *
+	 * @param width cells per row, a power of two
+	 * @param depth number of rows, 1 to 8
+	 *
+	 * @throws IllegalArgumentException
+	 *             if width or depth are out of range
+	 */
+	public CountMinSketch(final int width, final int depth) {
+
+		if (width <= 0 || Integer.bitCount(width) != 1) {
+			throw new IllegalArgumentException("width must be a power of two: " + width);
+		}
+
+		if (depth < 1 || depth > SEEDS.length) {
+			throw new IllegalArgumentException("depth must be between 1 and " + SEEDS.length + ": " + depth);
+		}
+
+		this.width = width;
+		this.depth = depth;
+		this.cells = new int[width * depth];
+	}
+
+	/**
+	 * Count a key
+	 *
+	 * @param key the key
+	 * @param count number of occurrences to add
+	 */
+	public void add(final int key, final int count) {
+
+		for (int row = 0; row < depth; ++row) {
+			cells[cell(row, key)] += count;
+		}
+
+		total += count;
+	}
+
+	/**
+	 * Estimate the count of a key
+	 *
+	 * @param key the key
+	 *
+	 * @return the estimate, never lower than the true count
+	 */
+	public int estimate(final int key) {
+
+		int result = Integer.MAX_VALUE;
+
+		for (int row = 0; row < depth; ++row) {
+			result = Math.min(result, cells[cell(row, key)]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Subtract the counts of another sketch that were added to this one
+	 *
+	 * @param other a sketch of the same width and depth
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the sketches differ in size
+	 */
+	public void subtract(final CountMinSketch other) {
+
+		if (other.width != width || other.depth != depth) {
+			throw new IllegalArgumentException("sketches differ in size");
+		}
+
+		for (int i = 0; i < cells.length; ++i) {
+			cells[i] -= other.cells[i];
+		}
+
+		total -= other.total;
+	}
+
+	/**
+	 * Reset all counts to 0
+	 */
+	public void clear() {
+
+		Arrays.fill(cells, 0);
+		total = 0;
+	}
+
+	/**
+	 * @return sum of the counts of all keys
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return number of bytes used by the cells, for monitoring
+	 */
+	public long byteSize() {
+		return cells.length * 4L;
+	}
+
+	private int cell(final int row, final int key) {
+
+		final int hash = key * SEEDS[row];
+
+		return row * width + ((hash ^ hash >>> 15) & (width - 1));
+	}
+}
@@ -0,0 +1,342 @@
+package at.fhj.swd13.pse.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.repository.RatingCountRepository;
+
+/**
+ * In-memory rating counters per message with write-behind
+ *
+ * Ratings are counted in striped LongAdder cells, so concurrent likes of a
+ * popular message do not contend on a lock or a database row. A task on the
+ * container's managed scheduler writes the accumulated deltas of all messages
+ * every FLUSH_INTERVAL_SECONDS. The persisted count of a message is loaded
+ * when it is read for the first time.
+ *
+ */
+@ApplicationScoped
+public class RatingCounters {
+
+	/**
+	 * seconds between two flushes of the deltas
+	 */
+	public static final int FLUSH_INTERVAL_SECONDS = 5;
+
+	/**
+	 * number of counters above which loaded counters without pending deltas
+	 * are dropped after a flush, they are loaded again when needed
+	 */
+	public static final int MAX_COUNTERS = 100000;
+
+	@Inject
+	private RatingCountRepository ratingCountRepository;
+
+	@Inject
+	private BackgroundTasks backgroundTasks;
+
+	private final ConcurrentHashMap<Integer, Counter> counters = new ConcurrentHashMap<Integer, Counter>();
+
+	/**
+	 * loading persisted counts and flushing deltas must not interleave,
+	 * otherwise a flushed delta could be counted twice
+	 */
+	private final ReentrantLock persistLock = new ReentrantLock();
+
+	private ScheduledFuture<?> flusher;
+
+	public RatingCounters() {
+	}
+
+	/**
+	 * Create counters outside of a container, no background flusher is
+	 * started
+	 *
+	 * @param ratingCountRepository where to load and write the counts
+	 */
+	public RatingCounters(final RatingCountRepository ratingCountRepository) {
+		this.ratingCountRepository = ratingCountRepository;
+	}
+
+	/**
+	 * Start the background flusher
+	 */
+	@PostConstruct
+	public void start() {
+
+		// deltas that fail to write are kept for the next flush
+		flusher = backgroundTasks.repeat("write the rating counts", new Runnable() {
+
+			@Override
+			public void run() {
+				flush();
+			}
+		}, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stop the background flusher and write the pending deltas
+	 */
+	@PreDestroy
+	public void stop() {
+
+		BackgroundTasks.cancel(flusher, false);
+
+		flush();
+	}
+
+	/**
+	 * Count a new rating of a message
+	 *
+	 * @param messageId the rated message
+	 */
+	public void increment(final int messageId) {
+		add(messageId, 1);
+	}
+
+	/**
+	 * Count a removed rating of a message
+	 *
+	 * @param messageId the message
+	 */
+	public void decrement(final int messageId) {
+		add(messageId, -1);
+	}
+
+
+	/**
+	 * Get the current rating count of a message
+	 *
+	 * @param messageId id of the message
+	 *
+	 * @return number of ratings including those not yet written
+	 */
+	public long get(final int messageId) {
+
+		final List<Integer> ids = new ArrayList<Integer>(1);
+		ids.add(messageId);
+
+		return getAll(ids).get(messageId);
+	}
+
+	/**
+	 * Get the current rating counts of messages, the counts of all cold
+	 * messages are loaded with one query
+	 *
+	 * @param messageIds ids of the messages
+	 *
+	 * @return count per message id, contains all given ids
+	 */
+	public Map<Integer, Long> getAll(final Collection<Integer> messageIds) {
+
+		final Map<Integer, Long> counts = new HashMap<Integer, Long>();
+		final List<Integer> cold = new ArrayList<Integer>();
+
+		for (Integer messageId : messageIds) {
+
+			final Counter counter = counters.get(messageId);
+
+			if (counter != null && counter.loaded) {
+				counts.put(messageId, counter.value());
+			} else {
+				cold.add(messageId);
+			}
+		}
+
+		if (!cold.isEmpty()) {
+			counts.putAll(load(cold));
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Write the pending deltas of all messages in one transaction. Called by
+	 * the background flusher
+	 */
+	public void flush() {
+
+		persistLock.lock();
+
+		try {
+			final Map<Integer, Long> deltas = new HashMap<Integer, Long>();
+
+			for (Map.Entry<Integer, Counter> entry : counters.entrySet()) {
+
+				final long delta = entry.getValue().pending.sum();
+
+				if (delta != 0) {
+					deltas.put(entry.getKey(), delta);
+				}
+			}
+
+			if (!deltas.isEmpty()) {
+
+				ratingCountRepository.addDeltas(deltas);
+
+				// move the written deltas from pending to persisted, ratings
+				// counted meanwhile stay pending
+				for (Map.Entry<Integer, Long> delta : deltas.entrySet()) {
+
+					final Counter counter = counters.get(delta.getKey());
+
+					counter.pending.add(-delta.getValue());
+					counter.persisted += delta.getValue();
+				}
+			}
+
+			if (counters.size() > MAX_COUNTERS) {
+				dropIdle();
+			}
+
+		} finally {
+			persistLock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of messages with a counter in memory
+	 */
+	public int size() {
+		return counters.size();
+	}
+
+	/**
+	 * Count added (positive delta) or removed ratings of a message
+	 *
+	 * @param messageId the message
+	 * @param delta the number of ratings added
+	 */
+	public void add(final int messageId, final long delta) {
+
+		while (true) {
+
+			Counter counter = counters.get(messageId);
+
+			if (counter == null) {
+
+				final Counter created = new Counter();
+
+				counter = counters.putIfAbsent(messageId, created);
+
+				if (counter == null) {
+					counter = created;
+				}
+			}
+
+			counter.pending.add(delta);
+
+			if (!counter.retired) {
+				return;
+			}
+
+			// being dropped, count again in the counter that replaces it or -
+			// if it is kept after all - in the same counter
+			counter.pending.add(-delta);
+		}
+	}
+
+	private Map<Integer, Long> load(final List<Integer> messageIds) {
+
+		persistLock.lock();
+
+		try {
+			final Map<Integer, Long> persisted = ratingCountRepository.loadCounts(messageIds);
+			final Map<Integer, Long> counts = new HashMap<Integer, Long>();
+
+			for (Integer messageId : messageIds) {
+
+				Counter counter = counters.get(messageId);
+
+				if (counter == null) {
+
+					final Counter created = new Counter();
+
+					counter = counters.putIfAbsent(messageId, created);
+
+					if (counter == null) {
+						counter = created;
+					}
+				}
+
+				if (!counter.loaded) {
+
+					final Long count = persisted.get(messageId);
+
+					counter.persisted = count == null ? 0 : count;
+					counter.loaded = true;
+				}
+
+				counts.put(messageId, counter.value());
+			}
+
+			return counts;
+
+		} finally {
+			persistLock.unlock();
+		}
+	}
+
+	/**
+	 * Drop counters without pending deltas. A counter is retired first and
+	 * only dropped if no rating was counted in it meanwhile, concurrent
+	 * writers that see the retired flag move their delta to a new counter
+	 */
+	private void dropIdle() {
+
+		final Iterator<Counter> it = counters.values().iterator();
+
+		while (it.hasNext() && counters.size() > MAX_COUNTERS / 2) {
+
+			final Counter counter = it.next();
+
+			if (counter.pending.sum() != 0) {
+				continue;
+			}
+
+			counter.retired = true;
+
+			if (counter.pending.sum() == 0) {
+				it.remove();
+			} else {
+				counter.retired = false;
+			}
+		}
+	}
+
+	/**
+	 * Count of one message: the persisted count (once loaded) plus the
+	 * deltas not yet written
+	 */
+	private static final class Counter {
+
+		final LongAdder pending = new LongAdder();
+
+		/**
+		 * guarded by persistLock
+		 */
+		volatile long persisted;
+
+		volatile boolean loaded;
+
+		volatile boolean retired;
+
+		long value() {
+			return persisted + pending.sum();
+		}
+	}
+}
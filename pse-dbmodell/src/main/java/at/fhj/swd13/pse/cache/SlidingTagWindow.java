@@ -0,0 +1,267 @@
+package at.fhj.swd13.pse.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import at.fhj.swd13.pse.dto.TagCount;
+
+/**
+ * Tag uses of the last bucketCount buckets of bucketMillis each
+ *
+ * Every bucket counts its tag uses in a CountMinSketch, the window sketch is
+ * the sum of all buckets. When a bucket falls out of the window its sketch is
+ * subtracted and it is reused for the new bucket. The tags with the highest
+ * estimates are kept as candidates in a min-heap of fixed capacity, a tag
+ * replaces the weakest candidate once its estimate is higher. The top tags
+ * are published by publish() as an array that readers use without locking.
+ *
+ * Thread safe.
+ *
+ */
+final class SlidingTagWindow {
+
+	private static final TagCount[] NONE = new TagCount[0];
+
+	private static final Comparator<Candidate> BY_HEAP_COUNT = new Comparator<Candidate>() {
+
+		@Override
+		public int compare(final Candidate a, final Candidate b) {
+			return Integer.compare(a.heapCount, b.heapCount);
+		}
+	};
+
+	private static final Comparator<TagCount> BY_COUNT_DESCENDING = new Comparator<TagCount>() {
+
+		@Override
+		public int compare(final TagCount a, final TagCount b) {
+
+			final int byCount = Integer.compare(b.getCount(), a.getCount());
+
+			return byCount != 0 ? byCount : Integer.compare(a.getTagId(), b.getTagId());
+		}
+	};
+
+	private final long bucketMillis;
+
+	private final CountMinSketch[] buckets;
+
+	private final CountMinSketch window;
+
+	private final int capacity;
+
+	private final int maxTop;
+
+	private final Map<Integer, Candidate> candidates = new HashMap<Integer, Candidate>();
+
+	/**
+	 * weakest candidate first. The estimate of a candidate only grows between
+	 * two publishes, the heap is ordered by the estimate it was queued with
+	 * and a head with a newer estimate is queued again when it is looked at
+	 */
+	private final PriorityQueue<Candidate> heap;
+
+	/**
+	 * number of the current bucket since the epoch
+	 */
+	private long current;
+
+	private volatile TagCount[] top = NONE;
+
+	/**
+	 * Create a window
+	 *
+	 * @param bucketMillis length of a bucket
+	 * @param bucketCount number of buckets in the window
+	 * @param sketchWidth cells per row of the sketches
+	 * @param sketchDepth rows of the sketches
+	 * @param maxTop number of top tags published
+	 */
+	SlidingTagWindow(final long bucketMillis, final int bucketCount, final int sketchWidth, final int sketchDepth,
+			final int maxTop) {
+
+		this.bucketMillis = bucketMillis;
+		this.buckets = new CountMinSketch[bucketCount];
+		this.window = new CountMinSketch(sketchWidth, sketchDepth);
+		this.maxTop = maxTop;
+		// slack for tags whose estimates are close to the last of the top
+		this.capacity = 4 * maxTop;
+		this.heap = new PriorityQueue<Candidate>(capacity + 1, BY_HEAP_COUNT);
+
+		for (int i = 0; i < bucketCount; ++i) {
+			buckets[i] = new CountMinSketch(sketchWidth, sketchDepth);
+		}
+	}
+
+	/**
+	 * Count a use of a tag
+	 *
+	 * @param tagId id of the tag
+	 * @param token token of the tag, kept while the tag is a candidate
+	 * @param nowMillis the current time
+	 */
+	synchronized void add(final int tagId, final String token, final long nowMillis) {
+
+		advance(nowMillis);
+
+		buckets[(int) (current % buckets.length)].add(tagId, 1);
+		window.add(tagId, 1);
+
+		final int estimate = window.estimate(tagId);
+		final Candidate candidate = candidates.get(tagId);
+
+		if (candidate != null) {
+			candidate.count = estimate;
+			return;
+		}
+
+		if (candidates.size() < capacity) {
+			offer(new Candidate(tagId, token, estimate));
+			return;
+		}
+
+		final Candidate weakest = weakest();
+
+		if (estimate > weakest.count) {
+
+			heap.poll();
+			candidates.remove(weakest.tagId);
+			offer(new Candidate(tagId, token, estimate));
+		}
+	}
+
+	/**
+	 * Move the window to the current time and publish its top tags
+	 *
+	 * @param nowMillis the current time
+	 */
+	synchronized void publish(final long nowMillis) {
+
+		advance(nowMillis);
+
+		heap.clear();
+
+		final List<TagCount> counts = new ArrayList<TagCount>(candidates.size());
+		final Iterator<Candidate> it = candidates.values().iterator();
+
+		while (it.hasNext()) {
+
+			final Candidate candidate = it.next();
+
+			// estimates shrink when buckets fall out of the window
+			candidate.count = window.estimate(candidate.tagId);
+
+			if (candidate.count <= 0) {
+				it.remove();
+				continue;
+			}
+
+			candidate.heapCount = candidate.count;
+			heap.add(candidate);
+			counts.add(new TagCount(candidate.tagId, candidate.token, candidate.count));
+		}
+
+		Collections.sort(counts, BY_COUNT_DESCENDING);
+
+		top = counts.subList(0, Math.min(maxTop, counts.size())).toArray(NONE);
+	}
+
+	/**
+	 * @return the top tags of the last publish, highest count first, shared
+	 *         and not to be changed
+	 */
+	TagCount[] getTop() {
+		return top;
+	}
+
+	/**
+	 * @return number of bytes used by the sketches, for monitoring
+	 */
+	long byteSize() {
+		return window.byteSize() * (buckets.length + 1);
+	}
+
+	/**
+	 * Clear the buckets that fell out of the window since the last call
+	 */
+	private void advance(final long nowMillis) {
+
+		final long bucket = nowMillis / bucketMillis;
+
+		if (bucket <= current) {
+			return;
+		}
+
+		if (bucket - current >= buckets.length) {
+
+			for (CountMinSketch sketch : buckets) {
+				sketch.clear();
+			}
+
+			window.clear();
+
+		} else {
+			for (long b = current + 1; b <= bucket; ++b) {
+
+				final CountMinSketch expired = buckets[(int) (b % buckets.length)];
+
+				window.subtract(expired);
+				expired.clear();
+			}
+		}
+
+		current = bucket;
+	}
+
+	private Candidate weakest() {
+
+		while (true) {
+
+			final Candidate head = heap.peek();
+
+			if (head.heapCount == head.count) {
+				return head;
+			}
+
+			heap.poll();
+			head.heapCount = head.count;
+			heap.add(head);
+		}
+	}
+
+	private void offer(final Candidate candidate) {
+
+		candidates.put(candidate.tagId, candidate);
+		heap.add(candidate);
+	}
+
+	/**
+	 * A tag with one of the highest estimates
+	 */
+	private static final class Candidate {
+
+		final int tagId;
+
+		final String token;
+
+		int count;
+
+		/**
+		 * the count the candidate is ordered by in the heap
+		 */
+		int heapCount;
+
+		Candidate(final int tagId, final String token, final int count) {
+
+			this.tagId = tagId;
+			this.token = token;
+			this.count = count;
+			this.heapCount = count;
+		}
+	}
+}
@@ -0,0 +1,275 @@
+package at.fhj.swd13.pse.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.repository.TagRepository;
+
+/**
+ * Application wide dictionary of all tags, tag id to token and back
+ *
+ * Tags are a small vocabulary that is read far more often than it changes, so
+ * the whole dictionary is kept in memory: the tokens in an array indexed by
+ * tag id and the tag ids in an open addressing table hashed by token. Readers
+ * use an immutable snapshot without locking, every change copies it. Tokens
+ * are interned, the dictionary and the loaded Tag entities share one String
+ * per token.
+ *
+ * The dictionary is loaded on startup, the TagService puts and removes tags
+ * once their transaction has committed. Tokens it does not know (e.g. of tags
+ * inserted with plain SQL) are looked up in the database and added.
+ *
+ */
+@ApplicationScoped
+public class TagDictionary {
+
+	/**
+	 * returned for unknown tokens, tag ids start at 1
+	 */
+	public static final int UNKNOWN = 0;
+
+	@Inject
+	private TagRepository tagRepository;
+
+	private volatile Snapshot snapshot = new Snapshot(new String[1]);
+
+	public TagDictionary() {
+	}
+
+	/**
+	 * Create a dictionary outside of a container, it is not loaded
+	 * automatically
+	 *
+	 * @param tagRepository where to read the tags from
+	 */
+	public TagDictionary(final TagRepository tagRepository) {
+		this.tagRepository = tagRepository;
+	}
+
+	/**
+	 * Read all tags from the database, replacing the current content
+	 */
+	@PostConstruct
+	public void load() {
+
+		final Map<Integer, String> tags = tagRepository.loadTokens();
+
+		synchronized (this) {
+			snapshot = new Snapshot(toArray(tags));
+		}
+	}
+
+	/**
+	 * Get the token of a tag
+	 *
+	 * @param tagId id of the tag
+	 *
+	 * @return the token, null for unknown tags
+	 */
+	public String getToken(final int tagId) {
+
+		final String[] tokens = snapshot.tokens;
+
+		return tagId > 0 && tagId < tokens.length ? tokens[tagId] : null;
+	}
+
+	/**
+	 * Get the id of a tag known to the dictionary
+	 *
+	 * @param token the token of the tag
+	 *
+	 * @return the tag id, UNKNOWN if the dictionary does not know the token
+	 */
+	public int getTagId(final String token) {
+		return snapshot.find(token);
+	}
+
+	/**
+	 * Get the ids of tags by their tokens, tokens the dictionary does not know
+	 * are looked up in the database with one query
+	 *
+	 * @param tokens the tokens of the tags
+	 *
+	 * @return tag id per token, unknown tokens are missing from the map
+	 */
+	public Map<String, Integer> getTagIds(final Collection<String> tokens) {
+
+		final Snapshot current = snapshot;
+		final Map<String, Integer> tagIds = new HashMap<String, Integer>();
+		final List<String> missing = new ArrayList<String>();
+
+		for (String token : tokens) {
+
+			final int tagId = current.find(token);
+
+			if (tagId != UNKNOWN) {
+				tagIds.put(token, tagId);
+			} else {
+				missing.add(token);
+			}
+		}
+
+		if (!missing.isEmpty()) {
+
+			final Map<String, Integer> found = tagRepository.findTagIds(missing);
+
+			if (!found.isEmpty()) {
+				putAll(found);
+				tagIds.putAll(found);
+			}
+		}
+
+		return tagIds;
+	}
+
+	/**
+	 * Record a new tag or a changed token
+	 *
+	 * @param tagId id of the tag
+	 * @param token token of the tag
+	 */
+	public void put(final int tagId, final String token) {
+
+		final Map<String, Integer> tags = new HashMap<String, Integer>();
+		tags.put(token, tagId);
+
+		putAll(tags);
+	}
+
+	/**
+	 * Record new tags, e.g. created by a bulk insert
+	 *
+	 * @param tagIds tag id per token
+	 */
+	public synchronized void putAll(final Map<String, Integer> tagIds) {
+
+		final String[] tokens = snapshot.tokens;
+		int length = tokens.length;
+
+		for (Integer tagId : tagIds.values()) {
+			length = Math.max(length, tagId + 1);
+		}
+
+		final String[] copy = Arrays.copyOf(tokens, length);
+
+		for (Map.Entry<String, Integer> tag : tagIds.entrySet()) {
+			copy[tag.getValue()] = tag.getKey() == null ? null : tag.getKey().intern();
+		}
+
+		snapshot = new Snapshot(copy);
+	}
+
+	/**
+	 * Record that a tag was removed
+	 *
+	 * @param tagId id of the tag
+	 */
+	public synchronized void remove(final int tagId) {
+
+		final String[] tokens = snapshot.tokens;
+
+		if (tagId > 0 && tagId < tokens.length && tokens[tagId] != null) {
+
+			final String[] copy = tokens.clone();
+			copy[tagId] = null;
+
+			snapshot = new Snapshot(copy);
+		}
+	}
+
+	/**
+	 * @return number of tags in the dictionary
+	 */
+	public int size() {
+		return snapshot.size;
+	}
+
+	private static String[] toArray(final Map<Integer, String> tags) {
+
+		int length = 1;
+
+		for (Integer tagId : tags.keySet()) {
+			length = Math.max(length, tagId + 1);
+		}
+
+		final String[] tokens = new String[length];
+
+		for (Map.Entry<Integer, String> tag : tags.entrySet()) {
+			tokens[tag.getKey()] = tag.getValue() == null ? null : tag.getValue().intern();
+		}
+
+		return tokens;
+	}
+
+	/**
+	 * The tags at one point in time, never changed once built
+	 */
+	private static final class Snapshot {
+
+		/**
+		 * token by tag id, null for ids without a tag
+		 */
+		final String[] tokens;
+
+		/**
+		 * tag ids hashed by token, UNKNOWN for empty slots
+		 */
+		final int[] slots;
+
+		final int size;
+
+		Snapshot(final String[] tokens) {
+
+			int count = 0;
+
+			for (String token : tokens) {
+				if (token != null) {
+					++count;
+				}
+			}
+
+			this.tokens = tokens;
+			this.size = count;
+			this.slots = new int[Integer.highestOneBit(Math.max(8, 2 * count)) << 1];
+
+			for (int tagId = 1; tagId < tokens.length; ++tagId) {
+				if (tokens[tagId] != null) {
+					slots[slot(tokens[tagId])] = tagId;
+				}
+			}
+		}
+
+		int find(final String token) {
+
+			if (token == null) {
+				return UNKNOWN;
+			}
+
+			return slots[slot(token)];
+		}
+
+		/**
+		 * @return the slot of the token or the empty slot it belongs to
+		 */
+		private int slot(final String token) {
+
+			final int mask = slots.length - 1;
+			final int hash = token.hashCode() * 0x9E3779B9;
+			int at = (hash ^ hash >>> 16) & mask;
+
+			while (slots[at] != UNKNOWN && !tokens[slots[at]].equals(token)) {
+				at = (at + 1) & mask;
+			}
+
+			return at;
+		}
+	}
+}
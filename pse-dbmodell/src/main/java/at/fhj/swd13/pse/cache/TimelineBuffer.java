@@ -0,0 +1,222 @@
+package at.fhj.swd13.pse.cache;
+
+import java.util.Arrays;
+
+/**
+ * The latest messages of a timeline as (created_on, message_id) pairs held
+ * in a primitive ring buffer, newest first
+ *
+ * The buffer always holds a gap-free prefix of the timeline. When it is full
+ * the oldest pair is dropped; when it is complete it holds the whole
+ * timeline, so pages beyond the last pair are known to be empty.
+ *
+ * Not thread safe, the owning cache synchronizes access.
+ *
+ */
+public class TimelineBuffer {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final int maxCapacity;
+
+	private long[] createdOn;
+
+	private int[] messageIds;
+
+	/**
+	 * physical index of the newest pair
+	 */
+	private int head;
+
+	private int size;
+
+	private boolean complete;
+
+	/**
+	 * Create an empty buffer, initially complete (an empty timeline)
+	 *
+	 * @param maxCapacity the max number of pairs to hold
+	 */
+	public TimelineBuffer(final int maxCapacity) {
+
+		if (maxCapacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + maxCapacity);
+		}
+
+		this.maxCapacity = maxCapacity;
+
+		final int capacity = Math.min(INITIAL_CAPACITY, maxCapacity);
+
+		createdOn = new long[capacity];
+		messageIds = new int[capacity];
+		complete = true;
+	}
+
+	/**
+	 * Add a message. Usually the message is the newest one and is put in
+	 * front, an older message is put at its position if that position lies
+	 * within the buffered prefix
+	 *
+	 * @param messageCreatedOn created_on of the message in millis
+	 * @param messageId id of the message
+	 *
+	 * @return true if the message was added
+	 */
+	public boolean add(final long messageCreatedOn, final int messageId) {
+
+		int pos = 0;
+
+		while (pos < size && isNewer(at(pos), messageIds[physical(pos)], messageCreatedOn, messageId)) {
+			++pos;
+		}
+
+		if (pos < size && messageIds[physical(pos)] == messageId) {
+			return false;
+		}
+
+		if (pos == size && !complete) {
+			// older than everything we hold and we do not know what lies there
+			return false;
+		}
+
+		if (size == maxCapacity) {
+
+			if (pos == size) {
+				complete = false;
+				return false;
+			}
+
+			--size;
+			complete = false;
+
+		} else if (size == createdOn.length) {
+			grow();
+		}
+
+		if (pos == 0) {
+
+			head = (head - 1 + createdOn.length) % createdOn.length;
+
+		} else {
+
+			for (int i = size; i > pos; --i) {
+				createdOn[physical(i)] = createdOn[physical(i - 1)];
+				messageIds[physical(i)] = messageIds[physical(i - 1)];
+			}
+		}
+
+		createdOn[physical(pos)] = messageCreatedOn;
+		messageIds[physical(pos)] = messageId;
+		++size;
+
+		return true;
+	}
+
+	/**
+	 * Get the ids of up to maxRows messages that follow the given position
+	 *
+	 * @param afterCreatedOn created_on of the position in millis, ignored if
+	 *            afterMessageId is negative
+	 * @param afterMessageId message id of the position or a negative value to
+	 *            start with the newest message
+	 * @param maxRows the number of ids wanted
+	 *
+	 * @return the ids, newest first or null if the buffer cannot answer the
+	 *         request (it does not hold enough pairs after the position)
+	 */
+	public int[] page(final long afterCreatedOn, final int afterMessageId, final int maxRows) {
+
+		int start = 0;
+
+		if (afterMessageId >= 0) {
+
+			while (start < size && !isNewer(afterCreatedOn, afterMessageId, at(start), messageIds[physical(start)])) {
+				++start;
+			}
+		}
+
+		int rows = size - start;
+
+		if (rows < maxRows) {
+
+			if (!complete) {
+				return null;
+			}
+
+		} else {
+			rows = maxRows;
+		}
+
+		final int[] ids = new int[rows];
+
+		for (int i = 0; i < rows; ++i) {
+			ids[i] = messageIds[physical(start + i)];
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Mark whether the buffer holds the whole timeline
+	 *
+	 * @param complete true if there are no older messages than the buffered
+	 */
+	public void setComplete(final boolean complete) {
+		this.complete = complete;
+	}
+
+	public boolean isComplete() {
+		return complete;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of pairs the buffer can hold without growing
+	 */
+	public int capacity() {
+		return createdOn.length;
+	}
+
+	private void grow() {
+
+		final int capacity = Math.min(createdOn.length * 2, maxCapacity);
+
+		final long[] newCreatedOn = new long[capacity];
+		final int[] newMessageIds = new int[capacity];
+
+		for (int i = 0; i < size; ++i) {
+			newCreatedOn[i] = createdOn[physical(i)];
+			newMessageIds[i] = messageIds[physical(i)];
+		}
+
+		createdOn = newCreatedOn;
+		messageIds = newMessageIds;
+		head = 0;
+	}
+
+	private long at(final int pos) {
+		return createdOn[physical(pos)];
+	}
+
+	private int physical(final int pos) {
+		return (head + pos) % createdOn.length;
+	}
+
+	/**
+	 * same order as the feed queries: created_on DESC, message_id DESC
+	 */
+	private static boolean isNewer(final long createdOnA, final int messageIdA, final long createdOnB,
+			final int messageIdB) {
+
+		return createdOnA > createdOnB || (createdOnA == createdOnB && messageIdA > messageIdB);
+	}
+
+	@Override
+	public String toString() {
+		return "TimelineBuffer[size=" + size + ", complete=" + complete + ", ids="
+				+ Arrays.toString(page(0, -1, size)) + "]";
+	}
+}
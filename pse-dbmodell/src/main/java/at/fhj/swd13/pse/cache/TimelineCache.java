@@ -0,0 +1,523 @@
+package at.fhj.swd13.pse.cache;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import at.fhj.swd13.pse.db.entity.Message;
+import at.fhj.swd13.pse.dto.FeedItem;
+import at.fhj.swd13.pse.repository.FeedCursor;
+
+/**
+ * Application wide cache of the latest message ids of the global feed, of
+ * community feeds and of personal timelines
+ *
+ * An owner is cached after its first page was read from the database and is
+ * kept current by appending every posted message. All buffers share one
+ * budget of buffered pairs, when it is exceeded the least recently used
+ * owners are evicted.
+ *
+ * Personal timelines also contain messages of fan-out-on-read sources, so
+ * the cache remembers which of those sources a person is subscribed to. The
+ * entry is dropped when the set of fan-out-on-read sources changes.
+ *
+ * A posted message is appended by looking up the owners it belongs to by
+ * key: the feed, its community, the recipients and the persons reading its
+ * community or author. Appending counts as a use of the owner.
+ *
+ * An owner that is not cached yet misses the appends made while its first
+ * page is read. Every append therefore bumps a version and is remembered for
+ * a while; a seed that was read before the current version is refused if
+ * one of the appends since then belongs to the owner or if they are no
+ * longer all remembered.
+ *
+ */
+@ApplicationScoped
+public class TimelineCache {
+
+	/**
+	 * max number of message ids per owner
+	 */
+	public static final int ENTRIES_PER_OWNER = 200;
+
+	/**
+	 * max number of message ids over all owners (about 12 bytes each)
+	 */
+	public static final int MAX_ENTRIES = 2000000;
+
+	/**
+	 * number of appends remembered for checking seeds
+	 */
+	public static final int RECENT_APPENDS = 1024;
+
+	/**
+	 * Kind of timeline that is cached
+	 */
+	public enum OwnerType {
+		/** the feed over all communities, owner id is ignored */
+		FEED,
+		/** the feed of a single community */
+		COMMUNITY,
+		/** the timeline of a person */
+		PERSON
+	}
+
+	private static final int[] NO_IDS = new int[0];
+
+	private final int entriesPerOwner;
+
+	private final int maxEntries;
+
+	/**
+	 * access ordered, the eldest entry is the least recently used
+	 */
+	private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<Long, Entry>(1024, 0.75f, true);
+
+	/**
+	 * cached persons per fan-out-on-read community
+	 */
+	private final Map<Integer, Set<Integer>> communityReaders = new HashMap<Integer, Set<Integer>>();
+
+	/**
+	 * cached persons per fan-out-on-read author
+	 */
+	private final Map<Integer, Set<Integer>> authorReaders = new HashMap<Integer, Set<Integer>>();
+
+	/**
+	 * the latest appends, newest last
+	 */
+	private final ArrayDeque<Append> recentAppends = new ArrayDeque<Append>();
+
+	/**
+	 * number of appends so far
+	 */
+	private long version;
+
+	private int bufferedCapacity;
+
+	/**
+	 * Create a cache with the default sizes
+	 */
+	public TimelineCache() {
+		this(ENTRIES_PER_OWNER, MAX_ENTRIES);
+	}
+
+	/**
+	 * Create a cache
+	 *
+	 * @param entriesPerOwner max number of message ids per owner
+	 * @param maxEntries max number of message ids over all owners
+	 */
+	public TimelineCache(final int entriesPerOwner, final int maxEntries) {
+
+		if (entriesPerOwner <= 0 || maxEntries < entriesPerOwner) {
+			throw new IllegalArgumentException("invalid cache size " + entriesPerOwner + "/" + maxEntries);
+		}
+
+		this.entriesPerOwner = entriesPerOwner;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Get the ids of a page of a cached timeline
+	 *
+	 * @param type kind of the timeline
+	 * @param ownerId id of the community or person
+	 * @param after position after which to start, null for the first page
+	 * @param maxRows number of ids wanted
+	 * @param readSourcesVersion current version of the fan-out-on-read
+	 *            sources, only checked for personal timelines
+	 *
+	 * @return the ids newest first (fewer than maxRows only at the end of the
+	 *         timeline) or null if the owner is not cached or the cache cannot
+	 *         answer the request
+	 */
+	public synchronized int[] page(final OwnerType type, final int ownerId, final FeedCursor after,
+			final int maxRows, final long readSourcesVersion) {
+
+		final Long key = key(type, ownerId);
+		final Entry entry = entries.get(key);
+
+		if (entry == null) {
+			return null;
+		}
+
+		if (type == OwnerType.PERSON && entry.readSourcesVersion != readSourcesVersion) {
+
+			remove(key);
+			return null;
+		}
+
+		return after == null ? entry.buffer.page(0, -1, maxRows)
+				: entry.buffer.page(after.getCreatedOn().getTime(), after.getMessageId(), maxRows);
+	}
+
+	/**
+	 * Get the current version, to be read before the first page of an owner
+	 * is read from the database and passed to the seed
+	 *
+	 * @return the number of appends so far
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Cache the first page of a community feed or the global feed as read
+	 * from the database
+	 *
+	 * @param type FEED or COMMUNITY
+	 * @param ownerId id of the community
+	 * @param readVersion the version before the page was read
+	 * @param firstPage the first page, newest first
+	 * @param complete true if there are no older messages than those of the
+	 *            page
+	 *
+	 * @return true if the page was cached, false if a message was appended
+	 *         to the owner since the page was read
+	 */
+	public synchronized boolean seed(final OwnerType type, final int ownerId, final long readVersion,
+			final List<FeedItem> firstPage, final boolean complete) {
+
+		if (type == OwnerType.PERSON) {
+			throw new IllegalArgumentException("personal timelines need their fan-out-on-read sources");
+		}
+
+		final Entry entry = new Entry(newBuffer(firstPage, complete), NO_IDS, NO_IDS, 0);
+
+		if (appendedSince(readVersion, type, ownerId, entry)) {
+			return false;
+		}
+
+		put(key(type, ownerId), entry);
+
+		return true;
+	}
+
+	/**
+	 * Cache the first page of a personal timeline as read from the database
+	 *
+	 * @param personId the owner of the timeline
+	 * @param readVersion the version before the page was read
+	 * @param firstPage the first page, newest first
+	 * @param complete true if there are no older messages than those of the
+	 *            page
+	 * @param readCommunityIds the fan-out-on-read communities the person is a
+	 *            member of
+	 * @param readAuthorIds the fan-out-on-read authors the person is related
+	 *            to
+	 * @param readSourcesVersion version of the fan-out-on-read sources the ids
+	 *            were read with
+	 *
+	 * @return true if the page was cached, false if a message was appended
+	 *         to the timeline since the page was read
+	 */
+	public synchronized boolean seedPerson(final int personId, final long readVersion,
+			final List<FeedItem> firstPage, final boolean complete, final int[] readCommunityIds,
+			final int[] readAuthorIds, final long readSourcesVersion) {
+
+		final Entry entry = new Entry(newBuffer(firstPage, complete), sorted(readCommunityIds),
+				sorted(readAuthorIds), readSourcesVersion);
+
+		if (appendedSince(readVersion, OwnerType.PERSON, personId, entry)) {
+			return false;
+		}
+
+		put(key(OwnerType.PERSON, personId), entry);
+
+		return true;
+	}
+
+	/**
+	 * Append a newly posted message to all cached timelines it belongs to
+	 *
+	 * @param message the posted message
+	 * @param recipientIds the persons whose timeline got the message written
+	 *            (fan-out-on-write), sorted ascending
+	 */
+	public synchronized void append(final Message message, final int[] recipientIds) {
+
+		final long createdOn = message.getCreatedOn().getTime();
+		final int messageId = message.getMessageId();
+		final int communityId = message.getCommunity() == null ? -1 : message.getCommunity().getCommunityId();
+		final int authorId = message.getPerson().getPersonId();
+
+		++version;
+		recentAppends.addLast(new Append(communityId, authorId, recipientIds));
+
+		if (recentAppends.size() > RECENT_APPENDS) {
+			recentAppends.removeFirst();
+		}
+
+		final Set<Long> keys = new LinkedHashSet<Long>();
+
+		keys.add(key(OwnerType.FEED, 0));
+
+		if (communityId >= 0) {
+
+			keys.add(key(OwnerType.COMMUNITY, communityId));
+			addPersonKeys(keys, communityReaders.get(communityId));
+		}
+
+		for (int recipientId : recipientIds) {
+			keys.add(key(OwnerType.PERSON, recipientId));
+		}
+
+		addPersonKeys(keys, authorReaders.get(authorId));
+
+		for (Long key : keys) {
+
+			final Entry entry = entries.get(key);
+
+			if (entry != null) {
+
+				final int before = entry.buffer.capacity();
+
+				entry.buffer.add(createdOn, messageId);
+				bufferedCapacity += entry.buffer.capacity() - before;
+			}
+		}
+
+		evictOverBudget();
+	}
+
+	/**
+	 * Remove an owner from the cache
+	 *
+	 * @param type kind of the timeline
+	 * @param ownerId id of the community or person
+	 */
+	public synchronized void evict(final OwnerType type, final int ownerId) {
+
+		remove(key(type, ownerId));
+	}
+
+	/**
+	 * Remove all owners from the cache
+	 */
+	public synchronized void clear() {
+
+		entries.clear();
+		communityReaders.clear();
+		authorReaders.clear();
+		bufferedCapacity = 0;
+	}
+
+	/**
+	 * @return the number of cached owners
+	 */
+	public synchronized int getOwnerCount() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of message ids the buffers can hold without growing,
+	 *         this is what counts against the budget
+	 */
+	public synchronized int getBufferedCapacity() {
+		return bufferedCapacity;
+	}
+
+	/**
+	 * Check whether an append since the given version belongs to an owner
+	 * about to be seeded, or might have if it is no longer remembered
+	 */
+	private boolean appendedSince(final long readVersion, final OwnerType type, final int ownerId,
+			final Entry entry) {
+
+		final long missed = version - readVersion;
+
+		if (missed <= 0) {
+			return false;
+		}
+
+		if (missed > recentAppends.size() || type == OwnerType.FEED) {
+			return true;
+		}
+
+		final Iterator<Append> newestFirst = recentAppends.descendingIterator();
+
+		for (long i = 0; i < missed; ++i) {
+
+			final Append append = newestFirst.next();
+
+			if (type == OwnerType.COMMUNITY ? append.communityId == ownerId
+					: Arrays.binarySearch(append.recipientIds, ownerId) >= 0
+							|| Arrays.binarySearch(entry.readCommunityIds, append.communityId) >= 0
+							|| Arrays.binarySearch(entry.readAuthorIds, append.authorId) >= 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private TimelineBuffer newBuffer(final List<FeedItem> firstPage, final boolean complete) {
+
+		final TimelineBuffer buffer = new TimelineBuffer(entriesPerOwner);
+
+		for (int i = firstPage.size() - 1; i >= 0; --i) {
+
+			final FeedItem item = firstPage.get(i);
+
+			buffer.add(item.getCreatedOn().getTime(), item.getMessageId());
+		}
+
+		buffer.setComplete(complete && firstPage.size() <= entriesPerOwner);
+
+		return buffer;
+	}
+
+	private void put(final Long key, final Entry entry) {
+
+		remove(key);
+
+		entries.put(key, entry);
+		bufferedCapacity += entry.buffer.capacity();
+
+		updateReaders(idOf(key), entry, true);
+
+		evictOverBudget();
+	}
+
+	private void remove(final Long key) {
+
+		final Entry removed = entries.remove(key);
+
+		if (removed != null) {
+			dropped(key, removed);
+		}
+	}
+
+	private void evictOverBudget() {
+
+		final Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+
+		while (bufferedCapacity > maxEntries && eldest.hasNext()) {
+
+			final Map.Entry<Long, Entry> evicted = eldest.next();
+
+			eldest.remove();
+			dropped(evicted.getKey(), evicted.getValue());
+		}
+	}
+
+	private void dropped(final long key, final Entry entry) {
+
+		bufferedCapacity -= entry.buffer.capacity();
+
+		updateReaders(idOf(key), entry, false);
+	}
+
+	/**
+	 * Register or unregister a person with the fan-out-on-read sources it
+	 * reads, the sources of feeds are empty
+	 */
+	private void updateReaders(final int personId, final Entry entry, final boolean add) {
+
+		for (int communityId : entry.readCommunityIds) {
+			updateReaders(communityReaders, communityId, personId, add);
+		}
+
+		for (int authorId : entry.readAuthorIds) {
+			updateReaders(authorReaders, authorId, personId, add);
+		}
+	}
+
+	private static void updateReaders(final Map<Integer, Set<Integer>> readers, final int sourceId,
+			final int personId, final boolean add) {
+
+		Set<Integer> persons = readers.get(sourceId);
+
+		if (add) {
+
+			if (persons == null) {
+				persons = new HashSet<Integer>();
+				readers.put(sourceId, persons);
+			}
+
+			persons.add(personId);
+
+		} else if (persons != null && persons.remove(personId) && persons.isEmpty()) {
+			readers.remove(sourceId);
+		}
+	}
+
+	private static void addPersonKeys(final Set<Long> keys, final Set<Integer> personIds) {
+
+		if (personIds != null) {
+
+			for (Integer personId : personIds) {
+				keys.add(key(OwnerType.PERSON, personId));
+			}
+		}
+	}
+
+	private static int[] sorted(final int[] ids) {
+
+		final int[] copy = Arrays.copyOf(ids, ids.length);
+		Arrays.sort(copy);
+
+		return copy;
+	}
+
+	private static Long key(final OwnerType type, final int ownerId) {
+
+		return ((long) type.ordinal() << 32) | (type == OwnerType.FEED ? 0 : ownerId & 0xffffffffL);
+	}
+
+	private static int idOf(final long key) {
+		return (int) key;
+	}
+
+	/**
+	 * Buffer of an owner together with the fan-out-on-read sources it follows
+	 */
+	private static final class Entry {
+
+		final TimelineBuffer buffer;
+
+		final int[] readCommunityIds;
+
+		final int[] readAuthorIds;
+
+		final long readSourcesVersion;
+
+		Entry(final TimelineBuffer buffer, final int[] readCommunityIds, final int[] readAuthorIds,
+				final long readSourcesVersion) {
+
+			this.buffer = buffer;
+			this.readCommunityIds = readCommunityIds;
+			this.readAuthorIds = readAuthorIds;
+			this.readSourcesVersion = readSourcesVersion;
+		}
+	}
+
+	/**
+	 * What is needed of an append to tell which owners it belongs to
+	 */
+	private static final class Append {
+
+		final int communityId;
+
+		final int authorId;
+
+		final int[] recipientIds;
+
+		Append(final int communityId, final int authorId, final int[] recipientIds) {
+
+			this.communityId = communityId;
+			this.authorId = authorId;
+			this.recipientIds = recipientIds;
+		}
+	}
+}
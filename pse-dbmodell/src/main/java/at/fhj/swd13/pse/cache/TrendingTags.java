@@ -0,0 +1,181 @@
+package at.fhj.swd13.pse.cache;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.dto.TagCount;
+
+/**
+ * Trending tags of the last minute, hour and day, counted from the tags added
+ * to messages once they are committed
+ *
+ * Each window is made of time buckets that count the tag uses in a count-min
+ * sketch, so the long tail of rarely used tags costs no memory per tag. The
+ * tags with the highest counts are tracked in a heap per window and published
+ * every PUBLISH_INTERVAL_SECONDS on the container's managed scheduler, reading
+ * the top tags does not touch the counters.
+ *
+ * The counts start empty when the application starts, tags removed from
+ * messages are not counted back. About 100 sketches of 16 kB are kept.
+ *
+ */
+@ApplicationScoped
+public class TrendingTags {
+
+	/**
+	 * max number of top tags per window
+	 */
+	public static final int MAX_TOP = 50;
+
+	/**
+	 * seconds between two publishes of the top tags
+	 */
+	public static final int PUBLISH_INTERVAL_SECONDS = 5;
+
+	/**
+	 * cells per row of the sketches, the estimates are too high by about
+	 * 0.3% of all tag uses of the window at most
+	 */
+	public static final int SKETCH_WIDTH = 1024;
+
+	/**
+	 * rows of the sketches
+	 */
+	public static final int SKETCH_DEPTH = 4;
+
+	/**
+	 * The time windows tags are counted in
+	 */
+	public enum Window {
+		/** the last minute, in buckets of 5 seconds */
+		MINUTE(5000L, 12),
+		/** the last hour, in buckets of a minute */
+		HOUR(60000L, 60),
+		/** the last day, in buckets of an hour */
+		DAY(3600000L, 24);
+
+		private final long bucketMillis;
+
+		private final int bucketCount;
+
+		private Window(final long bucketMillis, final int bucketCount) {
+
+			this.bucketMillis = bucketMillis;
+			this.bucketCount = bucketCount;
+		}
+	}
+
+	private final Map<Window, SlidingTagWindow> windows = new EnumMap<Window, SlidingTagWindow>(Window.class);
+
+	@Inject
+	private BackgroundTasks backgroundTasks;
+
+	private ScheduledFuture<?> publisher;
+
+	/**
+	 * Create empty windows, outside of a container the top tags are only
+	 * published by calling publish
+	 */
+	public TrendingTags() {
+
+		for (Window window : Window.values()) {
+			windows.put(window, new SlidingTagWindow(window.bucketMillis, window.bucketCount, SKETCH_WIDTH,
+					SKETCH_DEPTH, MAX_TOP));
+		}
+	}
+
+	/**
+	 * Start the background publisher
+	 */
+	@PostConstruct
+	public synchronized void start() {
+
+		publisher = backgroundTasks.repeat("publish the trending tags", new Runnable() {
+
+			@Override
+			public void run() {
+				publish(System.currentTimeMillis());
+			}
+		}, PUBLISH_INTERVAL_SECONDS, PUBLISH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+
+		BackgroundTasks.cancel(publisher, true);
+	}
+
+	/**
+	 * Count a tag added to a message now
+	 *
+	 * @param tagId id of the tag
+	 * @param token token of the tag
+	 */
+	public void record(final int tagId, final String token) {
+		record(tagId, token, System.currentTimeMillis());
+	}
+
+	/**
+	 * Count a tag added to a message
+	 *
+	 * @param tagId id of the tag
+	 * @param token token of the tag
+	 * @param nowMillis the time the tag was added
+	 */
+	public void record(final int tagId, final String token, final long nowMillis) {
+
+		for (SlidingTagWindow window : windows.values()) {
+			window.add(tagId, token, nowMillis);
+		}
+	}
+
+	/**
+	 * Move all windows to the given time and publish their top tags. Called
+	 * by the background publisher
+	 *
+	 * @param nowMillis the current time
+	 */
+	public void publish(final long nowMillis) {
+
+		for (SlidingTagWindow window : windows.values()) {
+			window.publish(nowMillis);
+		}
+	}
+
+	/**
+	 * Get the most used tags of a window as of the last publish
+	 *
+	 * @param window the time window
+	 * @param maxResults max number of tags, at most MAX_TOP are kept
+	 *
+	 * @return the tags, most used first
+	 */
+	public TagCount[] getTop(final Window window, final int maxResults) {
+
+		final TagCount[] top = windows.get(window).getTop();
+
+		return top.length <= maxResults ? top.clone() : Arrays.copyOf(top, maxResults);
+	}
+
+	/**
+	 * @return number of bytes used by the sketches, for monitoring
+	 */
+	public long byteSize() {
+
+		long bytes = 0;
+
+		for (SlidingTagWindow window : windows.values()) {
+			bytes += window.byteSize();
+		}
+
+		return bytes;
+	}
+}
@@ -1,34 +1,106 @@
 package at.fhj.swd13.pse.controller;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
-import javax.annotation.PostConstruct;
 import javax.enterprise.inject.Model;
-import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
-import javax.inject.Named;
 
-import at.fhj.swd13.pse.db.entity.Message;
+import at.fhj.swd13.pse.dto.FeedItem;
+import at.fhj.swd13.pse.repository.FeedCursor;
+import at.fhj.swd13.pse.service.FeedPage;
 import at.fhj.swd13.pse.service.FeedService;
+import at.fhj.swd13.pse.service.RatingService;
 
 /**
- * 
+ * Shows one page of the feed per request, older pages are requested by
+ * passing the continuation token of the current page as view parameter
+ *
  * @author florian.genser
  *
  */
 @Model
 public class SimpleFeedController {
 
-    @Produces
-    @Named
-	private List<Message> messages;
-    
-    @Inject
-    private FeedService feedService;
-    
-    @PostConstruct
-    public void postConstruct() {
-    	
-    	messages = feedService.loadFeed();
-    }
+	private static final int PAGE_SIZE = 25;
+
+	@Inject
+	private FeedService feedService;
+
+	private String after;
+
+	private Integer communityId;
+
+	@Inject
+	private RatingService ratingService;
+
+	private FeedPage page;
+
+	private Map<Integer, Long> ratingCounts;
+
+	/**
+	 * view action, loads the page after the view parameters have been set. A
+	 * continuation token that is not valid (edited by hand) shows the first
+	 * page
+	 */
+	public void load() {
+
+		try {
+			FeedCursor.parse(after);
+
+		} catch (IllegalArgumentException x) {
+
+			after = null;
+		}
+
+		if (communityId == null) {
+			page = feedService.loadFeed(after, PAGE_SIZE);
+		} else {
+			page = feedService.loadCommunityFeed(communityId, after, PAGE_SIZE);
+		}
+
+		final List<Integer> messageIds = new ArrayList<Integer>(page.getItems().size());
+
+		for (FeedItem item : page.getItems()) {
+			messageIds.add(item.getMessageId());
+		}
+
+		ratingCounts = ratingService.getRatingCounts(messageIds);
+	}
+
+	public List<FeedItem> getItems() {
+		return page.getItems();
+	}
+
+	/**
+	 * @return number of likes per message id of the shown messages
+	 */
+	public Map<Integer, Long> getRatingCounts() {
+		return ratingCounts;
+	}
+
+	public String getNextPageToken() {
+		return page.getContinuationToken();
+	}
+
+	public boolean isMorePages() {
+		return page.isMorePages();
+	}
+
+	public String getAfter() {
+		return after;
+	}
+
+	public void setAfter(String after) {
+		this.after = after;
+	}
+
+	public Integer getCommunityId() {
+		return communityId;
+	}
+
+	public void setCommunityId(Integer communityId) {
+		this.communityId = communityId;
+	}
 }
@@ -0,0 +1,67 @@
+package at.fhj.swd13.pse.db;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs actions once a transaction committed, used to update in-memory state
+ * that must not see rolled back changes
+ *
+ * Container managed (JTA) transactions register their actions here,
+ * DbContext transactions with DbContext.afterCommit(). Both run an action
+ * with run(), the data is committed already, so a failing action is logged
+ * and does not affect the others.
+ *
+ */
+@ApplicationScoped
+public class AfterCommit {
+
+	private static final Logger logger = LoggerFactory.getLogger(AfterCommit.class);
+
+	@Resource
+	private TransactionSynchronizationRegistry transactionRegistry;
+
+	/**
+	 * Run an action after the current JTA transaction committed, it is
+	 * dropped if the transaction rolls back
+	 *
+	 * @param action the action to run
+	 */
+	public void register(final Runnable action) {
+
+		transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+
+			@Override
+			public void beforeCompletion() {
+			}
+
+			@Override
+			public void afterCompletion(final int status) {
+
+				if (status == Status.STATUS_COMMITTED) {
+					run(action);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Run an action of a committed transaction, a failure is logged
+	 *
+	 * @param action the action to run
+	 */
+	public static void run(final Runnable action) {
+
+		try {
+			action.run();
+		} catch (RuntimeException x) {
+			logger.error("after commit action failed", x);
+		}
+	}
+}
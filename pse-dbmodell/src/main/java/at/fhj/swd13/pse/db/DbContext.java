@@ -1,5 +1,7 @@
 package at.fhj.swd13.pse.db;
 
+import java.sql.Connection;
+
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
 
@@ -46,6 +48,19 @@ public interface DbContext extends AutoCloseable {
 	 */
 	void rollback();
 
+	/**
+	 * Run an action once the transaction of this context has committed, e.g.
+	 * to update an in-memory index. The actions run in the order they were
+	 * added, they are dropped when the transaction is rolled back or the
+	 * context is closed without a commit
+	 *
+	 * @param action the action to run after the commit
+	 *
+	 * @throws IllegalStateException when called on an already closed
+	 * 			transaction
+	 */
+	void afterCommit(Runnable action);
+
 	/**
 	 * remove all cached entities
 	 */
@@ -75,6 +90,16 @@ public interface DbContext extends AutoCloseable {
 	 */
 	EntityManager getEntityManager();
 
+	/**
+	 * Get the jdbc connection of the open transaction, for bulk operations
+	 * that bypass the entity manager. Statements executed on it are committed
+	 * or rolled back with this context and must be closed by the caller, the
+	 * connection itself must not be closed
+	 *
+	 * @return the connection
+	 */
+	Connection getConnection();
+
 
 	/**
 	 * Get a dao for the person entity and closely related entities
@@ -101,4 +126,4 @@ public interface DbContext extends AutoCloseable {
 	 */
 	@Override
 	void close() throws Exception;
-}
\ No newline at end of file
+}
\ No newline at end of file
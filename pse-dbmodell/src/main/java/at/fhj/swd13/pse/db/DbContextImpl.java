@@ -1,5 +1,9 @@
 package at.fhj.swd13.pse.db;
 
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
@@ -32,6 +36,8 @@ public class DbContextImpl implements AutoCloseable, DbContext {
 
 	private EntityTransaction transaction;
 
+	private final List<Runnable> afterCommitActions = new ArrayList<Runnable>();
+
 	/**
 	 * 'Create' a new session with the database and begin the transaction
 	 */
@@ -93,6 +99,9 @@ public class DbContextImpl implements AutoCloseable, DbContext {
 
 		} catch (RollbackException e) {
 
+			// rolled back, the actions must not run
+			afterCommitActions.clear();
+
 			if (e.getCause() != null && e.getCause().getClass() == DatabaseException.class) {
 
 				final DatabaseException dbx = (DatabaseException) e.getCause();
@@ -106,6 +115,8 @@ public class DbContextImpl implements AutoCloseable, DbContext {
 				throw e;
 			}
 		}
+
+		runAfterCommitActions();
 	}
 
 	/*
@@ -121,9 +132,38 @@ public class DbContextImpl implements AutoCloseable, DbContext {
 			throw new IllegalStateException("no transaction open");
 		}
 
+		afterCommitActions.clear();
 		transaction.rollback();
 	}
 
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.db.DbContext#afterCommit(java.lang.Runnable)
+	 */
+	@Override
+	public void afterCommit(final Runnable action) {
+
+		if (transaction == null || !transaction.isActive()) {
+
+			throw new IllegalStateException("no transaction open");
+		}
+
+		afterCommitActions.add(action);
+	}
+
+	/**
+	 * Run the actions registered for the committed transaction
+	 */
+	private void runAfterCommitActions() {
+
+		final List<Runnable> actions = new ArrayList<Runnable>(afterCommitActions);
+
+		afterCommitActions.clear();
+
+		for (Runnable action : actions) {
+			AfterCommit.run(action);
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -157,6 +197,18 @@ public class DbContextImpl implements AutoCloseable, DbContext {
 		return entityManager;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see at.fhj.swd13.pse.db.DbContext#getConnection()
+	 */
+	@Override
+	public Connection getConnection() {
+
+		// EclipseLink binds the connection to the transaction on first access
+		return entityManager.unwrap(Connection.class);
+	}
+
 	private EntityTransaction beginTransaction() {
 
 		return entityManager.getTransaction();
@@ -207,6 +259,8 @@ public class DbContextImpl implements AutoCloseable, DbContext {
 	@Override
 	public void close() throws Exception { 
 
+		afterCommitActions.clear();
+
 		if (transaction != null) {
 
 			if (transaction.isActive()) {
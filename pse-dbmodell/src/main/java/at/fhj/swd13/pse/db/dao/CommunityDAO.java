@@ -1,5 +1,7 @@
 package at.fhj.swd13.pse.db.dao;
 
+import java.util.List;
+
 import at.fhj.swd13.pse.db.entity.Community;
 
 public interface CommunityDAO {
@@ -22,6 +24,59 @@ public interface CommunityDAO {
 	 */
 	Community getByName(final String name);
 
+	/**
+	 * Get a community by its id, from the shared cache if present
+	 * 
+	 * @param communityId
+	 *            id of the community
+	 * 
+	 * @return instance of the community or null if none found
+	 */
+	Community getById(final int communityId);
+
+	/**
+	 * Get the communities not yet confirmed by an administrator, private
+	 * communities are not included
+	 * 
+	 * @return the communities in the order they were created, may be empty
+	 */
+	List<Community> getUnconfirmed();
+
+	/**
+	 * Get the communities created by a person and not yet confirmed by an
+	 * administrator, private communities are not included
+	 * 
+	 * @param personId
+	 *            id of the creator
+	 * 
+	 * @return the communities in the order they were created, may be empty
+	 */
+	List<Community> getUnconfirmedCreatedBy(final int personId);
+
+	/**
+	 * Get those of the given communities that are not yet confirmed by an
+	 * administrator, with one query
+	 * 
+	 * @param communityIds
+	 *            ids of the communities
+	 * 
+	 * @return the communities in the order they were created, may be empty
+	 */
+	List<Community> getUnconfirmedByIds(final int[] communityIds);
+
+	/**
+	 * Check whether a person is a member of a community without loading the
+	 * memberships of the community
+	 * 
+	 * @param communityId
+	 *            id of the community
+	 * @param personId
+	 *            id of the person
+	 * 
+	 * @return true if the person is a member
+	 */
+	boolean isMember(final int communityId, final int personId);
+
 	/**
 	 * Remove a community from the persistent storage by its id
 	 * 
@@ -1,5 +1,8 @@
 package at.fhj.swd13.pse.db.dao;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.persistence.Query;
 
 import at.fhj.swd13.pse.db.DAOBase;
@@ -35,6 +38,84 @@ public class CommunityDAOImpl extends DAOBase implements CommunityDAO {
 		return fetchSingle(q);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see at.fhj.swd13.pse.db.dao.CommunityDAO#getById(int)
+	 */
+	@Override
+	public Community getById(final int communityId) {
+
+		return dbContext.getEntityManager().find(Community.class, communityId);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see at.fhj.swd13.pse.db.dao.CommunityDAO#getUnconfirmed()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Community> getUnconfirmed() {
+
+		return dbContext.createNamedQuery("Community.findUnconfirmed").getResultList();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see at.fhj.swd13.pse.db.dao.CommunityDAO#getUnconfirmedCreatedBy(int)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Community> getUnconfirmedCreatedBy(final int personId) {
+
+		final Query q = dbContext.createNamedQuery("Community.findUnconfirmedByCreator");
+		q.setParameter("personId", personId);
+
+		return q.getResultList();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see at.fhj.swd13.pse.db.dao.CommunityDAO#getUnconfirmedByIds(int[])
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Community> getUnconfirmedByIds(final int[] communityIds) {
+
+		if (communityIds.length == 0) {
+			return new ArrayList<Community>();
+		}
+
+		final List<Integer> ids = new ArrayList<Integer>(communityIds.length);
+
+		for (int communityId : communityIds) {
+			ids.add(communityId);
+		}
+
+		final Query q = dbContext.createNamedQuery("Community.findUnconfirmedByIds");
+		q.setParameter("communityIds", ids);
+
+		return q.getResultList();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see at.fhj.swd13.pse.db.dao.CommunityDAO#isMember(int, int)
+	 */
+	@Override
+	public boolean isMember(final int communityId, final int personId) {
+
+		final Query q = dbContext.createNamedQuery("CommunityMember.countByIds");
+		q.setParameter("communityId", communityId);
+		q.setParameter("personId", personId);
+
+		return ((Number) q.getSingleResult()).longValue() > 0;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
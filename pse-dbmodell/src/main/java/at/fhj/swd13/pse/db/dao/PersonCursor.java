@@ -0,0 +1,65 @@
+package at.fhj.swd13.pse.db.dao;
+
+import at.fhj.swd13.pse.db.entity.Person;
+
+/**
+ * Position within the person directory, the (last_name, first_name,
+ * person_id) of the last person that was delivered. The next page starts with
+ * the person right after this position (seek instead of OFFSET).
+ *
+ */
+public final class PersonCursor {
+
+	private final String lastName;
+
+	private final String firstName;
+
+	private final int personId;
+
+	/**
+	 * Create a cursor pointing to the given position
+	 *
+	 * @param lastName last name of the last delivered person
+	 * @param firstName first name of the last delivered person, may be null
+	 * @param personId id of the last delivered person
+	 */
+	public PersonCursor(final String lastName, final String firstName, final int personId) {
+
+		if (lastName == null) {
+			throw new IllegalArgumentException("lastName must not be null");
+		}
+
+		this.lastName = lastName;
+		this.firstName = firstName;
+		this.personId = personId;
+	}
+
+	/**
+	 * Create a cursor pointing to the given person
+	 *
+	 * @param person the last delivered person
+	 *
+	 * @return cursor positioned at the person
+	 */
+	public static PersonCursor of(final Person person) {
+
+		return new PersonCursor(person.getLastName(), person.getFirstName(), person.getPersonId());
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public int getPersonId() {
+		return personId;
+	}
+
+	@Override
+	public String toString() {
+		return lastName + ", " + firstName + " (" + personId + ")";
+	}
+}
@@ -40,6 +40,16 @@ public interface PersonDAO {
 	 */
 	Person getById(int personId);
 
+	/**
+	 * Load a person with the given id along with the associations of a fetch group
+	 * 
+	 * @param personId the id of the person to retrieve
+	 * @param fetchGroup the associations to load, all others are loaded on access
+	 * 
+	 * @return the person with the given id, null if none was found
+	 */
+	Person getById(int personId, PersonFetchGroup fetchGroup);
+
 	
 	/**
 	 * Load a person with the given username, the search is case sensitive
@@ -50,6 +60,17 @@ public interface PersonDAO {
 	 */
 	Person getByUsername( String username );
 
+	/**
+	 * Load a person with the given username along with the associations of a
+	 * fetch group, the search is case sensitive
+	 * 
+	 * @param username the username of the person to retrieve
+	 * @param fetchGroup the associations to load, all others are loaded on access
+	 * 
+	 * @return the person with the given username, null if none was found
+	 */
+	Person getByUsername( String username, PersonFetchGroup fetchGroup );
+
 	/**
 	 * Load a person with the given username, the search is case sensitive
 	 * 
@@ -65,6 +86,9 @@ public interface PersonDAO {
 	 * Load all persons sorted by last_name, first_name
 	 * and provide paging
 	 * 
+	 * The database reads and discards all rows before startRow,
+	 * use getPersonsAfter() for deep pages
+	 * 
 	 * @param startRow the row at which to start
 	 * @param maxRows the max number of rows to return
 	 * 
@@ -73,18 +97,44 @@ public interface PersonDAO {
 	 */
 	List<Person> getAllPersons( int startRow, int maxRows );
 	
+	/**
+	 * Load the page of persons following the cursor, sorted by
+	 * last_name, first_name, person_id. The page is read from the
+	 * directory_idx index, so every page costs the same
+	 * 
+	 * @param after position of the last person of the previous page,
+	 * 			null for the first page
+	 * @param maxRows the max number of rows to return
+	 * 
+	 * @return the persons of the page, empty if there are no more
+	 */
+	List<Person> getPersonsAfter( PersonCursor after, int maxRows );
+	
 	/**
 	 * Load all persons that have no hashedPassword (IS NULL)
 	 * 
 	 * @return List of persons with no password, empty if none found
 	 */
 	List<Person> getAllWithNullPasswords();
+
+	/**
+	 * Load a chunk of the persons that have no hashedPassword, ordered by id
+	 * 
+	 * @param afterPersonId id after which to start, 0 for the first chunk
+	 * @param maxRows max number of persons to return
+	 * 
+	 * @return List of persons with no password, empty if none left
+	 */
+	List<Person> getWithNullPasswordsAfter( int afterPersonId, int maxRows );
 	
 	/**
 	 * Get all persons matching the given name
 	 * Either as part of their last_name or user_name
 	 * the serach is not case-insensitive
 	 * 
+	 * Scans the person table, the people search of the web application uses
+	 * the PersonSearchService and its name index instead
+	 * 
 	 * @param name part to look for in either the last_name or user_name
 	 * 
 	 * @return a list of users with a matching name, or an empty list if none match
@@ -112,4 +162,4 @@ public interface PersonDAO {
 	 */
 	int removeTargetRelations( Person person );
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -13,6 +13,8 @@ import at.fhj.swd13.pse.db.entity.PersonRelation;
 
 public class PersonDAOImpl extends DAOBase implements PersonDAO {
 
+	private static final String LOAD_GRAPH_HINT = "javax.persistence.loadgraph";
+
 	public PersonDAOImpl(DbContext dbContext) {
 
 		super(dbContext);
@@ -75,6 +77,20 @@ public class PersonDAOImpl extends DAOBase implements PersonDAO {
 		return fetchSingle(q);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see at.fhj.swd13.pse.db.dao.PersonDAO#getById(int, at.fhj.swd13.pse.db.dao.PersonFetchGroup)
+	 */
+	@Override
+	public Person getById(int personId, PersonFetchGroup fetchGroup) {
+
+		final Query q = dbContext.createNamedQuery("Person.findById");
+		q.setParameter("id", personId);
+
+		return fetchSingle(withFetchGroup(q, fetchGroup));
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -89,6 +105,20 @@ public class PersonDAOImpl extends DAOBase implements PersonDAO {
 		return fetchSingle(q);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see at.fhj.swd13.pse.db.dao.PersonDAO#getByUsername(java.lang.String, at.fhj.swd13.pse.db.dao.PersonFetchGroup)
+	 */
+	@Override
+	public Person getByUsername(String username, PersonFetchGroup fetchGroup) {
+
+		final Query q = dbContext.createNamedQuery("Person.findByUserName");
+		q.setParameter("uname", username);
+
+		return fetchSingle(withFetchGroup(q, fetchGroup));
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -124,6 +154,33 @@ public class PersonDAOImpl extends DAOBase implements PersonDAO {
 		return (List<Person>) q.getResultList();
 	}
 
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.db.dao.PersonDAO#getPersonsAfter(at.fhj.swd13.pse.db.dao.PersonCursor, int)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Person> getPersonsAfter(PersonCursor after, int maxRows) {
+
+		Query q;
+
+		if (after == null) {
+			q = dbContext.createNamedQuery("Person.findPage");
+		} else {
+			// NULL first names sort first and never compare true, so they get a query of their own
+			if (after.getFirstName() == null) {
+				q = dbContext.createNamedQuery("Person.findPageAfterNullFirstName");
+			} else {
+				q = dbContext.createNamedQuery("Person.findPageAfter");
+				q.setParameter("firstName", after.getFirstName());
+			}
+			q.setParameter("lastName", after.getLastName());
+			q.setParameter("id", after.getPersonId());
+		}
+
+		q.setMaxResults(maxRows);
+
+		return (List<Person>) q.getResultList();
+	}
+
 	@SuppressWarnings("unchecked")
 	public List<Person> getAllWithNullPasswords() {
 
@@ -131,6 +188,21 @@ public class PersonDAOImpl extends DAOBase implements PersonDAO {
 
 		return (List<Person>) q.getResultList();
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see at.fhj.swd13.pse.db.dao.PersonDAO#getWithNullPasswordsAfter(int, int)
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Person> getWithNullPasswordsAfter(int afterPersonId, int maxRows) {
+
+		Query q = dbContext.createNamedQuery("Person.findNullPasswordsAfter");
+		q.setParameter("id", afterPersonId);
+		q.setMaxResults(maxRows);
+
+		return (List<Person>) q.getResultList();
+	}
 	
 	/*
 	 * (non-Javadoc)
@@ -187,4 +259,22 @@ public class PersonDAOImpl extends DAOBase implements PersonDAO {
 
 		return removedRelationCount;
 	}
+
+	/**
+	 * Load the associations of the fetch group with the result of the query
+	 * 
+	 * @param q the query loading persons
+	 * @param fetchGroup the associations to load, null for none
+	 * 
+	 * @return the query
+	 */
+	private Query withFetchGroup(final Query q, final PersonFetchGroup fetchGroup) {
+
+		if (fetchGroup != null && fetchGroup.getGraphName() != null) {
+
+			q.setHint(LOAD_GRAPH_HINT, dbContext.getEntityManager().getEntityGraph(fetchGroup.getGraphName()));
+		}
+
+		return q;
+	}
 }
@@ -0,0 +1,43 @@
+package at.fhj.swd13.pse.db.dao;
+
+/**
+ * The associations of a person loaded along with it, all others stay lazy
+ *
+ * Each group names an entity graph declared on Person.
+ *
+ */
+public enum PersonFetchGroup {
+
+	/**
+	 * the attributes only, e.g. the author of a message
+	 */
+	BASIC(null),
+
+	/**
+	 * profile page: image and tags
+	 */
+	PROFILE("Person.profile"),
+
+	/**
+	 * relations and community memberships
+	 */
+	SOCIAL("Person.social"),
+
+	/**
+	 * communities created or confirmed and memberships confirmed
+	 */
+	ADMIN("Person.admin");
+
+	private final String graphName;
+
+	private PersonFetchGroup(final String graphName) {
+		this.graphName = graphName;
+	}
+
+	/**
+	 * @return name of the entity graph, null if no association is loaded
+	 */
+	public String getGraphName() {
+		return graphName;
+	}
+}
@@ -38,4 +38,4 @@ public interface TagDAO {
 	 * @param tagId id of the tag to remove
 	 */
 	void remove( int tagId );
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -34,10 +34,8 @@ public class TagDAOImpl extends DAOBase implements TagDAO {
 	@Override
 	public Tag getById(int tagId) {
 
-		final Query q = dbContext.createNamedQuery("Tag.findById");
-		q.setParameter("id", tagId);
-
-		return fetchSingle(q);
+		// by primary key, tags are served from the shared cache
+		return dbContext.getEntityManager().find(Tag.class, tagId);
 	}
 
 	/*
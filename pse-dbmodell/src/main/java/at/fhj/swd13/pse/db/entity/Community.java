@@ -4,8 +4,10 @@ import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -14,6 +16,7 @@ import javax.persistence.ManyToOne;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
+import javax.persistence.Persistence;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
@@ -23,9 +26,14 @@ import javax.persistence.TemporalType;
  * 
  */
 @Entity
+@Cacheable
 @Table(name = "community")
 @NamedQueries({ @NamedQuery(name = "Community.findAll", query = "SELECT c FROM Community c"),
 		@NamedQuery(name = "Community.findByName", query = "SELECT c FROM Community c WHERE c.name = :name"),
+		@NamedQuery(name = "Community.findUnconfirmed", query = "SELECT c FROM Community c WHERE c.confirmedBy IS NULL AND c.privateUser IS NULL ORDER BY c.communityId"),
+		@NamedQuery(name = "Community.findUnconfirmedByCreator", query = "SELECT c FROM Community c WHERE c.confirmedBy IS NULL AND c.createdBy.personId = :personId AND c.privateUser IS NULL ORDER BY c.communityId"),
+		@NamedQuery(name = "Community.findUnconfirmedByIds", query = "SELECT c FROM Community c WHERE c.confirmedBy IS NULL AND c.communityId IN :communityIds ORDER BY c.communityId"),
+		@NamedQuery(name = "Community.findTypeahead", query = "SELECT NEW at.fhj.swd13.pse.dto.TypeaheadEntry(c.communityId, c.name, COUNT(m)) FROM Community c LEFT JOIN c.communityMembers m GROUP BY c.communityId, c.name"),
 		@NamedQuery(name = "Community.deleteById", query = "DELETE FROM Community c WHERE c.communityId = :id"), })
 public class Community implements Serializable {
 	private static final long serialVersionUID = 1L;
@@ -49,17 +57,17 @@ public class Community implements Serializable {
 	private boolean systemInternal;
 
 	// bi-directional many-to-one association to Person
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name = "private_user")
 	private Person privateUser;
 
 	// bi-directional many-to-one association to Person
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name = "confirmed_by")
 	private Person confirmedBy;
 
 	// bi-directional many-to-one association to Person
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name = "created_by", nullable = false)
 	private Person createdBy;
 
@@ -204,6 +212,11 @@ public class Community implements Serializable {
 	/**
 	 * Check whether a person is a member of this group
 	 * 
+	 * Walks the memberships of the community only if they are loaded already,
+	 * else those of the person: a person is a member of a few communities, a
+	 * community may have thousands of members. Services without the entities
+	 * at hand use CommunityDAO.isMember or the MembershipIndex
+	 * 
 	 * @param potentialMember
 	 *            the person to check
 	 * 
@@ -211,12 +224,31 @@ public class Community implements Serializable {
 	 */
 	public boolean isMember(final Person potentialMember) {
 
-		if (potentialMember != null && getCommunityMembers() != null) {
+		if (potentialMember == null) {
+			return false;
+		}
+
+		if (getCommunityMembers() != null && Persistence.getPersistenceUtil().isLoaded(this, "communityMembers")) {
+
 			for (CommunityMember membership : getCommunityMembers()) {
 				if (membership.getMember() == potentialMember) {
 					return true;
 				}
 			}
+
+			return false;
+		}
+
+		if (potentialMember.getMemberships() != null) {
+			for (CommunityMember membership : potentialMember.getMemberships()) {
+
+				final Community community = membership.getCommunity();
+
+				if (community == this
+						|| (community != null && communityId != 0 && community.getCommunityId() == communityId)) {
+					return true;
+				}
+			}
 		}
 
 		return false;
@@ -244,4 +276,4 @@ public class Community implements Serializable {
 		return message;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -5,11 +5,13 @@ import java.util.Date;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
@@ -21,7 +23,12 @@ import javax.persistence.TemporalType;
  */
 @Entity
 @Table(name = "community_member")
-@NamedQuery(name = "CommunityMember.findAll", query = "SELECT c FROM CommunityMember c")
+@NamedQueries({ @NamedQuery(name = "CommunityMember.findAll", query = "SELECT c FROM CommunityMember c"),
+		@NamedQuery(name = "CommunityMember.countByIds", query = "SELECT COUNT(c) FROM CommunityMember c WHERE c.community.communityId = :communityId AND c.member.personId = :personId"),
+		@NamedQuery(name = "CommunityMember.findMemberIds", query = "SELECT c.member.personId FROM CommunityMember c WHERE c.community.communityId = :communityId"),
+		@NamedQuery(name = "CommunityMember.findCommunityIdsOfMember", query = "SELECT c.community.communityId FROM CommunityMember c WHERE c.member.personId = :personId AND c.community.communityId IN :communityIds"),
+		@NamedQuery(name = "CommunityMember.findPairsAfter", query = "SELECT c.communityMemberId, c.member.personId, c.community.communityId FROM CommunityMember c WHERE c.communityMemberId > :id ORDER BY c.communityMemberId"),
+		@NamedQuery(name = "CommunityMember.findLargeCommunityIds", query = "SELECT c.community.communityId FROM CommunityMember c GROUP BY c.community.communityId HAVING COUNT(c) > :limit") })
 public class CommunityMember implements Serializable {
 	private static final long serialVersionUID = 1L;
 
@@ -38,17 +45,17 @@ public class CommunityMember implements Serializable {
 	private boolean isAdministrator;
 
 	// bi-directional many-to-one association to Community
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name = "community_id", nullable = false)
 	private Community community;
 
 	// bi-directional many-to-one association to Person
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name = "confirmed_by")
 	private Person confirmer;
 
 	// bi-directional many-to-one association to Person
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name = "person_id", nullable = false)
 	private Person member;
 
@@ -123,4 +130,4 @@ public class CommunityMember implements Serializable {
 		this.member = member;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -10,6 +10,7 @@ import java.util.List;
  * 
  */
 @Entity
+@Cacheable
 @Table(name="delivery_system")
 @NamedQuery(name="DeliverySystem.findAll", query="SELECT d FROM DeliverySystem d")
 public class DeliverySystem implements Serializable {
@@ -79,4 +80,4 @@ public class DeliverySystem implements Serializable {
 		return message;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
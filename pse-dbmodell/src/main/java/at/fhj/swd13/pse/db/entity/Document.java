@@ -11,6 +11,7 @@ import java.util.List;
  * 
  */
 @Entity
+@Cacheable
 @Table(name="document")
 @NamedQuery(name="Document.findAll", query="SELECT d FROM Document d")
 public class Document implements Serializable {
@@ -177,4 +178,4 @@ public class Document implements Serializable {
 		return person;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
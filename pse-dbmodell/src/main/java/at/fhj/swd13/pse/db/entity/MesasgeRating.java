@@ -11,7 +11,10 @@ import java.util.Date;
  */
 @Entity
 @Table(name="mesasge_rating")
-@NamedQuery(name="MesasgeRating.findAll", query="SELECT m FROM MesasgeRating m")
+@NamedQueries( {
+	@NamedQuery(name="MesasgeRating.findAll", query="SELECT m FROM MesasgeRating m"),
+	@NamedQuery(name="MesasgeRating.findByMessageAndPerson", query="SELECT m FROM MesasgeRating m WHERE m.message.messageId = :messageId AND m.person.personId = :personId")
+} )
 public class MesasgeRating implements Serializable {
 	private static final long serialVersionUID = 1L;
 
@@ -25,12 +28,12 @@ public class MesasgeRating implements Serializable {
 	private Date createdAt;
 
 	//bi-directional many-to-one association to Message
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="mesasge_id")
 	private Message message;
 
 	//bi-directional many-to-one association to Person
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="rating_person_id")
 	private Person person;
 
@@ -69,4 +72,4 @@ public class MesasgeRating implements Serializable {
 		this.person = person;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -12,8 +12,39 @@ import java.util.List;
  * 
  */
 @Entity
+@Cacheable
 @Table(name="message")
-@NamedQuery(name="Message.findAll", query="SELECT m FROM Message m")
+@NamedEntityGraphs( {
+	@NamedEntityGraph(name="Message.feed", attributeNodes={ @NamedAttributeNode("person"), @NamedAttributeNode("community"), @NamedAttributeNode("deliverySystem"), @NamedAttributeNode("document2") }),
+	@NamedEntityGraph(name="Message.thread", attributeNodes={ @NamedAttributeNode("person"), @NamedAttributeNode("community"), @NamedAttributeNode("messageBean"), @NamedAttributeNode(value="messages", subgraph="replies") },
+		subgraphs={ @NamedSubgraph(name="replies", attributeNodes={ @NamedAttributeNode("person") }) }),
+	@NamedEntityGraph(name="Message.published", attributeNodes={ @NamedAttributeNode("person"), @NamedAttributeNode("community"), @NamedAttributeNode(value="messageTags", subgraph="tags") },
+		subgraphs={ @NamedSubgraph(name="tags", attributeNodes={ @NamedAttributeNode("tag") }) }),
+	@NamedEntityGraph(name="Message.admin", attributeNodes={ @NamedAttributeNode("person"), @NamedAttributeNode("community"), @NamedAttributeNode("deliverySystem"), @NamedAttributeNode("document1"), @NamedAttributeNode("document2") })
+} )
+@NamedQueries( {
+	@NamedQuery(name="Message.findAll", query="SELECT m FROM Message m"),
+	@NamedQuery(name="Message.findByIds", query="SELECT m FROM Message m WHERE m.messageId IN :messageIds ORDER BY m.messageId"),
+	@NamedQuery(name="Message.findPage", query="SELECT m FROM Message m ORDER BY m.createdOn DESC, m.messageId DESC"),
+	@NamedQuery(name="Message.findPageAfter", query="SELECT m FROM Message m WHERE (m.createdOn < :createdOn OR (m.createdOn = :createdOn AND m.messageId < :messageId)) ORDER BY m.createdOn DESC, m.messageId DESC"),
+	@NamedQuery(name="Message.findCommunityPage", query="SELECT m FROM Message m WHERE m.community.communityId = :communityId ORDER BY m.createdOn DESC, m.messageId DESC"),
+	@NamedQuery(name="Message.findCommunityPageAfter", query="SELECT m FROM Message m WHERE m.community.communityId = :communityId AND (m.createdOn < :createdOn OR (m.createdOn = :createdOn AND m.messageId < :messageId)) ORDER BY m.createdOn DESC, m.messageId DESC"),
+	@NamedQuery(name="Message.findFeedItems", query="SELECT NEW at.fhj.swd13.pse.dto.FeedItem(m.messageId, m.headline, m.message, p.firstName, p.lastName, c.name, m.createdOn, m.updatedOn) FROM Message m JOIN m.person p LEFT JOIN m.community c ORDER BY m.createdOn DESC, m.messageId DESC"),
+	@NamedQuery(name="Message.findFeedItemsAfter", query="SELECT NEW at.fhj.swd13.pse.dto.FeedItem(m.messageId, m.headline, m.message, p.firstName, p.lastName, c.name, m.createdOn, m.updatedOn) FROM Message m JOIN m.person p LEFT JOIN m.community c WHERE (m.createdOn < :createdOn OR (m.createdOn = :createdOn AND m.messageId < :messageId)) ORDER BY m.createdOn DESC, m.messageId DESC"),
+	@NamedQuery(name="Message.findCommunityFeedItems", query="SELECT NEW at.fhj.swd13.pse.dto.FeedItem(m.messageId, m.headline, m.message, p.firstName, p.lastName, c.name, m.createdOn, m.updatedOn) FROM Message m JOIN m.person p LEFT JOIN m.community c WHERE c.communityId = :communityId ORDER BY m.createdOn DESC, m.messageId DESC"),
+	@NamedQuery(name="Message.findCommunityFeedItemsAfter", query="SELECT NEW at.fhj.swd13.pse.dto.FeedItem(m.messageId, m.headline, m.message, p.firstName, p.lastName, c.name, m.createdOn, m.updatedOn) FROM Message m JOIN m.person p LEFT JOIN m.community c WHERE c.communityId = :communityId AND (m.createdOn < :createdOn OR (m.createdOn = :createdOn AND m.messageId < :messageId)) ORDER BY m.createdOn DESC, m.messageId DESC"),
+	@NamedQuery(name="Message.findFeedItemsFromSources", query="SELECT NEW at.fhj.swd13.pse.dto.FeedItem(m.messageId, m.headline, m.message, p.firstName, p.lastName, c.name, m.createdOn, m.updatedOn) FROM Message m JOIN m.person p LEFT JOIN m.community c WHERE c.communityId IN :communityIds OR p.personId IN :authorIds ORDER BY m.createdOn DESC, m.messageId DESC"),
+	@NamedQuery(name="Message.findFeedItemsFromSourcesAfter", query="SELECT NEW at.fhj.swd13.pse.dto.FeedItem(m.messageId, m.headline, m.message, p.firstName, p.lastName, c.name, m.createdOn, m.updatedOn) FROM Message m JOIN m.person p LEFT JOIN m.community c WHERE (c.communityId IN :communityIds OR p.personId IN :authorIds) AND (m.createdOn < :createdOn OR (m.createdOn = :createdOn AND m.messageId < :messageId)) ORDER BY m.createdOn DESC, m.messageId DESC"),
+	@NamedQuery(name="Message.findFeedItemsByIds", query="SELECT NEW at.fhj.swd13.pse.dto.FeedItem(m.messageId, m.headline, m.message, p.firstName, p.lastName, c.name, m.createdOn, m.updatedOn) FROM Message m JOIN m.person p LEFT JOIN m.community c WHERE m.messageId IN :messageIds"),
+	@NamedQuery(name="Message.findFeedKeys", query="SELECT NEW at.fhj.swd13.pse.repository.FeedCursor(m.createdOn, m.messageId) FROM Message m ORDER BY m.createdOn DESC, m.messageId DESC"),
+	@NamedQuery(name="Message.findFeedKeysAfter", query="SELECT NEW at.fhj.swd13.pse.repository.FeedCursor(m.createdOn, m.messageId) FROM Message m WHERE (m.createdOn < :createdOn OR (m.createdOn = :createdOn AND m.messageId < :messageId)) ORDER BY m.createdOn DESC, m.messageId DESC"),
+	@NamedQuery(name="Message.findFeedKeysByIds", query="SELECT NEW at.fhj.swd13.pse.repository.FeedCursor(m.createdOn, m.messageId) FROM Message m WHERE m.messageId IN :messageIds ORDER BY m.createdOn DESC, m.messageId DESC"),
+	@NamedQuery(name="Message.findFeedKeysByIdsAfter", query="SELECT NEW at.fhj.swd13.pse.repository.FeedCursor(m.createdOn, m.messageId) FROM Message m WHERE m.messageId IN :messageIds AND (m.createdOn < :createdOn OR (m.createdOn = :createdOn AND m.messageId < :messageId)) ORDER BY m.createdOn DESC, m.messageId DESC"),
+	@NamedQuery(name="Message.findTextsAfter", query="SELECT NEW at.fhj.swd13.pse.dto.MessageText(m.messageId, m.headline, m.message) FROM Message m WHERE m.messageId > :messageId ORDER BY m.messageId"),
+	@NamedQuery(name="Message.findReplyLinks", query="SELECT NEW at.fhj.swd13.pse.repository.ReplyLink(m.messageId, m.messageBean.messageId, m.createdOn) FROM Message m WHERE m.messageBean.messageId IN :parentIds ORDER BY m.createdOn, m.messageId"),
+	@NamedQuery(name="Message.findReplyItems", query="SELECT NEW at.fhj.swd13.pse.dto.FeedItem(m.messageId, m.headline, m.message, p.firstName, p.lastName, c.name, m.createdOn, m.updatedOn) FROM Message m JOIN m.person p LEFT JOIN m.community c WHERE m.messageBean.messageId = :parentId ORDER BY m.createdOn, m.messageId"),
+	@NamedQuery(name="Message.findReplyItemsAfter", query="SELECT NEW at.fhj.swd13.pse.dto.FeedItem(m.messageId, m.headline, m.message, p.firstName, p.lastName, c.name, m.createdOn, m.updatedOn) FROM Message m JOIN m.person p LEFT JOIN m.community c WHERE m.messageBean.messageId = :parentId AND (m.createdOn > :createdOn OR (m.createdOn = :createdOn AND m.messageId > :messageId)) ORDER BY m.createdOn, m.messageId")
+} )
 public class Message implements Serializable {
 	private static final long serialVersionUID = 1L;
 
@@ -53,7 +84,7 @@ public class Message implements Serializable {
 	private List<MesasgeRating> mesasgeRatings;
 
 	//bi-directional many-to-one association to Message
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="commented_on_message_id")
 	private Message messageBean;
 
@@ -62,27 +93,27 @@ public class Message implements Serializable {
 	private List<Message> messages;
 
 	//bi-directional many-to-one association to DeliverySystem
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="delivered_by", nullable=false)
 	private DeliverySystem deliverySystem;
 
 	//bi-directional many-to-one association to Document
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="document_attachment_id")
 	private Document document1;
 
 	//bi-directional many-to-one association to Document
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="document_icon_id")
 	private Document document2;
 
 	//bi-directional many-to-one association to Person
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="created_by", nullable=false)
 	private Person person;
 
 	//bi-directional many-to-one association to Community
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="posted_in")
 	private Community community;
 
@@ -297,4 +328,4 @@ public class Message implements Serializable {
 		return personMessage;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
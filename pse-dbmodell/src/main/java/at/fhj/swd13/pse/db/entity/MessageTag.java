@@ -12,7 +12,10 @@ import java.util.Date;
  */
 @Entity
 @Table(name="message_tag")
-@NamedQuery(name="MessageTag.findAll", query="SELECT m FROM MessageTag m")
+@NamedQueries( {
+	@NamedQuery(name="MessageTag.findAll", query="SELECT m FROM MessageTag m"),
+	@NamedQuery(name="MessageTag.findPairsAfter", query="SELECT m.messageTagId, m.message.messageId, m.tag.tagId FROM MessageTag m WHERE m.messageTagId > :messageTagId ORDER BY m.messageTagId")
+} )
 public class MessageTag implements Serializable {
 	private static final long serialVersionUID = 1L;
 
@@ -26,12 +29,12 @@ public class MessageTag implements Serializable {
 	private Date createdAt;
 
 	//bi-directional many-to-one association to Message
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="message_id", nullable=false)
 	private Message message;
 
 	//bi-directional many-to-one association to Tag
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="tag_id", nullable=false)
 	private Tag tag;
 
@@ -70,4 +73,4 @@ public class MessageTag implements Serializable {
 		this.tag = tag;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -4,37 +4,69 @@ import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.NamedEntityGraphs;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.NamedSubgraph;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 
-import org.mindrot.jbcrypt.BCrypt;
-
 import at.fhj.swd13.pse.db.WeakPasswordException;
+import at.fhj.swd13.pse.password.PasswordHasher;
+import at.fhj.swd13.pse.password.PasswordHashers;
 
 /**
  * The persistent class for the person database table.
  * 
  */
 @Entity
+@Cacheable
 @Table(name = "person")
 @NamedQueries({ @NamedQuery(name = "Person.findAll", query = "SELECT p FROM Person p ORDER BY p.lastName, p.firstName"),
+		@NamedQuery(name = "Person.findPage", query = "SELECT p FROM Person p ORDER BY p.lastName, p.firstName, p.personId"),
+		@NamedQuery(name = "Person.findPageAfter", query = "SELECT p FROM Person p WHERE p.lastName >= :lastName AND (p.lastName > :lastName OR p.firstName > :firstName OR (p.firstName = :firstName AND p.personId > :id)) ORDER BY p.lastName, p.firstName, p.personId"),
+		@NamedQuery(name = "Person.findPageAfterNullFirstName", query = "SELECT p FROM Person p WHERE p.lastName >= :lastName AND (p.lastName > :lastName OR p.firstName IS NOT NULL OR p.personId > :id) ORDER BY p.lastName, p.firstName, p.personId"),
 		@NamedQuery(name = "Person.findAllNullPasswords", query = "SELECT p FROM Person p WHERE p.hashedPassword IS NULL OR p.hashedPassword = '--' ORDER BY p.lastName, p.firstName"),
+		@NamedQuery(name = "Person.findNullPasswordsAfter", query = "SELECT p FROM Person p WHERE (p.hashedPassword IS NULL OR p.hashedPassword = '--') AND p.personId > :id ORDER BY p.personId"),
+		@NamedQuery(name = "Person.findNamesAfter", query = "SELECT NEW at.fhj.swd13.pse.dto.PersonName(p.personId, p.userName, p.firstName, p.lastName) FROM Person p WHERE p.personId > :id ORDER BY p.personId"),
+		@NamedQuery(name = "Person.findTypeahead", query = "SELECT NEW at.fhj.swd13.pse.dto.TypeaheadEntry(p.personId, p.userName, p.firstName, p.lastName, COUNT(r)) FROM Person p LEFT JOIN p.personTargetRelations r GROUP BY p.personId, p.userName, p.firstName, p.lastName"),
+		@NamedQuery(name = "Person.findByIds", query = "SELECT p FROM Person p WHERE p.personId IN :ids"),
 		@NamedQuery(name = "Person.findById", query = "SELECT p FROM Person p WHERE p.personId = :id"),
 		@NamedQuery(name = "Person.findByUserName", query = "SELECT p FROM Person p WHERE p.userName = :uname"),
 		@NamedQuery(name = "Person.findNameLike", query = "SELECT p FROM Person p WHERE p.userName LIKE :name OR p.lastName LIKE :name ORDER BY p.lastName, p.firstName"),
 		@NamedQuery(name = "Person.deleteById", query = "DELETE FROM Person p WHERE p.personId = :id") })
+/*
+ * All associations are lazy, a use case names the ones it needs with one of
+ * these graphs (see at.fhj.swd13.pse.db.dao.PersonFetchGroup)
+ */
+@NamedEntityGraphs({
+		@NamedEntityGraph(name = "Person.profile", attributeNodes = { @NamedAttributeNode("document"),
+				@NamedAttributeNode(value = "personTags", subgraph = "tags") }, subgraphs = { @NamedSubgraph(name = "tags", attributeNodes = @NamedAttributeNode("tag")) }),
+		@NamedEntityGraph(name = "Person.social", attributeNodes = {
+				@NamedAttributeNode(value = "personSourceRelations", subgraph = "targets"),
+				@NamedAttributeNode(value = "personTargetRelations", subgraph = "sources"),
+				@NamedAttributeNode(value = "memberships", subgraph = "communities") }, subgraphs = {
+				@NamedSubgraph(name = "targets", attributeNodes = @NamedAttributeNode("targetPerson")),
+				@NamedSubgraph(name = "sources", attributeNodes = @NamedAttributeNode("sourcePerson")),
+				@NamedSubgraph(name = "communities", attributeNodes = @NamedAttributeNode("community")) }),
+		@NamedEntityGraph(name = "Person.admin", attributeNodes = { @NamedAttributeNode("createdCommunities"),
+				@NamedAttributeNode("confirmedCommunities"),
+				@NamedAttributeNode(value = "confirmedMemberships", subgraph = "members") }, subgraphs = { @NamedSubgraph(name = "members", attributeNodes = {
+				@NamedAttributeNode("member"), @NamedAttributeNode("community") }) }) })
 public class Person implements Serializable {
 	private static final long serialVersionUID = 1L;
 
@@ -125,7 +157,7 @@ public class Person implements Serializable {
 	private List<Message> messages;
 
 	// bi-directional many-to-one association to Document
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name = "document_image_id")
 	private Document document;
 
@@ -163,6 +195,24 @@ public class Person implements Serializable {
 		setPassword(plainPassword);
 	}
 
+	/**
+	 * Create a person without hashing a password, the hash has to be set with
+	 * setHashedPassword before the person is stored. Used when the hash was
+	 * computed beforehand, e.g. by the PasswordHashExecutor or an import
+	 * 
+	 * @param userName the user name
+	 * @param lastName the last name
+	 * @param firstName the first name, may be null
+	 */
+	public Person(final String userName, final String lastName, final String firstName) {
+
+		this();
+
+		this.userName = userName;
+		this.lastName = lastName;
+		this.firstName = firstName;
+	}
+
 	public int getPersonId() {
 		return this.personId;
 	}
@@ -215,12 +265,18 @@ public class Person implements Serializable {
 		return this.hashedPassword;
 	}
 
+	/**
+	 * Store a password hash computed beforehand by the PasswordHasher
+	 * 
+	 * @param hashedPassword the hash
+	 */
 	public void setHashedPassword(String hashedPassword) {
 		this.hashedPassword = hashedPassword;
 	}
 
 	/**
-	 * Takes a plaintext password, hashes and stores it
+	 * Takes a plaintext password, hashes and stores it. The hash is computed
+	 * on the calling thread, bulk updates hash on the PasswordHashExecutor
 	 * 
 	 * @param plainPassword
 	 *            the user's password in plain text
@@ -230,20 +286,32 @@ public class Person implements Serializable {
 	 */
 	public void setPassword(String plainPassword) {
 
-		if (isWeakPassword(plainPassword)) {
-			throw new WeakPasswordException("Password strength is not sufficient");
-		}
+		checkPasswordStrength(plainPassword);
 
-		hashedPassword = BCrypt.hashpw(plainPassword, BCrypt.gensalt(12));
+		hashedPassword = PasswordHashers.get().hash(plainPassword);
 	}
 
-	private boolean isWeakPassword(String plainPassword) {
+	/**
+	 * Check a plaintext password before it is hashed
+	 * 
+	 * @param plainPassword
+	 *            the password in plain text
+	 * 
+	 * @throws WeakPasswordException
+	 *             when the password is not strong enough
+	 */
+	public static void checkPasswordStrength(String plainPassword) {
 
-		return plainPassword == null || plainPassword.length() <= 6;
+		if (plainPassword == null || plainPassword.length() <= 6) {
+			throw new WeakPasswordException("Password strength is not sufficient");
+		}
 	}
 
 	/**
-	 * Check whether the given plaintext password matches the user's password
+	 * Check whether the given plaintext password matches the user's password.
+	 * If it matches and the stored hash was computed with other settings than
+	 * the current hasher uses (e.g. a lower work factor), the password is
+	 * hashed again, the new hash is stored with the next commit
 	 * 
 	 * @param plainPassword
 	 *            the entered user's password in plain text
@@ -252,7 +320,21 @@ public class Person implements Serializable {
 	 */
 	public boolean isMatchingPassword(String plainPassword) {
 
-		return plainPassword != null && plainPassword.length() > 3 && BCrypt.checkpw(plainPassword, hashedPassword);
+		if (plainPassword == null || plainPassword.length() <= 3) {
+			return false;
+		}
+
+		final PasswordHasher hasher = PasswordHashers.get();
+
+		if (!hasher.matches(plainPassword, hashedPassword)) {
+			return false;
+		}
+
+		if (hasher.needsRehash(hashedPassword)) {
+			hashedPassword = hasher.hash(plainPassword);
+		}
+
+		return true;
 	}
 
 	public boolean isActive() {
@@ -561,6 +643,9 @@ public class Person implements Serializable {
 	 * Checks whether a person is generally related to an other person (either
 	 * as source or target)
 	 * 
+	 * Loads and walks both relation lists, SocialGraphIndex.isRelated()
+	 * answers the same from memory
+	 * 
 	 * @param other
 	 *            the person with which to check the relation
 	 * 
@@ -605,7 +690,8 @@ public class Person implements Serializable {
 	}
 
 	/**
-	 * Is the person tagged with this tag?
+	 * Is the person tagged with this tag? Walks the tags of this person, to
+	 * find persons by their tags use the ExpertiseIndex
 	 * 
 	 * @param t
 	 *            the tag to check
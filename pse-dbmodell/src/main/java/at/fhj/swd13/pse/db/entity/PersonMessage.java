@@ -20,12 +20,12 @@ public class PersonMessage implements Serializable {
 	private int personMessageId;
 
 	//bi-directional many-to-one association to Message
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="message_id")
 	private Message message;
 
 	//bi-directional many-to-one association to Person
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="target_person_id")
 	private Person person;
 
@@ -56,4 +56,4 @@ public class PersonMessage implements Serializable {
 		this.person = person;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -11,7 +11,13 @@ import javax.persistence.*;
  */
 @Entity
 @Table(name="person_relation")
-@NamedQuery(name="PersonRelation.findAll", query="SELECT p FROM PersonRelation p")
+@NamedQueries( {
+	@NamedQuery(name="PersonRelation.findAll", query="SELECT p FROM PersonRelation p"),
+	@NamedQuery(name="PersonRelation.findSourceIds", query="SELECT p.sourcePerson.personId FROM PersonRelation p WHERE p.targetPerson.personId = :personId"),
+	@NamedQuery(name="PersonRelation.findTargetIdsOfSource", query="SELECT p.targetPerson.personId FROM PersonRelation p WHERE p.sourcePerson.personId = :personId AND p.targetPerson.personId IN :personIds"),
+	@NamedQuery(name="PersonRelation.findPairsAfter", query="SELECT p.personRelationId, p.sourcePerson.personId, p.targetPerson.personId FROM PersonRelation p WHERE p.personRelationId > :id ORDER BY p.personRelationId"),
+	@NamedQuery(name="PersonRelation.findLargeTargetIds", query="SELECT p.targetPerson.personId FROM PersonRelation p GROUP BY p.targetPerson.personId HAVING COUNT(p) > :limit")
+} )
 public class PersonRelation implements Serializable {
 	private static final long serialVersionUID = 1L;
 
@@ -21,12 +27,12 @@ public class PersonRelation implements Serializable {
 	private int personRelationId;
 
 	//bi-directional many-to-one association to Person
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="source_person_id", nullable=false)
 	private Person sourcePerson;
 
 	//bi-directional many-to-one association to Person
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="target_person_id", nullable=false)
 	private Person targetPerson;
 
@@ -86,4 +92,4 @@ public class PersonRelation implements Serializable {
 	public void setTargetPerson( Person person ) {
 		this.targetPerson = person;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -10,7 +10,10 @@ import javax.persistence.*;
  */
 @Entity
 @Table(name="person_tag")
-@NamedQuery(name="PersonTag.findAll", query="SELECT p FROM PersonTag p")
+@NamedQueries( {
+	@NamedQuery(name="PersonTag.findAll", query="SELECT p FROM PersonTag p"),
+	@NamedQuery(name="PersonTag.findPairsAfter", query="SELECT p.personTagId, p.person.personId, p.tag.tagId FROM PersonTag p WHERE p.personTagId > :id ORDER BY p.personTagId")
+} )
 public class PersonTag implements Serializable {
 	private static final long serialVersionUID = 1L;
 
@@ -20,12 +23,12 @@ public class PersonTag implements Serializable {
 	private int personTagId;
 
 	//bi-directional many-to-one association to Person
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="person_id", nullable=false)
 	private Person person;
 
 	//bi-directional many-to-one association to Tag
-	@ManyToOne
+	@ManyToOne(fetch=FetchType.LAZY)
 	@JoinColumn(name="tag_id", nullable=false)
 	private Tag tag;
 
@@ -56,4 +59,4 @@ public class PersonTag implements Serializable {
 		this.tag = tag;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -12,12 +12,16 @@ import java.util.List;
  * 
  */
 @Entity
+@Cacheable
 @Table(name="tag")
 @NamedQueries( { 
 	@NamedQuery(name="Tag.findAll", query="SELECT t FROM Tag t"),
 	@NamedQuery(name="Tag.findById", query="SELECT t FROM Tag t WHERE t.tagId = :id" ),
 	@NamedQuery(name="Tag.findByToken", query="SELECT t FROM Tag t WHERE t.token = :token" ),
 	@NamedQuery(name="Tag.findByTokenLike", query="SELECT t FROM Tag t WHERE t.token LIKE :token" ),
+	@NamedQuery(name="Tag.findTypeahead", query="SELECT NEW at.fhj.swd13.pse.dto.TypeaheadEntry(t.tagId, t.token, COUNT(mt)) FROM Tag t LEFT JOIN t.messageTags mt GROUP BY t.tagId, t.token" ),
+	@NamedQuery(name="Tag.findIdsByTokens", query="SELECT t.token, t.tagId FROM Tag t WHERE t.token IN :tokens" ),
+	@NamedQuery(name="Tag.findTokens", query="SELECT t.tagId, t.token FROM Tag t" ),
 	@NamedQuery(name="Tag.deleteById", query="DELETE FROM Tag t WHERE t.tagId = :id")
 } )
 public class Tag implements Serializable {
@@ -58,6 +62,17 @@ public class Tag implements Serializable {
 		
 	}
 	
+	/**
+	 * Share one String per token between all loaded tags and the TagDictionary
+	 */
+	@PostLoad
+	private void internToken() {
+
+		if (token != null) {
+			token = token.intern();
+		}
+	}
+
 	public int getTagId() {
 		return this.tagId;
 	}
@@ -117,4 +132,4 @@ public class Tag implements Serializable {
 		return personTag;
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
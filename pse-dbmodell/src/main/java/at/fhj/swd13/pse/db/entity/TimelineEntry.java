@@ -0,0 +1,69 @@
+package at.fhj.swd13.pse.db.entity;
+
+import java.io.Serializable;
+import javax.persistence.*;
+
+import java.util.Date;
+
+
+/**
+ * The persistent class for the timeline_entry database table.
+ *
+ * One row per recipient and message, written when the message is posted
+ * (fan-out-on-write). Rows are written in bulk by the timeline repository,
+ * the entity is only used to read a timeline.
+ *
+ */
+@Entity
+@Table(name="timeline_entry")
+@NamedQueries( {
+	@NamedQuery(name="TimelineEntry.findTimelineItems", query="SELECT NEW at.fhj.swd13.pse.dto.FeedItem(m.messageId, m.headline, m.message, p.firstName, p.lastName, c.name, m.createdOn, m.updatedOn) FROM TimelineEntry t JOIN t.message m JOIN m.person p LEFT JOIN m.community c WHERE t.personId = :personId ORDER BY t.createdOn DESC, t.messageId DESC"),
+	@NamedQuery(name="TimelineEntry.findTimelineItemsAfter", query="SELECT NEW at.fhj.swd13.pse.dto.FeedItem(m.messageId, m.headline, m.message, p.firstName, p.lastName, c.name, m.createdOn, m.updatedOn) FROM TimelineEntry t JOIN t.message m JOIN m.person p LEFT JOIN m.community c WHERE t.personId = :personId AND (t.createdOn < :createdOn OR (t.createdOn = :createdOn AND t.messageId < :messageId)) ORDER BY t.createdOn DESC, t.messageId DESC")
+} )
+public class TimelineEntry implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	@Column(name="timeline_entry_id", unique=true, nullable=false)
+	private int timelineEntryId;
+
+	@Column(name="person_id", nullable=false)
+	private int personId;
+
+	@Column(name="message_id", nullable=false, insertable=false, updatable=false)
+	private int messageId;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name="created_on", nullable=false)
+	private Date createdOn;
+
+	//uni-directional many-to-one association to Message
+	@ManyToOne(fetch=FetchType.LAZY)
+	@JoinColumn(name="message_id", nullable=false)
+	private Message message;
+
+	public TimelineEntry() {
+	}
+
+	public int getTimelineEntryId() {
+		return this.timelineEntryId;
+	}
+
+	public int getPersonId() {
+		return this.personId;
+	}
+
+	public int getMessageId() {
+		return this.messageId;
+	}
+
+	public Date getCreatedOn() {
+		return this.createdOn;
+	}
+
+	public Message getMessage() {
+		return this.message;
+	}
+
+}
@@ -0,0 +1,96 @@
+package at.fhj.swd13.pse.dto;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Read-only view of a message as shown in a feed
+ *
+ * Filled by JPQL constructor expressions (SELECT NEW ...), so only the
+ * columns shown are read and no entities are loaded into the persistence
+ * context.
+ *
+ */
+public final class FeedItem implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int messageId;
+
+	private final String headline;
+
+	private final String message;
+
+	private final String authorName;
+
+	private final String communityName;
+
+	private final Date createdOn;
+
+	private final Date updatedOn;
+
+	/**
+	 * Constructor used by the feed queries
+	 *
+	 * @param messageId id of the message
+	 * @param headline headline, may be null
+	 * @param message the message body
+	 * @param authorFirstName first name of the author, may be null
+	 * @param authorLastName last name of the author
+	 * @param communityName name of the community the message was posted in,
+	 *            null if it was not posted in a community
+	 * @param createdOn creation timestamp
+	 * @param updatedOn timestamp of the last update, may be null
+	 */
+	public FeedItem(final int messageId, final String headline, final String message, final String authorFirstName,
+			final String authorLastName, final String communityName, final Date createdOn, final Date updatedOn) {
+
+		this.messageId = messageId;
+		this.headline = headline;
+		this.message = message;
+		this.authorName = authorFirstName == null ? authorLastName : authorFirstName + " " + authorLastName;
+		this.communityName = communityName;
+		this.createdOn = copy(createdOn);
+		this.updatedOn = copy(updatedOn);
+	}
+
+	public int getMessageId() {
+		return messageId;
+	}
+
+	public String getHeadline() {
+		return headline;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * @return first and last name of the author
+	 */
+	public String getAuthorName() {
+		return authorName;
+	}
+
+	public String getCommunityName() {
+		return communityName;
+	}
+
+	public Date getCreatedOn() {
+		return copy(createdOn);
+	}
+
+	public Date getUpdatedOn() {
+		return copy(updatedOn);
+	}
+
+	private static Date copy(final Date date) {
+		return date == null ? null : new Date(date.getTime());
+	}
+
+	@Override
+	public String toString() {
+		return "FeedItem[messageId=" + messageId + ", headline=" + headline + ", author=" + authorName + "]";
+	}
+}
@@ -0,0 +1,119 @@
+package at.fhj.swd13.pse.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * A message delivered by an external delivery system, as accepted by the bulk
+ * ingestion
+ *
+ * Author, community and tags are given by their natural keys and resolved by
+ * the ingester.
+ *
+ */
+public final class IngestMessage implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * max length of a tag token (tag.token)
+	 */
+	public static final int MAX_TAG_LENGTH = 32;
+
+	private final String authorUserName;
+
+	private final String communityName;
+
+	private final String headline;
+
+	private final String message;
+
+	private final Date createdOn;
+
+	private final Date expiresOn;
+
+	private final List<String> tags;
+
+	/**
+	 * Create a message
+	 *
+	 * @param authorUserName user name of the author
+	 * @param communityName name of the community to post in, null for none
+	 * @param headline headline, may be null
+	 * @param message the message body
+	 * @param createdOn creation timestamp, null for the time of ingestion
+	 * @param expiresOn expiry timestamp, may be null
+	 * @param tags tokens of the tags of the message, may be null, duplicates
+	 *            are ignored
+	 *
+	 * @throws IllegalArgumentException
+	 *             if author or message are missing or a tag is empty or
+	 *             longer than MAX_TAG_LENGTH
+	 */
+	public IngestMessage(final String authorUserName, final String communityName, final String headline,
+			final String message, final Date createdOn, final Date expiresOn, final Collection<String> tags) {
+
+		if (authorUserName == null || message == null) {
+			throw new IllegalArgumentException("author and message are required");
+		}
+
+		this.authorUserName = authorUserName;
+		this.communityName = communityName;
+		this.headline = headline;
+		this.message = message;
+		this.createdOn = copy(createdOn);
+		this.expiresOn = copy(expiresOn);
+
+		if (tags == null || tags.isEmpty()) {
+			this.tags = Collections.emptyList();
+		} else {
+			for (String tag : tags) {
+				if (tag == null || tag.isEmpty() || tag.length() > MAX_TAG_LENGTH) {
+					throw new IllegalArgumentException("invalid tag: " + tag);
+				}
+			}
+
+			this.tags = Collections.unmodifiableList(new ArrayList<String>(new LinkedHashSet<String>(tags)));
+		}
+	}
+
+	public String getAuthorUserName() {
+		return authorUserName;
+	}
+
+	public String getCommunityName() {
+		return communityName;
+	}
+
+	public String getHeadline() {
+		return headline;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public Date getCreatedOn() {
+		return copy(createdOn);
+	}
+
+	public Date getExpiresOn() {
+		return copy(expiresOn);
+	}
+
+	/**
+	 * @return the distinct tag tokens, unmodifiable
+	 */
+	public List<String> getTags() {
+		return tags;
+	}
+
+	private static Date copy(final Date date) {
+		return date == null ? null : new Date(date.getTime());
+	}
+}
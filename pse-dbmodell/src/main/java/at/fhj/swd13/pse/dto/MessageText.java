@@ -0,0 +1,40 @@
+package at.fhj.swd13.pse.dto;
+
+/**
+ * The searchable text of a message, read to (re)build the search index
+ *
+ */
+public final class MessageText {
+
+	private final int messageId;
+
+	private final String headline;
+
+	private final String message;
+
+	/**
+	 * Constructor used by the text queries
+	 *
+	 * @param messageId id of the message
+	 * @param headline headline, may be null
+	 * @param message the message body
+	 */
+	public MessageText(final int messageId, final String headline, final String message) {
+
+		this.messageId = messageId;
+		this.headline = headline;
+		this.message = message;
+	}
+
+	public int getMessageId() {
+		return messageId;
+	}
+
+	public String getHeadline() {
+		return headline;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+}
@@ -0,0 +1,48 @@
+package at.fhj.swd13.pse.dto;
+
+/**
+ * The searchable names of a person, read to build the person name index
+ *
+ */
+public final class PersonName {
+
+	private final int personId;
+
+	private final String userName;
+
+	private final String firstName;
+
+	private final String lastName;
+
+	/**
+	 * Constructor used by the name queries
+	 *
+	 * @param personId id of the person
+	 * @param userName the user name
+	 * @param firstName the first name, may be null
+	 * @param lastName the last name
+	 */
+	public PersonName(final int personId, final String userName, final String firstName, final String lastName) {
+
+		this.personId = personId;
+		this.userName = userName;
+		this.firstName = firstName;
+		this.lastName = lastName;
+	}
+
+	public int getPersonId() {
+		return personId;
+	}
+
+	public String getUserName() {
+		return userName;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+}
@@ -0,0 +1,42 @@
+package at.fhj.swd13.pse.dto;
+
+/**
+ * A tag together with how often it was used in a time window
+ *
+ */
+public final class TagCount {
+
+	private final int tagId;
+
+	private final String token;
+
+	private final int count;
+
+	public TagCount(final int tagId, final String token, final int count) {
+
+		this.tagId = tagId;
+		this.token = token;
+		this.count = count;
+	}
+
+	public int getTagId() {
+		return tagId;
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	/**
+	 * @return the estimated number of messages tagged in the window, may be
+	 *         slightly too high
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	@Override
+	public String toString() {
+		return "TagCount[tagId=" + tagId + ", token=" + token + ", count=" + count + "]";
+	}
+}
@@ -0,0 +1,61 @@
+package at.fhj.swd13.pse.dto;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A message of a discussion together with the loaded part of its replies
+ *
+ */
+public final class ThreadNode implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final FeedItem item;
+
+	private final List<ThreadNode> replies;
+
+	private final int replyCount;
+
+	/**
+	 * Create a node
+	 *
+	 * @param item the message
+	 * @param replies the loaded replies, oldest first
+	 * @param replyCount the number of direct replies in total, may be larger
+	 *            than the number of loaded replies
+	 */
+	public ThreadNode(final FeedItem item, final List<ThreadNode> replies, final int replyCount) {
+
+		this.item = item;
+		this.replies = Collections.unmodifiableList(replies);
+		this.replyCount = replyCount;
+	}
+
+	public FeedItem getItem() {
+		return item;
+	}
+
+	/**
+	 * @return the loaded direct replies, oldest first
+	 */
+	public List<ThreadNode> getReplies() {
+		return replies;
+	}
+
+	/**
+	 * @return the number of direct replies in total
+	 */
+	public int getReplyCount() {
+		return replyCount;
+	}
+
+	/**
+	 * @return true if there are direct replies that were not loaded (paging or
+	 *         depth limit), they can be loaded with the thread service
+	 */
+	public boolean isMoreReplies() {
+		return replyCount > replies.size();
+	}
+}
@@ -0,0 +1,74 @@
+package at.fhj.swd13.pse.dto;
+
+/**
+ * A person, tag or community as offered by the typeahead, with the texts it
+ * is completed from and its popularity
+ *
+ */
+public final class TypeaheadEntry {
+
+	private final int id;
+
+	private final String label;
+
+	private final long weight;
+
+	private final String[] keys;
+
+	/**
+	 * Constructor used for tags (popularity: number of messages) and
+	 * communities (popularity: number of members)
+	 *
+	 * @param id id of the tag or community
+	 * @param name token or name, shown and completed
+	 * @param weight popularity, -1 if unknown
+	 */
+	public TypeaheadEntry(final int id, final String name, final long weight) {
+
+		this.id = id;
+		this.label = name;
+		this.weight = weight;
+		this.keys = new String[] { name };
+	}
+
+	/**
+	 * Constructor used for persons (popularity: number of followers),
+	 * completed by user, first and last name
+	 *
+	 * @param id id of the person
+	 * @param userName the user name
+	 * @param firstName the first name, may be null
+	 * @param lastName the last name
+	 * @param weight popularity, -1 if unknown
+	 */
+	public TypeaheadEntry(final int id, final String userName, final String firstName, final String lastName,
+			final long weight) {
+
+		this.id = id;
+		this.label = (firstName == null ? lastName : firstName + " " + lastName) + " (" + userName + ")";
+		this.weight = weight;
+		this.keys = new String[] { userName, firstName, lastName };
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * @return the popularity, -1 if unknown
+	 */
+	public long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * @return the texts the entry is completed from, may contain null
+	 */
+	public String[] getKeys() {
+		return keys.clone();
+	}
+}
@@ -0,0 +1,47 @@
+package at.fhj.swd13.pse.index;
+
+/**
+ * A completion found by the CompletionTrie
+ *
+ */
+public final class Completion {
+
+	private final int id;
+
+	private final String label;
+
+	private final long weight;
+
+	public Completion(final int id, final String label, final long weight) {
+
+		this.id = id;
+		this.label = label;
+		this.weight = weight;
+	}
+
+	/**
+	 * @return id of the completed entity (person, tag or community)
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * @return the text to show
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * @return the popularity of the entity
+	 */
+	public long getWeight() {
+		return weight;
+	}
+
+	@Override
+	public String toString() {
+		return "Completion[id=" + id + ", label=" + label + ", weight=" + weight + "]";
+	}
+}
@@ -0,0 +1,438 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix completion over weighted entries
+ *
+ * An entry is reachable under one or more keys (e.g. the user, first and last
+ * name of a person), keys are folded like search terms. Every trie node knows
+ * the highest weight below it, so the top k completions of a prefix are found
+ * best first without visiting the whole subtree. Children are kept in sorted
+ * arrays instead of maps to keep the trie compact.
+ *
+ * Thread safe, any number of lookups run in parallel to one writer.
+ *
+ */
+public class CompletionTrie {
+
+	private final Node root = new Node();
+
+	private final Map<Integer, Entry> entries = new HashMap<Integer, Entry>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Add an entry or replace its label, keys and weight
+	 *
+	 * @param id id of the entry
+	 * @param label text shown for the completion
+	 * @param weight popularity, higher weights are completed first
+	 * @param keys the texts the entry is found by, null keys are skipped
+	 */
+	public void put(final int id, final String label, final long weight, final String... keys) {
+
+		final Set<String> folded = new LinkedHashSet<String>();
+
+		for (String key : keys) {
+			if (key != null) {
+
+				final String f = TextTokenizer.fold(key.trim());
+
+				if (!f.isEmpty()) {
+					folded.add(f);
+				}
+			}
+		}
+
+		final Entry entry = new Entry(id, label == null ? "" : label, weight, folded.toArray(new String[folded
+				.size()]));
+
+		lock.writeLock().lock();
+
+		try {
+			removeEntry(id);
+
+			for (String key : entry.keys) {
+				insert(key, entry);
+			}
+
+			entries.put(id, entry);
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Change the weight of an entry, its label and keys are kept
+	 *
+	 * @param id id of the entry
+	 * @param weight the new weight
+	 *
+	 * @return false if there is no such entry
+	 */
+	public boolean setWeight(final int id, final long weight) {
+
+		lock.writeLock().lock();
+
+		try {
+			final Entry entry = entries.get(id);
+
+			if (entry == null) {
+				return false;
+			}
+
+			removeEntry(id);
+
+			final Entry changed = new Entry(id, entry.label, weight, entry.keys);
+
+			for (String key : changed.keys) {
+				insert(key, changed);
+			}
+
+			entries.put(id, changed);
+
+			return true;
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the weight of an entry
+	 *
+	 * @param id id of the entry
+	 *
+	 * @return the weight, -1 if there is no such entry
+	 */
+	public long getWeight(final int id) {
+
+		lock.readLock().lock();
+
+		try {
+			final Entry entry = entries.get(id);
+
+			return entry == null ? -1 : entry.weight;
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove an entry
+	 *
+	 * @param id id of the entry
+	 *
+	 * @return true if the entry existed
+	 */
+	public boolean remove(final int id) {
+
+		lock.writeLock().lock();
+
+		try {
+			return removeEntry(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Find the entries with a key starting with the prefix
+	 *
+	 * @param prefix the text typed so far, folded like the keys
+	 * @param maxResults max number of completions
+	 *
+	 * @return the completions, highest weight first, an entry is returned
+	 *         once even if several of its keys match
+	 */
+	public List<Completion> complete(final String prefix, final int maxResults) {
+
+		final String folded = prefix == null ? "" : TextTokenizer.fold(prefix.trim());
+
+		if (folded.isEmpty() || maxResults <= 0) {
+			return Collections.emptyList();
+		}
+
+		lock.readLock().lock();
+
+		try {
+			Node node = root;
+
+			for (int i = 0; i < folded.length() && node != null; ++i) {
+				node = node.child(folded.charAt(i));
+			}
+
+			if (node == null) {
+				return Collections.emptyList();
+			}
+
+			return best(node, maxResults);
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size() {
+
+		lock.readLock().lock();
+
+		try {
+			return entries.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Best first search below a node: a queue holds nodes by the highest
+	 * weight below them and entries by their weight, an entry taken from the
+	 * queue is heavier than anything not yet visited
+	 */
+	private static List<Completion> best(final Node start, final int maxResults) {
+
+		final PriorityQueue<Object> queue = new PriorityQueue<Object>(16, new Comparator<Object>() {
+
+			@Override
+			public int compare(final Object a, final Object b) {
+
+				final int byWeight = Long.compare(weightOf(b), weightOf(a));
+
+				if (byWeight != 0) {
+					return byWeight;
+				}
+
+				// same weight: entries before nodes, entries by label
+				if (a instanceof Entry && b instanceof Entry) {
+					return ((Entry) a).label.compareTo(((Entry) b).label);
+				}
+
+				return (a instanceof Entry ? 0 : 1) - (b instanceof Entry ? 0 : 1);
+			}
+		});
+
+		final List<Completion> result = new ArrayList<Completion>(maxResults);
+		final Set<Integer> seen = new HashSet<Integer>();
+
+		queue.add(start);
+
+		while (!queue.isEmpty() && result.size() < maxResults) {
+
+			final Object next = queue.poll();
+
+			if (next instanceof Entry) {
+
+				final Entry entry = (Entry) next;
+
+				if (seen.add(entry.id)) {
+					result.add(new Completion(entry.id, entry.label, entry.weight));
+				}
+
+				continue;
+			}
+
+			final Node node = (Node) next;
+
+			for (Entry entry : node.entries) {
+				queue.add(entry);
+			}
+
+			for (int i = 0; i < node.childCount; ++i) {
+				queue.add(node.children[i]);
+			}
+		}
+
+		return result;
+	}
+
+	private static long weightOf(final Object o) {
+		return o instanceof Entry ? ((Entry) o).weight : ((Node) o).maxWeight;
+	}
+
+	private void insert(final String key, final Entry entry) {
+
+		Node node = root;
+
+		node.maxWeight = Math.max(node.maxWeight, entry.weight);
+
+		for (int i = 0; i < key.length(); ++i) {
+
+			node = node.childOrCreate(key.charAt(i));
+			node.maxWeight = Math.max(node.maxWeight, entry.weight);
+		}
+
+		node.entries.add(entry);
+	}
+
+	private boolean removeEntry(final int id) {
+
+		final Entry entry = entries.remove(id);
+
+		if (entry == null) {
+			return false;
+		}
+
+		for (String key : entry.keys) {
+			removeKey(key, id);
+		}
+
+		return true;
+	}
+
+	private void removeKey(final String key, final int id) {
+
+		final Node[] path = new Node[key.length() + 1];
+
+		path[0] = root;
+
+		for (int i = 0; i < key.length(); ++i) {
+
+			path[i + 1] = path[i].child(key.charAt(i));
+
+			if (path[i + 1] == null) {
+				return;
+			}
+		}
+
+		final List<Entry> list = path[key.length()].entries;
+
+		for (int i = 0; i < list.size(); ++i) {
+			if (list.get(i).id == id) {
+				list.remove(i);
+				break;
+			}
+		}
+
+		// recompute the weights bottom up and drop nodes that became empty
+		for (int i = key.length(); i >= 0; --i) {
+
+			final Node node = path[i];
+
+			node.recomputeMaxWeight();
+
+			if (i > 0 && node.entries.isEmpty() && node.childCount == 0) {
+				path[i - 1].removeChild(key.charAt(i - 1));
+			}
+		}
+	}
+
+	/**
+	 * A trie node, children sorted by character
+	 */
+	private static final class Node {
+
+		char[] keys = new char[0];
+
+		Node[] children = new Node[0];
+
+		int childCount;
+
+		final List<Entry> entries = new ArrayList<Entry>(1);
+
+		long maxWeight = Long.MIN_VALUE;
+
+		Node child(final char c) {
+
+			final int at = Arrays.binarySearch(keys, 0, childCount, c);
+
+			return at < 0 ? null : children[at];
+		}
+
+		Node childOrCreate(final char c) {
+
+			int at = Arrays.binarySearch(keys, 0, childCount, c);
+
+			if (at >= 0) {
+				return children[at];
+			}
+
+			at = -at - 1;
+
+			if (childCount == keys.length) {
+				final int capacity = Math.max(2, childCount * 2);
+				keys = Arrays.copyOf(keys, capacity);
+				children = Arrays.copyOf(children, capacity);
+			}
+
+			System.arraycopy(keys, at, keys, at + 1, childCount - at);
+			System.arraycopy(children, at, children, at + 1, childCount - at);
+
+			final Node node = new Node();
+
+			keys[at] = c;
+			children[at] = node;
+			++childCount;
+
+			return node;
+		}
+
+		void removeChild(final char c) {
+
+			final int at = Arrays.binarySearch(keys, 0, childCount, c);
+
+			if (at < 0) {
+				return;
+			}
+
+			System.arraycopy(keys, at + 1, keys, at, childCount - at - 1);
+			System.arraycopy(children, at + 1, children, at, childCount - at - 1);
+
+			children[--childCount] = null;
+		}
+
+		void recomputeMaxWeight() {
+
+			long max = Long.MIN_VALUE;
+
+			for (Entry entry : entries) {
+				max = Math.max(max, entry.weight);
+			}
+
+			for (int i = 0; i < childCount; ++i) {
+				max = Math.max(max, children[i].maxWeight);
+			}
+
+			maxWeight = max;
+		}
+	}
+
+	/**
+	 * An entry, immutable, reachable under each of its keys
+	 */
+	private static final class Entry {
+
+		final int id;
+
+		final String label;
+
+		final long weight;
+
+		final String[] keys;
+
+		Entry(final int id, final String label, final long weight, final String[] keys) {
+
+			this.id = id;
+			this.label = label;
+			this.weight = weight;
+			this.keys = keys;
+		}
+	}
+}
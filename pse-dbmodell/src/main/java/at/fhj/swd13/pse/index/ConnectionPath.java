@@ -0,0 +1,63 @@
+package at.fhj.swd13.pse.index;
+
+/**
+ * The result of a shortest connection path search between two persons
+ *
+ */
+public final class ConnectionPath {
+
+	private final int[] personIds;
+
+	private final boolean timedOut;
+
+	private final int visited;
+
+	public ConnectionPath(final int[] personIds, final boolean timedOut, final int visited) {
+
+		this.personIds = personIds;
+		this.timedOut = timedOut;
+		this.visited = visited;
+	}
+
+	/**
+	 * @return true if a path was found
+	 */
+	public boolean isFound() {
+		return personIds.length > 0;
+	}
+
+	/**
+	 * @return ids of the persons on the path from the first to the second
+	 *         person, both included, empty if no path was found
+	 */
+	public int[] getPersonIds() {
+		return personIds.clone();
+	}
+
+	/**
+	 * @return number of relations on the path, -1 if no path was found
+	 */
+	public int getLength() {
+		return personIds.length - 1;
+	}
+
+	/**
+	 * @return true if the search was stopped by the time limit, a longer path
+	 *         might exist
+	 */
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	/**
+	 * @return number of persons visited by the search
+	 */
+	public int getVisited() {
+		return visited;
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPath[length=" + getLength() + ", timedOut=" + timedOut + ", visited=" + visited + "]";
+	}
+}
@@ -0,0 +1,277 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.Arrays;
+
+/**
+ * Shortest connection between two persons over their relations, in either
+ * direction
+ *
+ * Bidirectional breadth first search: the searches from both persons expand
+ * one level at a time, always the one with the smaller frontier, until they
+ * meet. A path of length d then costs about two searches of depth d / 2
+ * instead of one of depth d.
+ *
+ * Thread safe, the graph may change during a search.
+ *
+ */
+public class ConnectionPathFinder {
+
+	/**
+	 * the clock is read after this many visited persons
+	 */
+	private static final int CLOCK_INTERVAL = 256;
+
+	private final SocialGraph graph;
+
+	/**
+	 * Create a finder over a graph
+	 *
+	 * @param graph the relations between persons
+	 */
+	public ConnectionPathFinder(final SocialGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Find a shortest path between two persons
+	 *
+	 * @param fromPersonId the first person
+	 * @param toPersonId the second person
+	 * @param maxLength max number of relations on the path
+	 * @param timeoutMillis max time to search
+	 *
+	 * @return the path, not found if the persons are not connected within
+	 *         maxLength relations or the time ran out
+	 *
+	 * @throws IllegalArgumentException
+	 *             if maxLength is negative or timeoutMillis not positive
+	 */
+	public ConnectionPath find(final int fromPersonId, final int toPersonId, final int maxLength,
+			final long timeoutMillis) {
+
+		if (maxLength < 0) {
+			throw new IllegalArgumentException("max length must not be negative: " + maxLength);
+		}
+
+		if (timeoutMillis <= 0) {
+			throw new IllegalArgumentException("timeout must be positive: " + timeoutMillis);
+		}
+
+		if (fromPersonId == toPersonId) {
+			return new ConnectionPath(new int[] { fromPersonId }, false, 1);
+		}
+
+		final long deadline = System.nanoTime() + timeoutMillis * 1000000L;
+
+		final Side forward = new Side(fromPersonId);
+		final Side backward = new Side(toPersonId);
+
+		int visited = 2;
+
+		while (forward.depth + backward.depth < maxLength && forward.size > 0 && backward.size > 0) {
+
+			final boolean expandForward = forward.size <= backward.size;
+			final Side side = expandForward ? forward : backward;
+			final Side other = expandForward ? backward : forward;
+
+			final int[] frontier = Arrays.copyOf(side.frontier, side.size);
+
+			side.size = 0;
+			++side.depth;
+
+			for (int person : frontier) {
+
+				for (int next : graph.getNeighbours(person)) {
+
+					if (!side.parents.putIfAbsent(next, person)) {
+						continue;
+					}
+
+					side.add(next);
+
+					if (other.parents.get(next) != ParentMap.NONE) {
+						return new ConnectionPath(path(forward, backward, next), false, visited + 1);
+					}
+
+					if (++visited % CLOCK_INTERVAL == 0 && System.nanoTime() > deadline) {
+						return new ConnectionPath(new int[0], true, visited);
+					}
+				}
+			}
+
+			if (System.nanoTime() > deadline) {
+				return new ConnectionPath(new int[0], true, visited);
+			}
+		}
+
+		return new ConnectionPath(new int[0], false, visited);
+	}
+
+	/**
+	 * Join the halves at the person both searches reached
+	 */
+	private static int[] path(final Side forward, final Side backward, final int meeting) {
+
+		final int[] toStart = walk(forward.parents, meeting);
+		final int[] toEnd = walk(backward.parents, meeting);
+
+		final int[] result = new int[toStart.length + toEnd.length - 1];
+
+		for (int i = 0; i < toStart.length; ++i) {
+			result[i] = toStart[toStart.length - 1 - i];
+		}
+
+		System.arraycopy(toEnd, 1, result, toStart.length, toEnd.length - 1);
+
+		return result;
+	}
+
+	/**
+	 * @return the persons from the given one back to the start of the search
+	 */
+	private static int[] walk(final ParentMap parents, final int from) {
+
+		int[] result = new int[8];
+		int size = 0;
+		int person = from;
+
+		while (true) {
+
+			if (size == result.length) {
+				result = Arrays.copyOf(result, 2 * size);
+			}
+
+			result[size++] = person;
+
+			final int parent = parents.get(person);
+
+			if (parent == person) {
+				return Arrays.copyOf(result, size);
+			}
+
+			person = parent;
+		}
+	}
+
+	/**
+	 * The state of the search from one of the persons
+	 */
+	private static final class Side {
+
+		/**
+		 * person to the person it was reached from, the start is its own parent
+		 */
+		final ParentMap parents = new ParentMap();
+
+		int[] frontier = new int[16];
+
+		int size;
+
+		int depth;
+
+		Side(final int start) {
+
+			parents.putIfAbsent(start, start);
+			add(start);
+		}
+
+		void add(final int person) {
+
+			if (size == frontier.length) {
+				frontier = Arrays.copyOf(frontier, 2 * size);
+			}
+
+			frontier[size++] = person;
+		}
+	}
+
+	/**
+	 * Person to parent with open addressing, saves boxing an Integer per
+	 * visited person. Person ids are not negative
+	 */
+	private static final class ParentMap {
+
+		static final int NONE = -1;
+
+		int[] keys = newKeys(64);
+
+		int[] values = new int[64];
+
+		int size;
+
+		/**
+		 * @return false if the person is already known
+		 */
+		boolean putIfAbsent(final int key, final int value) {
+
+			if (2 * (size + 1) > keys.length) {
+				grow();
+			}
+
+			int at = slot(keys, key);
+
+			if (keys[at] == key) {
+				return false;
+			}
+
+			keys[at] = key;
+			values[at] = value;
+			++size;
+
+			return true;
+		}
+
+		/**
+		 * @return the parent, NONE if the person is not known
+		 */
+		int get(final int key) {
+
+			final int at = slot(keys, key);
+
+			return keys[at] == key ? values[at] : NONE;
+		}
+
+		private void grow() {
+
+			final int[] oldKeys = keys;
+			final int[] oldValues = values;
+
+			keys = newKeys(2 * oldKeys.length);
+			values = new int[keys.length];
+
+			for (int i = 0; i < oldKeys.length; ++i) {
+				if (oldKeys[i] != NONE) {
+
+					final int at = slot(keys, oldKeys[i]);
+
+					keys[at] = oldKeys[i];
+					values[at] = oldValues[i];
+				}
+			}
+		}
+
+		/**
+		 * @return the slot of the key or the empty slot it belongs to
+		 */
+		private static int slot(final int[] keys, final int key) {
+
+			final int mask = keys.length - 1;
+			final int hash = key * 0x9E3779B9;
+			int at = (hash ^ hash >>> 16) & mask;
+
+			while (keys[at] != NONE && keys[at] != key) {
+				at = (at + 1) & mask;
+			}
+
+			return at;
+		}
+
+		private static int[] newKeys(final int capacity) {
+
+			final int[] keys = new int[capacity];
+			Arrays.fill(keys, NONE);
+
+			return keys;
+		}
+	}
+}
@@ -0,0 +1,294 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.cache.TagDictionary;
+import at.fhj.swd13.pse.repository.PersonRepository;
+
+/**
+ * In-memory index of the persons per tag, for finding experts
+ *
+ * Every tag maps to a compressed bitmap of the ids of the persons tagged with
+ * it, tag expressions like "java AND kubernetes AND graz" are evaluated with
+ * bitmap intersections and unions instead of one join over person_tag per
+ * tag.
+ *
+ * The index is loaded from person_tag when it is used for the first time and
+ * kept current by the services, which record tags added to and removed from
+ * persons once their transaction has committed. Added tags recorded before the
+ * load completes are kept, the load only adds. A removal waits for the load,
+ * so the load cannot add the removed tag back.
+ *
+ * Found ids may belong to persons whose transaction was rolled back, callers
+ * load the persons by id and skip those that do not exist.
+ *
+ */
+@ApplicationScoped
+public class ExpertiseIndex {
+
+	/**
+	 * number of person tags read per query while loading
+	 */
+	public static final int LOAD_CHUNK_SIZE = 5000;
+
+	@Inject
+	private PersonRepository personRepository;
+
+	@Inject
+	private TagDictionary tagDictionary;
+
+	private final Map<Integer, IdBitmap> bitmaps = new HashMap<Integer, IdBitmap>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private volatile boolean loaded;
+
+	public ExpertiseIndex() {
+	}
+
+	/**
+	 * Create an index outside of a container
+	 *
+	 * @param personRepository where to read the person tags from
+	 * @param tagDictionary where to look up the tag ids
+	 */
+	public ExpertiseIndex(final PersonRepository personRepository, final TagDictionary tagDictionary) {
+
+		this.personRepository = personRepository;
+		this.tagDictionary = tagDictionary;
+	}
+
+	/**
+	 * Record that a person was tagged
+	 *
+	 * @param tagId id of the tag
+	 * @param personId id of the person
+	 */
+	public void add(final int tagId, final int personId) {
+
+		lock.writeLock().lock();
+
+		try {
+			addUnlocked(tagId, personId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Record that a tag was removed from a person
+	 *
+	 * @param tagId id of the tag
+	 * @param personId id of the person
+	 */
+	public void remove(final int tagId, final int personId) {
+
+		ensureLoaded();
+
+		lock.writeLock().lock();
+
+		try {
+			final IdBitmap bitmap = bitmaps.get(tagId);
+
+			if (bitmap != null && bitmap.remove(personId) && bitmap.isEmpty()) {
+				bitmaps.remove(tagId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove a deleted person from all tags
+	 *
+	 * @param personId id of the person
+	 */
+	public void removePerson(final int personId) {
+
+		ensureLoaded();
+
+		lock.writeLock().lock();
+
+		try {
+			for (IdBitmap bitmap : bitmaps.values()) {
+				bitmap.remove(personId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Check whether a person is tagged with a tag
+	 *
+	 * @param tagId id of the tag
+	 * @param personId id of the person
+	 *
+	 * @return true if the person has the tag
+	 */
+	public boolean hasTag(final int tagId, final int personId) {
+
+		ensureLoaded();
+
+		lock.readLock().lock();
+
+		try {
+			final IdBitmap bitmap = bitmaps.get(tagId);
+
+			return bitmap != null && bitmap.contains(personId);
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Find the persons matching a tag expression
+	 *
+	 * @param expression the parsed tag expression
+	 *
+	 * @return the ids of the matching persons, owned by the caller
+	 */
+	public IdBitmap evaluate(final TagExpression expression) {
+
+		ensureLoaded();
+
+		final Map<String, Integer> tagIds = tagDictionary.getTagIds(expression.getTokens());
+		final Map<String, IdBitmap> operands = new HashMap<String, IdBitmap>();
+
+		lock.readLock().lock();
+
+		try {
+			for (Map.Entry<String, Integer> tagId : tagIds.entrySet()) {
+
+				final IdBitmap bitmap = bitmaps.get(tagId.getValue());
+
+				if (bitmap != null) {
+					operands.put(tagId.getKey(), bitmap);
+				}
+			}
+
+			return expression.evaluate(operands);
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get a page of the persons matching a tag expression, highest ids first
+	 *
+	 * @param expression the parsed tag expression
+	 * @param belowPersonId only persons with a lower id are returned, the last
+	 *            id of the previous page or 0 for the first page
+	 * @param maxResults max number of ids to return
+	 *
+	 * @return the ids of the matching persons in descending order
+	 */
+	public int[] findPersonIds(final TagExpression expression, final int belowPersonId, final int maxResults) {
+		return evaluate(expression).highest(belowPersonId > 0 ? belowPersonId : -1, maxResults);
+	}
+
+	/**
+	 * Get the number of persons with a tag
+	 *
+	 * @param tagId id of the tag
+	 *
+	 * @return number of persons, 0 for unknown tags
+	 */
+	public int count(final int tagId) {
+
+		ensureLoaded();
+
+		lock.readLock().lock();
+
+		try {
+			final IdBitmap bitmap = bitmaps.get(tagId);
+
+			return bitmap == null ? 0 : bitmap.cardinality();
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the approximate memory used by the bitmaps in bytes
+	 */
+	public long byteSize() {
+
+		lock.readLock().lock();
+
+		try {
+			long bytes = 0;
+
+			for (IdBitmap bitmap : bitmaps.values()) {
+				bytes += bitmap.byteSize();
+			}
+
+			return bytes;
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Load all person tags once, in chunks ordered by person_tag_id. Each chunk
+	 * is added under the write lock, so writers are not blocked for the whole
+	 * load
+	 */
+	private void ensureLoaded() {
+
+		if (loaded) {
+			return;
+		}
+
+		synchronized (this) {
+
+			if (loaded) {
+				return;
+			}
+
+			int lastId = 0;
+			List<int[]> rows;
+
+			do {
+				rows = personRepository.loadPersonTags(lastId, LOAD_CHUNK_SIZE);
+
+				lock.writeLock().lock();
+
+				try {
+					for (int[] row : rows) {
+						addUnlocked(row[2], row[1]);
+						lastId = row[0];
+					}
+				} finally {
+					lock.writeLock().unlock();
+				}
+
+			} while (rows.size() == LOAD_CHUNK_SIZE);
+
+			loaded = true;
+		}
+	}
+
+	private void addUnlocked(final int tagId, final int personId) {
+
+		IdBitmap bitmap = bitmaps.get(tagId);
+
+		if (bitmap == null) {
+			bitmap = new IdBitmap();
+			bitmaps.put(tagId, bitmap);
+		}
+
+		bitmap.add(personId);
+	}
+}
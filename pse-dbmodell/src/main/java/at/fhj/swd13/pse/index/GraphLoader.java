@@ -0,0 +1,61 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the edges of a graph in keyset chunks, each row as { id, source,
+ * target } ordered by id
+ *
+ */
+abstract class GraphLoader {
+
+	private final int chunkSize;
+
+	GraphLoader(final int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Read the rows following the given id
+	 *
+	 * @param afterId id after which to start, 0 for the first chunk
+	 * @param maxRows the max number of rows to return
+	 *
+	 * @return the rows, may be empty
+	 */
+	abstract List<int[]> loadChunk(int afterId, int maxRows);
+
+	/**
+	 * Read all rows into the graph, replacing its edges
+	 *
+	 * @param graph the graph to fill
+	 */
+	void loadInto(final SocialGraph graph) {
+
+		int[] sources = new int[chunkSize];
+		int[] targets = new int[chunkSize];
+		int count = 0;
+		int lastId = 0;
+		List<int[]> rows;
+
+		do {
+			rows = loadChunk(lastId, chunkSize);
+
+			if (count + rows.size() > sources.length) {
+				sources = Arrays.copyOf(sources, Math.max(count + rows.size(), 2 * sources.length));
+				targets = Arrays.copyOf(targets, sources.length);
+			}
+
+			for (int[] row : rows) {
+				sources[count] = row[1];
+				targets[count] = row[2];
+				++count;
+				lastId = row[0];
+			}
+
+		} while (rows.size() == chunkSize);
+
+		graph.load(sources, targets, count);
+	}
+}
@@ -0,0 +1,784 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative ids (Roaring bitmap layout)
+ *
+ * The ids are partitioned by their upper 16 bits into chunks of 65536. A
+ * chunk with few ids stores them as a sorted char array (2 bytes per id), a
+ * chunk with more than ARRAY_MAX ids as a bitmap of 8 kB. Intersection and
+ * union work chunk by chunk and only touch chunks present in both (or
+ * either) operands.
+ *
+ * Not thread safe.
+ *
+ */
+public final class IdBitmap {
+
+	/**
+	 * max number of ids of a chunk stored as array, above the bitmap is
+	 * smaller
+	 */
+	static final int ARRAY_MAX = 4096;
+
+	private static final int BITMAP_WORDS = 1024;
+
+	private char[] keys;
+
+	private Container[] containers;
+
+	private int size;
+
+	/**
+	 * Create an empty bitmap
+	 */
+	public IdBitmap() {
+		this(4);
+	}
+
+	private IdBitmap(final int capacity) {
+
+		keys = new char[capacity];
+		containers = new Container[capacity];
+	}
+
+	/**
+	 * Create a bitmap containing the given ids
+	 *
+	 * @param ids the ids, in any order
+	 *
+	 * @return the bitmap
+	 */
+	public static IdBitmap of(final int... ids) {
+
+		final IdBitmap bitmap = new IdBitmap();
+
+		for (int id : ids) {
+			bitmap.add(id);
+		}
+
+		return bitmap;
+	}
+
+	/**
+	 * Add an id
+	 *
+	 * @param id the id, not negative
+	 *
+	 * @return true if the id was not contained before
+	 */
+	public boolean add(final int id) {
+
+		if (id < 0) {
+			throw new IllegalArgumentException("negative id: " + id);
+		}
+
+		final char key = (char) (id >>> 16);
+		int pos = find(key);
+
+		if (pos < 0) {
+
+			pos = -pos - 1;
+			insertContainer(pos, key, new ArrayContainer());
+		}
+
+		final Container before = containers[pos];
+		final Container after = before.add((char) id);
+
+		containers[pos] = after;
+
+		return after != before || before.lastChanged;
+	}
+
+	/**
+	 * Remove an id
+	 *
+	 * @param id the id
+	 *
+	 * @return true if the id was contained
+	 */
+	public boolean remove(final int id) {
+
+		if (id < 0) {
+			return false;
+		}
+
+		final int pos = find((char) (id >>> 16));
+
+		if (pos < 0) {
+			return false;
+		}
+
+		final Container before = containers[pos];
+		final Container after = before.remove((char) id);
+		final boolean removed = after != before || before.lastChanged;
+
+		if (after.cardinality() == 0) {
+			removeContainer(pos);
+		} else {
+			containers[pos] = after;
+		}
+
+		return removed;
+	}
+
+	/**
+	 * @param id the id to check
+	 *
+	 * @return true if the id is contained
+	 */
+	public boolean contains(final int id) {
+
+		if (id < 0) {
+			return false;
+		}
+
+		final int pos = find((char) (id >>> 16));
+
+		return pos >= 0 && containers[pos].contains((char) id);
+	}
+
+	/**
+	 * @return the number of ids
+	 */
+	public int cardinality() {
+
+		int cardinality = 0;
+
+		for (int i = 0; i < size; ++i) {
+			cardinality += containers[i].cardinality();
+		}
+
+		return cardinality;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param other the other bitmap
+	 *
+	 * @return a new bitmap with the ids contained in both bitmaps
+	 */
+	public IdBitmap and(final IdBitmap other) {
+
+		final IdBitmap result = new IdBitmap(Math.max(1, Math.min(size, other.size)));
+
+		int i = 0;
+		int j = 0;
+
+		while (i < size && j < other.size) {
+
+			if (keys[i] < other.keys[j]) {
+				++i;
+			} else if (keys[i] > other.keys[j]) {
+				++j;
+			} else {
+				final Container c = containers[i].and(other.containers[j]);
+
+				if (c.cardinality() > 0) {
+					result.appendContainer(keys[i], c);
+				}
+
+				++i;
+				++j;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param other the other bitmap
+	 *
+	 * @return a new bitmap with the ids contained in either bitmap
+	 */
+	public IdBitmap or(final IdBitmap other) {
+
+		final IdBitmap result = new IdBitmap(Math.max(1, size + other.size));
+
+		int i = 0;
+		int j = 0;
+
+		while (i < size || j < other.size) {
+
+			if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+				result.appendContainer(keys[i], containers[i].copy());
+				++i;
+			} else if (i == size || keys[i] > other.keys[j]) {
+				result.appendContainer(other.keys[j], other.containers[j].copy());
+				++j;
+			} else {
+				result.appendContainer(keys[i], containers[i].or(other.containers[j]));
+				++i;
+				++j;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @param other the other bitmap
+	 *
+	 * @return a new bitmap with the ids of this bitmap that are not contained
+	 *         in the other
+	 */
+	public IdBitmap andNot(final IdBitmap other) {
+
+		final IdBitmap result = new IdBitmap(Math.max(1, size));
+
+		int j = 0;
+
+		for (int i = 0; i < size; ++i) {
+
+			while (j < other.size && other.keys[j] < keys[i]) {
+				++j;
+			}
+
+			final Container c = j < other.size && other.keys[j] == keys[i] ? containers[i].andNot(other.containers[j])
+					: containers[i].copy();
+
+			if (c.cardinality() > 0) {
+				result.appendContainer(keys[i], c);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return a copy of this bitmap
+	 */
+	public IdBitmap copy() {
+
+		final IdBitmap result = new IdBitmap(Math.max(1, size));
+
+		for (int i = 0; i < size; ++i) {
+			result.appendContainer(keys[i], containers[i].copy());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get the highest ids below a limit, e.g. a page of the newest messages
+	 *
+	 * @param below only ids lower than this are returned, negative for no
+	 *            limit
+	 * @param maxCount max number of ids to return
+	 *
+	 * @return the ids in descending order
+	 */
+	public int[] highest(final int below, final int maxCount) {
+
+		final int[] result = new int[Math.max(0, Math.min(maxCount, cardinality()))];
+		int count = 0;
+
+		for (int i = size - 1; i >= 0 && count < result.length; --i) {
+
+			final int high = keys[i] << 16;
+
+			if (high >= below && below >= 0) {
+				continue;
+			}
+
+			count = containers[i].highest(high, below, result, count);
+		}
+
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * @return all ids in ascending order
+	 */
+	public int[] toArray() {
+
+		final int[] descending = highest(-1, Integer.MAX_VALUE);
+		final int[] result = new int[descending.length];
+
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = descending[descending.length - 1 - i];
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return number of bytes used by the chunks, for monitoring
+	 */
+	public long byteSize() {
+
+		long bytes = 0;
+
+		for (int i = 0; i < size; ++i) {
+			bytes += containers[i].byteSize();
+		}
+
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		return "IdBitmap[cardinality=" + cardinality() + ", chunks=" + size + "]";
+	}
+
+	private int find(final char key) {
+
+		// appending to the last chunk is the common case
+		if (size > 0 && keys[size - 1] == key) {
+			return size - 1;
+		}
+
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+
+	private void insertContainer(final int pos, final char key, final Container container) {
+
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			containers = Arrays.copyOf(containers, size * 2);
+		}
+
+		System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+		System.arraycopy(containers, pos, containers, pos + 1, size - pos);
+
+		keys[pos] = key;
+		containers[pos] = container;
+		++size;
+	}
+
+	private void appendContainer(final char key, final Container container) {
+		insertContainer(size, key, container);
+	}
+
+	private void removeContainer(final int pos) {
+
+		System.arraycopy(keys, pos + 1, keys, pos, size - pos - 1);
+		System.arraycopy(containers, pos + 1, containers, pos, size - pos - 1);
+
+		containers[--size] = null;
+	}
+
+	/**
+	 * The ids of one chunk, lower 16 bits only
+	 */
+	private abstract static class Container {
+
+		/**
+		 * set by add and remove when they changed the container in place
+		 */
+		boolean lastChanged;
+
+		abstract Container add(char value);
+
+		abstract Container remove(char value);
+
+		abstract boolean contains(char value);
+
+		abstract int cardinality();
+
+		abstract Container and(Container other);
+
+		abstract Container or(Container other);
+
+		abstract Container andNot(Container other);
+
+		abstract Container copy();
+
+		/**
+		 * Copy the ids below the limit into result, highest first
+		 *
+		 * @return the new count of ids in result
+		 */
+		abstract int highest(int high, int below, int[] result, int count);
+
+		abstract int byteSize();
+	}
+
+	private static final class ArrayContainer extends Container {
+
+		char[] values;
+
+		int cardinality;
+
+		ArrayContainer() {
+			values = new char[4];
+		}
+
+		ArrayContainer(final char[] values, final int cardinality) {
+
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		Container add(final char value) {
+
+			final int pos = cardinality > 0 && values[cardinality - 1] < value ? -cardinality - 1
+					: Arrays.binarySearch(values, 0, cardinality, value);
+
+			if (pos >= 0) {
+				lastChanged = false;
+				return this;
+			}
+
+			if (cardinality == ARRAY_MAX) {
+
+				final BitmapContainer bitmap = toBitmap();
+
+				bitmap.add(value);
+
+				return bitmap;
+			}
+
+			final int insert = -pos - 1;
+
+			if (cardinality == values.length) {
+				values = Arrays.copyOf(values, Math.max(4, Math.min(ARRAY_MAX, cardinality * 2)));
+			}
+
+			System.arraycopy(values, insert, values, insert + 1, cardinality - insert);
+			values[insert] = value;
+			++cardinality;
+
+			lastChanged = true;
+			return this;
+		}
+
+		@Override
+		Container remove(final char value) {
+
+			final int pos = Arrays.binarySearch(values, 0, cardinality, value);
+
+			if (pos < 0) {
+				lastChanged = false;
+				return this;
+			}
+
+			System.arraycopy(values, pos + 1, values, pos, cardinality - pos - 1);
+			--cardinality;
+
+			lastChanged = true;
+			return this;
+		}
+
+		@Override
+		boolean contains(final char value) {
+			return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+		}
+
+		@Override
+		int cardinality() {
+			return cardinality;
+		}
+
+		@Override
+		Container and(final Container other) {
+
+			final char[] result = new char[cardinality];
+			int count = 0;
+
+			if (other instanceof ArrayContainer) {
+
+				final ArrayContainer o = (ArrayContainer) other;
+
+				for (int i = 0, j = 0; i < cardinality && j < o.cardinality;) {
+
+					if (values[i] < o.values[j]) {
+						++i;
+					} else if (values[i] > o.values[j]) {
+						++j;
+					} else {
+						result[count++] = values[i];
+						++i;
+						++j;
+					}
+				}
+
+			} else {
+
+				for (int i = 0; i < cardinality; ++i) {
+
+					if (other.contains(values[i])) {
+						result[count++] = values[i];
+					}
+				}
+			}
+
+			return new ArrayContainer(result, count);
+		}
+
+		@Override
+		Container or(final Container other) {
+
+			if (other instanceof BitmapContainer) {
+				return other.or(this);
+			}
+
+			final ArrayContainer o = (ArrayContainer) other;
+			final char[] result = new char[cardinality + o.cardinality];
+			int count = 0;
+			int i = 0;
+			int j = 0;
+
+			while (i < cardinality || j < o.cardinality) {
+
+				if (j == o.cardinality || (i < cardinality && values[i] < o.values[j])) {
+					result[count++] = values[i++];
+				} else if (i == cardinality || values[i] > o.values[j]) {
+					result[count++] = o.values[j++];
+				} else {
+					result[count++] = values[i];
+					++i;
+					++j;
+				}
+			}
+
+			final ArrayContainer union = new ArrayContainer(result, count);
+
+			return count > ARRAY_MAX ? union.toBitmap() : union;
+		}
+
+		@Override
+		Container andNot(final Container other) {
+
+			final char[] result = new char[cardinality];
+			int count = 0;
+
+			for (int i = 0; i < cardinality; ++i) {
+
+				if (!other.contains(values[i])) {
+					result[count++] = values[i];
+				}
+			}
+
+			return new ArrayContainer(result, count);
+		}
+
+		@Override
+		Container copy() {
+			return new ArrayContainer(Arrays.copyOf(values, Math.max(1, cardinality)), cardinality);
+		}
+
+		@Override
+		int highest(final int high, final int below, final int[] result, int count) {
+
+			for (int i = cardinality - 1; i >= 0 && count < result.length; --i) {
+
+				final int id = high | values[i];
+
+				if (below < 0 || id < below) {
+					result[count++] = id;
+				}
+			}
+
+			return count;
+		}
+
+		@Override
+		int byteSize() {
+			return values.length * 2;
+		}
+
+		BitmapContainer toBitmap() {
+
+			final BitmapContainer bitmap = new BitmapContainer();
+
+			for (int i = 0; i < cardinality; ++i) {
+				bitmap.add(values[i]);
+			}
+
+			return bitmap;
+		}
+	}
+
+	private static final class BitmapContainer extends Container {
+
+		final long[] words;
+
+		int cardinality;
+
+		BitmapContainer() {
+			words = new long[BITMAP_WORDS];
+		}
+
+		BitmapContainer(final long[] words) {
+
+			this.words = words;
+
+			for (long word : words) {
+				cardinality += Long.bitCount(word);
+			}
+		}
+
+		@Override
+		Container add(final char value) {
+
+			final long before = words[value >>> 6];
+
+			words[value >>> 6] = before | (1L << value);
+
+			lastChanged = before != words[value >>> 6];
+
+			if (lastChanged) {
+				++cardinality;
+			}
+
+			return this;
+		}
+
+		@Override
+		Container remove(final char value) {
+
+			final long before = words[value >>> 6];
+
+			words[value >>> 6] = before & ~(1L << value);
+
+			lastChanged = before != words[value >>> 6];
+
+			if (lastChanged && --cardinality <= ARRAY_MAX) {
+				return toArray();
+			}
+
+			return this;
+		}
+
+		@Override
+		boolean contains(final char value) {
+			return (words[value >>> 6] & (1L << value)) != 0;
+		}
+
+		@Override
+		int cardinality() {
+			return cardinality;
+		}
+
+		@Override
+		Container and(final Container other) {
+
+			if (other instanceof ArrayContainer) {
+				return other.and(this);
+			}
+
+			final long[] o = ((BitmapContainer) other).words;
+			final long[] result = new long[BITMAP_WORDS];
+
+			for (int i = 0; i < BITMAP_WORDS; ++i) {
+				result[i] = words[i] & o[i];
+			}
+
+			return normalize(new BitmapContainer(result));
+		}
+
+		@Override
+		Container or(final Container other) {
+
+			final long[] result = words.clone();
+
+			if (other instanceof ArrayContainer) {
+
+				final ArrayContainer o = (ArrayContainer) other;
+
+				for (int i = 0; i < o.cardinality; ++i) {
+					result[o.values[i] >>> 6] |= 1L << o.values[i];
+				}
+
+			} else {
+
+				final long[] o = ((BitmapContainer) other).words;
+
+				for (int i = 0; i < BITMAP_WORDS; ++i) {
+					result[i] |= o[i];
+				}
+			}
+
+			return new BitmapContainer(result);
+		}
+
+		@Override
+		Container andNot(final Container other) {
+
+			final long[] result = words.clone();
+
+			if (other instanceof ArrayContainer) {
+
+				final ArrayContainer o = (ArrayContainer) other;
+
+				for (int i = 0; i < o.cardinality; ++i) {
+					result[o.values[i] >>> 6] &= ~(1L << o.values[i]);
+				}
+
+			} else {
+
+				final long[] o = ((BitmapContainer) other).words;
+
+				for (int i = 0; i < BITMAP_WORDS; ++i) {
+					result[i] &= ~o[i];
+				}
+			}
+
+			return normalize(new BitmapContainer(result));
+		}
+
+		@Override
+		Container copy() {
+			return new BitmapContainer(words.clone());
+		}
+
+		@Override
+		int highest(final int high, final int below, final int[] result, int count) {
+
+			for (int w = BITMAP_WORDS - 1; w >= 0 && count < result.length; --w) {
+
+				long word = words[w];
+
+				while (word != 0 && count < result.length) {
+
+					final int bit = 63 - Long.numberOfLeadingZeros(word);
+					final int id = high | (w << 6) | bit;
+
+					if (below < 0 || id < below) {
+						result[count++] = id;
+					}
+
+					word &= ~(1L << bit);
+				}
+			}
+
+			return count;
+		}
+
+		@Override
+		int byteSize() {
+			return BITMAP_WORDS * 8;
+		}
+
+		private static Container normalize(final BitmapContainer bitmap) {
+			return bitmap.cardinality <= ARRAY_MAX ? bitmap.toArray() : bitmap;
+		}
+
+		ArrayContainer toArray() {
+
+			final char[] values = new char[Math.max(1, cardinality)];
+			int count = 0;
+
+			for (int w = 0; w < BITMAP_WORDS; ++w) {
+
+				long word = words[w];
+
+				while (word != 0) {
+
+					final int bit = Long.numberOfTrailingZeros(word);
+
+					values[count++] = (char) ((w << 6) | bit);
+					word &= word - 1;
+				}
+			}
+
+			return new ArrayContainer(values, count);
+		}
+	}
+}
@@ -0,0 +1,320 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index of documents with a title and a body
+ *
+ * Every term maps to a compressed postings list of the documents containing
+ * it. The terms of each document are kept as well, so a document can be
+ * replaced or removed without its old text. Queries match documents that
+ * contain all query terms and rank them with BM25, title terms count
+ * TITLE_WEIGHT times.
+ *
+ * Thread safe, any number of searches run in parallel to one writer.
+ *
+ */
+public class InvertedIndex {
+
+	/**
+	 * term frequency weight of a term in the title
+	 */
+	public static final int TITLE_WEIGHT = 3;
+
+	private static final double K1 = 1.2;
+
+	private static final double B = 0.75;
+
+	private static final Comparator<SearchHit> BY_SCORE = new Comparator<SearchHit>() {
+
+		@Override
+		public int compare(final SearchHit a, final SearchHit b) {
+
+			final int byScore = Double.compare(a.getScore(), b.getScore());
+
+			// newer documents (higher ids) win ties
+			return byScore != 0 ? byScore : Integer.compare(a.getDocId(), b.getDocId());
+		}
+	};
+
+	private final Map<String, PostingsList> postings = new HashMap<String, PostingsList>();
+
+	private final Map<Integer, Document> documents = new HashMap<Integer, Document>();
+
+	private long totalLength;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Add a document or replace its text
+	 *
+	 * @param docId id of the document
+	 * @param title the title, may be null
+	 * @param body the body, may be null
+	 */
+	public void put(final int docId, final String title, final String body) {
+
+		final Map<String, Integer> frequencies = new HashMap<String, Integer>();
+
+		final List<String> titleTerms = TextTokenizer.tokenize(title);
+		final List<String> bodyTerms = TextTokenizer.tokenize(body);
+
+		count(frequencies, titleTerms, TITLE_WEIGHT);
+		count(frequencies, bodyTerms, 1);
+
+		final int docLength = titleTerms.size() * TITLE_WEIGHT + bodyTerms.size();
+
+		lock.writeLock().lock();
+
+		try {
+			removeDocument(docId);
+
+			final String[] terms = new String[frequencies.size()];
+			int i = 0;
+
+			for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+
+				PostingsList list = postings.get(frequency.getKey());
+
+				if (list == null) {
+					list = new PostingsList();
+					postings.put(frequency.getKey(), list);
+				}
+
+				list.put(docId, frequency.getValue());
+
+				terms[i++] = frequency.getKey();
+			}
+
+			documents.put(docId, new Document(terms, docLength));
+			totalLength += docLength;
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove a document
+	 *
+	 * @param docId id of the document
+	 *
+	 * @return true if the document was indexed
+	 */
+	public boolean remove(final int docId) {
+
+		lock.writeLock().lock();
+
+		try {
+			return removeDocument(docId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Find the documents containing all terms of the query
+	 *
+	 * @param query the query text, tokenized like the documents
+	 * @param maxResults max number of hits to return
+	 *
+	 * @return the hits, most relevant first, empty if the query has no terms
+	 */
+	public List<SearchHit> search(final String query, final int maxResults) {
+
+		final Set<String> terms = new LinkedHashSet<String>(TextTokenizer.tokenize(query));
+
+		if (terms.isEmpty() || maxResults <= 0) {
+			return Collections.emptyList();
+		}
+
+		lock.readLock().lock();
+
+		try {
+			final List<PostingsList> lists = new ArrayList<PostingsList>(terms.size());
+
+			for (String term : terms) {
+
+				final PostingsList list = postings.get(term);
+
+				if (list == null) {
+					return Collections.emptyList();
+				}
+
+				lists.add(list);
+			}
+
+			// intersect starting with the rarest term
+			Collections.sort(lists, new Comparator<PostingsList>() {
+
+				@Override
+				public int compare(final PostingsList a, final PostingsList b) {
+					return Integer.compare(a.size(), b.size());
+				}
+			});
+
+			final int docCount = documents.size();
+			final double avgLength = docCount == 0 ? 1 : Math.max(1.0, (double) totalLength / docCount);
+
+			int[] docIds = new int[lists.get(0).size()];
+			int[] tfs = new int[docIds.length];
+			int count = lists.get(0).decode(docIds, tfs);
+
+			final double[] scores = new double[count];
+
+			addScores(scores, docIds, tfs, count, idf(docCount, lists.get(0).size()), avgLength);
+
+			for (int l = 1; l < lists.size() && count > 0; ++l) {
+
+				final PostingsList list = lists.get(l);
+				final int[] otherIds = new int[list.size()];
+				final int[] otherTfs = new int[list.size()];
+				final int otherCount = list.decode(otherIds, otherTfs);
+				final double idf = idf(docCount, list.size());
+
+				int kept = 0;
+
+				for (int i = 0, j = 0; i < count && j < otherCount;) {
+
+					if (docIds[i] < otherIds[j]) {
+						++i;
+					} else if (docIds[i] > otherIds[j]) {
+						++j;
+					} else {
+						docIds[kept] = docIds[i];
+						scores[kept] = scores[i] + bm25(idf, otherTfs[j], documents.get(docIds[i]).length, avgLength);
+						++kept;
+						++i;
+						++j;
+					}
+				}
+
+				count = kept;
+			}
+
+			final PriorityQueue<SearchHit> top = new PriorityQueue<SearchHit>(Math.min(maxResults, count) + 1,
+					BY_SCORE);
+
+			for (int i = 0; i < count; ++i) {
+
+				top.add(new SearchHit(docIds[i], scores[i]));
+
+				if (top.size() > maxResults) {
+					top.poll();
+				}
+			}
+
+			final List<SearchHit> hits = new ArrayList<SearchHit>(top);
+			Collections.sort(hits, Collections.reverseOrder(BY_SCORE));
+
+			return hits;
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the number of indexed documents
+	 */
+	public int size() {
+
+		lock.readLock().lock();
+
+		try {
+			return documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the number of distinct terms
+	 */
+	public int getTermCount() {
+
+		lock.readLock().lock();
+
+		try {
+			return postings.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void addScores(final double[] scores, final int[] docIds, final int[] tfs, final int count,
+			final double idf, final double avgLength) {
+
+		for (int i = 0; i < count; ++i) {
+			scores[i] = bm25(idf, tfs[i], documents.get(docIds[i]).length, avgLength);
+		}
+	}
+
+	private static double idf(final int docCount, final int docFrequency) {
+		return Math.log(1 + (docCount - docFrequency + 0.5) / (docFrequency + 0.5));
+	}
+
+	private static double bm25(final double idf, final int tf, final int docLength, final double avgLength) {
+		return idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * docLength / avgLength));
+	}
+
+	private boolean removeDocument(final int docId) {
+
+		final Document document = documents.remove(docId);
+
+		if (document == null) {
+			return false;
+		}
+
+		for (String term : document.terms) {
+
+			final PostingsList list = postings.get(term);
+
+			list.remove(docId);
+
+			if (list.size() == 0) {
+				postings.remove(term);
+			}
+		}
+
+		totalLength -= document.length;
+
+		return true;
+	}
+
+	private static void count(final Map<String, Integer> frequencies, final List<String> terms, final int weight) {
+
+		for (String term : terms) {
+
+			final Integer frequency = frequencies.get(term);
+
+			frequencies.put(term, frequency == null ? weight : frequency + weight);
+		}
+	}
+
+	/**
+	 * Distinct terms and weighted length of an indexed document
+	 */
+	private static final class Document {
+
+		final String[] terms;
+
+		final int length;
+
+		Document(final String[] terms, final int length) {
+
+			this.terms = terms;
+			this.length = length;
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.repository.PersonRepository;
+
+/**
+ * In-memory index of the members per community
+ *
+ * Every community maps to a compressed bitmap of the ids of its members, so
+ * membership checks and member counts neither load the CommunityMember
+ * entities nor query the database.
+ *
+ * The index is loaded from community_member when it is used for the first
+ * time. ChatServiceImpl records new memberships and UserService removed
+ * persons after their transaction has committed. New members recorded before
+ * the load completes are kept, the load only adds; removals wait for the load.
+ *
+ */
+@ApplicationScoped
+public class MembershipIndex {
+
+	/**
+	 * number of memberships read per query while loading
+	 */
+	public static final int LOAD_CHUNK_SIZE = 10000;
+
+	@Inject
+	private PersonRepository personRepository;
+
+	private final Map<Integer, IdBitmap> bitmaps = new HashMap<Integer, IdBitmap>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private volatile boolean loaded;
+
+	public MembershipIndex() {
+	}
+
+	/**
+	 * Create an index outside of a container
+	 *
+	 * @param personRepository where to read the memberships from
+	 */
+	public MembershipIndex(final PersonRepository personRepository) {
+		this.personRepository = personRepository;
+	}
+
+	/**
+	 * Record a new member of a community
+	 *
+	 * @param communityId id of the community
+	 * @param personId id of the member
+	 */
+	public void add(final int communityId, final int personId) {
+
+		lock.writeLock().lock();
+
+		try {
+			addUnlocked(communityId, personId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Record that a member left a community
+	 *
+	 * @param communityId id of the community
+	 * @param personId id of the member
+	 */
+	public void remove(final int communityId, final int personId) {
+
+		ensureLoaded();
+
+		lock.writeLock().lock();
+
+		try {
+			final IdBitmap bitmap = bitmaps.get(communityId);
+
+			if (bitmap != null && bitmap.remove(personId) && bitmap.isEmpty()) {
+				bitmaps.remove(communityId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove a deleted community with all its memberships
+	 *
+	 * @param communityId id of the community
+	 */
+	public void removeCommunity(final int communityId) {
+
+		ensureLoaded();
+
+		lock.writeLock().lock();
+
+		try {
+			bitmaps.remove(communityId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove a deleted person from all communities
+	 *
+	 * @param personId id of the person
+	 */
+	public void removePerson(final int personId) {
+
+		ensureLoaded();
+
+		lock.writeLock().lock();
+
+		try {
+			for (IdBitmap bitmap : bitmaps.values()) {
+				bitmap.remove(personId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Check whether a person is a member of a community
+	 *
+	 * @param communityId id of the community
+	 * @param personId id of the person
+	 *
+	 * @return true if the person is a member
+	 */
+	public boolean isMember(final int communityId, final int personId) {
+
+		ensureLoaded();
+
+		lock.readLock().lock();
+
+		try {
+			final IdBitmap bitmap = bitmaps.get(communityId);
+
+			return bitmap != null && bitmap.contains(personId);
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the number of members of a community
+	 *
+	 * @param communityId id of the community
+	 *
+	 * @return number of members, 0 for unknown communities
+	 */
+	public int count(final int communityId) {
+
+		ensureLoaded();
+
+		lock.readLock().lock();
+
+		try {
+			final IdBitmap bitmap = bitmaps.get(communityId);
+
+			return bitmap == null ? 0 : bitmap.cardinality();
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the approximate memory used by the bitmaps in bytes
+	 */
+	public long byteSize() {
+
+		lock.readLock().lock();
+
+		try {
+			long bytes = 0;
+
+			for (IdBitmap bitmap : bitmaps.values()) {
+				bytes += bitmap.byteSize();
+			}
+
+			return bytes;
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Load all memberships once, in chunks ordered by community_member_id.
+	 * Each chunk is added under the write lock, so writers are not blocked for
+	 * the whole load
+	 */
+	private void ensureLoaded() {
+
+		if (loaded) {
+			return;
+		}
+
+		synchronized (this) {
+
+			if (loaded) {
+				return;
+			}
+
+			int lastId = 0;
+			List<int[]> rows;
+
+			do {
+				rows = personRepository.loadMemberships(lastId, LOAD_CHUNK_SIZE);
+
+				lock.writeLock().lock();
+
+				try {
+					for (int[] row : rows) {
+						addUnlocked(row[2], row[1]);
+						lastId = row[0];
+					}
+				} finally {
+					lock.writeLock().unlock();
+				}
+
+			} while (rows.size() == LOAD_CHUNK_SIZE);
+
+			loaded = true;
+		}
+	}
+
+	private void addUnlocked(final int communityId, final int personId) {
+
+		IdBitmap bitmap = bitmaps.get(communityId);
+
+		if (bitmap == null) {
+			bitmap = new IdBitmap();
+			bitmaps.put(communityId, bitmap);
+		}
+
+		bitmap.add(personId);
+	}
+}
@@ -0,0 +1,245 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.cache.BackgroundTasks;
+import at.fhj.swd13.pse.dto.MessageText;
+import at.fhj.swd13.pse.repository.MessageRepository;
+
+/**
+ * Full-text index of the headline and text of all messages
+ *
+ * Posted and ingested messages are put into the index once their transaction
+ * committed. The index is built from the message table on the container's
+ * managed scheduler when the application uses it for the first time and can
+ * be rebuilt at any time. Changes made while a rebuild runs are recorded and
+ * applied to the new index before it replaces the current one.
+ *
+ * Found ids may belong to messages deleted meanwhile, callers load the
+ * messages by id and skip those that do not exist.
+ *
+ */
+@ApplicationScoped
+public class MessageSearchIndex {
+
+	/**
+	 * number of messages read per query during a rebuild
+	 */
+	public static final int REBUILD_CHUNK_SIZE = 1000;
+
+	@Inject
+	private MessageRepository messageRepository;
+
+	/**
+	 * replaced by the container, outside of one there is no scheduler
+	 */
+	@Inject
+	private BackgroundTasks backgroundTasks = new BackgroundTasks();
+
+	private volatile InvertedIndex index = new InvertedIndex();
+
+	private volatile boolean ready;
+
+	/**
+	 * changes made during a rebuild, null if no rebuild runs, guarded by this
+	 */
+	private List<Change> journal;
+
+	private Future<?> running;
+
+	public MessageSearchIndex() {
+	}
+
+	/**
+	 * Create an index outside of a container, it is not built automatically
+	 *
+	 * @param messageRepository where to read the messages from on rebuild
+	 */
+	public MessageSearchIndex(final MessageRepository messageRepository) {
+		this.messageRepository = messageRepository;
+	}
+
+	/**
+	 * Start building the index in the background
+	 */
+	@PostConstruct
+	public void start() {
+		rebuildAsync();
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+
+		BackgroundTasks.cancel(running, true);
+	}
+
+	/**
+	 * Rebuild the index in the background, searches use the current index
+	 * meanwhile
+	 *
+	 * @return the running rebuild
+	 *
+	 * @throws IllegalStateException
+	 *             outside of a container, there is no managed scheduler
+	 */
+	public synchronized Future<?> rebuildAsync() {
+
+		// searches keep using the current index if the rebuild fails
+		running = backgroundTasks.submit("rebuild the message search index", new Runnable() {
+
+			@Override
+			public void run() {
+				rebuild();
+			}
+		});
+
+		return running;
+	}
+
+	/**
+	 * Rebuild the index from the message table in the calling thread
+	 */
+	public void rebuild() {
+
+		synchronized (this) {
+
+			if (journal != null) {
+				throw new IllegalStateException("rebuild already running");
+			}
+
+			journal = new ArrayList<Change>();
+		}
+
+		final InvertedIndex rebuilt = new InvertedIndex();
+
+		try {
+			int lastId = 0;
+			List<MessageText> chunk;
+
+			do {
+				chunk = messageRepository.loadTexts(lastId, REBUILD_CHUNK_SIZE);
+
+				for (MessageText text : chunk) {
+
+					rebuilt.put(text.getMessageId(), text.getHeadline(), text.getMessage());
+					lastId = text.getMessageId();
+				}
+
+			} while (chunk.size() == REBUILD_CHUNK_SIZE && !Thread.currentThread().isInterrupted());
+
+		} catch (RuntimeException x) {
+
+			synchronized (this) {
+				journal = null;
+			}
+
+			throw x;
+		}
+
+		synchronized (this) {
+
+			for (Change change : journal) {
+				change.applyTo(rebuilt);
+			}
+
+			journal = null;
+			index = rebuilt;
+			ready = true;
+		}
+	}
+
+	/**
+	 * Index a message or replace its text
+	 *
+	 * @param messageId id of the message
+	 * @param headline the headline, may be null
+	 * @param message the text of the message
+	 */
+	public synchronized void put(final int messageId, final String headline, final String message) {
+
+		record(new Change(messageId, headline, message, false));
+	}
+
+	/**
+	 * Remove a message from the index
+	 *
+	 * @param messageId id of the message
+	 */
+	public synchronized void remove(final int messageId) {
+
+		record(new Change(messageId, null, null, true));
+	}
+
+	/**
+	 * Search the messages containing all terms of the query
+	 *
+	 * @param query the query text
+	 * @param maxResults max number of hits
+	 *
+	 * @return the hits, most relevant first, doc ids are message ids
+	 */
+	public List<SearchHit> search(final String query, final int maxResults) {
+		return index.search(query, maxResults);
+	}
+
+	/**
+	 * @return true once the index has been built from the message table
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * @return the number of indexed messages
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	private void record(final Change change) {
+
+		change.applyTo(index);
+
+		if (journal != null) {
+			journal.add(change);
+		}
+	}
+
+	/**
+	 * A change of the index, replayed on a rebuilt index
+	 */
+	private static final class Change {
+
+		final int messageId;
+
+		final String headline;
+
+		final String message;
+
+		final boolean removed;
+
+		Change(final int messageId, final String headline, final String message, final boolean removed) {
+
+			this.messageId = messageId;
+			this.headline = headline;
+			this.message = message;
+			this.removed = removed;
+		}
+
+		void applyTo(final InvertedIndex target) {
+
+			if (removed) {
+				target.remove(messageId);
+			} else {
+				target.put(messageId, headline, message);
+			}
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.dto.PersonName;
+import at.fhj.swd13.pse.repository.PersonRepository;
+
+/**
+ * Substring index of the user, first and last names of all persons
+ *
+ * Replaces LIKE '%name%' scans of the person table for the people search. The
+ * index is loaded from the person table when it is searched for the first
+ * time and kept current by the UserService once its changes are committed.
+ * Persons changed while the index loads keep the state recorded by the
+ * service, searches running meanwhile in other threads see the persons loaded
+ * so far.
+ *
+ */
+@ApplicationScoped
+public class PersonNameIndex {
+
+	/**
+	 * number of persons read per query while loading
+	 */
+	public static final int LOAD_CHUNK_SIZE = 1000;
+
+	@Inject
+	private PersonRepository personRepository;
+
+	private final TrigramIndex index = new TrigramIndex();
+
+	private volatile boolean loaded;
+
+	/**
+	 * ids changed by the listener during the load, null if no load runs,
+	 * guarded by this
+	 */
+	private Set<Integer> changedWhileLoading;
+
+	public PersonNameIndex() {
+	}
+
+	/**
+	 * Create an index outside of a container
+	 *
+	 * @param personRepository where to read the names from
+	 */
+	public PersonNameIndex(final PersonRepository personRepository) {
+		this.personRepository = personRepository;
+	}
+
+	/**
+	 * Index a person or replace the names
+	 *
+	 * @param personId id of the person
+	 * @param userName the user name
+	 * @param firstName the first name, may be null
+	 * @param lastName the last name
+	 */
+	public synchronized void put(final int personId, final String userName, final String firstName,
+			final String lastName) {
+
+		recordChange(personId);
+		index.put(personId, sortKey(firstName, lastName), userName, firstName, lastName);
+	}
+
+	/**
+	 * Remove a person
+	 *
+	 * @param personId id of the person
+	 */
+	public synchronized void remove(final int personId) {
+
+		recordChange(personId);
+		index.remove(personId);
+	}
+
+	/**
+	 * Find the persons whose user, first or last name contains the term, case
+	 * and accents are ignored
+	 *
+	 * @param term the part of the name to look for
+	 * @param maxResults max number of ids to return
+	 *
+	 * @return ids of the matching persons, exact matches and name prefixes
+	 *         first, then by last and first name
+	 */
+	public int[] search(final String term, final int maxResults) {
+
+		ensureLoaded();
+
+		return index.search(term, maxResults);
+	}
+
+	/**
+	 * @return the number of indexed persons
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	private void ensureLoaded() {
+
+		if (loaded) {
+			return;
+		}
+
+		synchronized (this) {
+
+			if (loaded || changedWhileLoading != null) {
+				return;
+			}
+
+			changedWhileLoading = new HashSet<Integer>();
+		}
+
+		try {
+			int lastId = 0;
+			List<PersonName> chunk;
+
+			do {
+				chunk = personRepository.loadNames(lastId, LOAD_CHUNK_SIZE);
+
+				synchronized (this) {
+
+					for (PersonName name : chunk) {
+
+						if (!changedWhileLoading.contains(name.getPersonId())) {
+							index.put(name.getPersonId(), sortKey(name.getFirstName(), name.getLastName()),
+									name.getUserName(), name.getFirstName(), name.getLastName());
+						}
+
+						lastId = name.getPersonId();
+					}
+				}
+
+			} while (chunk.size() == LOAD_CHUNK_SIZE);
+
+			loaded = true;
+
+		} finally {
+			synchronized (this) {
+				changedWhileLoading = null;
+			}
+		}
+	}
+
+	private void recordChange(final int personId) {
+
+		if (changedWhileLoading != null) {
+			changedWhileLoading.add(personId);
+		}
+	}
+
+	private static String sortKey(final String firstName, final String lastName) {
+		return lastName + " " + (firstName == null ? "" : firstName);
+	}
+}
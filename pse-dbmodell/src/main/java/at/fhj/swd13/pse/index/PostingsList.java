@@ -0,0 +1,192 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.Arrays;
+
+/**
+ * Sorted list of (document id, term frequency) pairs, compressed as variable
+ * length encoded id gaps and frequencies. Most documents are appended (new
+ * messages have the highest ids), other changes re-encode the list.
+ *
+ * Not thread safe, the owning index synchronizes access.
+ *
+ */
+public final class PostingsList {
+
+	private byte[] data = new byte[8];
+
+	private int length;
+
+	private int size;
+
+	private int lastDocId = -1;
+
+	/**
+	 * Add or replace the frequency of a document
+	 *
+	 * @param docId the document id, not negative
+	 * @param frequency the term frequency in the document, positive
+	 */
+	public void put(final int docId, final int frequency) {
+
+		if (docId > lastDocId) {
+			append(docId, frequency);
+			return;
+		}
+
+		final int[] docIds = new int[size + 1];
+		final int[] frequencies = new int[size + 1];
+
+		final int count = decode(docIds, frequencies);
+		final int pos = Arrays.binarySearch(docIds, 0, count, docId);
+
+		if (pos >= 0) {
+
+			frequencies[pos] = frequency;
+			encode(docIds, frequencies, count);
+
+		} else {
+
+			final int insert = -pos - 1;
+
+			System.arraycopy(docIds, insert, docIds, insert + 1, count - insert);
+			System.arraycopy(frequencies, insert, frequencies, insert + 1, count - insert);
+
+			docIds[insert] = docId;
+			frequencies[insert] = frequency;
+
+			encode(docIds, frequencies, count + 1);
+		}
+	}
+
+	/**
+	 * Remove a document
+	 *
+	 * @param docId the document id
+	 *
+	 * @return true if the document was in the list
+	 */
+	public boolean remove(final int docId) {
+
+		if (docId > lastDocId) {
+			return false;
+		}
+
+		final int[] docIds = new int[size];
+		final int[] frequencies = new int[size];
+
+		final int count = decode(docIds, frequencies);
+		final int pos = Arrays.binarySearch(docIds, 0, count, docId);
+
+		if (pos < 0) {
+			return false;
+		}
+
+		System.arraycopy(docIds, pos + 1, docIds, pos, count - pos - 1);
+		System.arraycopy(frequencies, pos + 1, frequencies, pos, count - pos - 1);
+
+		encode(docIds, frequencies, count - 1);
+
+		return true;
+	}
+
+	/**
+	 * Decode the list into the given arrays, which must hold at least size()
+	 * elements
+	 *
+	 * @param docIds receives the document ids in ascending order
+	 * @param frequencies receives the term frequencies
+	 *
+	 * @return the number of decoded pairs
+	 */
+	public int decode(final int[] docIds, final int[] frequencies) {
+
+		int pos = 0;
+		int docId = -1;
+
+		for (int i = 0; i < size; ++i) {
+
+			int gap = 0;
+			int shift = 0;
+			byte b;
+
+			do {
+				b = data[pos++];
+				gap |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+
+			int frequency = 0;
+			shift = 0;
+
+			do {
+				b = data[pos++];
+				frequency |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+
+			docId += gap;
+
+			docIds[i] = docId;
+			frequencies[i] = frequency;
+		}
+
+		return size;
+	}
+
+	/**
+	 * @return number of documents in the list
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of bytes used by the encoded list
+	 */
+	public int byteSize() {
+		return length;
+	}
+
+	private void append(final int docId, final int frequency) {
+
+		ensureCapacity(length + 10);
+
+		writeVarInt(docId - lastDocId);
+		writeVarInt(frequency);
+
+		lastDocId = docId;
+		++size;
+	}
+
+	private void encode(final int[] docIds, final int[] frequencies, final int count) {
+
+		length = 0;
+		size = 0;
+		lastDocId = -1;
+
+		for (int i = 0; i < count; ++i) {
+			append(docIds[i], frequencies[i]);
+		}
+
+		if (data.length > 2 * length + 8) {
+			data = Arrays.copyOf(data, length + 8);
+		}
+	}
+
+	private void writeVarInt(int value) {
+
+		while ((value & ~0x7f) != 0) {
+			data[length++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+
+		data[length++] = (byte) value;
+	}
+
+	private void ensureCapacity(final int capacity) {
+
+		if (capacity > data.length) {
+			data = Arrays.copyOf(data, Math.max(capacity, data.length + (data.length >> 1)));
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package at.fhj.swd13.pse.index;
+
+/**
+ * A document found by the index together with its relevance
+ *
+ */
+public final class SearchHit {
+
+	private final int docId;
+
+	private final double score;
+
+	public SearchHit(final int docId, final double score) {
+
+		this.docId = docId;
+		this.score = score;
+	}
+
+	public int getDocId() {
+		return docId;
+	}
+
+	/**
+	 * @return the BM25 score, higher is more relevant
+	 */
+	public double getScore() {
+		return score;
+	}
+
+	@Override
+	public String toString() {
+		return "SearchHit[docId=" + docId + ", score=" + score + "]";
+	}
+}
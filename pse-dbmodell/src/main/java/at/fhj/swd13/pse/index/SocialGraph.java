@@ -0,0 +1,684 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Directed graph of the relations between persons held in int arrays
+ *
+ * The outgoing and the incoming edges are each stored in compressed sparse row
+ * form: the sorted neighbours of all vertices in one array, an offset array
+ * indexed by vertex id points to the neighbours of a vertex. Vertex ids are
+ * person ids, which are dense. An edge check is a binary search over the
+ * neighbours, O(log d).
+ *
+ * Changes are not written into the arrays. A changed vertex gets a sorted
+ * array of its own that overrides its row, once more than compactThreshold
+ * vertices have changed the rows are merged into new arrays.
+ *
+ * Parallel edges are stored once. Thread safe, any number of readers run in
+ * parallel to one writer.
+ *
+ */
+public class SocialGraph {
+
+	/**
+	 * changed vertices per direction before the rows are merged, if not given
+	 */
+	public static final int DEFAULT_COMPACT_THRESHOLD = 4096;
+
+	private static final int[] NONE = new int[0];
+
+	private final int compactThreshold;
+
+	private Adjacency outgoing = new Adjacency();
+
+	private Adjacency incoming = new Adjacency();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Create an empty graph merging changes after DEFAULT_COMPACT_THRESHOLD
+	 * changed vertices
+	 */
+	public SocialGraph() {
+		this(DEFAULT_COMPACT_THRESHOLD);
+	}
+
+	/**
+	 * Create an empty graph
+	 *
+	 * @param compactThreshold number of changed vertices per direction before
+	 *            the rows are merged
+	 *
+	 * @throws IllegalArgumentException
+	 *             if compactThreshold is not positive
+	 */
+	public SocialGraph(final int compactThreshold) {
+
+		if (compactThreshold <= 0) {
+			throw new IllegalArgumentException("compact threshold must be positive: " + compactThreshold);
+		}
+
+		this.compactThreshold = compactThreshold;
+	}
+
+	/**
+	 * Replace all edges
+	 *
+	 * @param sources source vertex of each edge
+	 * @param targets target vertex of each edge
+	 * @param edgeCount number of edges in the arrays
+	 *
+	 * @throws IllegalArgumentException
+	 *             if a vertex id is negative
+	 */
+	public void load(final int[] sources, final int[] targets, final int edgeCount) {
+
+		final Adjacency out = Adjacency.build(sources, targets, edgeCount);
+		final Adjacency in = Adjacency.build(targets, sources, edgeCount);
+
+		lock.writeLock().lock();
+
+		try {
+			outgoing = out;
+			incoming = in;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Add an edge
+	 *
+	 * @param source the source vertex
+	 * @param target the target vertex
+	 *
+	 * @return false if the edge existed
+	 */
+	public boolean addEdge(final int source, final int target) {
+
+		checkVertex(source);
+		checkVertex(target);
+
+		lock.writeLock().lock();
+
+		try {
+			if (!outgoing.add(source, target)) {
+				return false;
+			}
+
+			incoming.add(target, source);
+			compactIfNeeded();
+
+			return true;
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove an edge
+	 *
+	 * @param source the source vertex
+	 * @param target the target vertex
+	 *
+	 * @return false if there was no such edge
+	 */
+	public boolean removeEdge(final int source, final int target) {
+
+		lock.writeLock().lock();
+
+		try {
+			if (!outgoing.remove(source, target)) {
+				return false;
+			}
+
+			incoming.remove(target, source);
+			compactIfNeeded();
+
+			return true;
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove all edges from and to a vertex
+	 *
+	 * @param vertex the vertex
+	 *
+	 * @return number of edges removed
+	 */
+	public int removeVertex(final int vertex) {
+
+		lock.writeLock().lock();
+
+		try {
+			final int[] targets = outgoing.neighbours(vertex);
+			final int[] sources = incoming.neighbours(vertex);
+
+			for (int target : targets) {
+				incoming.remove(target, vertex);
+			}
+
+			for (int source : sources) {
+				outgoing.remove(source, vertex);
+			}
+
+			outgoing.clear(vertex);
+			incoming.clear(vertex);
+			compactIfNeeded();
+
+			// a self relation is counted in both directions
+			return targets.length + sources.length - (Arrays.binarySearch(targets, vertex) >= 0 ? 1 : 0);
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Check for an edge
+	 *
+	 * @param source the source vertex
+	 * @param target the target vertex
+	 *
+	 * @return true if source has an edge to target
+	 */
+	public boolean hasEdge(final int source, final int target) {
+
+		lock.readLock().lock();
+
+		try {
+			return outgoing.contains(source, target);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Check for an edge in either direction
+	 *
+	 * @param a one vertex
+	 * @param b the other vertex
+	 *
+	 * @return true if a has an edge to b or b has an edge to a
+	 */
+	public boolean isRelated(final int a, final int b) {
+
+		lock.readLock().lock();
+
+		try {
+			return outgoing.contains(a, b) || outgoing.contains(b, a);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the targets of the edges of a vertex
+	 *
+	 * @param source the source vertex
+	 *
+	 * @return the targets in ascending order, owned by the caller
+	 */
+	public int[] getTargets(final int source) {
+
+		lock.readLock().lock();
+
+		try {
+			return outgoing.neighbours(source);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the sources of the edges to a vertex
+	 *
+	 * @param target the target vertex
+	 *
+	 * @return the sources in ascending order, owned by the caller
+	 */
+	public int[] getSources(final int target) {
+
+		lock.readLock().lock();
+
+		try {
+			return incoming.neighbours(target);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the vertices with an edge from or to a vertex
+	 *
+	 * @param vertex the vertex
+	 *
+	 * @return the targets and sources in ascending order without duplicates,
+	 *         owned by the caller
+	 */
+	public int[] getNeighbours(final int vertex) {
+
+		lock.readLock().lock();
+
+		try {
+			return Adjacency.union(outgoing.row(vertex), incoming.row(vertex));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @param source the source vertex
+	 *
+	 * @return number of edges from the vertex
+	 */
+	public int getOutDegree(final int source) {
+
+		lock.readLock().lock();
+
+		try {
+			return outgoing.degree(source);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @param target the target vertex
+	 *
+	 * @return number of edges to the vertex
+	 */
+	public int getInDegree(final int target) {
+
+		lock.readLock().lock();
+
+		try {
+			return incoming.degree(target);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return number of edges
+	 */
+	public int getEdgeCount() {
+
+		lock.readLock().lock();
+
+		try {
+			return outgoing.edgeCount;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return one more than the highest vertex id with an edge, vertices are
+	 *         0 to bound - 1
+	 */
+	public int getVertexBound() {
+
+		lock.readLock().lock();
+
+		try {
+			return Math.max(outgoing.vertexBound(), incoming.vertexBound());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return approximate memory used by the arrays in bytes
+	 */
+	public long byteSize() {
+
+		lock.readLock().lock();
+
+		try {
+			return outgoing.byteSize() + incoming.byteSize();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Merge the changed rows into new arrays
+	 */
+	public void compact() {
+
+		lock.writeLock().lock();
+
+		try {
+			outgoing = outgoing.compact();
+			incoming = incoming.compact();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void compactIfNeeded() {
+
+		if (outgoing.changed.size() > compactThreshold) {
+			outgoing = outgoing.compact();
+		}
+
+		if (incoming.changed.size() > compactThreshold) {
+			incoming = incoming.compact();
+		}
+	}
+
+	private static void checkVertex(final int vertex) {
+
+		if (vertex < 0) {
+			throw new IllegalArgumentException("vertex ids must not be negative: " + vertex);
+		}
+	}
+
+	/**
+	 * Edges of one direction: sorted rows in compressed sparse row form plus
+	 * the rows changed since, not thread safe
+	 */
+	private static final class Adjacency {
+
+		/**
+		 * row of vertex v is neighbours[offsets[v]] to neighbours[offsets[v +
+		 * 1]] exclusive
+		 */
+		final int[] offsets;
+
+		final int[] neighbours;
+
+		/**
+		 * rows replacing those in the arrays, sorted
+		 */
+		final Map<Integer, int[]> changed = new HashMap<Integer, int[]>();
+
+		int edgeCount;
+
+		Adjacency() {
+			this(new int[] { 0 }, NONE);
+		}
+
+		Adjacency(final int[] offsets, final int[] neighbours) {
+
+			this.offsets = offsets;
+			this.neighbours = neighbours;
+			this.edgeCount = neighbours.length;
+		}
+
+		/**
+		 * Counting sort of the edges by vertex, then sort and deduplicate each
+		 * row
+		 */
+		static Adjacency build(final int[] from, final int[] to, final int count) {
+
+			int vertexBound = 0;
+
+			for (int i = 0; i < count; ++i) {
+
+				checkVertex(from[i]);
+				checkVertex(to[i]);
+
+				vertexBound = Math.max(vertexBound, from[i] + 1);
+			}
+
+			final int[] starts = new int[vertexBound + 1];
+
+			for (int i = 0; i < count; ++i) {
+				++starts[from[i] + 1];
+			}
+
+			for (int v = 0; v < vertexBound; ++v) {
+				starts[v + 1] += starts[v];
+			}
+
+			final int[] fill = Arrays.copyOf(starts, vertexBound);
+			final int[] unsorted = new int[count];
+
+			for (int i = 0; i < count; ++i) {
+				unsorted[fill[from[i]]++] = to[i];
+			}
+
+			final int[] offsets = new int[vertexBound + 1];
+			int size = 0;
+
+			for (int v = 0; v < vertexBound; ++v) {
+
+				Arrays.sort(unsorted, starts[v], starts[v + 1]);
+
+				offsets[v] = size;
+
+				for (int i = starts[v]; i < starts[v + 1]; ++i) {
+					if (i == starts[v] || unsorted[i] != unsorted[i - 1]) {
+						unsorted[size++] = unsorted[i];
+					}
+				}
+			}
+
+			offsets[vertexBound] = size;
+
+			return new Adjacency(offsets, size == count ? unsorted : Arrays.copyOf(unsorted, size));
+		}
+
+		boolean contains(final int vertex, final int neighbour) {
+
+			final int[] row = changed.get(vertex);
+
+			if (row != null) {
+				return Arrays.binarySearch(row, neighbour) >= 0;
+			}
+
+			if (vertex < 0 || vertex >= offsets.length - 1) {
+				return false;
+			}
+
+			return Arrays.binarySearch(neighbours, offsets[vertex], offsets[vertex + 1], neighbour) >= 0;
+		}
+
+		int degree(final int vertex) {
+
+			final int[] row = changed.get(vertex);
+
+			if (row != null) {
+				return row.length;
+			}
+
+			if (vertex < 0 || vertex >= offsets.length - 1) {
+				return 0;
+			}
+
+			return offsets[vertex + 1] - offsets[vertex];
+		}
+
+		int[] neighbours(final int vertex) {
+
+			final int[] row = changed.get(vertex);
+
+			if (row != null) {
+				return row.clone();
+			}
+
+			if (vertex < 0 || vertex >= offsets.length - 1) {
+				return NONE;
+			}
+
+			return Arrays.copyOfRange(neighbours, offsets[vertex], offsets[vertex + 1]);
+		}
+
+		boolean add(final int vertex, final int neighbour) {
+
+			final int[] row = row(vertex);
+			final int at = Arrays.binarySearch(row, neighbour);
+
+			if (at >= 0) {
+				return false;
+			}
+
+			final int insertAt = -at - 1;
+			final int[] result = new int[row.length + 1];
+
+			System.arraycopy(row, 0, result, 0, insertAt);
+			result[insertAt] = neighbour;
+			System.arraycopy(row, insertAt, result, insertAt + 1, row.length - insertAt);
+
+			changed.put(vertex, result);
+			++edgeCount;
+
+			return true;
+		}
+
+		boolean remove(final int vertex, final int neighbour) {
+
+			final int[] row = row(vertex);
+			final int at = Arrays.binarySearch(row, neighbour);
+
+			if (at < 0) {
+				return false;
+			}
+
+			final int[] result = new int[row.length - 1];
+
+			System.arraycopy(row, 0, result, 0, at);
+			System.arraycopy(row, at + 1, result, at, row.length - at - 1);
+
+			changed.put(vertex, result);
+			--edgeCount;
+
+			return true;
+		}
+
+		void clear(final int vertex) {
+
+			edgeCount -= degree(vertex);
+
+			if (degree(vertex) > 0 || changed.containsKey(vertex)) {
+				changed.put(vertex, NONE);
+			}
+		}
+
+		/**
+		 * the current row of a vertex, not to be modified
+		 */
+		int[] row(final int vertex) {
+
+			final int[] row = changed.get(vertex);
+
+			if (row != null) {
+				return row;
+			}
+
+			if (vertex < 0 || vertex >= offsets.length - 1) {
+				return NONE;
+			}
+
+			return Arrays.copyOfRange(neighbours, offsets[vertex], offsets[vertex + 1]);
+		}
+
+		/**
+		 * merge two sorted rows
+		 */
+		static int[] union(final int[] a, final int[] b) {
+
+			if (b.length == 0) {
+				return a.length == 0 ? NONE : a.clone();
+			}
+
+			if (a.length == 0) {
+				return b.clone();
+			}
+
+			final int[] result = new int[a.length + b.length];
+			int i = 0;
+			int j = 0;
+			int size = 0;
+
+			while (i < a.length && j < b.length) {
+
+				if (a[i] < b[j]) {
+					result[size++] = a[i++];
+				} else if (b[j] < a[i]) {
+					result[size++] = b[j++];
+				} else {
+					result[size++] = a[i++];
+					++j;
+				}
+			}
+
+			while (i < a.length) {
+				result[size++] = a[i++];
+			}
+
+			while (j < b.length) {
+				result[size++] = b[j++];
+			}
+
+			return size == result.length ? result : Arrays.copyOf(result, size);
+		}
+
+		Adjacency compact() {
+
+			if (changed.isEmpty()) {
+				return this;
+			}
+
+			final int vertexBound = vertexBound();
+			final int[] newOffsets = new int[vertexBound + 1];
+			final int[] newNeighbours = new int[edgeCount];
+			int size = 0;
+
+			for (int v = 0; v < vertexBound; ++v) {
+
+				newOffsets[v] = size;
+
+				final int[] row = changed.get(v);
+
+				if (row != null) {
+					System.arraycopy(row, 0, newNeighbours, size, row.length);
+					size += row.length;
+				} else if (v < offsets.length - 1) {
+					final int length = offsets[v + 1] - offsets[v];
+					System.arraycopy(neighbours, offsets[v], newNeighbours, size, length);
+					size += length;
+				}
+			}
+
+			newOffsets[vertexBound] = size;
+
+			return new Adjacency(newOffsets, newNeighbours);
+		}
+
+		int vertexBound() {
+
+			int bound = offsets.length - 1;
+
+			for (Map.Entry<Integer, int[]> row : changed.entrySet()) {
+				if (row.getValue().length > 0) {
+					bound = Math.max(bound, row.getKey() + 1);
+				}
+			}
+
+			return bound;
+		}
+
+		long byteSize() {
+
+			long bytes = 4L * (offsets.length + neighbours.length);
+
+			for (int[] row : changed.values()) {
+				bytes += 16 + 4L * row.length;
+			}
+
+			return bytes;
+		}
+	}
+}
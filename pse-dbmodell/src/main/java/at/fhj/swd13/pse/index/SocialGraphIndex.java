@@ -0,0 +1,250 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.repository.PersonRepository;
+
+/**
+ * The relations between all persons, source person to target person
+ *
+ * Relation checks, neighbours and degrees are answered from a SocialGraph
+ * instead of walking the relation lists of the Person entities. The graph is
+ * loaded from person_relation when it is used for the first time, readers
+ * wait for the load. It is kept current by the UserService once its changes
+ * are committed, changes made while the graph loads are replayed on the
+ * loaded graph.
+ *
+ */
+@ApplicationScoped
+public class SocialGraphIndex {
+
+	/**
+	 * number of relations read per query while loading
+	 */
+	public static final int LOAD_CHUNK_SIZE = 10000;
+
+	private static final int ADD = 0;
+
+	private static final int REMOVE = 1;
+
+	private static final int REMOVE_PERSON = 2;
+
+	@Inject
+	private PersonRepository personRepository;
+
+	private final SocialGraph graph = new SocialGraph();
+
+	private final Object loadLock = new Object();
+
+	private volatile boolean loaded;
+
+	/**
+	 * changes made during the load as { operation, a, b }, null if no load
+	 * runs, guarded by this
+	 */
+	private List<int[]> journal;
+
+	public SocialGraphIndex() {
+	}
+
+	/**
+	 * Create an index outside of a container
+	 *
+	 * @param personRepository where to read the relations from
+	 */
+	public SocialGraphIndex(final PersonRepository personRepository) {
+		this.personRepository = personRepository;
+	}
+
+	/**
+	 * Record a new relation
+	 *
+	 * @param sourcePersonId id of the person that started the relation
+	 * @param targetPersonId id of the related person
+	 */
+	public synchronized void addRelation(final int sourcePersonId, final int targetPersonId) {
+
+		graph.addEdge(sourcePersonId, targetPersonId);
+		record(ADD, sourcePersonId, targetPersonId);
+	}
+
+	/**
+	 * Record that a relation was removed
+	 *
+	 * @param sourcePersonId id of the person that started the relation
+	 * @param targetPersonId id of the related person
+	 */
+	public synchronized void removeRelation(final int sourcePersonId, final int targetPersonId) {
+
+		graph.removeEdge(sourcePersonId, targetPersonId);
+		record(REMOVE, sourcePersonId, targetPersonId);
+	}
+
+	/**
+	 * Remove all relations of a deleted person
+	 *
+	 * @param personId id of the person
+	 */
+	public synchronized void removePerson(final int personId) {
+
+		graph.removeVertex(personId);
+		record(REMOVE_PERSON, personId, 0);
+	}
+
+	/**
+	 * Check for a relation in either direction
+	 *
+	 * @param personId one person
+	 * @param otherPersonId the other person
+	 *
+	 * @return true if one of the persons started a relation to the other
+	 */
+	public boolean isRelated(final int personId, final int otherPersonId) {
+		return getGraph().isRelated(personId, otherPersonId);
+	}
+
+	/**
+	 * Check for a relation started by the source person
+	 *
+	 * @param sourcePersonId id of the person that started the relation
+	 * @param targetPersonId id of the related person
+	 *
+	 * @return true if there is such a relation
+	 */
+	public boolean hasRelation(final int sourcePersonId, final int targetPersonId) {
+		return getGraph().hasEdge(sourcePersonId, targetPersonId);
+	}
+
+	/**
+	 * @param personId id of the person
+	 *
+	 * @return ids of the persons the person is related to, ascending
+	 */
+	public int[] getTargets(final int personId) {
+		return getGraph().getTargets(personId);
+	}
+
+	/**
+	 * @param personId id of the person
+	 *
+	 * @return ids of the persons related to the person, ascending
+	 */
+	public int[] getSources(final int personId) {
+		return getGraph().getSources(personId);
+	}
+
+	/**
+	 * @param personId id of the person
+	 *
+	 * @return number of relations the person started
+	 */
+	public int getOutDegree(final int personId) {
+		return getGraph().getOutDegree(personId);
+	}
+
+	/**
+	 * @param personId id of the person
+	 *
+	 * @return number of relations to the person
+	 */
+	public int getInDegree(final int personId) {
+		return getGraph().getInDegree(personId);
+	}
+
+	/**
+	 * Find a shortest connection between two persons over relations in either
+	 * direction
+	 *
+	 * @param personId the first person
+	 * @param otherPersonId the second person
+	 * @param maxLength max number of relations on the path
+	 * @param timeoutMillis max time to search
+	 *
+	 * @return the path as person ids, not found if the persons are not
+	 *         connected within maxLength relations or the time ran out
+	 */
+	public ConnectionPath findPath(final int personId, final int otherPersonId, final int maxLength,
+			final long timeoutMillis) {
+		return new ConnectionPathFinder(getGraph()).find(personId, otherPersonId, maxLength, timeoutMillis);
+	}
+
+	/**
+	 * Get the graph, loaded from the database on first use
+	 *
+	 * @return the graph, kept current by the index
+	 */
+	public SocialGraph getGraph() {
+
+		ensureLoaded();
+
+		return graph;
+	}
+
+	private void ensureLoaded() {
+
+		if (loaded) {
+			return;
+		}
+
+		synchronized (loadLock) {
+
+			if (loaded) {
+				return;
+			}
+
+			synchronized (this) {
+				journal = new ArrayList<int[]>();
+			}
+
+			try {
+				new GraphLoader(LOAD_CHUNK_SIZE) {
+
+					@Override
+					List<int[]> loadChunk(final int afterId, final int maxRows) {
+						return personRepository.loadRelations(afterId, maxRows);
+					}
+				}.loadInto(graph);
+
+				// the changes are replayed in order, applying one twice does no harm
+				synchronized (this) {
+
+					for (int[] change : journal) {
+						apply(change);
+					}
+
+					loaded = true;
+				}
+
+			} finally {
+				synchronized (this) {
+					journal = null;
+				}
+			}
+		}
+	}
+
+	private void record(final int operation, final int a, final int b) {
+
+		if (journal != null) {
+			journal.add(new int[] { operation, a, b });
+		}
+	}
+
+	private void apply(final int[] change) {
+
+		switch (change[0]) {
+		case ADD:
+			graph.addEdge(change[1], change[2]);
+			break;
+		case REMOVE:
+			graph.removeEdge(change[1], change[2]);
+			break;
+		default:
+			graph.removeVertex(change[1]);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package at.fhj.swd13.pse.index;
+
+/**
+ * A person suggested as a new connection together with the strength of the
+ * suggestion
+ *
+ */
+public final class Suggestion {
+
+	private final int personId;
+
+	private final double score;
+
+	public Suggestion(final int personId, final double score) {
+
+		this.personId = personId;
+		this.score = score;
+	}
+
+	public int getPersonId() {
+		return personId;
+	}
+
+	/**
+	 * @return the combined score of shared relations, communities and tags,
+	 *         higher is a better suggestion
+	 */
+	public double getScore() {
+		return score;
+	}
+
+	@Override
+	public String toString() {
+		return "Suggestion[personId=" + personId + ", score=" + score + "]";
+	}
+}
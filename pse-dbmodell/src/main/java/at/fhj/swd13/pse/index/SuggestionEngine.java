@@ -0,0 +1,276 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Computes "people you may know" suggestions
+ *
+ * A candidate scores for every person related to both (in either direction),
+ * every community both are members of and every tag both have. Each shared
+ * person, community or tag contributes its weight divided by the log of its
+ * size (Adamic-Adar), so a small community says more than one everybody is in.
+ * Persons, communities and tags with more than MAX_GROUP_SIZE members are
+ * skipped, they say little and would cost most. Persons already related are
+ * not suggested.
+ *
+ * The graphs are read while other threads change them, suggestions computed
+ * meanwhile may be slightly off. Thread safe.
+ *
+ */
+public class SuggestionEngine {
+
+	/**
+	 * weight of a shared relation
+	 */
+	public static final double RELATION_WEIGHT = 1.0;
+
+	/**
+	 * weight of a shared community
+	 */
+	public static final double COMMUNITY_WEIGHT = 0.5;
+
+	/**
+	 * weight of a shared tag
+	 */
+	public static final double TAG_WEIGHT = 0.25;
+
+	/**
+	 * persons, communities and tags with more members are not used
+	 */
+	public static final int MAX_GROUP_SIZE = 1000;
+
+	/**
+	 * number of persons per task of a parallel run
+	 */
+	private static final int TASK_SIZE = 64;
+
+	private static final Comparator<Suggestion> WORST_FIRST = new Comparator<Suggestion>() {
+
+		@Override
+		public int compare(final Suggestion a, final Suggestion b) {
+
+			final int byScore = Double.compare(a.getScore(), b.getScore());
+
+			return byScore != 0 ? byScore : Integer.compare(b.getPersonId(), a.getPersonId());
+		}
+	};
+
+	private final SocialGraph relations;
+
+	private final SocialGraph memberships;
+
+	private final SocialGraph tags;
+
+	private final ThreadLocal<Scores> scores = new ThreadLocal<Scores>() {
+
+		@Override
+		protected Scores initialValue() {
+			return new Scores();
+		}
+	};
+
+	/**
+	 * Create an engine over the given graphs
+	 *
+	 * @param relations person to related person
+	 * @param memberships person to community
+	 * @param tags person to tag
+	 */
+	public SuggestionEngine(final SocialGraph relations, final SocialGraph memberships, final SocialGraph tags) {
+
+		this.relations = relations;
+		this.memberships = memberships;
+		this.tags = tags;
+	}
+
+	/**
+	 * Compute the suggestions for a person
+	 *
+	 * @param personId id of the person
+	 * @param maxResults max number of suggestions
+	 *
+	 * @return the suggestions, best first
+	 */
+	public Suggestion[] suggest(final int personId, final int maxResults) {
+
+		final Scores scores = this.scores.get();
+
+		try {
+			final int[] related = relations.getNeighbours(personId);
+
+			for (int other : related) {
+
+				final int[] via = relations.getNeighbours(other);
+
+				if (via.length <= MAX_GROUP_SIZE) {
+					scores.addAll(via, RELATION_WEIGHT / Math.log(2 + via.length));
+				}
+			}
+
+			for (int communityId : memberships.getTargets(personId)) {
+
+				final int[] members = memberships.getSources(communityId);
+
+				if (members.length <= MAX_GROUP_SIZE) {
+					scores.addAll(members, COMMUNITY_WEIGHT / Math.log(2 + members.length));
+				}
+			}
+
+			for (int tagId : tags.getTargets(personId)) {
+
+				final int[] tagged = tags.getSources(tagId);
+
+				if (tagged.length <= MAX_GROUP_SIZE) {
+					scores.addAll(tagged, TAG_WEIGHT / Math.log(2 + tagged.length));
+				}
+			}
+
+			return scores.top(personId, related, maxResults);
+
+		} finally {
+			scores.clear();
+		}
+	}
+
+	/**
+	 * Compute the suggestions for many persons in parallel
+	 *
+	 * @param personIds ids of the persons
+	 * @param maxResults max number of suggestions per person
+	 * @param executor the executor to compute on
+	 *
+	 * @return the suggestions per person id, best first
+	 */
+	public Map<Integer, Suggestion[]> suggestAll(final int[] personIds, final int maxResults,
+			final ExecutorService executor) {
+
+		final List<Callable<Map<Integer, Suggestion[]>>> tasks = new ArrayList<Callable<Map<Integer, Suggestion[]>>>();
+
+		for (int start = 0; start < personIds.length; start += TASK_SIZE) {
+
+			final int[] chunk = Arrays.copyOfRange(personIds, start, Math.min(personIds.length, start + TASK_SIZE));
+
+			tasks.add(new Callable<Map<Integer, Suggestion[]>>() {
+
+				@Override
+				public Map<Integer, Suggestion[]> call() {
+
+					final Map<Integer, Suggestion[]> result = new HashMap<Integer, Suggestion[]>();
+
+					for (int personId : chunk) {
+						result.put(personId, suggest(personId, maxResults));
+					}
+
+					return result;
+				}
+			});
+		}
+
+		final Map<Integer, Suggestion[]> result = new HashMap<Integer, Suggestion[]>(2 * personIds.length);
+
+		try {
+			for (Future<Map<Integer, Suggestion[]>> chunk : executor.invokeAll(tasks)) {
+				result.putAll(chunk.get());
+			}
+		} catch (InterruptedException x) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while computing suggestions", x);
+		} catch (ExecutionException x) {
+			throw new IllegalStateException("computing suggestions failed", x.getCause());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Scores of the candidates of one person, indexed by person id, reused by
+	 * a thread for all persons
+	 */
+	private static final class Scores {
+
+		double[] score = new double[1024];
+
+		int[] touched = new int[256];
+
+		int touchedCount;
+
+		void addAll(final int[] personIds, final double weight) {
+
+			for (int personId : personIds) {
+
+				if (personId >= score.length) {
+					score = Arrays.copyOf(score, Math.max(personId + 1, 2 * score.length));
+				}
+
+				if (score[personId] == 0) {
+
+					if (touchedCount == touched.length) {
+						touched = Arrays.copyOf(touched, 2 * touched.length);
+					}
+
+					touched[touchedCount++] = personId;
+				}
+
+				score[personId] += weight;
+			}
+		}
+
+		/**
+		 * the best candidates with a bounded heap, the person and the persons
+		 * already related are skipped
+		 */
+		Suggestion[] top(final int personId, final int[] related, final int maxResults) {
+
+			if (maxResults <= 0) {
+				return new Suggestion[0];
+			}
+
+			final PriorityQueue<Suggestion> heap = new PriorityQueue<Suggestion>(maxResults + 1, WORST_FIRST);
+
+			for (int i = 0; i < touchedCount; ++i) {
+
+				final int candidate = touched[i];
+
+				if (candidate == personId || Arrays.binarySearch(related, candidate) >= 0) {
+					continue;
+				}
+
+				final Suggestion suggestion = new Suggestion(candidate, score[candidate]);
+
+				if (heap.size() < maxResults) {
+					heap.add(suggestion);
+				} else if (WORST_FIRST.compare(suggestion, heap.peek()) > 0) {
+					heap.poll();
+					heap.add(suggestion);
+				}
+			}
+
+			final Suggestion[] result = new Suggestion[heap.size()];
+
+			for (int i = result.length - 1; i >= 0; --i) {
+				result[i] = heap.poll();
+			}
+
+			return result;
+		}
+
+		void clear() {
+
+			for (int i = 0; i < touchedCount; ++i) {
+				score[touched[i]] = 0;
+			}
+
+			touchedCount = 0;
+		}
+	}
+}
@@ -0,0 +1,363 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.cache.BackgroundTasks;
+import at.fhj.swd13.pse.repository.PersonRepository;
+
+/**
+ * Precomputed "people you may know" suggestions of all persons
+ *
+ * The suggestions of every person with a relation, membership or tag are
+ * computed by a SuggestionEngine in parallel on the container's managed
+ * executor every REBUILD_INTERVAL_HOURS, the memberships and tags are reloaded
+ * from the database for it. The services report changed relations,
+ * memberships and tags once their transaction has committed, the suggestions
+ * of the persons involved are computed again every REFRESH_INTERVAL_MINUTES. Suggestions of other persons affected
+ * by a change stay as they are until the next rebuild. Persons without stored
+ * suggestions get them computed on request.
+ *
+ */
+@ApplicationScoped
+public class SuggestionIndex {
+
+	/**
+	 * number of suggestions stored per person
+	 */
+	public static final int MAX_SUGGESTIONS = 20;
+
+	/**
+	 * hours between two rebuilds of all suggestions
+	 */
+	public static final int REBUILD_INTERVAL_HOURS = 6;
+
+	/**
+	 * minutes between two refreshes of the changed persons
+	 */
+	public static final int REFRESH_INTERVAL_MINUTES = 5;
+
+	/**
+	 * number of memberships or person tags read per query while loading
+	 */
+	public static final int LOAD_CHUNK_SIZE = 10000;
+
+	@Inject
+	private SocialGraphIndex socialGraphIndex;
+
+	@Inject
+	private PersonRepository personRepository;
+
+	/**
+	 * person to community
+	 */
+	private final SocialGraph memberships = new SocialGraph();
+
+	/**
+	 * person to tag
+	 */
+	private final SocialGraph tags = new SocialGraph();
+
+	private volatile Map<Integer, Suggestion[]> store = new ConcurrentHashMap<Integer, Suggestion[]>();
+
+	private final Set<Integer> changed = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+	/**
+	 * membership and tag changes made during a rebuild as { graph, add,
+	 * person, group }, null if no rebuild runs, guarded by this
+	 */
+	private List<int[]> journal;
+
+	@Resource
+	private ManagedExecutorService executor;
+
+	@Inject
+	private BackgroundTasks backgroundTasks;
+
+	private ScheduledFuture<?> rebuilder;
+
+	private ScheduledFuture<?> refresher;
+
+	public SuggestionIndex() {
+	}
+
+	/**
+	 * Create an index outside of a container, it is not built automatically
+	 * and computes on the common pool
+	 *
+	 * @param socialGraphIndex the relations between persons
+	 * @param personRepository where to read the memberships and tags from
+	 */
+	public SuggestionIndex(final SocialGraphIndex socialGraphIndex, final PersonRepository personRepository) {
+
+		this.socialGraphIndex = socialGraphIndex;
+		this.personRepository = personRepository;
+	}
+
+	/**
+	 * Build the suggestions in the background now and every
+	 * REBUILD_INTERVAL_HOURS, refresh changed persons every
+	 * REFRESH_INTERVAL_MINUTES
+	 */
+	@PostConstruct
+	public synchronized void start() {
+
+		rebuilder = backgroundTasks.repeat("rebuild the suggestions", new Runnable() {
+
+			@Override
+			public void run() {
+				rebuild();
+			}
+		}, 0, REBUILD_INTERVAL_HOURS, TimeUnit.HOURS);
+
+		// persons that fail to refresh are computed again with the next rebuild
+		refresher = backgroundTasks.repeat("refresh the suggestions of the changed persons", new Runnable() {
+
+			@Override
+			public void run() {
+				refresh();
+			}
+		}, REFRESH_INTERVAL_MINUTES, REFRESH_INTERVAL_MINUTES, TimeUnit.MINUTES);
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+
+		BackgroundTasks.cancel(rebuilder, true);
+		BackgroundTasks.cancel(refresher, true);
+	}
+
+	/**
+	 * Reload the memberships and tags and compute the suggestions of all
+	 * persons in the calling thread
+	 */
+	public void rebuild() {
+
+		synchronized (this) {
+
+			if (journal != null) {
+				throw new IllegalStateException("rebuild already running");
+			}
+
+			journal = new ArrayList<int[]>();
+		}
+
+		try {
+			new GraphLoader(LOAD_CHUNK_SIZE) {
+
+				@Override
+				List<int[]> loadChunk(final int afterId, final int maxRows) {
+					return personRepository.loadMemberships(afterId, maxRows);
+				}
+			}.loadInto(memberships);
+
+			new GraphLoader(LOAD_CHUNK_SIZE) {
+
+				@Override
+				List<int[]> loadChunk(final int afterId, final int maxRows) {
+					return personRepository.loadPersonTags(afterId, maxRows);
+				}
+			}.loadInto(tags);
+
+			// the changes are replayed in order, applying one twice does no harm
+			synchronized (this) {
+				for (int[] change : journal) {
+					apply(change);
+				}
+			}
+
+		} finally {
+			synchronized (this) {
+				journal = null;
+			}
+		}
+
+		// persons changed from now on are refreshed afterwards
+		changed.clear();
+
+		final SuggestionEngine engine = engine();
+		final Map<Integer, Suggestion[]> rebuilt = new ConcurrentHashMap<Integer, Suggestion[]>(engine.suggestAll(
+				activePersons(), MAX_SUGGESTIONS, computeExecutor()));
+
+		store = rebuilt;
+	}
+
+	/**
+	 * Compute the suggestions of the persons changed since the last rebuild or
+	 * refresh in the calling thread
+	 *
+	 * @return number of persons refreshed
+	 */
+	public int refresh() {
+
+		final int[] personIds = drainChanged();
+
+		if (personIds.length > 0) {
+			store.putAll(engine().suggestAll(personIds, MAX_SUGGESTIONS, computeExecutor()));
+		}
+
+		return personIds.length;
+	}
+
+	/**
+	 * Get the suggestions of a person
+	 *
+	 * @param personId id of the person
+	 * @param maxResults max number of suggestions, at most MAX_SUGGESTIONS
+	 *            are stored
+	 *
+	 * @return the suggestions, best first
+	 */
+	public Suggestion[] getSuggestions(final int personId, final int maxResults) {
+
+		Suggestion[] suggestions = store.get(personId);
+
+		if (suggestions == null) {
+			suggestions = engine().suggest(personId, MAX_SUGGESTIONS);
+			store.put(personId, suggestions);
+		}
+
+		return suggestions.length <= maxResults ? suggestions.clone() : Arrays.copyOf(suggestions, maxResults);
+	}
+
+	/**
+	 * Record that a relation between two persons was added or removed
+	 *
+	 * @param personId one person
+	 * @param otherPersonId the other person
+	 */
+	public void relationChanged(final int personId, final int otherPersonId) {
+
+		changed.add(personId);
+		changed.add(otherPersonId);
+	}
+
+	/**
+	 * Record a new or removed community membership
+	 *
+	 * @param personId id of the member
+	 * @param communityId id of the community
+	 * @param added true if the membership was added
+	 */
+	public synchronized void membershipChanged(final int personId, final int communityId, final boolean added) {
+		change(new int[] { 0, added ? 1 : 0, personId, communityId });
+	}
+
+	/**
+	 * Record a tag added to or removed from a person
+	 *
+	 * @param personId id of the person
+	 * @param tagId id of the tag
+	 * @param added true if the tag was added
+	 */
+	public synchronized void tagChanged(final int personId, final int tagId, final boolean added) {
+		change(new int[] { 1, added ? 1 : 0, personId, tagId });
+	}
+
+	/**
+	 * Remove the suggestions of a deleted person
+	 *
+	 * @param personId id of the person
+	 */
+	public void removePerson(final int personId) {
+
+		changed.remove(personId);
+		store.remove(personId);
+	}
+
+	private void change(final int[] change) {
+
+		apply(change);
+
+		if (journal != null) {
+			journal.add(change);
+		}
+
+		changed.add(change[2]);
+	}
+
+	private void apply(final int[] change) {
+
+		final SocialGraph graph = change[0] == 0 ? memberships : tags;
+
+		if (change[1] == 1) {
+			graph.addEdge(change[2], change[3]);
+		} else {
+			graph.removeEdge(change[2], change[3]);
+		}
+	}
+
+	/**
+	 * @return the managed executor, the common pool outside of a container
+	 */
+	private ExecutorService computeExecutor() {
+		return executor != null ? executor : ForkJoinPool.commonPool();
+	}
+
+	private SuggestionEngine engine() {
+		return new SuggestionEngine(socialGraphIndex.getGraph(), memberships, tags);
+	}
+
+	/**
+	 * @return ids of the persons with a relation, membership or tag
+	 */
+	private int[] activePersons() {
+
+		final SocialGraph relations = socialGraphIndex.getGraph();
+		final int bound = Math.max(relations.getVertexBound(),
+				Math.max(memberships.getVertexBound(), tags.getVertexBound()));
+
+		int[] result = new int[1024];
+		int count = 0;
+
+		for (int personId = 1; personId < bound; ++personId) {
+
+			if (relations.getOutDegree(personId) > 0 || relations.getInDegree(personId) > 0
+					|| memberships.getOutDegree(personId) > 0 || tags.getOutDegree(personId) > 0) {
+
+				if (count == result.length) {
+					result = Arrays.copyOf(result, 2 * count);
+				}
+
+				result[count++] = personId;
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	private int[] drainChanged() {
+
+		final List<Integer> drained = new ArrayList<Integer>();
+
+		for (Integer personId : changed) {
+			if (changed.remove(personId)) {
+				drained.add(personId);
+			}
+		}
+
+		final int[] result = new int[drained.size()];
+
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = drained.get(i);
+		}
+
+		return result;
+	}
+}
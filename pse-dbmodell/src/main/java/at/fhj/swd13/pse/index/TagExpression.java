@@ -0,0 +1,285 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Boolean expression over tag tokens, e.g. "java AND (jsf OR jpa) AND NOT
+ * draft"
+ *
+ * AND binds stronger than OR, a missing operator between two operands means
+ * AND. NOT is only allowed right after AND (set difference), a query for
+ * everything except a tag is not supported. Tokens are matched as given.
+ *
+ */
+public final class TagExpression {
+
+	private final Node root;
+
+	private TagExpression(final Node root) {
+		this.root = root;
+	}
+
+	/**
+	 * Parse an expression
+	 *
+	 * @param expression the expression text
+	 *
+	 * @return the parsed expression
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the expression is empty or malformed
+	 */
+	public static TagExpression parse(final String expression) {
+
+		if (expression == null) {
+			throw new IllegalArgumentException("tag expression must not be null");
+		}
+
+		final Parser parser = new Parser(lex(expression), expression);
+		final Node root = parser.parseOr();
+
+		if (parser.pos != parser.tokens.size()) {
+			throw parser.error();
+		}
+
+		return new TagExpression(root);
+	}
+
+	/**
+	 * @return the tag tokens used in the expression
+	 */
+	public Set<String> getTokens() {
+
+		final Set<String> tokens = new LinkedHashSet<String>();
+		root.collect(tokens);
+
+		return tokens;
+	}
+
+	/**
+	 * Evaluate the expression
+	 *
+	 * @param bitmaps the message ids per tag token, tokens that are missing
+	 *            match no message
+	 *
+	 * @return a new bitmap with the matching ids
+	 */
+	public IdBitmap evaluate(final Map<String, IdBitmap> bitmaps) {
+
+		final IdBitmap result = root.evaluate(bitmaps);
+
+		// the operators create new bitmaps, a single tag does not
+		return root instanceof Tag ? result.copy() : result;
+	}
+
+	@Override
+	public String toString() {
+		return root.toString();
+	}
+
+	private static List<String> lex(final String expression) {
+
+		final List<String> tokens = new ArrayList<String>();
+		final StringBuilder current = new StringBuilder();
+
+		for (int i = 0; i < expression.length(); ++i) {
+
+			final char c = expression.charAt(i);
+
+			if (c == '(' || c == ')' || Character.isWhitespace(c)) {
+
+				if (current.length() > 0) {
+					tokens.add(current.toString());
+					current.setLength(0);
+				}
+
+				if (!Character.isWhitespace(c)) {
+					tokens.add(String.valueOf(c));
+				}
+
+			} else {
+				current.append(c);
+			}
+		}
+
+		if (current.length() > 0) {
+			tokens.add(current.toString());
+		}
+
+		return tokens;
+	}
+
+	/**
+	 * Recursive descent parser: or := and ("OR" and)*, and := operand (["AND"]
+	 * ["NOT"] operand)*, operand := tag | "(" or ")"
+	 */
+	private static final class Parser {
+
+		final List<String> tokens;
+
+		final String expression;
+
+		int pos;
+
+		Parser(final List<String> tokens, final String expression) {
+
+			this.tokens = tokens;
+			this.expression = expression;
+		}
+
+		Node parseOr() {
+
+			Node left = parseAnd();
+
+			while (accept("OR")) {
+				left = new Binary(Operator.OR, left, parseAnd());
+			}
+
+			return left;
+		}
+
+		Node parseAnd() {
+
+			Node left = parseOperand();
+
+			while (pos < tokens.size() && !peekIs("OR") && !peekIs(")")) {
+
+				accept("AND");
+
+				if (accept("NOT")) {
+					left = new Binary(Operator.AND_NOT, left, parseOperand());
+				} else {
+					left = new Binary(Operator.AND, left, parseOperand());
+				}
+			}
+
+			return left;
+		}
+
+		Node parseOperand() {
+
+			if (pos == tokens.size() || peekIs("AND") || peekIs("OR") || peekIs("NOT") || peekIs(")")) {
+				throw error();
+			}
+
+			if (accept("(")) {
+
+				final Node inner = parseOr();
+
+				if (!accept(")")) {
+					throw error();
+				}
+
+				return inner;
+			}
+
+			return new Tag(tokens.get(pos++));
+		}
+
+		boolean peekIs(final String token) {
+			return pos < tokens.size() && tokens.get(pos).equals(token);
+		}
+
+		boolean accept(final String token) {
+
+			if (peekIs(token)) {
+				++pos;
+				return true;
+			}
+
+			return false;
+		}
+
+		IllegalArgumentException error() {
+
+			return new IllegalArgumentException("malformed tag expression at "
+					+ (pos < tokens.size() ? "'" + tokens.get(pos) + "'" : "end") + ": " + expression);
+		}
+	}
+
+	private enum Operator {
+		AND, OR, AND_NOT
+	}
+
+	private abstract static class Node {
+
+		abstract IdBitmap evaluate(Map<String, IdBitmap> bitmaps);
+
+		abstract void collect(Set<String> tokens);
+	}
+
+	private static final class Tag extends Node {
+
+		final String token;
+
+		Tag(final String token) {
+			this.token = token;
+		}
+
+		@Override
+		IdBitmap evaluate(final Map<String, IdBitmap> bitmaps) {
+
+			final IdBitmap bitmap = bitmaps.get(token);
+
+			return bitmap == null ? new IdBitmap() : bitmap;
+		}
+
+		@Override
+		void collect(final Set<String> tokens) {
+			tokens.add(token);
+		}
+
+		@Override
+		public String toString() {
+			return token;
+		}
+	}
+
+	private static final class Binary extends Node {
+
+		final Operator operator;
+
+		final Node left;
+
+		final Node right;
+
+		Binary(final Operator operator, final Node left, final Node right) {
+
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		IdBitmap evaluate(final Map<String, IdBitmap> bitmaps) {
+
+			final IdBitmap l = left.evaluate(bitmaps);
+			final IdBitmap r = right.evaluate(bitmaps);
+
+			switch (operator) {
+			case AND:
+				return l.and(r);
+			case OR:
+				return l.or(r);
+			default:
+				return l.andNot(r);
+			}
+		}
+
+		@Override
+		void collect(final Set<String> tokens) {
+
+			left.collect(tokens);
+			right.collect(tokens);
+		}
+
+		@Override
+		public String toString() {
+			return "(" + left + " " + operator.name().replace('_', ' ') + " " + right + ")";
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.cache.TagDictionary;
+import at.fhj.swd13.pse.repository.TagRepository;
+
+/**
+ * In-memory index of the messages per tag
+ *
+ * Every tag maps to a compressed bitmap of the ids of its messages, tag
+ * expressions are evaluated with bitmap intersections and unions instead of
+ * joins over message_tag. Ids are not in time order, callers order the
+ * matching ids by the feed (created_on, message_id).
+ *
+ * The index is loaded from message_tag when it is used for the first time and
+ * kept current by the services that post messages, after their transaction
+ * has committed. Changes recorded before the load completes are kept, the load
+ * only adds.
+ *
+ * Found ids may belong to messages whose transaction was rolled back, callers
+ * load the messages by id and skip those that do not exist.
+ *
+ */
+@ApplicationScoped
+public class TagMessageIndex {
+
+	/**
+	 * number of message tags read per query while loading
+	 */
+	public static final int LOAD_CHUNK_SIZE = 5000;
+
+	@Inject
+	private TagRepository tagRepository;
+
+	@Inject
+	private TagDictionary tagDictionary;
+
+	private final Map<Integer, IdBitmap> bitmaps = new HashMap<Integer, IdBitmap>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private volatile boolean loaded;
+
+	public TagMessageIndex() {
+	}
+
+	/**
+	 * Create an index outside of a container
+	 *
+	 * @param tagRepository where to read the message tags from
+	 * @param tagDictionary where to look up the tag ids
+	 */
+	public TagMessageIndex(final TagRepository tagRepository, final TagDictionary tagDictionary) {
+
+		this.tagRepository = tagRepository;
+		this.tagDictionary = tagDictionary;
+	}
+
+	/**
+	 * Record that a message was tagged
+	 *
+	 * @param tagId id of the tag
+	 * @param messageId id of the message
+	 */
+	public void add(final int tagId, final int messageId) {
+
+		lock.writeLock().lock();
+
+		try {
+			addUnlocked(tagId, messageId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Record that a tag was removed from a message
+	 *
+	 * @param tagId id of the tag
+	 * @param messageId id of the message
+	 */
+	public void remove(final int tagId, final int messageId) {
+
+		lock.writeLock().lock();
+
+		try {
+			final IdBitmap bitmap = bitmaps.get(tagId);
+
+			if (bitmap != null && bitmap.remove(messageId) && bitmap.isEmpty()) {
+				bitmaps.remove(tagId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove a deleted message from all tags
+	 *
+	 * @param messageId id of the message
+	 */
+	public void removeMessage(final int messageId) {
+
+		lock.writeLock().lock();
+
+		try {
+			for (IdBitmap bitmap : bitmaps.values()) {
+				bitmap.remove(messageId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Find the messages matching a tag expression
+	 *
+	 * @param expression the parsed tag expression
+	 *
+	 * @return the ids of the matching messages, owned by the caller
+	 */
+	public IdBitmap evaluate(final TagExpression expression) {
+
+		ensureLoaded();
+
+		final Map<String, Integer> tagIds = tagDictionary.getTagIds(expression.getTokens());
+		final Map<String, IdBitmap> operands = new HashMap<String, IdBitmap>();
+
+		lock.readLock().lock();
+
+		try {
+			for (Map.Entry<String, Integer> tagId : tagIds.entrySet()) {
+
+				final IdBitmap bitmap = bitmaps.get(tagId.getValue());
+
+				if (bitmap != null) {
+					operands.put(tagId.getKey(), bitmap);
+				}
+			}
+
+			return expression.evaluate(operands);
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the number of messages with a tag
+	 *
+	 * @param tagId id of the tag
+	 *
+	 * @return number of messages, 0 for unknown tags
+	 */
+	public int count(final int tagId) {
+
+		ensureLoaded();
+
+		lock.readLock().lock();
+
+		try {
+			final IdBitmap bitmap = bitmaps.get(tagId);
+
+			return bitmap == null ? 0 : bitmap.cardinality();
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the approximate memory used by the bitmaps in bytes
+	 */
+	public long byteSize() {
+
+		lock.readLock().lock();
+
+		try {
+			long bytes = 0;
+
+			for (IdBitmap bitmap : bitmaps.values()) {
+				bytes += bitmap.byteSize();
+			}
+
+			return bytes;
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Load all message tags once, in chunks ordered by message_tag_id. Each
+	 * chunk is added under the write lock, so writers are not blocked for the
+	 * whole load
+	 */
+	private void ensureLoaded() {
+
+		if (loaded) {
+			return;
+		}
+
+		synchronized (this) {
+
+			if (loaded) {
+				return;
+			}
+
+			int lastId = 0;
+			List<int[]> rows;
+
+			do {
+				rows = tagRepository.loadMessageTags(lastId, LOAD_CHUNK_SIZE);
+
+				lock.writeLock().lock();
+
+				try {
+					for (int[] row : rows) {
+						addUnlocked(row[2], row[1]);
+						lastId = row[0];
+					}
+				} finally {
+					lock.writeLock().unlock();
+				}
+
+			} while (rows.size() == LOAD_CHUNK_SIZE);
+
+			loaded = true;
+		}
+	}
+
+	private void addUnlocked(final int tagId, final int messageId) {
+
+		IdBitmap bitmap = bitmaps.get(tagId);
+
+		if (bitmap == null) {
+			bitmap = new IdBitmap();
+			bitmaps.put(tagId, bitmap);
+		}
+
+		bitmap.add(messageId);
+	}
+}
@@ -0,0 +1,72 @@
+package at.fhj.swd13.pse.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into search terms: lower case, accents folded (e acute -> e,
+ * sharp s -> ss), split at everything that is not a letter or a digit
+ *
+ */
+public final class TextTokenizer {
+
+	/**
+	 * shorter tokens are not indexed
+	 */
+	public static final int MIN_TOKEN_LENGTH = 2;
+
+	/**
+	 * longer tokens are cut
+	 */
+	public static final int MAX_TOKEN_LENGTH = 40;
+
+	private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+	private TextTokenizer() {
+	}
+
+	/**
+	 * Get the terms of a text in the order they occur, duplicates are kept
+	 *
+	 * @param text the text, may be null
+	 *
+	 * @return the terms, may be empty
+	 */
+	public static List<String> tokenize(final String text) {
+
+		final List<String> terms = new ArrayList<String>();
+
+		if (text == null || text.isEmpty()) {
+			return terms;
+		}
+
+		for (String token : SEPARATORS.split(fold(text))) {
+
+			if (token.length() >= MIN_TOKEN_LENGTH) {
+				terms.add(token.length() > MAX_TOKEN_LENGTH ? token.substring(0, MAX_TOKEN_LENGTH) : token);
+			}
+		}
+
+		return terms;
+	}
+
+	/**
+	 * Lower case the text and fold accented characters to their base
+	 * characters
+	 *
+	 * @param text the text to fold
+	 *
+	 * @return the folded text
+	 */
+	public static String fold(final String text) {
+
+		final String lower = text.toLowerCase(Locale.ROOT).replace("\u00df", "ss");
+
+		return COMBINING_MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+	}
+}
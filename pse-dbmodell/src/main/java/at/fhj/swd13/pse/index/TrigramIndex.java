@@ -0,0 +1,373 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory substring index over a few short fields per document, e.g. the
+ * names of a person
+ *
+ * Every trigram of the folded fields maps to a bitmap of the documents
+ * containing it. A query of three or more characters intersects the bitmaps of
+ * its trigrams, shorter queries unite the bitmaps of all trigrams containing
+ * them. The candidates are verified against the stored fields and ranked:
+ * exact field match before field prefix before word prefix before any other
+ * substring, then by sort key.
+ *
+ * Thread safe, any number of searches run in parallel to one writer.
+ *
+ */
+public class TrigramIndex {
+
+	private static final int GRAM = 3;
+
+	private static final int EXACT = 3;
+
+	private static final int PREFIX = 2;
+
+	private static final int WORD_PREFIX = 1;
+
+	private static final int SUBSTRING = 0;
+
+	private final Map<String, IdBitmap> grams = new HashMap<String, IdBitmap>();
+
+	private final Map<Integer, Document> documents = new HashMap<Integer, Document>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Add a document or replace its fields
+	 *
+	 * @param docId id of the document
+	 * @param sortKey orders documents of the same rank, may be null
+	 * @param fields the searchable fields, null fields are skipped
+	 */
+	public void put(final int docId, final String sortKey, final String... fields) {
+
+		final List<String> folded = new ArrayList<String>(fields.length);
+
+		for (String field : fields) {
+			if (field != null && !field.isEmpty()) {
+				folded.add(TextTokenizer.fold(field));
+			}
+		}
+
+		final Document document = new Document(folded.toArray(new String[folded.size()]), sortKey == null ? ""
+				: TextTokenizer.fold(sortKey));
+
+		lock.writeLock().lock();
+
+		try {
+			removeDocument(docId);
+
+			for (String gram : document.grams()) {
+
+				IdBitmap bitmap = grams.get(gram);
+
+				if (bitmap == null) {
+					bitmap = new IdBitmap();
+					grams.put(gram, bitmap);
+				}
+
+				bitmap.add(docId);
+			}
+
+			documents.put(docId, document);
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove a document
+	 *
+	 * @param docId id of the document
+	 *
+	 * @return true if the document was indexed
+	 */
+	public boolean remove(final int docId) {
+
+		lock.writeLock().lock();
+
+		try {
+			return removeDocument(docId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Find the documents with a field containing the query, case and accents
+	 * are ignored
+	 *
+	 * @param query the substring to look for
+	 * @param maxResults max number of ids to return
+	 *
+	 * @return the ids of the matching documents, best match first
+	 */
+	public int[] search(final String query, final int maxResults) {
+
+		final String folded = query == null ? "" : TextTokenizer.fold(query.trim());
+
+		if (folded.isEmpty() || maxResults <= 0) {
+			return new int[0];
+		}
+
+		lock.readLock().lock();
+
+		try {
+			final IdBitmap candidates = folded.length() >= GRAM ? intersect(folded) : unite(folded);
+
+			if (candidates == null) {
+				return new int[0];
+			}
+
+			final List<Hit> hits = new ArrayList<Hit>();
+
+			for (int docId : candidates.toArray()) {
+
+				final Document document = documents.get(docId);
+				final int rank = document.rank(folded);
+
+				if (rank >= SUBSTRING) {
+					hits.add(new Hit(docId, rank, document.sortKey));
+				}
+			}
+
+			Collections.sort(hits, Hit.BY_RANK);
+
+			final int[] ids = new int[Math.min(maxResults, hits.size())];
+
+			for (int i = 0; i < ids.length; ++i) {
+				ids[i] = hits.get(i).docId;
+			}
+
+			return ids;
+
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the number of indexed documents
+	 */
+	public int size() {
+
+		lock.readLock().lock();
+
+		try {
+			return documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the number of distinct trigrams
+	 */
+	public int getGramCount() {
+
+		lock.readLock().lock();
+
+		try {
+			return grams.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Documents containing all trigrams of the query, starting with the rarest
+	 *
+	 * @return the candidates, null if a trigram is unknown
+	 */
+	private IdBitmap intersect(final String query) {
+
+		final List<IdBitmap> bitmaps = new ArrayList<IdBitmap>();
+
+		for (String gram : gramsOf(query)) {
+
+			final IdBitmap bitmap = grams.get(gram);
+
+			if (bitmap == null) {
+				return null;
+			}
+
+			bitmaps.add(bitmap);
+		}
+
+		Collections.sort(bitmaps, new Comparator<IdBitmap>() {
+
+			@Override
+			public int compare(final IdBitmap a, final IdBitmap b) {
+				return Integer.compare(a.cardinality(), b.cardinality());
+			}
+		});
+
+		IdBitmap result = bitmaps.get(0);
+
+		for (int i = 1; i < bitmaps.size() && !result.isEmpty(); ++i) {
+			result = result.and(bitmaps.get(i));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Documents containing a trigram that contains the (short) query. Fields
+	 * shorter than a trigram are indexed as a whole and found the same way
+	 *
+	 * @return the candidates, null if there are none
+	 */
+	private IdBitmap unite(final String query) {
+
+		IdBitmap result = null;
+
+		for (Map.Entry<String, IdBitmap> gram : grams.entrySet()) {
+
+			if (gram.getKey().contains(query)) {
+				result = result == null ? gram.getValue() : result.or(gram.getValue());
+			}
+		}
+
+		return result;
+	}
+
+	private boolean removeDocument(final int docId) {
+
+		final Document document = documents.remove(docId);
+
+		if (document == null) {
+			return false;
+		}
+
+		for (String gram : document.grams()) {
+
+			final IdBitmap bitmap = grams.get(gram);
+
+			if (bitmap != null && bitmap.remove(docId) && bitmap.isEmpty()) {
+				grams.remove(gram);
+			}
+		}
+
+		return true;
+	}
+
+	private static Set<String> gramsOf(final String text) {
+
+		final Set<String> result = new HashSet<String>();
+
+		if (text.length() < GRAM) {
+			result.add(text);
+		} else {
+			for (int i = 0; i + GRAM <= text.length(); ++i) {
+				result.add(text.substring(i, i + GRAM));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Folded fields of an indexed document
+	 */
+	private static final class Document {
+
+		final String[] fields;
+
+		final String sortKey;
+
+		Document(final String[] fields, final String sortKey) {
+
+			this.fields = fields;
+			this.sortKey = sortKey;
+		}
+
+		Set<String> grams() {
+
+			final Set<String> result = new HashSet<String>();
+
+			for (String field : fields) {
+				result.addAll(gramsOf(field));
+			}
+
+			return result;
+		}
+
+		/**
+		 * @return best rank of the query in any field, -1 if no field
+		 *         contains it
+		 */
+		int rank(final String query) {
+
+			int best = -1;
+
+			for (String field : fields) {
+
+				final int at = field.indexOf(query);
+
+				if (at < 0) {
+					continue;
+				}
+
+				final int rank;
+
+				if (at == 0) {
+					rank = field.length() == query.length() ? EXACT : PREFIX;
+				} else if (!Character.isLetterOrDigit(field.charAt(at - 1))) {
+					rank = WORD_PREFIX;
+				} else {
+					rank = field.indexOf(" " + query) >= 0 ? WORD_PREFIX : SUBSTRING;
+				}
+
+				best = Math.max(best, rank);
+			}
+
+			return best;
+		}
+	}
+
+	/**
+	 * A verified candidate
+	 */
+	private static final class Hit {
+
+		static final Comparator<Hit> BY_RANK = new Comparator<Hit>() {
+
+			@Override
+			public int compare(final Hit a, final Hit b) {
+
+				if (a.rank != b.rank) {
+					return Integer.compare(b.rank, a.rank);
+				}
+
+				final int bySortKey = a.sortKey.compareTo(b.sortKey);
+
+				return bySortKey != 0 ? bySortKey : Integer.compare(a.docId, b.docId);
+			}
+		};
+
+		final int docId;
+
+		final int rank;
+
+		final String sortKey;
+
+		Hit(final int docId, final int rank, final String sortKey) {
+
+			this.docId = docId;
+			this.rank = rank;
+			this.sortKey = sortKey;
+		}
+	}
+}
@@ -0,0 +1,269 @@
+package at.fhj.swd13.pse.index;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.cache.BackgroundTasks;
+import at.fhj.swd13.pse.dto.TypeaheadEntry;
+import at.fhj.swd13.pse.repository.TypeaheadRepository;
+
+/**
+ * Prefix completion of person names, tag tokens and community names
+ *
+ * One CompletionTrie per kind answers completions from memory. Inserts,
+ * updates and deletes are applied by the services once their transaction has
+ * committed, the popularity of the entries is refreshed by a rebuild every
+ * REBUILD_INTERVAL_MINUTES on the container's managed scheduler. A rebuild
+ * fills new tries in the background and replaces the current ones when done,
+ * changes made meanwhile are recorded and applied to the new tries first, so
+ * readers are never blocked.
+ *
+ */
+@ApplicationScoped
+public class TypeaheadIndex {
+
+	/**
+	 * minutes between two rebuilds
+	 */
+	public static final int REBUILD_INTERVAL_MINUTES = 15;
+
+	@Inject
+	private TypeaheadRepository typeaheadRepository;
+
+	/**
+	 * replaced by the container, outside of one there is no scheduler
+	 */
+	@Inject
+	private BackgroundTasks backgroundTasks = new BackgroundTasks();
+
+	private volatile Map<TypeaheadKind, CompletionTrie> tries = emptyTries();
+
+	private volatile boolean ready;
+
+	/**
+	 * changes made during a rebuild, null if no rebuild runs, guarded by this
+	 */
+	private List<Change> journal;
+
+	private ScheduledFuture<?> rebuilder;
+
+	private Future<?> running;
+
+	public TypeaheadIndex() {
+	}
+
+	/**
+	 * Create an index outside of a container, it is not built automatically
+	 *
+	 * @param typeaheadRepository where to read the entries from on rebuild
+	 */
+	public TypeaheadIndex(final TypeaheadRepository typeaheadRepository) {
+		this.typeaheadRepository = typeaheadRepository;
+	}
+
+	/**
+	 * Build the index in the background now and every
+	 * REBUILD_INTERVAL_MINUTES
+	 */
+	@PostConstruct
+	public synchronized void start() {
+
+		rebuilder = backgroundTasks.repeat("rebuild the typeahead index", new Runnable() {
+
+			@Override
+			public void run() {
+				rebuild();
+			}
+		}, 0, REBUILD_INTERVAL_MINUTES, TimeUnit.MINUTES);
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+
+		BackgroundTasks.cancel(rebuilder, true);
+		BackgroundTasks.cancel(running, true);
+	}
+
+	/**
+	 * Rebuild the index in the background, completions use the current tries
+	 * meanwhile
+	 *
+	 * @return the running rebuild
+	 *
+	 * @throws IllegalStateException
+	 *             outside of a container, there is no managed scheduler
+	 */
+	public synchronized Future<?> rebuildAsync() {
+
+		running = backgroundTasks.submit("rebuild the typeahead index", new Runnable() {
+
+			@Override
+			public void run() {
+				rebuild();
+			}
+		});
+
+		return running;
+	}
+
+	/**
+	 * Rebuild the index from the database in the calling thread
+	 */
+	public void rebuild() {
+
+		synchronized (this) {
+
+			if (journal != null) {
+				throw new IllegalStateException("rebuild already running");
+			}
+
+			journal = new ArrayList<Change>();
+		}
+
+		final Map<TypeaheadKind, CompletionTrie> rebuilt = emptyTries();
+
+		try {
+			for (TypeaheadKind kind : TypeaheadKind.values()) {
+
+				final CompletionTrie trie = rebuilt.get(kind);
+
+				for (TypeaheadEntry entry : typeaheadRepository.loadEntries(kind)) {
+					trie.put(entry.getId(), entry.getLabel(), entry.getWeight(), entry.getKeys());
+				}
+			}
+
+		} catch (RuntimeException x) {
+
+			synchronized (this) {
+				journal = null;
+			}
+
+			throw x;
+		}
+
+		synchronized (this) {
+
+			for (Change change : journal) {
+				change.applyTo(rebuilt);
+			}
+
+			journal = null;
+			tries = rebuilt;
+			ready = true;
+		}
+	}
+
+	/**
+	 * Add an entry or replace its label and keys
+	 *
+	 * @param kind the kind of the entry
+	 * @param entry the entry, a weight of -1 keeps the current weight (0 for
+	 *            new entries)
+	 */
+	public synchronized void put(final TypeaheadKind kind, final TypeaheadEntry entry) {
+
+		record(new Change(kind, entry.getId(), entry));
+	}
+
+	/**
+	 * Remove an entry
+	 *
+	 * @param kind the kind of the entry
+	 * @param id id of the entry
+	 */
+	public synchronized void remove(final TypeaheadKind kind, final int id) {
+
+		record(new Change(kind, id, null));
+	}
+
+	/**
+	 * Complete a prefix
+	 *
+	 * @param kind the kind of entries to complete
+	 * @param prefix the text typed so far, case and accents are ignored
+	 * @param maxResults max number of completions
+	 *
+	 * @return the completions, most popular first
+	 */
+	public List<Completion> complete(final TypeaheadKind kind, final String prefix, final int maxResults) {
+		return tries.get(kind).complete(prefix, maxResults);
+	}
+
+	/**
+	 * @return true once the index has been built from the database
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	private void record(final Change change) {
+
+		change.applyTo(tries);
+
+		if (journal != null) {
+			journal.add(change);
+		}
+	}
+
+	private static Map<TypeaheadKind, CompletionTrie> emptyTries() {
+
+		final Map<TypeaheadKind, CompletionTrie> result = new EnumMap<TypeaheadKind, CompletionTrie>(
+				TypeaheadKind.class);
+
+		for (TypeaheadKind kind : TypeaheadKind.values()) {
+			result.put(kind, new CompletionTrie());
+		}
+
+		return result;
+	}
+
+	/**
+	 * A change of the index, replayed on rebuilt tries
+	 */
+	private static final class Change {
+
+		final TypeaheadKind kind;
+
+		final int id;
+
+		/**
+		 * null if removed
+		 */
+		final TypeaheadEntry entry;
+
+		Change(final TypeaheadKind kind, final int id, final TypeaheadEntry entry) {
+
+			this.kind = kind;
+			this.id = id;
+			this.entry = entry;
+		}
+
+		void applyTo(final Map<TypeaheadKind, CompletionTrie> target) {
+
+			final CompletionTrie trie = target.get(kind);
+
+			if (entry == null) {
+				trie.remove(id);
+				return;
+			}
+
+			long weight = entry.getWeight();
+
+			if (weight < 0) {
+				weight = Math.max(0, trie.getWeight(id));
+			}
+
+			trie.put(id, entry.getLabel(), weight, entry.getKeys());
+		}
+	}
+}
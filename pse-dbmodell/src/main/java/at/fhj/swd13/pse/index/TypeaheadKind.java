@@ -0,0 +1,10 @@
+package at.fhj.swd13.pse.index;
+
+/**
+ * The kinds of entities offered by the typeahead
+ *
+ */
+public enum TypeaheadKind {
+
+	PERSON, TAG, COMMUNITY
+}
@@ -0,0 +1,17 @@
+package at.fhj.swd13.pse.ingest;
+
+/**
+ * Receives the messages of each chunk a MessageIngester has committed, e.g.
+ * to write them to the timelines and add them to the in-memory indexes of a
+ * running application
+ *
+ */
+public interface IngestListener {
+
+	/**
+	 * Called after a chunk was committed
+	 *
+	 * @param messageIds ids of the messages inserted by the chunk, ascending
+	 */
+	void chunkCommitted(int[] messageIds);
+}
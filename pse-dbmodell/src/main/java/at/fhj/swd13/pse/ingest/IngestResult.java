@@ -0,0 +1,85 @@
+package at.fhj.swd13.pse.ingest;
+
+/**
+ * Counts and throughput of a bulk ingestion
+ *
+ */
+public final class IngestResult {
+
+	private final int messages;
+
+	private final int messageTags;
+
+	private final int rejected;
+
+	private final int chunks;
+
+	private final long elapsedNanos;
+
+	public IngestResult(final int messages, final int messageTags, final int rejected, final int chunks,
+			final long elapsedNanos) {
+
+		this.messages = messages;
+		this.messageTags = messageTags;
+		this.rejected = rejected;
+		this.chunks = chunks;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * @return number of messages inserted
+	 */
+	public int getMessages() {
+		return messages;
+	}
+
+	/**
+	 * @return number of message_tag rows inserted
+	 */
+	public int getMessageTags() {
+		return messageTags;
+	}
+
+	/**
+	 * @return number of messages skipped because their author or community
+	 *         does not exist
+	 */
+	public int getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * @return number of transactions committed
+	 */
+	public int getChunks() {
+		return chunks;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedNanos / 1000000;
+	}
+
+	/**
+	 * @return inserted messages per second
+	 */
+	public double getMessagesPerSecond() {
+		return perSecond(messages);
+	}
+
+	/**
+	 * @return inserted rows (messages and message tags) per second
+	 */
+	public double getRowsPerSecond() {
+		return perSecond(messages + messageTags);
+	}
+
+	private double perSecond(final int count) {
+		return elapsedNanos == 0 ? 0 : count * 1e9 / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("IngestResult[messages=%d, messageTags=%d, rejected=%d, chunks=%d, %d ms, %.0f rows/s]",
+				messages, messageTags, rejected, chunks, getElapsedMillis(), getRowsPerSecond());
+	}
+}
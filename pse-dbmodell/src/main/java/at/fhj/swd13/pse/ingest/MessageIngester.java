@@ -0,0 +1,575 @@
+package at.fhj.swd13.pse.ingest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.fhj.swd13.pse.cache.TagDictionary;
+import at.fhj.swd13.pse.db.DbContext;
+import at.fhj.swd13.pse.db.DbContextProvider;
+import at.fhj.swd13.pse.db.EntityNotFoundException;
+import at.fhj.swd13.pse.dto.IngestMessage;
+
+/**
+ * Bulk insert of messages delivered by an external delivery system
+ *
+ * Messages are written with JDBC batch inserts in chunks, each chunk in a
+ * transaction of its own. Authors, communities and tags are resolved with one
+ * query per chunk and cached for the lifetime of the ingester, missing tags
+ * are created. With a TagDictionary known tags are resolved without a query
+ * and created tags are added to it. For the batches to be sent as multi-row inserts the jdbc url
+ * needs rewriteBatchedStatements=true.
+ *
+ * Community names and tag tokens compare case and accent insensitive in the
+ * database (utf8_general_ci), user names are binary. The community and tag
+ * caches are keyed by the folded name, so "Java" finds the tag "java" instead
+ * of creating a duplicate the unique key rejects.
+ *
+ * The rows bypass the entity manager. An IngestListener gets the ids of the
+ * messages of each committed chunk, in an application it writes them to the
+ * timelines and adds them to the search and tag indexes. A listener failure is
+ * logged and the ingestion goes on, the chunk is committed already.
+ *
+ * Not thread safe, use one ingester per source.
+ *
+ */
+public class MessageIngester {
+
+	/**
+	 * number of messages per transaction if not given
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+	private static final String INSERT_MESSAGE = "INSERT INTO message (created_by, posted_in, headline, message, created_on, valid_from, expires_on, delivered_by) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String INSERT_MESSAGE_TAG = "INSERT INTO message_tag (message_id, tag_id) VALUES (?, ?)";
+
+	private static final String FIND_PERSONS = "SELECT user_name, person_id FROM person WHERE user_name IN ";
+
+	private static final String FIND_COMMUNITIES = "SELECT name, community_id FROM community WHERE name IN ";
+
+	private static final String FIND_TAGS = "SELECT token, tag_id FROM tag WHERE token IN ";
+
+	private static final String FIND_DELIVERY_SYSTEM = "SELECT delivery_system_id FROM delivery_system WHERE token = ?";
+
+	private static final Logger logger = LoggerFactory.getLogger(MessageIngester.class);
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+	private final DbContextProvider contextProvider;
+
+	private final int chunkSize;
+
+	private final Map<String, Integer> personIds = new HashMap<String, Integer>();
+
+	private final Map<String, Integer> communityIds = new HashMap<String, Integer>();
+
+	private final Map<String, Integer> tagIds = new HashMap<String, Integer>();
+
+	private final TagDictionary tagDictionary;
+
+	private final IngestListener listener;
+
+	/**
+	 * Create an ingester writing chunks of DEFAULT_CHUNK_SIZE messages
+	 *
+	 * @param contextProvider provides a db context per chunk
+	 */
+	public MessageIngester(final DbContextProvider contextProvider) {
+		this(contextProvider, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Create an ingester
+	 *
+	 * @param contextProvider provides a db context per chunk
+	 * @param chunkSize number of messages per transaction
+	 *
+	 * @throws IllegalArgumentException
+	 *             if chunkSize is not positive
+	 */
+	public MessageIngester(final DbContextProvider contextProvider, final int chunkSize) {
+		this(contextProvider, chunkSize, null);
+	}
+
+	/**
+	 * Create an ingester resolving tags with the application's dictionary
+	 *
+	 * @param contextProvider provides a db context per chunk
+	 * @param chunkSize number of messages per transaction
+	 * @param tagDictionary the tag dictionary, null to resolve tags with
+	 *            queries only
+	 *
+	 * @throws IllegalArgumentException
+	 *             if chunkSize is not positive
+	 */
+	public MessageIngester(final DbContextProvider contextProvider, final int chunkSize,
+			final TagDictionary tagDictionary) {
+		this(contextProvider, chunkSize, tagDictionary, null);
+	}
+
+	/**
+	 * Create an ingester that publishes the committed chunks
+	 *
+	 * @param contextProvider provides a db context per chunk
+	 * @param chunkSize number of messages per transaction
+	 * @param tagDictionary the tag dictionary, null to resolve tags with
+	 *            queries only
+	 * @param listener gets the ids of the messages of each committed chunk,
+	 *            may be null
+	 *
+	 * @throws IllegalArgumentException
+	 *             if chunkSize is not positive
+	 */
+	public MessageIngester(final DbContextProvider contextProvider, final int chunkSize,
+			final TagDictionary tagDictionary, final IngestListener listener) {
+
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunk size must be positive: " + chunkSize);
+		}
+
+		this.contextProvider = contextProvider;
+		this.chunkSize = chunkSize;
+		this.tagDictionary = tagDictionary;
+		this.listener = listener;
+	}
+
+	/**
+	 * Insert all messages of a stream. Chunks committed before a failure stay
+	 * committed
+	 *
+	 * @param deliverySystemToken token of the delivery system the messages
+	 *            were delivered by
+	 * @param messages the messages
+	 *
+	 * @return counts and throughput
+	 *
+	 * @throws EntityNotFoundException
+	 *             if there is no delivery system with the given token
+	 * @throws SQLException
+	 *             if a chunk could not be written, it is rolled back
+	 */
+	public IngestResult ingest(final String deliverySystemToken, final Iterator<IngestMessage> messages)
+			throws SQLException {
+
+		final long start = System.nanoTime();
+		final Counts counts = new Counts();
+		final List<IngestMessage> chunk = new ArrayList<IngestMessage>(chunkSize);
+
+		Integer deliverySystemId = null;
+
+		while (messages.hasNext()) {
+
+			chunk.add(messages.next());
+
+			if (chunk.size() == chunkSize || !messages.hasNext()) {
+
+				final DbContext dbContext = contextProvider.getDbContext();
+				Exception failure = null;
+
+				try {
+					final Connection connection = dbContext.getConnection();
+
+					if (deliverySystemId == null) {
+						deliverySystemId = findDeliverySystem(connection, deliverySystemToken);
+					}
+
+					writeChunk(connection, deliverySystemId, chunk, counts);
+
+					dbContext.commit();
+					publishTags(counts.pendingTags);
+					counts.pendingTags = null;
+
+					publishMessages(counts.pendingMessageIds);
+
+				} catch (SQLException | RuntimeException x) {
+					failure = x;
+					throw x;
+
+				} finally {
+					if (counts.pendingTags != null) {
+						// created in the rolled back transaction
+						for (String tag : counts.pendingTags) {
+							tagIds.remove(fold(tag));
+						}
+					}
+
+					counts.pendingTags = null;
+					counts.pendingMessageIds = null;
+
+					close(dbContext, failure);
+				}
+
+				++counts.chunks;
+				chunk.clear();
+			}
+		}
+
+		return new IngestResult(counts.messages, counts.messageTags, counts.rejected, counts.chunks, System.nanoTime()
+				- start);
+	}
+
+	private void writeChunk(final Connection connection, final int deliverySystemId, final List<IngestMessage> chunk,
+			final Counts counts) throws SQLException {
+
+		final Set<String> authors = new HashSet<String>();
+		final Set<String> communities = new HashSet<String>();
+		final Set<String> tags = new HashSet<String>();
+
+		for (IngestMessage message : chunk) {
+
+			authors.add(message.getAuthorUserName());
+
+			if (message.getCommunityName() != null) {
+				communities.add(message.getCommunityName());
+			}
+
+			tags.addAll(message.getTags());
+		}
+
+		resolve(connection, FIND_PERSONS, authors, personIds, false);
+		resolve(connection, FIND_COMMUNITIES, communities, communityIds, true);
+		counts.pendingTags = createTags(connection, tags);
+
+		final List<IngestMessage> accepted = new ArrayList<IngestMessage>(chunk.size());
+		final Timestamp now = new Timestamp(System.currentTimeMillis());
+
+		try (PreparedStatement insert = connection.prepareStatement(INSERT_MESSAGE, Statement.RETURN_GENERATED_KEYS)) {
+
+			for (IngestMessage message : chunk) {
+
+				final Integer personId = personIds.get(message.getAuthorUserName());
+				final Integer communityId = message.getCommunityName() == null ? null : communityIds.get(fold(message
+						.getCommunityName()));
+
+				if (personId == null || (message.getCommunityName() != null && communityId == null)) {
+					++counts.rejected;
+					continue;
+				}
+
+				final Timestamp createdOn = message.getCreatedOn() == null ? now : timestamp(message.getCreatedOn());
+
+				insert.setInt(1, personId);
+				if (communityId == null) {
+					insert.setNull(2, Types.INTEGER);
+				} else {
+					insert.setInt(2, communityId);
+				}
+				insert.setString(3, message.getHeadline());
+				insert.setString(4, message.getMessage());
+				insert.setTimestamp(5, createdOn);
+				insert.setTimestamp(6, createdOn);
+				insert.setTimestamp(7, timestamp(message.getExpiresOn()));
+				insert.setInt(8, deliverySystemId);
+				insert.addBatch();
+
+				accepted.add(message);
+			}
+
+			if (accepted.isEmpty()) {
+				return;
+			}
+
+			insert.executeBatch();
+
+			final int[] messageIds = new int[accepted.size()];
+			int i = 0;
+
+			try (ResultSet keys = insert.getGeneratedKeys()) {
+				while (keys.next() && i < messageIds.length) {
+					messageIds[i++] = keys.getInt(1);
+				}
+			}
+
+			if (i != messageIds.length) {
+				throw new SQLException("expected " + messageIds.length + " generated keys, got " + i);
+			}
+
+			counts.messageTags += insertMessageTags(connection, accepted, messageIds);
+			counts.messages += accepted.size();
+			counts.pendingMessageIds = messageIds;
+		}
+	}
+
+	private int insertMessageTags(final Connection connection, final List<IngestMessage> messages,
+			final int[] messageIds) throws SQLException {
+
+		int rows = 0;
+
+		try (PreparedStatement insert = connection.prepareStatement(INSERT_MESSAGE_TAG)) {
+
+			for (int i = 0; i < messageIds.length; ++i) {
+
+				// "Java" and "java" are one tag
+				final Set<Integer> messageTagIds = new HashSet<Integer>();
+
+				for (String tag : messages.get(i).getTags()) {
+
+					final Integer tagId = tagIds.get(fold(tag));
+
+					if (messageTagIds.add(tagId)) {
+
+						insert.setInt(1, messageIds[i]);
+						insert.setInt(2, tagId);
+						insert.addBatch();
+
+						++rows;
+					}
+				}
+			}
+
+			if (rows > 0) {
+				insert.executeBatch();
+			}
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Resolve the tags not yet cached and create those that do not exist,
+	 * INSERT IGNORE copes with tags created concurrently
+	 *
+	 * @return the tokens of the tags created
+	 */
+	private List<String> createTags(final Connection connection, final Set<String> tags) throws SQLException {
+
+		if (tagDictionary != null) {
+			for (String tag : tags) {
+
+				final int tagId = tagDictionary.getTagId(tag);
+
+				if (tagId != TagDictionary.UNKNOWN) {
+					tagIds.put(fold(tag), tagId);
+				}
+			}
+		}
+
+		resolve(connection, FIND_TAGS, tags, tagIds, true);
+
+		// one token per folded key, the unique key takes only one of them
+		final Map<String, String> missingByKey = new LinkedHashMap<String, String>();
+
+		for (String tag : tags) {
+
+			final String key = fold(tag);
+
+			if (!tagIds.containsKey(key) && !missingByKey.containsKey(key)) {
+				missingByKey.put(key, tag);
+			}
+		}
+
+		final List<String> missing = new ArrayList<String>(missingByKey.values());
+
+		if (missing.isEmpty()) {
+			return missing;
+		}
+
+		final StringBuilder sql = new StringBuilder("INSERT IGNORE INTO tag (token) VALUES ");
+
+		for (int i = 0; i < missing.size(); ++i) {
+			sql.append(i == 0 ? "(?)" : ", (?)");
+		}
+
+		try (PreparedStatement insert = connection.prepareStatement(sql.toString())) {
+
+			for (int i = 0; i < missing.size(); ++i) {
+				insert.setString(i + 1, missing.get(i));
+			}
+
+			insert.executeUpdate();
+		}
+
+		resolve(connection, FIND_TAGS, missing, tagIds, true);
+
+		for (String tag : missing) {
+			if (!tagIds.containsKey(fold(tag))) {
+				throw new SQLException("tag could not be created: " + tag);
+			}
+		}
+
+		return missing;
+	}
+
+	/**
+	 * Add the tags created by a committed chunk to the dictionary
+	 */
+	private void publishTags(final List<String> created) {
+
+		if (tagDictionary == null || created == null || created.isEmpty()) {
+			return;
+		}
+
+		final Map<String, Integer> tags = new HashMap<String, Integer>();
+
+		for (String tag : created) {
+			tags.put(tag, tagIds.get(fold(tag)));
+		}
+
+		tagDictionary.putAll(tags);
+	}
+
+	/**
+	 * Hand the messages of a committed chunk to the listener
+	 */
+	private void publishMessages(final int[] messageIds) {
+
+		if (listener == null || messageIds == null) {
+			return;
+		}
+
+		try {
+			listener.chunkCommitted(messageIds);
+		} catch (RuntimeException x) {
+			logger.error("could not publish the ingested messages {} to {}", messageIds[0],
+					messageIds[messageIds.length - 1], x);
+		}
+	}
+
+	/**
+	 * Look up the ids of the keys not yet cached with one query. The rows
+	 * come back in the database's spelling, with folded set the cache is keyed
+	 * by the folded name, so they are found with the requested spelling
+	 */
+	private static void resolve(final Connection connection, final String queryPrefix, final Collection<String> keys,
+			final Map<String, Integer> cache, final boolean folded) throws SQLException {
+
+		final Map<String, String> unknownByKey = new LinkedHashMap<String, String>();
+
+		for (String key : keys) {
+
+			final String cacheKey = folded ? fold(key) : key;
+
+			if (!cache.containsKey(cacheKey) && !unknownByKey.containsKey(cacheKey)) {
+				unknownByKey.put(cacheKey, key);
+			}
+		}
+
+		final List<String> unknown = new ArrayList<String>(unknownByKey.values());
+
+		if (unknown.isEmpty()) {
+			return;
+		}
+
+		final StringBuilder sql = new StringBuilder(queryPrefix).append('(');
+
+		for (int i = 0; i < unknown.size(); ++i) {
+			sql.append(i == 0 ? "?" : ", ?");
+		}
+
+		sql.append(')');
+
+		try (PreparedStatement query = connection.prepareStatement(sql.toString())) {
+
+			for (int i = 0; i < unknown.size(); ++i) {
+				query.setString(i + 1, unknown.get(i));
+			}
+
+			try (ResultSet rows = query.executeQuery()) {
+				while (rows.next()) {
+					cache.put(folded ? fold(rows.getString(1)) : rows.getString(1), rows.getInt(2));
+				}
+			}
+		}
+	}
+
+	private static int findDeliverySystem(final Connection connection, final String token) throws SQLException {
+
+		try (PreparedStatement query = connection.prepareStatement(FIND_DELIVERY_SYSTEM)) {
+
+			query.setString(1, token);
+
+			try (ResultSet rows = query.executeQuery()) {
+
+				if (!rows.next()) {
+					throw new EntityNotFoundException("no delivery system with token " + token);
+				}
+
+				return rows.getInt(1);
+			}
+		}
+	}
+
+	/**
+	 * Fold a name the way utf8_general_ci compares: without accents, case and
+	 * trailing spaces
+	 */
+	private static String fold(final String name) {
+
+		int end = name.length();
+
+		while (end > 0 && name.charAt(end - 1) == ' ') {
+			--end;
+		}
+
+		return MARKS.matcher(Normalizer.normalize(name.substring(0, end), Normalizer.Form.NFD)).replaceAll("")
+				.toLowerCase(Locale.ROOT);
+	}
+
+	private static Timestamp timestamp(final Date date) {
+		return date == null ? null : new Timestamp(date.getTime());
+	}
+
+	/**
+	 * Close a context, a failure to close is added to the failure of the chunk
+	 * as suppressed instead of hiding it
+	 */
+	private static void close(final DbContext dbContext, final Exception failure) {
+
+		try {
+			dbContext.close();
+		} catch (Exception x) {
+
+			if (failure == null) {
+				throw new IllegalStateException("could not close db context", x);
+			}
+
+			failure.addSuppressed(x);
+		}
+	}
+
+	/**
+	 * Running totals of an ingestion
+	 */
+	private static final class Counts {
+
+		int messages;
+
+		int messageTags;
+
+		int rejected;
+
+		int chunks;
+
+		/**
+		 * tags created in the current chunk, null once it is committed
+		 */
+		List<String> pendingTags;
+
+		/**
+		 * ids of the messages of the current chunk, null once they are
+		 * published
+		 */
+		int[] pendingMessageIds;
+	}
+}
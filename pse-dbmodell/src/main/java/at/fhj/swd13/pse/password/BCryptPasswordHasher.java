@@ -0,0 +1,150 @@
+package at.fhj.swd13.pse.password;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+/**
+ * BCrypt password hashes with a fixed work factor
+ *
+ */
+public class BCryptPasswordHasher implements PasswordHasher {
+
+	/**
+	 * smallest work factor BCrypt accepts
+	 */
+	public static final int MIN_LOG_ROUNDS = 4;
+
+	/**
+	 * largest work factor BCrypt accepts
+	 */
+	public static final int MAX_LOG_ROUNDS = 30;
+
+	private final int logRounds;
+
+	/**
+	 * Create a hasher
+	 *
+	 * @param logRounds work factor, log2 of the number of rounds
+	 *
+	 * @throws IllegalArgumentException
+	 *             if logRounds is out of the range BCrypt accepts
+	 */
+	public BCryptPasswordHasher(final int logRounds) {
+
+		if (logRounds < MIN_LOG_ROUNDS || logRounds > MAX_LOG_ROUNDS) {
+			throw new IllegalArgumentException("invalid work factor: " + logRounds);
+		}
+
+		this.logRounds = logRounds;
+	}
+
+	/**
+	 * Find the work factor at which checking a password takes about the target
+	 * time on this machine. Every increment doubles the time, so one hash at a
+	 * cheap factor is measured and extrapolated, the result is verified once
+	 *
+	 * @param targetMillis the time a check should take
+	 * @param minLogRounds the smallest factor to return
+	 * @param maxLogRounds the largest factor to return
+	 *
+	 * @return a hasher using the calibrated work factor
+	 */
+	public static BCryptPasswordHasher calibrate(final long targetMillis, final int minLogRounds,
+			final int maxLogRounds) {
+
+		final int probeRounds = Math.max(MIN_LOG_ROUNDS, Math.min(8, minLogRounds));
+
+		// first hash warms up the jit
+		measureMillis(probeRounds);
+
+		final double probeMillis = Math.max(0.01, measureMillis(probeRounds));
+		final double doublings = Math.log(targetMillis / probeMillis) / Math.log(2);
+
+		int logRounds = clamp(probeRounds + (int) Math.round(doublings), minLogRounds, maxLogRounds);
+
+		if (logRounds > minLogRounds && measureMillis(logRounds) > 2 * targetMillis) {
+			--logRounds;
+		}
+
+		return new BCryptPasswordHasher(logRounds);
+	}
+
+	/**
+	 * @return the work factor of new hashes
+	 */
+	public int getLogRounds() {
+		return logRounds;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.password.PasswordHasher#hash(java.lang.String)
+	 */
+	@Override
+	public String hash(final String plainPassword) {
+		return BCrypt.hashpw(plainPassword, BCrypt.gensalt(logRounds));
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.password.PasswordHasher#matches(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public boolean matches(final String plainPassword, final String hashedPassword) {
+
+		if (plainPassword == null || logRoundsOf(hashedPassword) < 0) {
+			return false;
+		}
+
+		return BCrypt.checkpw(plainPassword, hashedPassword);
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.password.PasswordHasher#needsRehash(java.lang.String)
+	 */
+	@Override
+	public boolean needsRehash(final String hashedPassword) {
+		return logRoundsOf(hashedPassword) != logRounds;
+	}
+
+	/**
+	 * Get the work factor of a BCrypt hash ("$2a$12$...")
+	 *
+	 * @param hashedPassword the hash
+	 *
+	 * @return the work factor, -1 if it is no BCrypt hash
+	 */
+	public static int logRoundsOf(final String hashedPassword) {
+
+		if (hashedPassword == null || hashedPassword.length() < 29 || !hashedPassword.startsWith("$2")) {
+			return -1;
+		}
+
+		final int offset = hashedPassword.charAt(3) == '$' ? 4 : 3;
+
+		if (hashedPassword.charAt(offset + 2) != '$') {
+			return -1;
+		}
+
+		try {
+			return Integer.parseInt(hashedPassword.substring(offset, offset + 2));
+		} catch (NumberFormatException x) {
+			return -1;
+		}
+	}
+
+	private static double measureMillis(final int logRounds) {
+
+		final long start = System.nanoTime();
+
+		BCrypt.hashpw("calibration", BCrypt.gensalt(logRounds));
+
+		return (System.nanoTime() - start) / 1e6;
+	}
+
+	private static int clamp(final int value, final int min, final int max) {
+		return Math.max(min, Math.min(max, value));
+	}
+
+	@Override
+	public String toString() {
+		return "BCryptPasswordHasher[logRounds=" + logRounds + "]";
+	}
+}
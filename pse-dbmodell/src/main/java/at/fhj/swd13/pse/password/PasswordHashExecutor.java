@@ -0,0 +1,211 @@
+package at.fhj.swd13.pse.password;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+import at.fhj.swd13.pse.db.entity.Person;
+
+/**
+ * Computes and checks password hashes on a dedicated worker pool
+ *
+ * A hash costs a few hundred milliseconds of CPU. Running it on a bounded pool
+ * with one thread per core keeps request threads free and caps the CPU spent
+ * on hashing. The queue in front of the pool is bounded as well: when it is
+ * full new work is rejected right away (the future fails with a
+ * RejectedExecutionException), so a login storm or an import cannot pile up
+ * unbounded work.
+ *
+ */
+@ApplicationScoped
+public class PasswordHashExecutor {
+
+	/**
+	 * max number of hashes waiting for a worker if not given
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+	private final int threads;
+
+	private final int queueCapacity;
+
+	private ThreadPoolExecutor executor;
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	/**
+	 * Create an executor with one worker per core, started by the container
+	 */
+	public PasswordHashExecutor() {
+
+		this.threads = Runtime.getRuntime().availableProcessors();
+		this.queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	}
+
+	/**
+	 * Create and start an executor outside of a container
+	 *
+	 * @param threads number of workers
+	 * @param queueCapacity max number of hashes waiting for a worker
+	 *
+	 * @throws IllegalArgumentException
+	 *             if threads or queueCapacity are not positive
+	 */
+	public PasswordHashExecutor(final int threads, final int queueCapacity) {
+
+		if (threads <= 0 || queueCapacity <= 0) {
+			throw new IllegalArgumentException("threads and queue capacity must be positive");
+		}
+
+		this.threads = threads;
+		this.queueCapacity = queueCapacity;
+
+		start();
+	}
+
+	/**
+	 * Start the workers
+	 */
+	@PostConstruct
+	public void start() {
+
+		final AtomicInteger count = new AtomicInteger();
+
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+
+					@Override
+					public Thread newThread(final Runnable r) {
+
+						final Thread thread = new Thread(r, "password-hash-" + count.incrementAndGet());
+						thread.setDaemon(true);
+
+						return thread;
+					}
+				}, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+	 * Stop the workers, queued hashes are still computed
+	 */
+	@PreDestroy
+	public void stop() {
+
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Hash a password. The strength is checked on the calling thread
+	 *
+	 * @param plainPassword the password in plain text
+	 *
+	 * @return the future hash, fails with a RejectedExecutionException if the
+	 *         queue is full
+	 *
+	 * @throws at.fhj.swd13.pse.db.WeakPasswordException
+	 *             when the password is not strong enough
+	 */
+	public CompletableFuture<String> hash(final String plainPassword) {
+
+		Person.checkPasswordStrength(plainPassword);
+
+		return submit(new Supplier<String>() {
+
+			@Override
+			public String get() {
+				return PasswordHashers.get().hash(plainPassword);
+			}
+		});
+	}
+
+	/**
+	 * Check a password against a stored hash
+	 *
+	 * @param plainPassword the entered password in plain text
+	 * @param hashedPassword the stored hash
+	 *
+	 * @return the future result, true if the password matches, fails with a
+	 *         RejectedExecutionException if the queue is full
+	 */
+	public CompletableFuture<Boolean> matches(final String plainPassword, final String hashedPassword) {
+
+		if (plainPassword == null || hashedPassword == null) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		return submit(new Supplier<Boolean>() {
+
+			@Override
+			public Boolean get() {
+				return PasswordHashers.get().matches(plainPassword, hashedPassword);
+			}
+		});
+	}
+
+	/**
+	 * @return number of hashes waiting for a worker
+	 */
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * @return max number of hashes waiting for a worker
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * @return number of workers computing a hash right now
+	 */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	/**
+	 * @return number of hashes and checks completed
+	 */
+	public long getCompletedCount() {
+		return executor.getCompletedTaskCount();
+	}
+
+	/**
+	 * @return number of hashes and checks rejected because the queue was full
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	private <T> CompletableFuture<T> submit(final Supplier<T> work) {
+
+		if (executor == null) {
+			throw new IllegalStateException("password hash executor not started");
+		}
+
+		try {
+			return CompletableFuture.supplyAsync(work, executor);
+
+		} catch (RejectedExecutionException x) {
+
+			rejected.incrementAndGet();
+
+			final CompletableFuture<T> failed = new CompletableFuture<T>();
+			failed.completeExceptionally(x);
+
+			return failed;
+		}
+	}
+}
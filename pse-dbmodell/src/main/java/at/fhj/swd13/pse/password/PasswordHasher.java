@@ -0,0 +1,42 @@
+package at.fhj.swd13.pse.password;
+
+/**
+ * Computes and checks password hashes
+ *
+ * Implementations are thread safe. The hasher in use is obtained from
+ * PasswordHashers.
+ *
+ */
+public interface PasswordHasher {
+
+	/**
+	 * Hash a password with a new salt
+	 *
+	 * @param plainPassword the password in plain text
+	 *
+	 * @return the hash including salt and work factor
+	 */
+	String hash(String plainPassword);
+
+	/**
+	 * Check a password against a stored hash
+	 *
+	 * @param plainPassword the entered password in plain text
+	 * @param hashedPassword the stored hash, may be a placeholder like "--"
+	 *
+	 * @return true if the password matches, false for a wrong password or a
+	 *         hash this hasher cannot read
+	 */
+	boolean matches(String plainPassword, String hashedPassword);
+
+	/**
+	 * Check whether a stored hash was computed with other settings (e.g. a
+	 * different work factor) than new hashes and should be replaced on the
+	 * next successful login
+	 *
+	 * @param hashedPassword the stored hash
+	 *
+	 * @return true if the hash should be recomputed
+	 */
+	boolean needsRehash(String hashedPassword);
+}
@@ -0,0 +1,18 @@
+package at.fhj.swd13.pse.password;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+
+/**
+ * Calibrates the password hasher when the application starts, so the first
+ * login does not pay for it
+ *
+ */
+@ApplicationScoped
+public class PasswordHasherStartup {
+
+	public void calibrate(@Observes @Initialized(ApplicationScoped.class) final Object event) {
+		PasswordHashers.get();
+	}
+}
@@ -0,0 +1,109 @@
+package at.fhj.swd13.pse.password;
+
+/**
+ * Holds the password hasher used by Person and the PasswordHashExecutor
+ *
+ * The hasher is chosen by the system property pse.passwordHasher:
+ * <ul>
+ * <li>calibrated (default): BCrypt with the work factor at which a check takes
+ * about pse.passwordHashMillis (default 250) ms on this machine, never below
+ * MIN_LOG_ROUNDS</li>
+ * <li>fast: BCrypt with the smallest work factor, for test fixtures only</li>
+ * </ul>
+ * Calibration runs once, when the hasher is used for the first time or at
+ * application startup (PasswordHasherStartup).
+ *
+ */
+public final class PasswordHashers {
+
+	/**
+	 * system property selecting the hasher profile
+	 */
+	public static final String PROFILE_PROPERTY = "pse.passwordHasher";
+
+	/**
+	 * system property with the target time of a check in milliseconds
+	 */
+	public static final String TARGET_MILLIS_PROPERTY = "pse.passwordHashMillis";
+
+	public static final String PROFILE_CALIBRATED = "calibrated";
+
+	public static final String PROFILE_FAST = "fast";
+
+	public static final long DEFAULT_TARGET_MILLIS = 250;
+
+	/**
+	 * smallest work factor of the calibrated profile
+	 */
+	public static final int MIN_LOG_ROUNDS = 10;
+
+	/**
+	 * largest work factor of the calibrated profile
+	 */
+	public static final int MAX_LOG_ROUNDS = 16;
+
+	private static volatile PasswordHasher hasher;
+
+	private PasswordHashers() {
+	}
+
+	/**
+	 * Get the hasher, calibrate it on first use
+	 *
+	 * @return the hasher
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the system properties are invalid
+	 */
+	public static PasswordHasher get() {
+
+		PasswordHasher current = hasher;
+
+		if (current == null) {
+
+			synchronized (PasswordHashers.class) {
+
+				current = hasher;
+
+				if (current == null) {
+					current = create(System.getProperty(PROFILE_PROPERTY, PROFILE_CALIBRATED),
+							System.getProperty(TARGET_MILLIS_PROPERTY));
+					hasher = current;
+				}
+			}
+		}
+
+		return current;
+	}
+
+	/**
+	 * Replace the hasher, e.g. by another implementation
+	 *
+	 * @param passwordHasher the hasher to use from now on, null to choose
+	 *            one by the system properties again
+	 */
+	public static void set(final PasswordHasher passwordHasher) {
+		hasher = passwordHasher;
+	}
+
+	private static PasswordHasher create(final String profile, final String targetMillis) {
+
+		if (PROFILE_FAST.equals(profile)) {
+			return new BCryptPasswordHasher(BCryptPasswordHasher.MIN_LOG_ROUNDS);
+		}
+
+		if (!PROFILE_CALIBRATED.equals(profile)) {
+			throw new IllegalArgumentException("unknown password hasher profile: " + profile);
+		}
+
+		final long millis;
+
+		try {
+			millis = targetMillis == null ? DEFAULT_TARGET_MILLIS : Long.parseLong(targetMillis);
+		} catch (NumberFormatException x) {
+			throw new IllegalArgumentException("invalid " + TARGET_MILLIS_PROPERTY + ": " + targetMillis, x);
+		}
+
+		return BCryptPasswordHasher.calibrate(millis, MIN_LOG_ROUNDS, MAX_LOG_ROUNDS);
+	}
+}
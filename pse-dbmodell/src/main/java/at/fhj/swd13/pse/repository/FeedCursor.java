@@ -0,0 +1,118 @@
+package at.fhj.swd13.pse.repository;
+
+import java.util.Date;
+
+import at.fhj.swd13.pse.db.entity.Message;
+import at.fhj.swd13.pse.dto.FeedItem;
+
+/**
+ * Position within the feed, the (created_on, message_id) of the last message
+ * that was delivered. The next page starts with the message right after this
+ * position (seek instead of OFFSET).
+ *
+ */
+public final class FeedCursor {
+
+	private static final char SEPARATOR = '.';
+
+	private final Date createdOn;
+
+	private final int messageId;
+
+	/**
+	 * Create a cursor pointing to the given position
+	 *
+	 * @param createdOn creation timestamp of the last delivered message
+	 * @param messageId id of the last delivered message
+	 */
+	public FeedCursor(final Date createdOn, final int messageId) {
+
+		if (createdOn == null) {
+			throw new IllegalArgumentException("createdOn must not be null");
+		}
+
+		this.createdOn = new Date(createdOn.getTime());
+		this.messageId = messageId;
+	}
+
+	/**
+	 * Create a cursor pointing to the given message
+	 *
+	 * @param message the last delivered message
+	 *
+	 * @return cursor positioned at the message
+	 */
+	public static FeedCursor of(final Message message) {
+
+		return new FeedCursor(message.getCreatedOn(), message.getMessageId());
+	}
+
+	/**
+	 * Create a cursor pointing to the given feed item
+	 *
+	 * @param item the last delivered item
+	 *
+	 * @return cursor positioned at the item
+	 */
+	public static FeedCursor of(final FeedItem item) {
+
+		return new FeedCursor(item.getCreatedOn(), item.getMessageId());
+	}
+
+	/**
+	 * Parse a continuation token as created by toToken()
+	 *
+	 * @param token the token to parse, may be null or empty
+	 *
+	 * @return the cursor or null if no token was given (start of the feed)
+	 *
+	 * @throws IllegalArgumentException if the token is malformed
+	 */
+	public static FeedCursor parse(final String token) {
+
+		if (token == null || token.isEmpty()) {
+			return null;
+		}
+
+		final int pos = token.indexOf(SEPARATOR);
+
+		if (pos <= 0 || pos == token.length() - 1) {
+			throw new IllegalArgumentException("malformed continuation token: " + token);
+		}
+
+		try {
+			final long createdOn = Long.parseLong(token.substring(0, pos), Character.MAX_RADIX);
+			final int messageId = Integer.parseInt(token.substring(pos + 1), Character.MAX_RADIX);
+
+			return new FeedCursor(new Date(createdOn), messageId);
+
+		} catch (NumberFormatException x) {
+
+			throw new IllegalArgumentException("malformed continuation token: " + token);
+		}
+	}
+
+	/**
+	 * Get an url-safe continuation token for this cursor
+	 *
+	 * @return the token
+	 */
+	public String toToken() {
+
+		return Long.toString(createdOn.getTime(), Character.MAX_RADIX) + SEPARATOR
+				+ Integer.toString(messageId, Character.MAX_RADIX);
+	}
+
+	public Date getCreatedOn() {
+		return new Date(createdOn.getTime());
+	}
+
+	public int getMessageId() {
+		return messageId;
+	}
+
+	@Override
+	public String toString() {
+		return toToken();
+	}
+}
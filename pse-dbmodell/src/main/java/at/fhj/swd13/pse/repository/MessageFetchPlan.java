@@ -0,0 +1,60 @@
+package at.fhj.swd13.pse.repository;
+
+/**
+ * Named fetch plans for loading Message entities
+ *
+ * Each plan names the entity graph declared on Message and lists the
+ * associations of the graph. The associations are also given to EclipseLink
+ * as batch fetch (IN) hints, so a page of n messages costs one query per
+ * association instead of one per message and association. Other providers
+ * ignore the batch hints and use the entity graph alone.
+ *
+ */
+public enum MessageFetchPlan {
+
+	/**
+	 * messages shown in a feed: author, community, delivery system and icon
+	 */
+	FEED("Message.feed", "person", "community", "deliverySystem", "document2"),
+
+	/**
+	 * a message together with the message it comments on and its replies
+	 */
+	THREAD("Message.thread", "person", "community", "messageBean", "messages", "messages.person"),
+
+	/**
+	 * messages published to the timelines and indexes: author, community and
+	 * tags
+	 */
+	PUBLISHED("Message.published", "person", "community", "messageTags", "messageTags.tag"),
+
+	/**
+	 * the admin list, all single valued associations
+	 */
+	ADMIN("Message.admin", "person", "community", "deliverySystem", "document1", "document2");
+
+	private final String graphName;
+
+	private final String[] attributes;
+
+	private MessageFetchPlan(final String graphName, final String... attributes) {
+
+		this.graphName = graphName;
+		this.attributes = attributes;
+	}
+
+	/**
+	 * @return name of the entity graph declared on Message
+	 */
+	public String getGraphName() {
+		return graphName;
+	}
+
+	/**
+	 * @return the association paths fetched by this plan, relative to the
+	 *         message
+	 */
+	public String[] getAttributes() {
+		return attributes.clone();
+	}
+}
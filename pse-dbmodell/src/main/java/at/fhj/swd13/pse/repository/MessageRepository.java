@@ -3,9 +3,12 @@
  */
 package at.fhj.swd13.pse.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import at.fhj.swd13.pse.db.entity.Message;
+import at.fhj.swd13.pse.dto.FeedItem;
+import at.fhj.swd13.pse.dto.MessageText;
 
 /**
  * @author florian.genser
@@ -13,5 +16,136 @@ import at.fhj.swd13.pse.db.entity.Message;
  */
 public interface MessageRepository {
 
-	List<Message> loadAll();
+	/**
+	 * max number of ids looked up with one query by findFeedKeysByIds
+	 */
+	int IDS_PER_QUERY = 1000;
+
+	/**
+	 * Add a message to the persistent storage, the message id is available
+	 * when the method returns
+	 *
+	 * @param message the message to persist
+	 */
+	void save(Message message);
+
+	/**
+	 * Get a message by its id
+	 *
+	 * @param messageId id of the message
+	 * @param plan associations to load together with the message
+	 *
+	 * @return the message or null if it does not exist
+	 */
+	Message findById(int messageId, MessageFetchPlan plan);
+
+	/**
+	 * Get messages by their ids, with one query per IDS_PER_QUERY ids and
+	 * association of the plan
+	 *
+	 * @param messageIds ids of the messages
+	 * @param plan associations to load together with the messages
+	 *
+	 * @return the messages ordered by id, ids that do not exist are skipped
+	 */
+	List<Message> findByIds(int[] messageIds, MessageFetchPlan plan);
+
+	/**
+	 * Load one page of messages as entities, newest message first. The
+	 * associations of the plan are loaded for the whole page at once, so the
+	 * number of queries does not depend on the number of messages
+	 *
+	 * @param communityId when not null only messages posted in this community
+	 *            are returned
+	 * @param after position after which to start, null for the first page
+	 * @param maxRows the max number of messages to return
+	 * @param plan associations to load together with the messages
+	 *
+	 * @return list of messages ordered by created_on, message_id descending,
+	 *         may be empty
+	 */
+	List<Message> loadMessagePage(Integer communityId, FeedCursor after, int maxRows, MessageFetchPlan plan);
+
+	/**
+	 * Get the feed items of messages by their ids with a single query
+	 *
+	 * @param messageIds ids of the messages to get
+	 *
+	 * @return the items in the order of the ids, ids that do not (or no
+	 *         longer) exist are skipped
+	 */
+	List<FeedItem> findFeedItemsByIds(int[] messageIds);
+
+	/**
+	 * Get the positions (creation time and id) of the newest messages of the
+	 * feed over all communities, without loading the messages
+	 *
+	 * @param after position after which to start, null for the newest message
+	 * @param maxRows max number of positions to get
+	 *
+	 * @return the positions, newest first
+	 */
+	List<FeedCursor> loadFeedKeys(FeedCursor after, int maxRows);
+
+	/**
+	 * Get the positions of the newest of the given messages, e.g. of those
+	 * matching a tag expression. The ids are looked up with one query per
+	 * IDS_PER_QUERY ids
+	 *
+	 * @param messageIds ids of the messages
+	 * @param after position after which to start, null for the newest message
+	 * @param maxRows max number of positions to get
+	 *
+	 * @return the positions, newest first, ids that do not exist are skipped
+	 */
+	List<FeedCursor> findFeedKeysByIds(int[] messageIds, FeedCursor after, int maxRows);
+
+	/**
+	 * Load one page of the feed as read-only items, newest message first. Uses the (created_on,
+	 * message_id) position of the cursor to seek, so the cost of a page does
+	 * not depend on how deep in the feed it is.
+	 *
+	 * @param communityId when not null only messages posted in this community
+	 *            are returned
+	 * @param after position after which to start, null for the first page
+	 * @param maxRows the max number of messages to return
+	 *
+	 * @return list of feed items ordered by created_on, message_id
+	 *         descending, may be empty
+	 */
+	List<FeedItem> loadFeedPage(Integer communityId, FeedCursor after, int maxRows);
+
+	/**
+	 * Get the direct replies of the given messages as links only (id, parent
+	 * id, timestamp), one round trip for any number of parents
+	 *
+	 * @param parentIds ids of the messages whose replies to get
+	 *
+	 * @return the links ordered by created_on, message_id ascending, may be
+	 *         empty
+	 */
+	List<ReplyLink> loadReplyLinks(Collection<Integer> parentIds);
+
+	/**
+	 * Load one page of the direct replies of a message, oldest reply first
+	 *
+	 * @param parentMessageId id of the message whose replies to load
+	 * @param after position after which to start, null for the first page
+	 * @param maxRows the max number of replies to return
+	 *
+	 * @return list of feed items ordered by created_on, message_id ascending,
+	 *         may be empty
+	 */
+	List<FeedItem> loadReplyPage(int parentMessageId, FeedCursor after, int maxRows);
+
+	/**
+	 * Load the text of the messages following the given id, used to walk
+	 * over all messages in chunks
+	 *
+	 * @param afterMessageId id after which to start, 0 for the first chunk
+	 * @param maxRows the max number of messages to return
+	 *
+	 * @return the texts ordered by message id, may be empty
+	 */
+	List<MessageText> loadTexts(int afterMessageId, int maxRows);
 }
@@ -3,13 +3,22 @@
  */
 package at.fhj.swd13.pse.repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 
 import at.fhj.swd13.pse.db.entity.Message;
+import at.fhj.swd13.pse.dto.FeedItem;
+import at.fhj.swd13.pse.dto.MessageText;
 
 /**
  * @author florian.genser
@@ -17,14 +26,292 @@ import at.fhj.swd13.pse.db.entity.Message;
  */
 public class MessageRepositoryImpl implements MessageRepository {
 
+	private static final String LOAD_GRAPH_HINT = "javax.persistence.loadgraph";
+
+	private static final String BATCH_HINT = "eclipselink.batch";
+
+	private static final String BATCH_TYPE_HINT = "eclipselink.batch.type";
+
 	@PersistenceContext
 	private EntityManager entityManager;
-	
+
+	public MessageRepositoryImpl() {
+	}
+
+	/**
+	 * Create a repository outside of a container
+	 *
+	 * @param entityManager the entity manager to use
+	 */
+	public MessageRepositoryImpl(final EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.MessageRepository#save(at.fhj.swd13.pse.db.entity.Message)
+	 */
+	@Override
+	public void save(final Message message) {
+
+		entityManager.persist(message);
+		entityManager.flush();
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.MessageRepository#findById(int, at.fhj.swd13.pse.repository.MessageFetchPlan)
+	 */
+	@Override
+	public Message findById(final int messageId, final MessageFetchPlan plan) {
+
+		final Map<String, Object> hints = Collections.<String, Object> singletonMap(LOAD_GRAPH_HINT,
+				entityManager.getEntityGraph(plan.getGraphName()));
+
+		return entityManager.find(Message.class, messageId, hints);
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.MessageRepository#findByIds(int[], at.fhj.swd13.pse.repository.MessageFetchPlan)
+	 */
+	@Override
+	public List<Message> findByIds(final int[] messageIds, final MessageFetchPlan plan) {
+
+		final List<Message> messages = new ArrayList<Message>(messageIds.length);
+
+		for (int from = 0; from < messageIds.length; from += IDS_PER_QUERY) {
+
+			final List<Integer> ids = new ArrayList<Integer>(IDS_PER_QUERY);
+
+			for (int i = from; i < messageIds.length && i < from + IDS_PER_QUERY; ++i) {
+				ids.add(messageIds[i]);
+			}
+
+			final TypedQuery<Message> query = entityManager.createNamedQuery("Message.findByIds", Message.class);
+			query.setParameter("messageIds", ids);
+
+			applyPlan(query, plan);
+
+			messages.addAll(query.getResultList());
+		}
+
+		return messages;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.MessageRepository#loadMessagePage(java.lang.Integer, at.fhj.swd13.pse.repository.FeedCursor, int, at.fhj.swd13.pse.repository.MessageFetchPlan)
+	 */
+	@Override
+	public List<Message> loadMessagePage(final Integer communityId, final FeedCursor after, final int maxRows,
+			final MessageFetchPlan plan) {
+
+		final String queryName = (communityId == null ? "Message.findPage" : "Message.findCommunityPage")
+				+ (after == null ? "" : "After");
+
+		final TypedQuery<Message> query = entityManager.createNamedQuery(queryName, Message.class);
+
+		if (communityId != null) {
+			query.setParameter("communityId", communityId);
+		}
+
+		if (after != null) {
+			query.setParameter("createdOn", after.getCreatedOn());
+			query.setParameter("messageId", after.getMessageId());
+		}
+
+		query.setMaxResults(maxRows);
+
+		applyPlan(query, plan);
+
+		return query.getResultList();
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.MessageRepository#loadFeedKeys(at.fhj.swd13.pse.repository.FeedCursor, int)
+	 */
+	@Override
+	public List<FeedCursor> loadFeedKeys(final FeedCursor after, final int maxRows) {
+
+		final TypedQuery<FeedCursor> query = entityManager.createNamedQuery(
+				after == null ? "Message.findFeedKeys" : "Message.findFeedKeysAfter", FeedCursor.class);
+
+		if (after != null) {
+			query.setParameter("createdOn", after.getCreatedOn());
+			query.setParameter("messageId", after.getMessageId());
+		}
+
+		query.setMaxResults(maxRows);
+
+		return query.getResultList();
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.MessageRepository#findFeedKeysByIds(int[], at.fhj.swd13.pse.repository.FeedCursor, int)
+	 */
+	@Override
+	public List<FeedCursor> findFeedKeysByIds(final int[] messageIds, final FeedCursor after, final int maxRows) {
+
+		final List<FeedCursor> keys = new ArrayList<FeedCursor>();
+
+		for (int from = 0; from < messageIds.length; from += IDS_PER_QUERY) {
+
+			final List<Integer> ids = new ArrayList<Integer>(IDS_PER_QUERY);
+
+			for (int i = from; i < messageIds.length && i < from + IDS_PER_QUERY; ++i) {
+				ids.add(messageIds[i]);
+			}
+
+			final TypedQuery<FeedCursor> query = entityManager.createNamedQuery(
+					after == null ? "Message.findFeedKeysByIds" : "Message.findFeedKeysByIdsAfter", FeedCursor.class);
+			query.setParameter("messageIds", ids);
+
+			if (after != null) {
+				query.setParameter("createdOn", after.getCreatedOn());
+				query.setParameter("messageId", after.getMessageId());
+			}
+
+			query.setMaxResults(maxRows);
+
+			keys.addAll(query.getResultList());
+		}
+
+		// each chunk is ordered, the newest of all chunks are wanted
+		Collections.sort(keys, new Comparator<FeedCursor>() {
+
+			@Override
+			public int compare(final FeedCursor a, final FeedCursor b) {
+
+				final int byTime = b.getCreatedOn().compareTo(a.getCreatedOn());
+
+				return byTime != 0 ? byTime : Integer.compare(b.getMessageId(), a.getMessageId());
+			}
+		});
+
+		return keys.size() > maxRows ? new ArrayList<FeedCursor>(keys.subList(0, maxRows)) : keys;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.MessageRepository#findFeedItemsByIds(int[])
+	 */
+	@Override
+	public List<FeedItem> findFeedItemsByIds(final int[] messageIds) {
+
+		if (messageIds.length == 0) {
+			return new ArrayList<FeedItem>(0);
+		}
+
+		final List<Integer> ids = new ArrayList<Integer>(messageIds.length);
+
+		for (int messageId : messageIds) {
+			ids.add(messageId);
+		}
+
+		final TypedQuery<FeedItem> query = entityManager.createNamedQuery("Message.findFeedItemsByIds", FeedItem.class);
+		query.setParameter("messageIds", ids);
+
+		final Map<Integer, FeedItem> byId = new HashMap<Integer, FeedItem>();
+
+		for (FeedItem item : query.getResultList()) {
+			byId.put(item.getMessageId(), item);
+		}
+
+		final List<FeedItem> items = new ArrayList<FeedItem>(messageIds.length);
+
+		for (int messageId : messageIds) {
+
+			final FeedItem item = byId.get(messageId);
+
+			if (item != null) {
+				items.add(item);
+			}
+		}
+
+		return items;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.MessageRepository#loadFeedPage(java.lang.Integer, at.fhj.swd13.pse.repository.FeedCursor, int)
+	 */
+	@Override
+	public List<FeedItem> loadFeedPage(final Integer communityId, final FeedCursor after, final int maxRows) {
+
+		final String queryName = (communityId == null ? "Message.findFeedItems" : "Message.findCommunityFeedItems")
+				+ (after == null ? "" : "After");
+
+		final TypedQuery<FeedItem> query = entityManager.createNamedQuery(queryName, FeedItem.class);
+
+		if (communityId != null) {
+			query.setParameter("communityId", communityId);
+		}
+
+		if (after != null) {
+			query.setParameter("createdOn", after.getCreatedOn());
+			query.setParameter("messageId", after.getMessageId());
+		}
+
+		query.setMaxResults(maxRows);
+
+		return query.getResultList();
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.MessageRepository#loadReplyLinks(java.util.Collection)
+	 */
 	@Override
-	public List<Message> loadAll() {
-		
-		TypedQuery<Message> query = entityManager.createQuery("from Message", Message.class);
-		
+	public List<ReplyLink> loadReplyLinks(final Collection<Integer> parentIds) {
+
+		if (parentIds.isEmpty()) {
+			return new ArrayList<ReplyLink>(0);
+		}
+
+		final TypedQuery<ReplyLink> query = entityManager.createNamedQuery("Message.findReplyLinks", ReplyLink.class);
+		query.setParameter("parentIds", parentIds);
+
 		return query.getResultList();
 	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.MessageRepository#loadReplyPage(int, at.fhj.swd13.pse.repository.FeedCursor, int)
+	 */
+	@Override
+	public List<FeedItem> loadReplyPage(final int parentMessageId, final FeedCursor after, final int maxRows) {
+
+		final TypedQuery<FeedItem> query = entityManager.createNamedQuery(
+				after == null ? "Message.findReplyItems" : "Message.findReplyItemsAfter", FeedItem.class);
+		query.setParameter("parentId", parentMessageId);
+
+		if (after != null) {
+			query.setParameter("createdOn", after.getCreatedOn());
+			query.setParameter("messageId", after.getMessageId());
+		}
+
+		query.setMaxResults(maxRows);
+
+		return query.getResultList();
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.MessageRepository#loadTexts(int, int)
+	 */
+	@Override
+	public List<MessageText> loadTexts(final int afterMessageId, final int maxRows) {
+
+		final TypedQuery<MessageText> query = entityManager.createNamedQuery("Message.findTextsAfter", MessageText.class);
+		query.setParameter("messageId", afterMessageId);
+		query.setMaxResults(maxRows);
+
+		return query.getResultList();
+	}
+
+	/**
+	 * Set the entity graph of the plan and a batch fetch hint per association
+	 * of the plan. The query alias of all message queries is "m"
+	 */
+	private void applyPlan(final Query query, final MessageFetchPlan plan) {
+
+		query.setHint(LOAD_GRAPH_HINT, entityManager.getEntityGraph(plan.getGraphName()));
+		query.setHint(BATCH_TYPE_HINT, "IN");
+
+		for (String attribute : plan.getAttributes()) {
+			query.setHint(BATCH_HINT, "m." + attribute);
+		}
+	}
 }
@@ -0,0 +1,71 @@
+package at.fhj.swd13.pse.repository;
+
+import java.util.List;
+
+import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.dto.PersonName;
+
+/**
+ * Read access to persons
+ *
+ */
+public interface PersonRepository {
+
+	/**
+	 * Load the persons with the given ids with a single query
+	 *
+	 * @param personIds ids of the persons
+	 *
+	 * @return the persons in the order of the given ids, ids of persons that
+	 *         do not exist are skipped
+	 */
+	List<Person> findByIds(int[] personIds);
+
+	/**
+	 * Load the names of the persons following the given id, used to walk over
+	 * all persons in chunks
+	 *
+	 * @param afterPersonId id after which to start, 0 for the first chunk
+	 * @param maxRows the max number of persons to return
+	 *
+	 * @return the names ordered by person id, may be empty
+	 */
+	List<PersonName> loadNames(int afterPersonId, int maxRows);
+
+	/**
+	 * Load the person relations following the given person_relation_id, used
+	 * to walk over all relations in chunks
+	 *
+	 * @param afterRelationId id after which to start, 0 for the first chunk
+	 * @param maxRows the max number of rows to return
+	 *
+	 * @return the rows ordered by person_relation_id, each as {
+	 *         person_relation_id, source_person_id, target_person_id }, may be
+	 *         empty
+	 */
+	List<int[]> loadRelations(int afterRelationId, int maxRows);
+
+	/**
+	 * Load the community memberships following the given
+	 * community_member_id, used to walk over all memberships in chunks
+	 *
+	 * @param afterMembershipId id after which to start, 0 for the first chunk
+	 * @param maxRows the max number of rows to return
+	 *
+	 * @return the rows ordered by community_member_id, each as {
+	 *         community_member_id, person_id, community_id }, may be empty
+	 */
+	List<int[]> loadMemberships(int afterMembershipId, int maxRows);
+
+	/**
+	 * Load the person tags following the given person_tag_id, used to walk
+	 * over all person tags in chunks
+	 *
+	 * @param afterPersonTagId id after which to start, 0 for the first chunk
+	 * @param maxRows the max number of rows to return
+	 *
+	 * @return the rows ordered by person_tag_id, each as { person_tag_id,
+	 *         person_id, tag_id }, may be empty
+	 */
+	List<int[]> loadPersonTags(int afterPersonTagId, int maxRows);
+}
@@ -0,0 +1,127 @@
+package at.fhj.swd13.pse.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+
+import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.dto.PersonName;
+
+public class PersonRepositoryImpl implements PersonRepository {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	public PersonRepositoryImpl() {
+	}
+
+	/**
+	 * Create a repository outside of a container
+	 *
+	 * @param entityManager the entity manager to use
+	 */
+	public PersonRepositoryImpl(final EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.PersonRepository#findByIds(int[])
+	 */
+	@Override
+	public List<Person> findByIds(final int[] personIds) {
+
+		if (personIds.length == 0) {
+			return new ArrayList<Person>(0);
+		}
+
+		final List<Integer> ids = new ArrayList<Integer>(personIds.length);
+
+		for (int personId : personIds) {
+			ids.add(personId);
+		}
+
+		final TypedQuery<Person> query = entityManager.createNamedQuery("Person.findByIds", Person.class);
+		query.setParameter("ids", ids);
+
+		final Map<Integer, Person> byId = new HashMap<Integer, Person>();
+
+		for (Person person : query.getResultList()) {
+			byId.put(person.getPersonId(), person);
+		}
+
+		final List<Person> persons = new ArrayList<Person>(personIds.length);
+
+		for (int personId : personIds) {
+
+			final Person person = byId.get(personId);
+
+			if (person != null) {
+				persons.add(person);
+			}
+		}
+
+		return persons;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.PersonRepository#loadNames(int, int)
+	 */
+	@Override
+	public List<PersonName> loadNames(final int afterPersonId, final int maxRows) {
+
+		final TypedQuery<PersonName> query = entityManager.createNamedQuery("Person.findNamesAfter", PersonName.class);
+		query.setParameter("id", afterPersonId);
+		query.setMaxResults(maxRows);
+
+		return query.getResultList();
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.PersonRepository#loadRelations(int, int)
+	 */
+	@Override
+	public List<int[]> loadRelations(final int afterRelationId, final int maxRows) {
+		return loadTriples("PersonRelation.findPairsAfter", afterRelationId, maxRows);
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.PersonRepository#loadMemberships(int, int)
+	 */
+	@Override
+	public List<int[]> loadMemberships(final int afterMembershipId, final int maxRows) {
+		return loadTriples("CommunityMember.findPairsAfter", afterMembershipId, maxRows);
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.PersonRepository#loadPersonTags(int, int)
+	 */
+	@Override
+	public List<int[]> loadPersonTags(final int afterPersonTagId, final int maxRows) {
+		return loadTriples("PersonTag.findPairsAfter", afterPersonTagId, maxRows);
+	}
+
+	/**
+	 * Run a keyset query selecting three ids
+	 */
+	private List<int[]> loadTriples(final String queryName, final int afterId, final int maxRows) {
+
+		final TypedQuery<Object[]> query = entityManager.createNamedQuery(queryName, Object[].class);
+		query.setParameter("id", afterId);
+		query.setMaxResults(maxRows);
+
+		final List<Object[]> rows = query.getResultList();
+		final List<int[]> result = new ArrayList<int[]>(rows.size());
+
+		for (Object[] row : rows) {
+			result.add(new int[] { ((Number) row[0]).intValue(), ((Number) row[1]).intValue(),
+					((Number) row[2]).intValue() });
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,36 @@
+package at.fhj.swd13.pse.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Persistent rating counters per message (message_rating_count), written as
+ * deltas so concurrent writers never read-modify-write a row
+ *
+ */
+public interface RatingCountRepository {
+
+	/**
+	 * max number of messages written with one statement, keeps a statement
+	 * well below max_allowed_packet
+	 */
+	int DELTAS_PER_STATEMENT = 500;
+
+	/**
+	 * Get the persisted counts of messages
+	 *
+	 * @param messageIds ids of the messages
+	 *
+	 * @return count per message id, messages without a row are missing from
+	 *         the map (no ratings)
+	 */
+	Map<Integer, Long> loadCounts(Collection<Integer> messageIds);
+
+	/**
+	 * Add deltas to the persisted counts in one transaction, with one
+	 * statement per DELTAS_PER_STATEMENT messages. Rows are created as needed
+	 *
+	 * @param deltas delta per message id, zero deltas are skipped
+	 */
+	void addDeltas(Map<Integer, Long> deltas);
+}
@@ -0,0 +1,112 @@
+package at.fhj.swd13.pse.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.transaction.Transactional;
+
+/**
+ * Rating count repository using native MySQL statements, the counter table is
+ * not mapped as an entity
+ *
+ */
+public class RatingCountRepositoryImpl implements RatingCountRepository {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.RatingCountRepository#loadCounts(java.util.Collection)
+	 */
+	@Override
+	public Map<Integer, Long> loadCounts(final Collection<Integer> messageIds) {
+
+		final Map<Integer, Long> counts = new HashMap<Integer, Long>();
+
+		if (messageIds.isEmpty()) {
+			return counts;
+		}
+
+		final StringBuilder sql = new StringBuilder(
+				"SELECT message_id, rating_count FROM message_rating_count WHERE message_id IN (");
+
+		for (int i = 1; i <= messageIds.size(); ++i) {
+			sql.append(i > 1 ? ",?" : "?").append(i);
+		}
+
+		final Query q = entityManager.createNativeQuery(sql.append(')').toString());
+
+		int param = 1;
+
+		for (Integer messageId : messageIds) {
+			q.setParameter(param++, messageId);
+		}
+
+		@SuppressWarnings("unchecked")
+		final List<Object[]> rows = q.getResultList();
+
+		for (Object[] row : rows) {
+			counts.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+		}
+
+		return counts;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.RatingCountRepository#addDeltas(java.util.Map)
+	 */
+	@Override
+	@Transactional
+	public void addDeltas(final Map<Integer, Long> deltas) {
+
+		final List<Object> params = new ArrayList<Object>(2 * Math.min(deltas.size(), DELTAS_PER_STATEMENT));
+
+		for (Map.Entry<Integer, Long> delta : deltas.entrySet()) {
+
+			if (delta.getValue() == 0) {
+				continue;
+			}
+
+			params.add(delta.getKey());
+			params.add(delta.getValue());
+
+			if (params.size() == 2 * DELTAS_PER_STATEMENT) {
+
+				upsert(params);
+				params.clear();
+			}
+		}
+
+		if (!params.isEmpty()) {
+			upsert(params);
+		}
+	}
+
+	/**
+	 * Add the deltas of (message id, delta) pairs with one statement
+	 */
+	private void upsert(final List<Object> params) {
+
+		final StringBuilder sql = new StringBuilder("INSERT INTO message_rating_count (message_id, rating_count) VALUES ");
+
+		for (int i = 1; i < params.size(); i += 2) {
+			sql.append(i > 1 ? "," : "").append("(?").append(i).append(",?").append(i + 1).append(')');
+		}
+
+		sql.append(" ON DUPLICATE KEY UPDATE rating_count = rating_count + VALUES(rating_count)");
+
+		final Query q = entityManager.createNativeQuery(sql.toString());
+
+		for (int i = 0; i < params.size(); ++i) {
+			q.setParameter(i + 1, params.get(i));
+		}
+
+		q.executeUpdate();
+	}
+}
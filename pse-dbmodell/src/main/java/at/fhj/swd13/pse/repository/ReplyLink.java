@@ -0,0 +1,44 @@
+package at.fhj.swd13.pse.repository;
+
+import java.util.Date;
+
+/**
+ * Edge of a reply tree: a message and the message it comments on. Only the
+ * ids and the timestamp are read, the content of the kept messages is
+ * projected afterwards in one query
+ *
+ */
+public final class ReplyLink {
+
+	private final int messageId;
+
+	private final int parentId;
+
+	private final Date createdOn;
+
+	/**
+	 * Constructor used by the reply queries
+	 *
+	 * @param messageId id of the reply
+	 * @param parentId id of the message the reply comments on
+	 * @param createdOn creation timestamp of the reply
+	 */
+	public ReplyLink(final int messageId, final int parentId, final Date createdOn) {
+
+		this.messageId = messageId;
+		this.parentId = parentId;
+		this.createdOn = new Date(createdOn.getTime());
+	}
+
+	public int getMessageId() {
+		return messageId;
+	}
+
+	public int getParentId() {
+		return parentId;
+	}
+
+	public Date getCreatedOn() {
+		return new Date(createdOn.getTime());
+	}
+}
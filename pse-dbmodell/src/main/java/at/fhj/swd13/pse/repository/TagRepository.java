@@ -0,0 +1,40 @@
+package at.fhj.swd13.pse.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read access to tags and the tags of messages
+ *
+ */
+public interface TagRepository {
+
+	/**
+	 * Get the ids of tags by their tokens
+	 *
+	 * @param tokens the tokens of the tags
+	 *
+	 * @return tag id per token, unknown tokens are missing from the map
+	 */
+	Map<String, Integer> findTagIds(Collection<String> tokens);
+
+	/**
+	 * Load the tokens of all tags with one query
+	 *
+	 * @return token per tag id
+	 */
+	Map<Integer, String> loadTokens();
+
+	/**
+	 * Load the message tags following the given message_tag_id, used to walk
+	 * over all message tags in chunks
+	 *
+	 * @param afterMessageTagId id after which to start, 0 for the first chunk
+	 * @param maxRows the max number of rows to return
+	 *
+	 * @return the rows ordered by message_tag_id, each as { message_tag_id,
+	 *         message_id, tag_id }, may be empty
+	 */
+	List<int[]> loadMessageTags(int afterMessageTagId, int maxRows);
+}
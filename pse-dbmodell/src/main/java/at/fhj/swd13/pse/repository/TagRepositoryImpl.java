@@ -0,0 +1,76 @@
+package at.fhj.swd13.pse.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+
+public class TagRepositoryImpl implements TagRepository {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.TagRepository#findTagIds(java.util.Collection)
+	 */
+	@Override
+	public Map<String, Integer> findTagIds(final Collection<String> tokens) {
+
+		final Map<String, Integer> tagIds = new HashMap<String, Integer>();
+
+		if (tokens.isEmpty()) {
+			return tagIds;
+		}
+
+		final TypedQuery<Object[]> query = entityManager.createNamedQuery("Tag.findIdsByTokens", Object[].class);
+		query.setParameter("tokens", new ArrayList<String>(tokens));
+
+		for (Object[] row : query.getResultList()) {
+			tagIds.put((String) row[0], ((Number) row[1]).intValue());
+		}
+
+		return tagIds;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.TagRepository#loadTokens()
+	 */
+	@Override
+	public Map<Integer, String> loadTokens() {
+
+		final TypedQuery<Object[]> query = entityManager.createNamedQuery("Tag.findTokens", Object[].class);
+		final Map<Integer, String> tokens = new HashMap<Integer, String>();
+
+		for (Object[] row : query.getResultList()) {
+			tokens.put(((Number) row[0]).intValue(), (String) row[1]);
+		}
+
+		return tokens;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.TagRepository#loadMessageTags(int, int)
+	 */
+	@Override
+	public List<int[]> loadMessageTags(final int afterMessageTagId, final int maxRows) {
+
+		final TypedQuery<Object[]> query = entityManager.createNamedQuery("MessageTag.findPairsAfter", Object[].class);
+		query.setParameter("messageTagId", afterMessageTagId);
+		query.setMaxResults(maxRows);
+
+		final List<Object[]> rows = query.getResultList();
+		final List<int[]> result = new ArrayList<int[]>(rows.size());
+
+		for (Object[] row : rows) {
+			result.add(new int[] { ((Number) row[0]).intValue(), ((Number) row[1]).intValue(),
+					((Number) row[2]).intValue() });
+		}
+
+		return result;
+	}
+}
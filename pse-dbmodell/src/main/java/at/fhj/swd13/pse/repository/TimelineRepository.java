@@ -0,0 +1,78 @@
+package at.fhj.swd13.pse.repository;
+
+import java.util.List;
+
+import at.fhj.swd13.pse.db.entity.Message;
+import at.fhj.swd13.pse.dto.FeedItem;
+
+/**
+ * Materialized per-person timelines (fan-out-on-write)
+ *
+ * When a message is posted its id is written to the timeline of every
+ * recipient, i.e. the members of the community it was posted in and the
+ * persons related to the author. Reading a timeline is then a single range
+ * scan over timeline_entry.
+ *
+ * Communities and authors with more than FAN_OUT_LIMIT recipients are not
+ * fanned out, their messages are merged into the timeline when it is read
+ * (fan-out-on-read).
+ *
+ */
+public interface TimelineRepository {
+
+	/**
+	 * max number of recipients of a community or an author that are still
+	 * written on post
+	 */
+	int FAN_OUT_LIMIT = 2000;
+
+	/**
+	 * Write the message to the timelines of its recipients. The message must
+	 * already be persisted (have an id)
+	 *
+	 * @param message the posted message
+	 *
+	 * @return ids of the persons whose timeline got an entry, sorted
+	 *         ascending, may be empty when all sources are fanned out on read
+	 */
+	int[] fanOut(Message message);
+
+	/**
+	 * Load one page of the timeline of a person as read-only items, newest
+	 * message first
+	 *
+	 * @param personId the owner of the timeline
+	 * @param after position after which to start, null for the first page
+	 * @param maxRows the max number of messages to return
+	 *
+	 * @return list of feed items ordered by created_on, message_id
+	 *         descending, may be empty
+	 */
+	List<FeedItem> loadTimelinePage(int personId, FeedCursor after, int maxRows);
+
+	/**
+	 * Get the fan-out-on-read communities the person is a member of
+	 *
+	 * @param personId the owner of the timeline
+	 *
+	 * @return ids of the communities, may be empty
+	 */
+	int[] loadReadCommunityIds(int personId);
+
+	/**
+	 * Get the fan-out-on-read authors the person is related to
+	 *
+	 * @param personId the owner of the timeline
+	 *
+	 * @return ids of the authors, may be empty
+	 */
+	int[] loadReadAuthorIds(int personId);
+
+	/**
+	 * Get the version of the set of fan-out-on-read sources, it is incremented
+	 * whenever a community or an author exceeds the fan-out limit
+	 *
+	 * @return the current version
+	 */
+	long getReadSourcesVersion();
+}
@@ -0,0 +1,330 @@
+package at.fhj.swd13.pse.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
+import javax.persistence.TypedQuery;
+
+import at.fhj.swd13.pse.db.entity.Message;
+import at.fhj.swd13.pse.dto.FeedItem;
+
+/**
+ * Timeline repository backed by the timeline_entry table
+ *
+ * Keeps the ids of the communities and authors that are fanned out on read in
+ * memory, they are loaded on startup and extended whenever a post exceeds the
+ * fan-out limit.
+ *
+ */
+@ApplicationScoped
+public class TimelineRepositoryImpl implements TimelineRepository {
+
+	/**
+	 * number of rows per multi-row insert
+	 */
+	private static final int INSERT_CHUNK_SIZE = 500;
+
+	/**
+	 * IN-lists must not be empty, this id never exists
+	 */
+	private static final List<Integer> NO_IDS = Collections.singletonList(-1);
+
+	private static final Comparator<FeedItem> NEWEST_FIRST = new Comparator<FeedItem>() {
+
+		@Override
+		public int compare(final FeedItem a, final FeedItem b) {
+
+			final int byDate = b.getCreatedOn().compareTo(a.getCreatedOn());
+
+			return byDate != 0 ? byDate : Integer.compare(b.getMessageId(), a.getMessageId());
+		}
+	};
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private int fanOutLimit = FAN_OUT_LIMIT;
+
+	private final Set<Integer> readCommunityIds = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+	private final Set<Integer> readAuthorIds = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+	private final AtomicLong readSourcesVersion = new AtomicLong();
+
+	public TimelineRepositoryImpl() {
+	}
+
+	/**
+	 * Create a repository outside of a container
+	 *
+	 * @param entityManager the entity manager to use
+	 * @param fanOutLimit max number of recipients written per source instead
+	 *            of FAN_OUT_LIMIT
+	 */
+	public TimelineRepositoryImpl(final EntityManager entityManager, final int fanOutLimit) {
+
+		this.entityManager = entityManager;
+		this.fanOutLimit = fanOutLimit;
+	}
+
+	/**
+	 * Load the communities and authors that are too large for fan-out-on-write
+	 */
+	@PostConstruct
+	public void loadFanOutOnReadSources() {
+
+		readCommunityIds.addAll(loadIds(
+				entityManager.createNamedQuery("CommunityMember.findLargeCommunityIds", Integer.class)));
+		readAuthorIds.addAll(loadIds(
+				entityManager.createNamedQuery("PersonRelation.findLargeTargetIds", Integer.class)));
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.TimelineRepository#fanOut(at.fhj.swd13.pse.db.entity.Message)
+	 */
+	@Override
+	public int[] fanOut(final Message message) {
+
+		if (message.getMessageId() == 0) {
+			throw new IllegalStateException("message must be persisted before fan-out");
+		}
+
+		final Set<Integer> recipients = new HashSet<Integer>();
+
+		recipients.add(message.getPerson().getPersonId());
+
+		if (message.getCommunity() != null) {
+
+			final int communityId = message.getCommunity().getCommunityId();
+
+			if (!readCommunityIds.contains(communityId)) {
+
+				final TypedQuery<Integer> q = entityManager.createNamedQuery("CommunityMember.findMemberIds",
+						Integer.class);
+				q.setParameter("communityId", communityId);
+
+				addRecipients(recipients, q.getResultList(), communityId, readCommunityIds);
+			}
+		}
+
+		final int authorId = message.getPerson().getPersonId();
+
+		if (!readAuthorIds.contains(authorId)) {
+
+			final TypedQuery<Integer> q = entityManager.createNamedQuery("PersonRelation.findSourceIds", Integer.class);
+			q.setParameter("personId", authorId);
+
+			addRecipients(recipients, q.getResultList(), authorId, readAuthorIds);
+		}
+
+		final int[] recipientIds = toArray(recipients);
+
+		Arrays.sort(recipientIds);
+
+		for (int from = 0; from < recipientIds.length; from += INSERT_CHUNK_SIZE) {
+
+			insertEntries(message, recipientIds, from, Math.min(from + INSERT_CHUNK_SIZE, recipientIds.length));
+		}
+
+		return recipientIds;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.TimelineRepository#loadTimelinePage(int, at.fhj.swd13.pse.repository.FeedCursor, int)
+	 */
+	@Override
+	public List<FeedItem> loadTimelinePage(final int personId, final FeedCursor after, final int maxRows) {
+
+		final TypedQuery<FeedItem> written = entityManager.createNamedQuery(
+				after == null ? "TimelineEntry.findTimelineItems" : "TimelineEntry.findTimelineItemsAfter",
+				FeedItem.class);
+		written.setParameter("personId", personId);
+
+		final List<FeedItem> items = new ArrayList<FeedItem>(loadPage(written, after, maxRows));
+
+		final Collection<Integer> communityIds = loadSubscribedSources("CommunityMember.findCommunityIdsOfMember",
+				"communityIds", personId, readCommunityIds);
+		final Collection<Integer> authorIds = loadSubscribedSources("PersonRelation.findTargetIdsOfSource",
+				"personIds", personId, readAuthorIds);
+
+		if (communityIds.isEmpty() && authorIds.isEmpty()) {
+			return items;
+		}
+
+		final TypedQuery<FeedItem> read = entityManager.createNamedQuery(
+				after == null ? "Message.findFeedItemsFromSources" : "Message.findFeedItemsFromSourcesAfter",
+				FeedItem.class);
+		read.setParameter("communityIds", communityIds.isEmpty() ? NO_IDS : communityIds);
+		read.setParameter("authorIds", authorIds.isEmpty() ? NO_IDS : authorIds);
+
+		items.addAll(loadPage(read, after, maxRows));
+
+		return merge(items, maxRows);
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.TimelineRepository#loadReadCommunityIds(int)
+	 */
+	@Override
+	public int[] loadReadCommunityIds(final int personId) {
+
+		return toArray(loadSubscribedSources("CommunityMember.findCommunityIdsOfMember", "communityIds", personId,
+				readCommunityIds));
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.TimelineRepository#loadReadAuthorIds(int)
+	 */
+	@Override
+	public int[] loadReadAuthorIds(final int personId) {
+
+		return toArray(loadSubscribedSources("PersonRelation.findTargetIdsOfSource", "personIds", personId,
+				readAuthorIds));
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.TimelineRepository#getReadSourcesVersion()
+	 */
+	@Override
+	public long getReadSourcesVersion() {
+		return readSourcesVersion.get();
+	}
+
+	/**
+	 * Get those of the given fan-out-on-read sources that the person is
+	 * subscribed to (member of the community, related to the author)
+	 */
+	private Collection<Integer> loadSubscribedSources(final String queryName, final String idsParameter,
+			final int personId, final Set<Integer> readSources) {
+
+		if (readSources.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		final TypedQuery<Integer> q = entityManager.createNamedQuery(queryName, Integer.class);
+		q.setParameter("personId", personId);
+		q.setParameter(idsParameter, new ArrayList<Integer>(readSources));
+
+		return q.getResultList();
+	}
+
+	private List<FeedItem> loadPage(final TypedQuery<FeedItem> q, final FeedCursor after, final int maxRows) {
+
+		if (after != null) {
+			q.setParameter("createdOn", after.getCreatedOn());
+			q.setParameter("messageId", after.getMessageId());
+		}
+
+		q.setMaxResults(maxRows);
+
+		return q.getResultList();
+	}
+
+	/**
+	 * Merge the written and the read part of a timeline, both parts are cut at
+	 * the same position, so the first maxRows of the merged list are exact
+	 */
+	private List<FeedItem> merge(final List<FeedItem> items, final int maxRows) {
+
+		Collections.sort(items, NEWEST_FIRST);
+
+		final List<FeedItem> merged = new ArrayList<FeedItem>(Math.min(maxRows, items.size()));
+
+		for (FeedItem item : items) {
+
+			if (merged.size() == maxRows) {
+				break;
+			}
+
+			if (merged.isEmpty() || merged.get(merged.size() - 1).getMessageId() != item.getMessageId()) {
+				merged.add(item);
+			}
+		}
+
+		return merged;
+	}
+
+	/**
+	 * Either add the ids to the recipients or - if there are too many -
+	 * remember the source as fanned out on read
+	 */
+	private void addRecipients(final Set<Integer> recipients, final List<Integer> ids, final int sourceId,
+			final Set<Integer> readSources) {
+
+		if (ids.size() > fanOutLimit) {
+
+			if (readSources.add(sourceId)) {
+				readSourcesVersion.incrementAndGet();
+			}
+		} else {
+			recipients.addAll(ids);
+		}
+	}
+
+	/**
+	 * Write entries for recipientIds[from..to) with one multi-row insert,
+	 * duplicates (the author is also a member) are ignored by the unique key
+	 */
+	private void insertEntries(final Message message, final int[] recipientIds, final int from, final int to) {
+
+		final StringBuilder sql = new StringBuilder(
+				"INSERT IGNORE INTO timeline_entry (person_id, message_id, created_on) VALUES ");
+
+		for (int i = from; i < to; ++i) {
+
+			final int param = (i - from) * 3 + 1;
+
+			if (i > from) {
+				sql.append(',');
+			}
+
+			sql.append("(?").append(param).append(",?").append(param + 1).append(",?").append(param + 2).append(')');
+		}
+
+		final Query q = entityManager.createNativeQuery(sql.toString());
+
+		for (int i = from; i < to; ++i) {
+
+			final int param = (i - from) * 3 + 1;
+
+			q.setParameter(param, recipientIds[i]);
+			q.setParameter(param + 1, message.getMessageId());
+			q.setParameter(param + 2, message.getCreatedOn(), TemporalType.TIMESTAMP);
+		}
+
+		q.executeUpdate();
+	}
+
+	private static int[] toArray(final Collection<Integer> ids) {
+
+		final int[] result = new int[ids.size()];
+		int i = 0;
+
+		for (Integer id : ids) {
+			result[i++] = id;
+		}
+
+		return result;
+	}
+
+	private List<Integer> loadIds(final TypedQuery<Integer> q) {
+
+		q.setParameter("limit", (long) fanOutLimit);
+
+		return q.getResultList();
+	}
+}
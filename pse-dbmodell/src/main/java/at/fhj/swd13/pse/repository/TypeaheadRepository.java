@@ -0,0 +1,23 @@
+package at.fhj.swd13.pse.repository;
+
+import java.util.List;
+
+import at.fhj.swd13.pse.dto.TypeaheadEntry;
+import at.fhj.swd13.pse.index.TypeaheadKind;
+
+/**
+ * Reads the entities offered by the typeahead together with their popularity
+ *
+ */
+public interface TypeaheadRepository {
+
+	/**
+	 * Load all entities of a kind with one aggregate query
+	 *
+	 * @param kind persons (weighted by followers), tags (by messages) or
+	 *            communities (by members)
+	 *
+	 * @return the entries, may be empty
+	 */
+	List<TypeaheadEntry> loadEntries(TypeaheadKind kind);
+}
@@ -0,0 +1,38 @@
+package at.fhj.swd13.pse.repository;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import at.fhj.swd13.pse.dto.TypeaheadEntry;
+import at.fhj.swd13.pse.index.TypeaheadKind;
+
+public class TypeaheadRepositoryImpl implements TypeaheadRepository {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.repository.TypeaheadRepository#loadEntries(at.fhj.swd13.pse.index.TypeaheadKind)
+	 */
+	@Override
+	public List<TypeaheadEntry> loadEntries(final TypeaheadKind kind) {
+
+		final String queryName;
+
+		switch (kind) {
+		case PERSON:
+			queryName = "Person.findTypeahead";
+			break;
+		case TAG:
+			queryName = "Tag.findTypeahead";
+			break;
+		default:
+			queryName = "Community.findTypeahead";
+			break;
+		}
+
+		return entityManager.createNamedQuery(queryName, TypeaheadEntry.class).getResultList();
+	}
+}
@@ -51,6 +51,55 @@ public interface ChatService {
 	Community createChatCommunity(String creatorUsername, String communityName, boolean invitationOnly,
 			DbContext dbContext);
 
+	/**
+	 * Get the communities waiting for confirmation: all of them for an
+	 * administrator, those created by the person for everybody else. Private
+	 * communities are not included. The result is cached per person until a
+	 * community is created or confirmed
+	 * 
+	 * @param communityAdmin the person whose inbox to show
+	 * @param dbContext session to the persistent storage
+	 * 
+	 * @return the unconfirmed communities in the order they were created, may
+	 *         be empty
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if communityAdmin is null
+	 */
 	List<Community> getMyUnconfirmedCommunites(Person communityAdmin, DbContext dbContext);
 
-}
\ No newline at end of file
+	/**
+	 * Confirm a community waiting for confirmation, does nothing if it is
+	 * confirmed already. Method creates a db-context and calls
+	 * confirmCommunity
+	 * 
+	 * @param adminUsername username of the administrator confirming the community
+	 * @param communityId id of the community to confirm
+	 * 
+	 * @return the confirmed community
+	 * 
+	 * @throws EntityNotFoundException
+	 *             if the administrator or the community does not exist
+	 * @throws IllegalStateException
+	 *             if the user is not an active administrator
+	 */
+	Community confirmCommunity(String adminUsername, int communityId) throws Exception;
+
+	/**
+	 * Confirm a community waiting for confirmation, does nothing if it is
+	 * confirmed already. The inboxes are invalidated when the context commits
+	 * 
+	 * @param adminUsername username of the administrator confirming the community
+	 * @param communityId id of the community to confirm
+	 * @param dbContext session to the persistent storage, not committed
+	 * 
+	 * @return the confirmed community
+	 * 
+	 * @throws EntityNotFoundException
+	 *             if the administrator or the community does not exist
+	 * @throws IllegalStateException
+	 *             if the user is not an active administrator
+	 */
+	Community confirmCommunity(String adminUsername, int communityId, DbContext dbContext);
+
+}
\ No newline at end of file
@@ -2,11 +2,20 @@ package at.fhj.swd13.pse.service;
 
 import java.util.List;
 
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.cache.AdminInbox;
 import at.fhj.swd13.pse.db.DbContext;
+import at.fhj.swd13.pse.db.EntityNotFoundException;
 import at.fhj.swd13.pse.db.dao.CommunityDAO;
 import at.fhj.swd13.pse.db.entity.Community;
 import at.fhj.swd13.pse.db.entity.CommunityMember;
 import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.dto.TypeaheadEntry;
+import at.fhj.swd13.pse.index.MembershipIndex;
+import at.fhj.swd13.pse.index.SuggestionIndex;
+import at.fhj.swd13.pse.index.TypeaheadIndex;
+import at.fhj.swd13.pse.index.TypeaheadKind;
 
 /**
  * Chat service that provides all functionality for chatting and administration
@@ -15,6 +24,27 @@ import at.fhj.swd13.pse.db.entity.Person;
  */
 public class ChatServiceImpl extends ServiceBase implements ChatService {
 
+	/**
+	 * injected by the container, outside of a container (tests) the inbox is
+	 * not cached
+	 */
+	@Inject
+	private AdminInbox adminInbox;
+
+	/**
+	 * injected by the container, outside of a container (tests) there are no
+	 * indexes to update: typeaheadIndex, suggestionIndex and membershipIndex
+	 * are null
+	 */
+	@Inject
+	private TypeaheadIndex typeaheadIndex;
+
+	@Inject
+	private SuggestionIndex suggestionIndex;
+
+	@Inject
+	private MembershipIndex membershipIndex;
+
 	/**
 	 * Create an instance of the chat service
 	 */
@@ -65,9 +95,95 @@ public class ChatServiceImpl extends ServiceBase implements ChatService {
 	 */
 	@Override
 	public List<Community> getMyUnconfirmedCommunites( final Person communityAdmin, DbContext dbContext ) {
-		
-		
-		return null;
+
+		if (communityAdmin == null) {
+			throw new IllegalArgumentException("community admin must not be null");
+		}
+
+		final CommunityDAO communityDao = dbContext.getCommunityDAO();
+		final int personId = communityAdmin.getPersonId();
+
+		final boolean admin = communityAdmin.isAdmin();
+
+		final int[] cached = adminInbox == null ? null : adminInbox.get(personId, admin);
+
+		if (cached != null) {
+
+			// confirmed or removed meanwhile are skipped by the query
+			return communityDao.getUnconfirmedByIds(cached);
+		}
+
+		final long version = adminInbox == null ? 0 : adminInbox.getVersion();
+
+		final List<Community> communities = admin ? communityDao.getUnconfirmed() : communityDao
+				.getUnconfirmedCreatedBy(personId);
+
+		if (adminInbox != null) {
+
+			final int[] communityIds = new int[communities.size()];
+
+			for (int i = 0; i < communityIds.length; ++i) {
+				communityIds[i] = communities.get(i).getCommunityId();
+			}
+
+			adminInbox.put(personId, admin, version, communityIds);
+		}
+
+		return communities;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.ChatService#confirmCommunity(java.lang.String, int)
+	 */
+	@Override
+	public Community confirmCommunity(final String adminUsername, final int communityId) throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			Community community = confirmCommunity(adminUsername, communityId, dbContext);
+
+			dbContext.commit();
+
+			return community;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.ChatService#confirmCommunity(java.lang.String, int, at.fhj.swd13.pse.db.DbContext)
+	 */
+	@Override
+	public Community confirmCommunity(final String adminUsername, final int communityId, final DbContext dbContext) {
+
+		Person admin = dbContext.getPersonDAO().getByUsername(adminUsername, true);
+
+		if (!admin.isActive() || !admin.isAdmin()) {
+			throw new IllegalStateException("User is no active administrator and can therefore not confirm communities: "
+					+ adminUsername);
+		}
+
+		Community community = dbContext.getCommunityDAO().getById(communityId);
+
+		if (community == null) {
+			throw new EntityNotFoundException("no community with id " + communityId);
+		}
+
+		if (!community.isConfirmed()) {
+
+			community.setConfirmedBy(admin);
+
+			dbContext.afterCommit(new Runnable() {
+
+				@Override
+				public void run() {
+
+					if (adminInbox != null) {
+						adminInbox.invalidate();
+					}
+				}
+			});
+		}
+
+		return community;
 	}
 	
 	/**
@@ -96,10 +212,42 @@ public class ChatServiceImpl extends ServiceBase implements ChatService {
 			}
 
 			communityDao.insert(community);
+
+			dbContext.afterCommit(new Runnable() {
+
+				@Override
+				public void run() {
+
+					if (adminInbox != null) {
+						adminInbox.invalidate();
+					}
+
+					if (typeaheadIndex != null) {
+						typeaheadIndex.put(TypeaheadKind.COMMUNITY, new TypeaheadEntry(community.getCommunityId(),
+								community.getName(), -1));
+					}
+				}
+			});
+
 			CommunityMember memberShip = community.addMember( creator, true );
 			
 			if ( memberShip != null ) {
 				dbContext.persist( memberShip );
+
+				dbContext.afterCommit(new Runnable() {
+
+					@Override
+					public void run() {
+
+						if (membershipIndex != null) {
+							membershipIndex.add(community.getCommunityId(), creator.getPersonId());
+						}
+
+						if (suggestionIndex != null) {
+							suggestionIndex.membershipChanged(creator.getPersonId(), community.getCommunityId(), true);
+						}
+					}
+				});
 			}
 			
 			return community;
@@ -0,0 +1,19 @@
+package at.fhj.swd13.pse.service;
+
+/**
+ * Progress of a batch job that commits in chunks
+ *
+ */
+public interface ChunkListener {
+
+	/**
+	 * Called after a chunk was committed
+	 *
+	 * @param lastId id of the last row of the chunk, pass it to resume the job
+	 *            after this chunk
+	 * @param rows number of rows in the chunk
+	 * @param workMillis time spent computing the chunk
+	 * @param commitMillis time spent writing and committing the chunk
+	 */
+	void chunkCommitted(int lastId, int rows, long workMillis, long commitMillis);
+}
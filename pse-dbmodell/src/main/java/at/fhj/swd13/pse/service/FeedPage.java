@@ -0,0 +1,69 @@
+package at.fhj.swd13.pse.service;
+
+import java.util.Collections;
+import java.util.List;
+
+import at.fhj.swd13.pse.dto.FeedItem;
+import at.fhj.swd13.pse.repository.FeedCursor;
+
+/**
+ * One page of a feed together with the token to continue with the next page
+ *
+ */
+public class FeedPage {
+
+	private final List<FeedItem> items;
+
+	private final String continuationToken;
+
+	/**
+	 * Create a page
+	 *
+	 * @param items the messages of this page
+	 * @param continuationToken token for the next page, null if this is the
+	 *            last page
+	 */
+	public FeedPage(final List<FeedItem> items, final String continuationToken) {
+
+		this.items = Collections.unmodifiableList(items);
+		this.continuationToken = continuationToken;
+	}
+
+	/**
+	 * Create a page from the rows read from a repository. Repositories are
+	 * asked for one row more than requested to find out whether there is a
+	 * next page without an extra count query
+	 *
+	 * @param items the rows read, at most rows + 1
+	 * @param rows the number of items per page
+	 *
+	 * @return the page, with a continuation token if there was an extra row
+	 */
+	static FeedPage of(final List<FeedItem> items, final int rows) {
+
+		if (items.size() > rows) {
+
+			final List<FeedItem> page = items.subList(0, rows);
+
+			return new FeedPage(page, FeedCursor.of(page.get(rows - 1)).toToken());
+		}
+
+		return new FeedPage(items, null);
+	}
+
+	public List<FeedItem> getItems() {
+		return items;
+	}
+
+	/**
+	 * @return token to pass to the feed service to get the next page or null
+	 *         if there are no more messages
+	 */
+	public String getContinuationToken() {
+		return continuationToken;
+	}
+
+	public boolean isMorePages() {
+		return continuationToken != null;
+	}
+}
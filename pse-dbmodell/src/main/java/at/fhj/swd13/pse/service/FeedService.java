@@ -5,7 +5,10 @@ package at.fhj.swd13.pse.service;
 
 import java.util.List;
 
+import at.fhj.swd13.pse.cache.TrendingTags.Window;
 import at.fhj.swd13.pse.db.entity.Message;
+import at.fhj.swd13.pse.dto.FeedItem;
+import at.fhj.swd13.pse.dto.TagCount;
 
 /**
  * @author florian.genser
@@ -13,5 +16,137 @@ import at.fhj.swd13.pse.db.entity.Message;
  */
 public interface FeedService {
 
-	List<Message> loadFeed();
+	/**
+	 * max number of messages that are delivered in one page
+	 */
+	int MAX_PAGE_SIZE = 100;
+
+	/**
+	 * max number of trending tags
+	 */
+	int MAX_TRENDING_TAGS = 50;
+
+	/**
+	 * Load a page of the feed over all communities, newest message first
+	 *
+	 * @param continuationToken token of the previous page or null for the
+	 *            first page
+	 * @param pageSize number of messages per page, capped at MAX_PAGE_SIZE
+	 *
+	 * @return the page, never null
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the token is malformed or the page size is not positive
+	 */
+	FeedPage loadFeed(String continuationToken, int pageSize);
+
+	/**
+	 * Load a page of the feed of a single community, newest message first
+	 *
+	 * @param communityId the community whose messages to load
+	 * @param continuationToken token of the previous page or null for the
+	 *            first page
+	 * @param pageSize number of messages per page, capped at MAX_PAGE_SIZE
+	 *
+	 * @return the page, never null
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the token is malformed or the page size is not positive
+	 */
+	FeedPage loadCommunityFeed(int communityId, String continuationToken, int pageSize);
+
+	/**
+	 * Load a page of the personal timeline of a person: the messages of the
+	 * communities the person is a member of and of the persons the person is
+	 * related to, newest message first
+	 *
+	 * @param personId the owner of the timeline
+	 * @param continuationToken token of the previous page or null for the
+	 *            first page
+	 * @param pageSize number of messages per page, capped at MAX_PAGE_SIZE
+	 *
+	 * @return the page, never null
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the token is malformed or the page size is not positive
+	 */
+	FeedPage loadTimeline(int personId, String continuationToken, int pageSize);
+
+	/**
+	 * Persist a new message and write it to the timelines of its recipients.
+	 * created_on and valid_from default to now
+	 *
+	 * @param message the message to post, author and delivery system must be
+	 *            set
+	 *
+	 * @return the persisted message
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the message has no author or no delivery system
+	 */
+	Message postMessage(Message message);
+
+	/**
+	 * Search messages by the words of their headline and text. Matches
+	 * messages containing all words of the query, case and accents are
+	 * ignored
+	 *
+	 * @param query the words to search for
+	 * @param maxResults max number of messages to return, capped at
+	 *            MAX_PAGE_SIZE
+	 *
+	 * @return the messages, most relevant first, may be empty
+	 *
+	 * @throws IllegalArgumentException
+	 *             if maxResults is not positive
+	 */
+	List<FeedItem> search(String query, int maxResults);
+
+	/**
+	 * Find the messages matching a tag expression, e.g.
+	 * "java AND (jpa OR jdbc) AND NOT draft". Adjacent tags without an
+	 * operator are combined with AND
+	 *
+	 * @param tagExpression the tag expression
+	 * @param maxResults max number of ids to return
+	 *
+	 * @return ids of the matching messages, newest first, may be empty
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the expression is malformed or maxResults is not
+	 *             positive
+	 */
+	int[] findTaggedMessageIds(String tagExpression, int maxResults);
+
+	/**
+	 * Load a page of the messages matching a tag expression, newest first
+	 *
+	 * @param tagExpression the tag expression, see findTaggedMessageIds
+	 * @param continuationToken token of the previous page, null for the first
+	 *            page
+	 * @param pageSize number of messages per page, capped at MAX_PAGE_SIZE
+	 *
+	 * @return the page
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the expression or the token is malformed or pageSize is
+	 *             not positive
+	 */
+	FeedPage loadTaggedFeed(String tagExpression, String continuationToken, int pageSize);
+
+	/**
+	 * Get the tags most used on messages in a time window, updated every few
+	 * seconds
+	 *
+	 * @param window the last minute, hour or day
+	 * @param maxResults max number of tags to return, capped at
+	 *            MAX_TRENDING_TAGS
+	 *
+	 * @return the tags with their approximate counts, most used first, may be
+	 *         empty
+	 *
+	 * @throws IllegalArgumentException
+	 *             if maxResults is not positive
+	 */
+	List<TagCount> getTrendingTags(Window window, int maxResults);
 }
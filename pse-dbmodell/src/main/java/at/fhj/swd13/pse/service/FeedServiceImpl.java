@@ -3,24 +3,387 @@
  */
 package at.fhj.swd13.pse.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 
 import javax.inject.Inject;
+import javax.transaction.Transactional;
 
+import at.fhj.swd13.pse.cache.TimelineCache;
+import at.fhj.swd13.pse.cache.TimelineCache.OwnerType;
+import at.fhj.swd13.pse.cache.TrendingTags;
+import at.fhj.swd13.pse.cache.TrendingTags.Window;
+import at.fhj.swd13.pse.db.AfterCommit;
 import at.fhj.swd13.pse.db.entity.Message;
+import at.fhj.swd13.pse.db.entity.MessageTag;
+import at.fhj.swd13.pse.dto.FeedItem;
+import at.fhj.swd13.pse.dto.TagCount;
+import at.fhj.swd13.pse.index.IdBitmap;
+import at.fhj.swd13.pse.index.MessageSearchIndex;
+import at.fhj.swd13.pse.index.SearchHit;
+import at.fhj.swd13.pse.index.TagExpression;
+import at.fhj.swd13.pse.index.TagMessageIndex;
+import at.fhj.swd13.pse.ingest.IngestListener;
+import at.fhj.swd13.pse.repository.FeedCursor;
+import at.fhj.swd13.pse.repository.MessageFetchPlan;
 import at.fhj.swd13.pse.repository.MessageRepository;
+import at.fhj.swd13.pse.repository.TimelineRepository;
 
 /**
  * @author florian.genser
  *
+ * Also publishes the chunks of a MessageIngester: the ingested messages are
+ * fanned out and indexed like posted ones.
+ *
  */
-public class FeedServiceImpl implements FeedService {
+public class FeedServiceImpl implements FeedService, IngestListener {
+
+	/**
+	 * number of feed positions read per query while looking for the newest
+	 * messages matching a tag expression
+	 */
+	private static final int TAG_SCAN_CHUNK = 500;
+
+	/**
+	 * max number of feed positions scanned before the remaining matching ids
+	 * are looked up directly
+	 */
+	private static final int TAG_SCAN_ROWS = 5000;
 
 	@Inject
 	private MessageRepository messageRepository;
-	
+
+	@Inject
+	private TimelineRepository timelineRepository;
+
+	@Inject
+	private TimelineCache timelineCache;
+
+	@Inject
+	private MessageSearchIndex searchIndex;
+
+	@Inject
+	private TagMessageIndex tagIndex;
+
+	@Inject
+	private TrendingTags trendingTags;
+
+	@Inject
+	private AfterCommit afterCommit;
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.FeedService#loadFeed(java.lang.String, int)
+	 */
+	@Override
+	public FeedPage loadFeed(final String continuationToken, final int pageSize) {
+
+		return loadPage(OwnerType.FEED, null, continuationToken, pageSize);
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.FeedService#loadCommunityFeed(int, java.lang.String, int)
+	 */
+	@Override
+	public FeedPage loadCommunityFeed(final int communityId, final String continuationToken, final int pageSize) {
+
+		return loadPage(OwnerType.COMMUNITY, communityId, continuationToken, pageSize);
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.FeedService#loadTimeline(int, java.lang.String, int)
+	 */
+	@Override
+	public FeedPage loadTimeline(final int personId, final String continuationToken, final int pageSize) {
+
+		final FeedCursor after = FeedCursor.parse(continuationToken);
+		final int rows = pageRows(pageSize);
+		final long readSourcesVersion = timelineRepository.getReadSourcesVersion();
+
+		final List<FeedItem> cached = loadCached(OwnerType.PERSON, personId, after, rows, readSourcesVersion);
+
+		if (cached != null) {
+			return FeedPage.of(cached, rows);
+		}
+
+		final long readVersion = timelineCache.getVersion();
+		final List<FeedItem> items = timelineRepository.loadTimelinePage(personId, after, rows + 1);
+
+		if (after == null) {
+			timelineCache.seedPerson(personId, readVersion, items, items.size() <= rows,
+					timelineRepository.loadReadCommunityIds(personId), timelineRepository.loadReadAuthorIds(personId),
+					readSourcesVersion);
+		}
+
+		return FeedPage.of(items, rows);
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.FeedService#postMessage(at.fhj.swd13.pse.db.entity.Message)
+	 */
+	@Override
+	@Transactional
+	public Message postMessage(final Message message) {
+
+		if (message.getPerson() == null) {
+			throw new IllegalArgumentException("message has no author");
+		}
+
+		if (message.getDeliverySystem() == null) {
+			throw new IllegalArgumentException("message has no delivery system");
+		}
+
+		final Date now = new Date();
+
+		message.setCreatedAt(now);
+
+		if (message.getCreatedOn() == null) {
+			message.setCreatedOn(now);
+		}
+
+		if (message.getValidFrom() == null) {
+			message.setValidFrom(message.getCreatedOn());
+		}
+
+		messageRepository.save(message);
+
+		final int[] recipientIds = timelineRepository.fanOut(message);
+
+		// the in-memory indexes only see the message once it is committed
+		afterCommit.register(new Runnable() {
+
+			@Override
+			public void run() {
+				publish(message, recipientIds);
+			}
+		});
+
+		return message;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.ingest.IngestListener#chunkCommitted(int[])
+	 */
 	@Override
-	public List<Message> loadFeed() {
-		return messageRepository.loadAll();
+	@Transactional
+	public void chunkCommitted(final int[] messageIds) {
+
+		final List<Message> messages = messageRepository.findByIds(messageIds, MessageFetchPlan.PUBLISHED);
+		final List<int[]> recipientIds = new ArrayList<int[]>(messages.size());
+
+		for (Message message : messages) {
+			recipientIds.add(timelineRepository.fanOut(message));
+		}
+
+		afterCommit.register(new Runnable() {
+
+			@Override
+			public void run() {
+
+				for (int i = 0; i < messages.size(); ++i) {
+					publish(messages.get(i), recipientIds.get(i));
+				}
+			}
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.FeedService#search(java.lang.String, int)
+	 */
+	@Override
+	public List<FeedItem> search(final String query, final int maxResults) {
+
+		final List<SearchHit> hits = searchIndex.search(query, pageRows(maxResults));
+		final int[] ids = new int[hits.size()];
+
+		for (int i = 0; i < ids.length; ++i) {
+			ids[i] = hits.get(i).getDocId();
+		}
+
+		return messageRepository.findFeedItemsByIds(ids);
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.FeedService#findTaggedMessageIds(java.lang.String, int)
+	 */
+	@Override
+	public int[] findTaggedMessageIds(final String tagExpression, final int maxResults) {
+
+		if (maxResults <= 0) {
+			throw new IllegalArgumentException("max results must be positive: " + maxResults);
+		}
+
+		final List<FeedCursor> keys = findTaggedKeys(tagIndex.evaluate(TagExpression.parse(tagExpression)), null,
+				maxResults);
+		final int[] ids = new int[keys.size()];
+
+		for (int i = 0; i < ids.length; ++i) {
+			ids[i] = keys.get(i).getMessageId();
+		}
+
+		return ids;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.FeedService#loadTaggedFeed(java.lang.String, java.lang.String, int)
+	 */
+	@Override
+	public FeedPage loadTaggedFeed(final String tagExpression, final String continuationToken, final int pageSize) {
+
+		final TagExpression expression = TagExpression.parse(tagExpression);
+		final FeedCursor after = FeedCursor.parse(continuationToken);
+		final int rows = pageRows(pageSize);
+
+		final List<FeedCursor> keys = findTaggedKeys(tagIndex.evaluate(expression), after, rows + 1);
+		final int[] ids = new int[keys.size()];
+
+		for (int i = 0; i < ids.length; ++i) {
+			ids[i] = keys.get(i).getMessageId();
+		}
+
+		return FeedPage.of(messageRepository.findFeedItemsByIds(ids), rows);
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.FeedService#getTrendingTags(at.fhj.swd13.pse.cache.TrendingTags.Window, int)
+	 */
+	@Override
+	public List<TagCount> getTrendingTags(final Window window, final int maxResults) {
+
+		if (maxResults <= 0) {
+			throw new IllegalArgumentException("max results must be positive: " + maxResults);
+		}
+
+		return Arrays.asList(trendingTags.getTop(window, Math.min(maxResults, MAX_TRENDING_TAGS)));
+	}
+
+	private FeedPage loadPage(final OwnerType type, final Integer communityId, final String continuationToken,
+			final int pageSize) {
+
+		final FeedCursor after = FeedCursor.parse(continuationToken);
+		final int rows = pageRows(pageSize);
+		final int ownerId = communityId == null ? 0 : communityId;
+
+		final List<FeedItem> cached = loadCached(type, ownerId, after, rows, 0);
+
+		if (cached != null) {
+			return FeedPage.of(cached, rows);
+		}
+
+		final long readVersion = timelineCache.getVersion();
+		final List<FeedItem> items = messageRepository.loadFeedPage(communityId, after, rows + 1);
+
+		if (after == null) {
+			timelineCache.seed(type, ownerId, readVersion, items, items.size() <= rows);
+		}
+
+		return FeedPage.of(items, rows);
+	}
+
+	/**
+	 * Try to serve a page from the timeline cache, the feed items themselves
+	 * are projected by id with a single query
+	 *
+	 * @return the items (one more than rows if available) or null if the page
+	 *         has to be read from the database
+	 */
+	private List<FeedItem> loadCached(final OwnerType type, final int ownerId, final FeedCursor after, final int rows,
+			final long readSourcesVersion) {
+
+		final int[] ids = timelineCache.page(type, ownerId, after, rows + 1, readSourcesVersion);
+
+		if (ids == null) {
+			return null;
+		}
+
+		final List<FeedItem> items = messageRepository.findFeedItemsByIds(ids);
+
+		if (items.size() != ids.length) {
+
+			// a cached message has been removed meanwhile
+			timelineCache.evict(type, ownerId);
+			return null;
+		}
+
+		return items;
+	}
+
+	/**
+	 * Find the feed positions of the newest matching messages after the
+	 * cursor. Message ids are not in time order (created_on may be given by
+	 * the poster or an import), so the ids are ordered by the feed.
+	 *
+	 * Frequent tags are found by scanning the newest feed positions, the ids
+	 * of rare tags (or the rest after the scan) are looked up directly
+	 */
+	private List<FeedCursor> findTaggedKeys(final IdBitmap matching, final FeedCursor after, final int maxRows) {
+
+		final List<FeedCursor> keys = new ArrayList<FeedCursor>(Math.min(maxRows, MAX_PAGE_SIZE + 1));
+
+		if (matching.isEmpty()) {
+			return keys;
+		}
+
+		FeedCursor position = after;
+
+		if (matching.cardinality() > MessageRepository.IDS_PER_QUERY) {
+
+			int scanned = 0;
+
+			while (scanned < TAG_SCAN_ROWS) {
+
+				final List<FeedCursor> chunk = messageRepository.loadFeedKeys(position, TAG_SCAN_CHUNK);
+
+				for (FeedCursor key : chunk) {
+
+					if (matching.contains(key.getMessageId())) {
+
+						keys.add(key);
+
+						if (keys.size() == maxRows) {
+							return keys;
+						}
+					}
+				}
+
+				if (chunk.size() < TAG_SCAN_CHUNK) {
+					return keys;
+				}
+
+				scanned += chunk.size();
+				position = chunk.get(chunk.size() - 1);
+			}
+		}
+
+		keys.addAll(messageRepository.findFeedKeysByIds(matching.toArray(), position, maxRows - keys.size()));
+
+		return keys;
+	}
+
+	/**
+	 * Add a committed message to the timeline cache and the in-memory indexes
+	 */
+	private void publish(final Message message, final int[] recipientIds) {
+
+		timelineCache.append(message, recipientIds);
+		searchIndex.put(message.getMessageId(), message.getHeadline(), message.getMessage());
+
+		if (message.getMessageTags() != null) {
+			for (MessageTag messageTag : message.getMessageTags()) {
+				tagIndex.add(messageTag.getTag().getTagId(), message.getMessageId());
+				trendingTags.record(messageTag.getTag().getTagId(), messageTag.getTag().getToken());
+			}
+		}
+	}
+
+
+	private int pageRows(final int pageSize) {
+
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("page size must be positive: " + pageSize);
+		}
+
+		return Math.min(pageSize, MAX_PAGE_SIZE);
 	}
 }
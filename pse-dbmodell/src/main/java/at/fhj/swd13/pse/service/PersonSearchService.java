@@ -0,0 +1,33 @@
+package at.fhj.swd13.pse.service;
+
+import java.util.List;
+
+import at.fhj.swd13.pse.db.entity.Person;
+
+/**
+ * People search by parts of names
+ *
+ */
+public interface PersonSearchService {
+
+	/**
+	 * max number of persons returned by a search
+	 */
+	int MAX_RESULTS = 50;
+
+	/**
+	 * Find the persons whose user name, first or last name contains the term.
+	 * Case and accents are ignored
+	 *
+	 * @param term the part of the name to look for
+	 * @param maxResults max number of persons to return, capped at
+	 *            MAX_RESULTS
+	 *
+	 * @return the persons, exact matches and name prefixes first, then by last
+	 *         and first name, empty if the term is empty
+	 *
+	 * @throws IllegalArgumentException
+	 *             if maxResults is not positive
+	 */
+	List<Person> findPersons(String term, int maxResults);
+}
@@ -0,0 +1,36 @@
+package at.fhj.swd13.pse.service;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.index.PersonNameIndex;
+import at.fhj.swd13.pse.repository.PersonRepository;
+
+/**
+ * People search answered by the in-memory name index, only the found persons
+ * are read from the database (by primary key, usually from the shared cache)
+ *
+ */
+public class PersonSearchServiceImpl implements PersonSearchService {
+
+	@Inject
+	private PersonNameIndex nameIndex;
+
+	@Inject
+	private PersonRepository personRepository;
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.PersonSearchService#findPersons(java.lang.String, int)
+	 */
+	@Override
+	public List<Person> findPersons(final String term, final int maxResults) {
+
+		if (maxResults <= 0) {
+			throw new IllegalArgumentException("max results must be positive: " + maxResults);
+		}
+
+		return personRepository.findByIds(nameIndex.search(term, Math.min(maxResults, MAX_RESULTS)));
+	}
+}
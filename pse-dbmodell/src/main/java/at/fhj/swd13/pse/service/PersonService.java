@@ -0,0 +1,85 @@
+package at.fhj.swd13.pse.service;
+
+import java.util.List;
+
+import at.fhj.swd13.pse.db.entity.Person;
+
+/**
+ * Connections between persons
+ *
+ */
+public interface PersonService {
+
+	/**
+	 * max number of suggested connections
+	 */
+	int MAX_SUGGESTIONS = 20;
+
+	/**
+	 * max number of relations between two connected persons
+	 */
+	int MAX_PATH_LENGTH = 6;
+
+	/**
+	 * max time to search for a connection in milliseconds
+	 */
+	long PATH_TIMEOUT_MILLIS = 50;
+
+	/**
+	 * Suggest persons to connect with ("people you may know"), ranked by
+	 * shared relations, communities and tags. Persons already related are not
+	 * suggested
+	 *
+	 * @param personId id of the person to suggest connections for
+	 * @param maxResults max number of persons to return, capped at
+	 *            MAX_SUGGESTIONS
+	 *
+	 * @return the suggested persons, best first, may be empty
+	 *
+	 * @throws IllegalArgumentException
+	 *             if maxResults is not positive
+	 */
+	List<Person> getSuggestedConnections(int personId, int maxResults);
+
+	/**
+	 * Find how two persons are connected: a shortest chain of relations (in
+	 * either direction) of at most MAX_PATH_LENGTH relations
+	 *
+	 * @param personId id of the first person
+	 * @param otherPersonId id of the second person
+	 *
+	 * @return the persons on the path from the first to the second person,
+	 *         both included, empty if they are not connected or the search
+	 *         took longer than PATH_TIMEOUT_MILLIS
+	 */
+	List<Person> getConnectionPath(int personId, int otherPersonId);
+
+	/**
+	 * Find the persons whose tags match a tag expression, e.g.
+	 * "java AND kubernetes AND graz". Adjacent tags without an operator are
+	 * combined with AND
+	 *
+	 * @param tagExpression the tag expression
+	 * @param belowPersonId id of the last person of the previous page, 0 for
+	 *            the first page
+	 * @param maxResults max number of persons to return
+	 *
+	 * @return the matching persons, highest person id first, may be empty
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the expression is malformed or maxResults is not
+	 *             positive
+	 */
+	List<Person> findExperts(String tagExpression, int belowPersonId, int maxResults);
+
+	/**
+	 * Check whether a person is a member of a community, without loading the
+	 * members of the community
+	 *
+	 * @param communityId id of the community
+	 * @param personId id of the person
+	 *
+	 * @return true if the person is a member
+	 */
+	boolean isMember(int communityId, int personId);
+}
@@ -0,0 +1,94 @@
+package at.fhj.swd13.pse.service;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.index.ConnectionPath;
+import at.fhj.swd13.pse.index.ExpertiseIndex;
+import at.fhj.swd13.pse.index.MembershipIndex;
+import at.fhj.swd13.pse.index.SocialGraphIndex;
+import at.fhj.swd13.pse.index.Suggestion;
+import at.fhj.swd13.pse.index.SuggestionIndex;
+import at.fhj.swd13.pse.index.TagExpression;
+import at.fhj.swd13.pse.repository.PersonRepository;
+
+/**
+ * Suggestions, connection paths, experts and memberships answered from the
+ * in-memory indexes, only the persons found are read from the database (by
+ * primary key, usually from the shared cache)
+ *
+ */
+public class PersonServiceImpl implements PersonService {
+
+	@Inject
+	private SuggestionIndex suggestionIndex;
+
+	@Inject
+	private SocialGraphIndex socialGraphIndex;
+
+	@Inject
+	private ExpertiseIndex expertiseIndex;
+
+	@Inject
+	private MembershipIndex membershipIndex;
+
+	@Inject
+	private PersonRepository personRepository;
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.PersonService#getSuggestedConnections(int, int)
+	 */
+	@Override
+	public List<Person> getSuggestedConnections(final int personId, final int maxResults) {
+
+		if (maxResults <= 0) {
+			throw new IllegalArgumentException("max results must be positive: " + maxResults);
+		}
+
+		final Suggestion[] suggestions = suggestionIndex.getSuggestions(personId, Math.min(maxResults,
+				MAX_SUGGESTIONS));
+		final int[] personIds = new int[suggestions.length];
+
+		for (int i = 0; i < personIds.length; ++i) {
+			personIds[i] = suggestions[i].getPersonId();
+		}
+
+		return personRepository.findByIds(personIds);
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.PersonService#getConnectionPath(int, int)
+	 */
+	@Override
+	public List<Person> getConnectionPath(final int personId, final int otherPersonId) {
+
+		final ConnectionPath path = socialGraphIndex.findPath(personId, otherPersonId, MAX_PATH_LENGTH,
+				PATH_TIMEOUT_MILLIS);
+
+		return personRepository.findByIds(path.getPersonIds());
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.PersonService#findExperts(java.lang.String, int, int)
+	 */
+	@Override
+	public List<Person> findExperts(final String tagExpression, final int belowPersonId, final int maxResults) {
+
+		if (maxResults <= 0) {
+			throw new IllegalArgumentException("max results must be positive: " + maxResults);
+		}
+
+		return personRepository.findByIds(expertiseIndex.findPersonIds(TagExpression.parse(tagExpression),
+				belowPersonId, maxResults));
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.PersonService#isMember(int, int)
+	 */
+	@Override
+	public boolean isMember(final int communityId, final int personId) {
+		return membershipIndex.isMember(communityId, personId);
+	}
+}
@@ -0,0 +1,56 @@
+package at.fhj.swd13.pse.service;
+
+import java.util.Collection;
+import java.util.Map;
+
+import at.fhj.swd13.pse.db.EntityNotFoundException;
+
+/**
+ * Likes of messages
+ *
+ */
+public interface RatingService {
+
+	/**
+	 * Add the like of a person to a message, a person likes a message at most
+	 * once
+	 *
+	 * @param messageId the message to like
+	 * @param personId the person who likes the message
+	 *
+	 * @return true if the like was added, false if the person already liked
+	 *         the message
+	 *
+	 * @throws EntityNotFoundException
+	 *             if the message or the person does not exist
+	 */
+	boolean rate(int messageId, int personId);
+
+	/**
+	 * Remove the like of a person from a message
+	 *
+	 * @param messageId the liked message
+	 * @param personId the person who liked the message
+	 *
+	 * @return true if a like was removed
+	 */
+	boolean unrate(int messageId, int personId);
+
+	/**
+	 * Get the number of likes of a message without counting the ratings
+	 *
+	 * @param messageId id of the message
+	 *
+	 * @return the number of likes
+	 */
+	long getRatingCount(int messageId);
+
+	/**
+	 * Get the number of likes of several messages, e.g. of a feed page
+	 *
+	 * @param messageIds ids of the messages
+	 *
+	 * @return number of likes per message id
+	 */
+	Map<Integer, Long> getRatingCounts(Collection<Integer> messageIds);
+}
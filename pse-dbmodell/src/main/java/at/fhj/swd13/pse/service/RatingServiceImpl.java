@@ -0,0 +1,123 @@
+package at.fhj.swd13.pse.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+
+import at.fhj.swd13.pse.cache.RatingCounters;
+import at.fhj.swd13.pse.db.AfterCommit;
+import at.fhj.swd13.pse.db.EntityNotFoundException;
+import at.fhj.swd13.pse.db.entity.MesasgeRating;
+import at.fhj.swd13.pse.db.entity.Message;
+import at.fhj.swd13.pse.db.entity.Person;
+
+/**
+ * Rating service that stores one row per like and counts likes in memory
+ *
+ * A unique key on the message and the rating person makes sure a person
+ * likes a message at most once, also when the same like arrives twice
+ * concurrently.
+ *
+ * The counters are only changed after the transaction committed, so a rolled
+ * back like is never counted.
+ *
+ */
+public class RatingServiceImpl implements RatingService {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Inject
+	private RatingCounters ratingCounters;
+
+	@Inject
+	private AfterCommit afterCommit;
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.RatingService#rate(int, int)
+	 */
+	@Override
+	@Transactional
+	public boolean rate(final int messageId, final int personId) {
+
+		if (entityManager.find(Message.class, messageId) == null) {
+			throw new EntityNotFoundException("Unknown message with id " + messageId);
+		}
+
+		if (entityManager.find(Person.class, personId) == null) {
+			throw new EntityNotFoundException("Unknown person with id " + personId);
+		}
+
+		// the unique key on (mesasge_id, rating_person_id) skips a second
+		// like, also one inserted concurrently, without failing the transaction
+		final int inserted = entityManager
+				.createNativeQuery("INSERT IGNORE INTO mesasge_rating (mesasge_id, rating_person_id) VALUES (?1, ?2)")
+				.setParameter(1, messageId).setParameter(2, personId).executeUpdate();
+
+		if (inserted == 0) {
+			return false;
+		}
+
+		countAfterCommit(messageId, 1);
+
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.RatingService#unrate(int, int)
+	 */
+	@Override
+	@Transactional
+	public boolean unrate(final int messageId, final int personId) {
+
+		final List<MesasgeRating> ratings = findRatings(messageId, personId);
+
+		for (MesasgeRating rating : ratings) {
+			entityManager.remove(rating);
+		}
+
+		if (!ratings.isEmpty()) {
+			countAfterCommit(messageId, -ratings.size());
+		}
+
+		return !ratings.isEmpty();
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.RatingService#getRatingCount(int)
+	 */
+	@Override
+	public long getRatingCount(final int messageId) {
+		return ratingCounters.get(messageId);
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.RatingService#getRatingCounts(java.util.Collection)
+	 */
+	@Override
+	public Map<Integer, Long> getRatingCounts(final Collection<Integer> messageIds) {
+		return ratingCounters.getAll(messageIds);
+	}
+
+	private List<MesasgeRating> findRatings(final int messageId, final int personId) {
+
+		return entityManager.createNamedQuery("MesasgeRating.findByMessageAndPerson", MesasgeRating.class)
+				.setParameter("messageId", messageId).setParameter("personId", personId).getResultList();
+	}
+
+	private void countAfterCommit(final int messageId, final int delta) {
+
+		afterCommit.register(new Runnable() {
+
+			@Override
+			public void run() {
+				ratingCounters.add(messageId, delta);
+			}
+		});
+	}
+}
@@ -0,0 +1,140 @@
+package at.fhj.swd13.pse.service;
+
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.cache.TagDictionary;
+import at.fhj.swd13.pse.db.DbContext;
+import at.fhj.swd13.pse.db.EntityNotFoundException;
+import at.fhj.swd13.pse.db.entity.Tag;
+import at.fhj.swd13.pse.dto.TypeaheadEntry;
+import at.fhj.swd13.pse.index.TypeaheadIndex;
+import at.fhj.swd13.pse.index.TypeaheadKind;
+
+/**
+ * Tag service, creates and removes tags and updates the tag dictionary and
+ * the typeahead index once the change is committed
+ *
+ */
+public class TagService extends ServiceBase {
+
+	/**
+	 * injected by the container, outside of a container (tests) there are no
+	 * indexes to update
+	 */
+	@Inject
+	private TagDictionary tagDictionary;
+
+	@Inject
+	private TypeaheadIndex typeaheadIndex;
+
+	/**
+	 * Create an instance of the tag service
+	 */
+	public TagService() {
+		super();
+	}
+
+	/**
+	 * Store a new tag
+	 *
+	 * @param token token of the tag
+	 * @param description full text description of the tag
+	 *
+	 * @return the stored tag
+	 *
+	 * @throws at.fhj.swd13.pse.db.ConstraintViolationException
+	 *             if the token is taken
+	 */
+	public Tag createTag(final String token, final String description) throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			final Tag tag = new Tag(token, description);
+
+			createTag(tag, dbContext);
+
+			dbContext.commit();
+
+			return tag;
+		}
+	}
+
+	/**
+	 * Store a new tag in the given context, the tag is added to the indexes
+	 * when the context commits
+	 *
+	 * @param tag the tag to store
+	 * @param dbContext the context to store the tag in, not committed
+	 */
+	public void createTag(final Tag tag, final DbContext dbContext) {
+
+		dbContext.getTagDAO().insert(tag);
+
+		dbContext.afterCommit(new Runnable() {
+
+			@Override
+			public void run() {
+
+				if (tagDictionary != null) {
+					tagDictionary.put(tag.getTagId(), tag.getToken());
+				}
+
+				if (typeaheadIndex != null) {
+					typeaheadIndex.put(TypeaheadKind.TAG, new TypeaheadEntry(tag.getTagId(), tag.getToken(), -1));
+				}
+			}
+		});
+	}
+
+	/**
+	 * Remove a tag, it is removed from the messages and persons as well
+	 *
+	 * @param tagId id of the tag
+	 *
+	 * @throws EntityNotFoundException
+	 *             if there is no tag with the id
+	 */
+	public void removeTag(final int tagId) throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			removeTag(tagId, dbContext);
+
+			dbContext.commit();
+		}
+	}
+
+	/**
+	 * Remove a tag in the given context, the tag is removed from the indexes
+	 * when the context commits
+	 *
+	 * @param tagId id of the tag
+	 * @param dbContext the context to remove the tag in, not committed
+	 *
+	 * @throws EntityNotFoundException
+	 *             if there is no tag with the id
+	 */
+	public void removeTag(final int tagId, final DbContext dbContext) {
+
+		if (dbContext.getTagDAO().getById(tagId) == null) {
+			throw new EntityNotFoundException("no tag with id " + tagId);
+		}
+
+		dbContext.getTagDAO().remove(tagId);
+
+		dbContext.afterCommit(new Runnable() {
+
+			@Override
+			public void run() {
+
+				if (tagDictionary != null) {
+					tagDictionary.remove(tagId);
+				}
+
+				if (typeaheadIndex != null) {
+					typeaheadIndex.remove(TypeaheadKind.TAG, tagId);
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,65 @@
+package at.fhj.swd13.pse.service;
+
+import at.fhj.swd13.pse.db.EntityNotFoundException;
+import at.fhj.swd13.pse.dto.ThreadNode;
+
+/**
+ * Loads discussions, i.e. a message and the tree of its replies
+ * (commented_on_message_id)
+ *
+ */
+public interface ThreadService {
+
+	/**
+	 * max depth of a loaded reply tree
+	 */
+	int MAX_DEPTH = 10;
+
+	/**
+	 * max number of direct replies loaded per message
+	 */
+	int MAX_REPLIES = 100;
+
+	/**
+	 * max number of messages of a loaded tree, replies beyond are left for
+	 * loadReplies
+	 */
+	int MAX_NODES = 1000;
+
+	/**
+	 * Load a discussion. The tree is loaded level by level with one query per
+	 * level for all messages of the level, plus one query for the content of
+	 * all loaded messages, so the number of round trips depends on the depth
+	 * only
+	 *
+	 * @param rootMessageId id of the message to start with
+	 * @param maxDepth number of reply levels to load, capped at MAX_DEPTH, 0
+	 *            loads the root message only
+	 * @param maxReplies number of direct replies to load per message (the
+	 *            oldest ones), capped at MAX_REPLIES
+	 *
+	 * @return the root node of the tree
+	 *
+	 * @throws EntityNotFoundException
+	 *             if there is no message with the given id
+	 * @throws IllegalArgumentException
+	 *             if maxDepth is negative or maxReplies is not positive
+	 */
+	ThreadNode loadThread(int rootMessageId, int maxDepth, int maxReplies);
+
+	/**
+	 * Load a page of the direct replies of a message, oldest reply first. Used
+	 * to continue where loadThread cut off the replies of a message
+	 *
+	 * @param parentMessageId id of the message whose replies to load
+	 * @param continuationToken token of the previous page or null for the
+	 *            first page
+	 * @param pageSize number of replies per page, capped at MAX_REPLIES
+	 *
+	 * @return the page, never null
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the token is malformed or the page size is not positive
+	 */
+	FeedPage loadReplies(int parentMessageId, String continuationToken, int pageSize);
+}
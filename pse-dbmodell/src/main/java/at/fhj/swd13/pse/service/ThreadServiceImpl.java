@@ -0,0 +1,164 @@
+package at.fhj.swd13.pse.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.db.EntityNotFoundException;
+import at.fhj.swd13.pse.dto.FeedItem;
+import at.fhj.swd13.pse.dto.ThreadNode;
+import at.fhj.swd13.pse.repository.FeedCursor;
+import at.fhj.swd13.pse.repository.MessageRepository;
+import at.fhj.swd13.pse.repository.ReplyLink;
+
+/**
+ * Thread service that walks the reply tree with batched IN lookups, one per
+ * level. MySQL 5.6 has no recursive common table expressions.
+ *
+ */
+public class ThreadServiceImpl implements ThreadService {
+
+	@Inject
+	private MessageRepository messageRepository;
+
+	public ThreadServiceImpl() {
+	}
+
+	/**
+	 * Create a service outside of a container
+	 *
+	 * @param messageRepository where to read the messages from
+	 */
+	public ThreadServiceImpl(final MessageRepository messageRepository) {
+		this.messageRepository = messageRepository;
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.ThreadService#loadThread(int, int, int)
+	 */
+	@Override
+	public ThreadNode loadThread(final int rootMessageId, final int maxDepth, final int maxReplies) {
+
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("depth must not be negative: " + maxDepth);
+		}
+
+		if (maxReplies <= 0) {
+			throw new IllegalArgumentException("number of replies must be positive: " + maxReplies);
+		}
+
+		final int depth = Math.min(maxDepth, MAX_DEPTH);
+		final int replies = Math.min(maxReplies, MAX_REPLIES);
+
+		// kept replies per parent, oldest first
+		final Map<Integer, List<Integer>> children = new HashMap<Integer, List<Integer>>();
+
+		// number of all direct replies per parent
+		final Map<Integer, Integer> replyCounts = new HashMap<Integer, Integer>();
+
+		final List<Integer> loadedIds = new ArrayList<Integer>();
+		loadedIds.add(rootMessageId);
+
+		List<Integer> level = Collections.singletonList(rootMessageId);
+
+		// one level more than loaded to know the reply counts of the deepest
+		// messages
+		for (int d = 0; d <= depth && !level.isEmpty(); ++d) {
+
+			final List<Integer> nextLevel = new ArrayList<Integer>();
+
+			for (ReplyLink link : messageRepository.loadReplyLinks(level)) {
+
+				final Integer count = replyCounts.get(link.getParentId());
+
+				replyCounts.put(link.getParentId(), count == null ? 1 : count + 1);
+
+				if (d == depth || (count != null && count >= replies)
+						|| loadedIds.size() + nextLevel.size() >= MAX_NODES) {
+					continue;
+				}
+
+				List<Integer> kept = children.get(link.getParentId());
+
+				if (kept == null) {
+					kept = new ArrayList<Integer>();
+					children.put(link.getParentId(), kept);
+				}
+
+				kept.add(link.getMessageId());
+				nextLevel.add(link.getMessageId());
+			}
+
+			loadedIds.addAll(nextLevel);
+			level = nextLevel;
+		}
+
+		final Map<Integer, FeedItem> items = new HashMap<Integer, FeedItem>();
+
+		for (FeedItem item : messageRepository.findFeedItemsByIds(toArray(loadedIds))) {
+			items.put(item.getMessageId(), item);
+		}
+
+		if (!items.containsKey(rootMessageId)) {
+			throw new EntityNotFoundException("Unknown message with id " + rootMessageId);
+		}
+
+		return buildNode(rootMessageId, items, children, replyCounts);
+	}
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.ThreadService#loadReplies(int, java.lang.String, int)
+	 */
+	@Override
+	public FeedPage loadReplies(final int parentMessageId, final String continuationToken, final int pageSize) {
+
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("page size must be positive: " + pageSize);
+		}
+
+		final FeedCursor after = FeedCursor.parse(continuationToken);
+		final int rows = Math.min(pageSize, MAX_REPLIES);
+
+		return FeedPage.of(messageRepository.loadReplyPage(parentMessageId, after, rows + 1), rows);
+	}
+
+	/**
+	 * Assemble the tree in memory, replies deleted between the queries are
+	 * skipped
+	 */
+	private ThreadNode buildNode(final int messageId, final Map<Integer, FeedItem> items,
+			final Map<Integer, List<Integer>> children, final Map<Integer, Integer> replyCounts) {
+
+		final List<ThreadNode> replies = new ArrayList<ThreadNode>();
+		final List<Integer> childIds = children.get(messageId);
+
+		if (childIds != null) {
+
+			for (Integer childId : childIds) {
+
+				if (items.containsKey(childId)) {
+					replies.add(buildNode(childId, items, children, replyCounts));
+				}
+			}
+		}
+
+		final Integer replyCount = replyCounts.get(messageId);
+
+		return new ThreadNode(items.get(messageId), replies, replyCount == null ? 0 : replyCount);
+	}
+
+	private static int[] toArray(final List<Integer> ids) {
+
+		final int[] result = new int[ids.size()];
+
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = ids.get(i);
+		}
+
+		return result;
+	}
+}
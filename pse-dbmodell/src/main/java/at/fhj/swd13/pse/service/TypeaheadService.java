@@ -0,0 +1,32 @@
+package at.fhj.swd13.pse.service;
+
+import java.util.List;
+
+import at.fhj.swd13.pse.index.Completion;
+import at.fhj.swd13.pse.index.TypeaheadKind;
+
+/**
+ * Completions for autocomplete fields, answered from memory
+ *
+ */
+public interface TypeaheadService {
+
+	/**
+	 * max number of completions returned
+	 */
+	int MAX_RESULTS = 20;
+
+	/**
+	 * Complete the text typed into an autocomplete field
+	 *
+	 * @param kind persons (by user, first and last name), tags or communities
+	 * @param prefix the text typed so far, case and accents are ignored
+	 * @param maxResults max number of completions, capped at MAX_RESULTS
+	 *
+	 * @return the completions, most popular first, empty for an empty prefix
+	 *
+	 * @throws IllegalArgumentException
+	 *             if maxResults is not positive
+	 */
+	List<Completion> complete(TypeaheadKind kind, String prefix, int maxResults);
+}
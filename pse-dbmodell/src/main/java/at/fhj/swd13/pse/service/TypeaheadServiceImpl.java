@@ -0,0 +1,28 @@
+package at.fhj.swd13.pse.service;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import at.fhj.swd13.pse.index.Completion;
+import at.fhj.swd13.pse.index.TypeaheadIndex;
+import at.fhj.swd13.pse.index.TypeaheadKind;
+
+public class TypeaheadServiceImpl implements TypeaheadService {
+
+	@Inject
+	private TypeaheadIndex typeaheadIndex;
+
+	/* (non-Javadoc)
+	 * @see at.fhj.swd13.pse.service.TypeaheadService#complete(at.fhj.swd13.pse.index.TypeaheadKind, java.lang.String, int)
+	 */
+	@Override
+	public List<Completion> complete(final TypeaheadKind kind, final String prefix, final int maxResults) {
+
+		if (maxResults <= 0) {
+			throw new IllegalArgumentException("max results must be positive: " + maxResults);
+		}
+
+		return typeaheadIndex.complete(kind, prefix, Math.min(maxResults, MAX_RESULTS));
+	}
+}
@@ -1,7 +1,27 @@
 package at.fhj.swd13.pse.service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javax.inject.Inject;
+
 import at.fhj.swd13.pse.db.DbContext;
+import at.fhj.swd13.pse.db.EntityNotFoundException;
 import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.db.entity.PersonRelation;
+import at.fhj.swd13.pse.db.entity.Tag;
+import at.fhj.swd13.pse.dto.TypeaheadEntry;
+import at.fhj.swd13.pse.index.ExpertiseIndex;
+import at.fhj.swd13.pse.index.MembershipIndex;
+import at.fhj.swd13.pse.index.PersonNameIndex;
+import at.fhj.swd13.pse.index.SocialGraphIndex;
+import at.fhj.swd13.pse.index.SuggestionIndex;
+import at.fhj.swd13.pse.index.TypeaheadIndex;
+import at.fhj.swd13.pse.index.TypeaheadKind;
+import at.fhj.swd13.pse.password.PasswordHashExecutor;
+import at.fhj.swd13.pse.password.PasswordHashers;
 
 /**
  * User Service, object that provides all higher level logic for managing users
@@ -9,6 +29,45 @@ import at.fhj.swd13.pse.db.entity.Person;
  */
 public class UserService extends ServiceBase {
 
+	/**
+	 * password given to persons without one
+	 */
+	public static final String DEFAULT_PASSWORD = "12345678";
+
+	/**
+	 * number of persons per transaction when updating passwords
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 200;
+
+	/**
+	 * injected by the container, outside of a container (tests) it is set with
+	 * setPasswordHashExecutor or the passwords are hashed on the calling thread
+	 */
+	@Inject
+	private PasswordHashExecutor passwordHashExecutor;
+
+	/**
+	 * injected by the container, outside of a container (tests) there are no
+	 * indexes to update
+	 */
+	@Inject
+	private PersonNameIndex nameIndex;
+
+	@Inject
+	private TypeaheadIndex typeaheadIndex;
+
+	@Inject
+	private SocialGraphIndex graphIndex;
+
+	@Inject
+	private SuggestionIndex suggestionIndex;
+
+	@Inject
+	private ExpertiseIndex expertiseIndex;
+
+	@Inject
+	private MembershipIndex membershipIndex;
+
 	/**
 	 * Create an instance of the user service
 	 */
@@ -16,28 +75,574 @@ public class UserService extends ServiceBase {
 		super();
 	}
 	
+	/**
+	 * Set the executor the passwords are hashed on outside of a container
+	 * 
+	 * @param passwordHashExecutor the password hash executor, null to hash on
+	 *            the calling thread
+	 */
+	public void setPasswordHashExecutor( final PasswordHashExecutor passwordHashExecutor ) {
+		this.passwordHashExecutor = passwordHashExecutor;
+	}
 	
-	public int updateNullPasswords( ) throws Exception {
-		try ( DbContext context = contextProvider.getDbContext() ) {
-			
-			int userCount = updateNullPasswords( context );
-			
-			context.commit();
-			
-			return userCount;
+	/**
+	 * Store a new person
+	 * 
+	 * @param person the person to store, the password must be set
+	 * 
+	 * @return the stored person
+	 * 
+	 * @throws at.fhj.swd13.pse.db.ConstraintViolationException
+	 *             if the user name is taken
+	 */
+	public Person createPerson( final Person person ) throws Exception {
+
+		try ( DbContext dbContext = contextProvider.getDbContext() ) {
+
+			createPerson( person, dbContext );
+
+			dbContext.commit();
+
+			return person;
+		}
+	}
+
+	/**
+	 * Store a new person in the given context, the person is added to the
+	 * indexes when the context commits
+	 * 
+	 * @param person the person to store, the password must be set
+	 * @param dbContext the context to store the person in, not committed
+	 */
+	public void createPerson( final Person person, final DbContext dbContext ) {
+
+		dbContext.getPersonDAO().insert( person );
+
+		indexAfterCommit( person, dbContext );
+	}
+
+	/**
+	 * Register a changed person (e.g. a new name) with the indexes, they are
+	 * updated when the context commits
+	 * 
+	 * @param person the changed person, managed by the context
+	 * @param dbContext the context the person was changed in, not committed
+	 */
+	public void updatePerson( final Person person, final DbContext dbContext ) {
+
+		indexAfterCommit( person, dbContext );
+	}
+
+	/**
+	 * Remove a person and the relations the person is the source of
+	 * 
+	 * @param personId id of the person
+	 * 
+	 * @throws at.fhj.swd13.pse.db.EntityNotFoundException
+	 *             if there is no person with the id
+	 */
+	public void removePerson( final int personId ) throws Exception {
+
+		try ( DbContext dbContext = contextProvider.getDbContext() ) {
+
+			removePerson( personId, dbContext );
+
+			dbContext.commit();
+		}
+	}
+
+	/**
+	 * Remove a person and the relations the person is the source of in the
+	 * given context, the person is removed from the indexes when the context
+	 * commits
+	 * 
+	 * @param personId id of the person
+	 * @param dbContext the context to remove the person in, not committed
+	 * 
+	 * @throws at.fhj.swd13.pse.db.EntityNotFoundException
+	 *             if there is no person with the id
+	 */
+	public void removePerson( final int personId, final DbContext dbContext ) {
+
+		dbContext.getPersonDAO().remove( getPerson( personId, dbContext ) );
+
+		dbContext.afterCommit( new Runnable() {
+
+			@Override
+			public void run() {
+
+				if ( nameIndex != null ) {
+					nameIndex.remove( personId );
+				}
+
+				if ( typeaheadIndex != null ) {
+					typeaheadIndex.remove( TypeaheadKind.PERSON, personId );
+				}
+
+				if ( graphIndex != null ) {
+					graphIndex.removePerson( personId );
+				}
+
+				if ( suggestionIndex != null ) {
+					suggestionIndex.removePerson( personId );
+				}
+
+				if ( expertiseIndex != null ) {
+					expertiseIndex.removePerson( personId );
+				}
+
+				if ( membershipIndex != null ) {
+					membershipIndex.removePerson( personId );
+				}
+			}
+		} );
+	}
+
+	/**
+	 * Create a relation from one person to another
+	 * 
+	 * @param sourcePersonId id of the person the relation starts at
+	 * @param targetPersonId id of the person the relation points to
+	 * 
+	 * @throws at.fhj.swd13.pse.db.EntityNotFoundException
+	 *             if one of the persons does not exist
+	 */
+	public void createRelation( final int sourcePersonId, final int targetPersonId ) throws Exception {
+
+		try ( DbContext dbContext = contextProvider.getDbContext() ) {
+
+			createRelation( sourcePersonId, targetPersonId, dbContext );
+
+			dbContext.commit();
+		}
+	}
+
+	/**
+	 * Create a relation from one person to another in the given context, the
+	 * social graph gets the relation when the context commits
+	 * 
+	 * @param sourcePersonId id of the person the relation starts at
+	 * @param targetPersonId id of the person the relation points to
+	 * @param dbContext the context to create the relation in, not committed
+	 * 
+	 * @return the created relation
+	 * 
+	 * @throws at.fhj.swd13.pse.db.EntityNotFoundException
+	 *             if one of the persons does not exist
+	 */
+	public PersonRelation createRelation( final int sourcePersonId, final int targetPersonId,
+			final DbContext dbContext ) {
+
+		final PersonRelation relation = dbContext.getPersonDAO().createRelation( getPerson( sourcePersonId, dbContext ),
+				getPerson( targetPersonId, dbContext ) );
+
+		dbContext.afterCommit( new Runnable() {
+
+			@Override
+			public void run() {
+
+				if ( graphIndex != null ) {
+					graphIndex.addRelation( sourcePersonId, targetPersonId );
+				}
+
+				if ( suggestionIndex != null ) {
+					suggestionIndex.relationChanged( sourcePersonId, targetPersonId );
+				}
+			}
+		} );
+
+		return relation;
+	}
+
+	/**
+	 * Remove all relations pointing to a person
+	 * 
+	 * @param personId id of the person the relations point to
+	 * 
+	 * @return the number of relations removed
+	 * 
+	 * @throws at.fhj.swd13.pse.db.EntityNotFoundException
+	 *             if there is no person with the id
+	 */
+	public int removeTargetRelations( final int personId ) throws Exception {
+
+		try ( DbContext dbContext = contextProvider.getDbContext() ) {
+
+			final int removed = removeTargetRelations( personId, dbContext );
+
+			dbContext.commit();
+
+			return removed;
+		}
+	}
+
+	/**
+	 * Remove all relations pointing to a person in the given context, they
+	 * are removed from the social graph when the context commits
+	 * 
+	 * @param personId id of the person the relations point to
+	 * @param dbContext the context to remove the relations in, not committed
+	 * 
+	 * @return the number of relations removed
+	 * 
+	 * @throws at.fhj.swd13.pse.db.EntityNotFoundException
+	 *             if there is no person with the id
+	 */
+	public int removeTargetRelations( final int personId, final DbContext dbContext ) {
+
+		final Person person = getPerson( personId, dbContext );
+		final List<Integer> sourceIds = new ArrayList<Integer>( person.getPersonTargetRelations().size() );
+
+		for ( PersonRelation relation : person.getPersonTargetRelations() ) {
+			sourceIds.add( relation.getSourcePerson().getPersonId() );
+		}
+
+		final int removed = dbContext.getPersonDAO().removeTargetRelations( person );
+
+		dbContext.afterCommit( new Runnable() {
+
+			@Override
+			public void run() {
+
+				for ( int sourceId : sourceIds ) {
+
+					if ( graphIndex != null ) {
+						graphIndex.removeRelation( sourceId, personId );
+					}
+
+					if ( suggestionIndex != null ) {
+						suggestionIndex.relationChanged( sourceId, personId );
+					}
+				}
+			}
+		} );
+
+		return removed;
+	}
+
+	/**
+	 * Tag a person, does nothing if the person already has the tag
+	 * 
+	 * @param personId id of the person
+	 * @param tagId id of the tag
+	 * 
+	 * @throws at.fhj.swd13.pse.db.EntityNotFoundException
+	 *             if the person or the tag does not exist
+	 */
+	public void addTag( final int personId, final int tagId ) throws Exception {
+
+		try ( DbContext dbContext = contextProvider.getDbContext() ) {
+
+			addTag( personId, tagId, dbContext );
+
+			dbContext.commit();
 		}
 	}
+
+	/**
+	 * Tag a person in the given context, the suggestions and the expertise
+	 * index learn about the tag when the context commits
+	 * 
+	 * @param personId id of the person
+	 * @param tagId id of the tag
+	 * @param dbContext the context to tag the person in, not committed
+	 * 
+	 * @throws at.fhj.swd13.pse.db.EntityNotFoundException
+	 *             if the person or the tag does not exist
+	 */
+	public void addTag( final int personId, final int tagId, final DbContext dbContext ) {
+
+		final Person person = getPerson( personId, dbContext );
+		final Tag tag = getTag( tagId, dbContext );
+
+		if ( !person.hasTag( tag ) ) {
+
+			person.addTag( tag );
+
+			tagChangedAfterCommit( personId, tagId, true, dbContext );
+		}
+	}
+
+	/**
+	 * Remove a tag from a person, does nothing if the person does not have
+	 * the tag
+	 * 
+	 * @param personId id of the person
+	 * @param tagId id of the tag
+	 * 
+	 * @throws at.fhj.swd13.pse.db.EntityNotFoundException
+	 *             if the person or the tag does not exist
+	 */
+	public void removeTag( final int personId, final int tagId ) throws Exception {
+
+		try ( DbContext dbContext = contextProvider.getDbContext() ) {
+
+			removeTag( personId, tagId, dbContext );
+
+			dbContext.commit();
+		}
+	}
+
+	/**
+	 * Remove a tag from a person in the given context, the suggestions and
+	 * the expertise index learn about it when the context commits
+	 * 
+	 * @param personId id of the person
+	 * @param tagId id of the tag
+	 * @param dbContext the context to remove the tag in, not committed
+	 * 
+	 * @throws at.fhj.swd13.pse.db.EntityNotFoundException
+	 *             if the person or the tag does not exist
+	 */
+	public void removeTag( final int personId, final int tagId, final DbContext dbContext ) {
+
+		final Person person = getPerson( personId, dbContext );
+		final Tag tag = getTag( tagId, dbContext );
+
+		if ( person.hasTag( tag ) ) {
+
+			person.removeTag( tag );
+
+			tagChangedAfterCommit( personId, tagId, false, dbContext );
+		}
+	}
+
+	/**
+	 * Set the default password of all persons without a password, in chunks
+	 * of DEFAULT_CHUNK_SIZE hashed on the password hash executor
+	 * 
+	 * @return number of persons updated
+	 */
+	public int updateNullPasswords( ) {
+
+		return updateNullPasswords( 0, DEFAULT_CHUNK_SIZE, passwordHashExecutor, null );
+	}
 	
+	/**
+	 * Set the default password of all persons without a password in the
+	 * given context, hashed on the password hash executor
+	 * 
+	 * @param dbContext the context to update the persons in, not committed
+	 * 
+	 * @return number of persons updated
+	 */
 	public int updateNullPasswords( DbContext dbContext ) {
 		
-		int userCount = 0;
+		final List<Person> persons = dbContext.getPersonDAO().getAllWithNullPasswords();
+		final List<String> hashes = hashAll( passwordHashExecutor, persons.size() );
 		
-		for( Person person : dbContext.getPersonDAO().getAllWithNullPasswords() ) {
-
-			person.setPassword( "12345678" );
-			++userCount;
-		}		
+		for ( int i = 0; i < persons.size(); ++i ) {
+			persons.get( i ).setHashedPassword( hashes.get( i ) );
+		}
 		
-		return userCount;
+		return persons.size();
 	}	
+
+	/**
+	 * Set the default password of all persons without a password. The persons
+	 * are read in chunks ordered by id, the hashes of a chunk are computed in
+	 * parallel on the executor and each chunk is committed in a db context of
+	 * its own, so locks are held for one chunk only. After a failure (e.g. the
+	 * executor's queue is full because of a login storm) the job can be
+	 * resumed with the last id reported to the listener
+	 * 
+	 * @param afterPersonId id after which to start, 0 to start at the
+	 *            beginning
+	 * @param chunkSize number of persons per transaction
+	 * @param executor the executor to hash on, null to hash on the calling
+	 *            thread
+	 * @param listener notified after every chunk, may be null
+	 * 
+	 * @return number of persons updated
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if chunkSize is not positive
+	 */
+	public int updateNullPasswords( final int afterPersonId, final int chunkSize,
+			final PasswordHashExecutor executor, final ChunkListener listener ) {
+
+		if ( chunkSize <= 0 ) {
+			throw new IllegalArgumentException( "chunk size must be positive: " + chunkSize );
+		}
+
+		Person.checkPasswordStrength( DEFAULT_PASSWORD );
+
+		int userCount = 0;
+		int lastId = afterPersonId;
+
+		while ( true ) {
+
+			final DbContext context = contextProvider.getDbContext();
+			RuntimeException failure = null;
+
+			try {
+				final List<Person> persons = context.getPersonDAO().getWithNullPasswordsAfter( lastId, chunkSize );
+
+				if ( persons.isEmpty() ) {
+					return userCount;
+				}
+
+				final long started = System.nanoTime();
+				final List<String> hashes = hashAll( executor, persons.size() );
+				final long hashed = System.nanoTime();
+
+				for ( int i = 0; i < persons.size(); ++i ) {
+					persons.get( i ).setHashedPassword( hashes.get( i ) );
+				}
+
+				context.commit();
+
+				lastId = persons.get( persons.size() - 1 ).getPersonId();
+				userCount += persons.size();
+
+				if ( listener != null ) {
+					listener.chunkCommitted( lastId, persons.size(), ( hashed - started ) / 1000000,
+							( System.nanoTime() - hashed ) / 1000000 );
+				}
+
+				if ( persons.size() < chunkSize ) {
+					return userCount;
+				}
+
+			} catch ( RuntimeException x ) {
+				failure = x;
+				throw x;
+
+			} finally {
+				close( context, failure );
+			}
+		}
+	}
+
+	/**
+	 * Put the person into the indexes once the context commits, the id is
+	 * assigned by then
+	 */
+	private void indexAfterCommit( final Person person, final DbContext dbContext ) {
+
+		dbContext.afterCommit( new Runnable() {
+
+			@Override
+			public void run() {
+
+				if ( nameIndex != null ) {
+					nameIndex.put( person.getPersonId(), person.getUserName(), person.getFirstName(),
+							person.getLastName() );
+				}
+
+				if ( typeaheadIndex != null ) {
+					typeaheadIndex.put( TypeaheadKind.PERSON, new TypeaheadEntry( person.getPersonId(),
+							person.getUserName(), person.getFirstName(), person.getLastName(), -1 ) );
+				}
+			}
+		} );
+	}
+
+	private void tagChangedAfterCommit( final int personId, final int tagId, final boolean added,
+			final DbContext dbContext ) {
+
+		dbContext.afterCommit( new Runnable() {
+
+			@Override
+			public void run() {
+
+				if ( suggestionIndex != null ) {
+					suggestionIndex.tagChanged( personId, tagId, added );
+				}
+
+				if ( expertiseIndex != null ) {
+					if ( added ) {
+						expertiseIndex.add( tagId, personId );
+					} else {
+						expertiseIndex.remove( tagId, personId );
+					}
+				}
+			}
+		} );
+	}
+
+	private static Person getPerson( final int personId, final DbContext dbContext ) {
+
+		final Person person = dbContext.getPersonDAO().getById( personId );
+
+		if ( person == null ) {
+			throw new EntityNotFoundException( "no person with id " + personId );
+		}
+
+		return person;
+	}
+
+	private static Tag getTag( final int tagId, final DbContext dbContext ) {
+
+		final Tag tag = dbContext.getTagDAO().getById( tagId );
+
+		if ( tag == null ) {
+			throw new EntityNotFoundException( "no tag with id " + tagId );
+		}
+
+		return tag;
+	}
+
+	/**
+	 * Hash the default password count times. At most a queue full of hashes
+	 * is submitted at once, so a large chunk does not reject itself. Without
+	 * an executor they are hashed on the calling thread
+	 */
+	private static List<String> hashAll( final PasswordHashExecutor executor, final int count ) {
+
+		final List<String> hashes = new ArrayList<String>( count );
+
+		if ( executor == null ) {
+
+			for ( int i = 0; i < count; ++i ) {
+				hashes.add( PasswordHashers.get().hash( DEFAULT_PASSWORD ) );
+			}
+
+			return hashes;
+		}
+		final List<CompletableFuture<String>> pending = new ArrayList<CompletableFuture<String>>(
+				Math.min( count, executor.getQueueCapacity() ) );
+
+		while ( hashes.size() < count ) {
+
+			final int window = Math.min( count - hashes.size(), executor.getQueueCapacity() );
+
+			for ( int i = 0; i < window; ++i ) {
+				pending.add( executor.hash( DEFAULT_PASSWORD ) );
+			}
+
+			for ( CompletableFuture<String> hash : pending ) {
+				try {
+					hashes.add( hash.get() );
+				} catch ( InterruptedException x ) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException( "interrupted while hashing", x );
+				} catch ( ExecutionException x ) {
+					throw new IllegalStateException( "hashing failed", x.getCause() );
+				}
+			}
+
+			pending.clear();
+		}
+
+		return hashes;
+	}
+
+	/**
+	 * Close a context, a failure to close does not hide the failure that
+	 * ended the chunk, it is added to it as suppressed
+	 */
+	private static void close( final DbContext context, final RuntimeException failure ) {
+
+		try {
+			context.close();
+		} catch ( Exception x ) {
+
+			if ( failure == null ) {
+				throw new IllegalStateException( "could not close db context", x );
+			}
+
+			failure.addSuppressed( x );
+		}
+	}
 }
@@ -0,0 +1,10 @@
+package at.fhj.swd13.pse.test;
+
+/**
+ * JUnit category of the tests that measure wall clock time. They depend on
+ * the machine and its load, so they are left out of the default build, run
+ * them with -Pbenchmark
+ *
+ */
+public interface Benchmark {
+}
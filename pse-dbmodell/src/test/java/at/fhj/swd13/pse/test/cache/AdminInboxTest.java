@@ -0,0 +1,84 @@
+package at.fhj.swd13.pse.test.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import at.fhj.swd13.pse.cache.AdminInbox;
+
+public class AdminInboxTest {
+
+	@Test
+	public void putGet() {
+
+		final AdminInbox inbox = new AdminInbox();
+
+		assertNull(inbox.get(1, false));
+
+		inbox.put(1, false, inbox.getVersion(), new int[] { 3, 4 });
+
+		assertArrayEquals(new int[] { 3, 4 }, inbox.get(1, false));
+		assertNull(inbox.get(2, false));
+	}
+
+	@Test
+	public void invalidateDropsAll() {
+
+		final AdminInbox inbox = new AdminInbox();
+
+		inbox.put(1, false, inbox.getVersion(), new int[] { 3 });
+		inbox.put(2, false, inbox.getVersion(), new int[0]);
+
+		inbox.invalidate();
+
+		assertNull(inbox.get(1, false));
+		assertNull(inbox.get(2, false));
+		assertEquals(0, inbox.size());
+	}
+
+	@Test
+	public void readBeforeInvalidationNotCached() {
+
+		final AdminInbox inbox = new AdminInbox();
+
+		final long version = inbox.getVersion();
+
+		// a community is created while the inbox is queried
+		inbox.invalidate();
+		inbox.put(1, false, version, new int[] { 3 });
+
+		assertNull(inbox.get(1, false));
+	}
+
+	@Test
+	public void entriesExpire() throws Exception {
+
+		final AdminInbox inbox = new AdminInbox(TimeUnit.MILLISECONDS.toNanos(10));
+
+		inbox.put(1, false, inbox.getVersion(), new int[] { 3 });
+
+		Thread.sleep(20);
+
+		assertNull(inbox.get(1, false));
+	}
+
+	@Test
+	public void adminRightsChangeMisses() {
+
+		final AdminInbox inbox = new AdminInbox();
+
+		inbox.put(1, false, inbox.getVersion(), new int[] { 3 });
+
+		// granted admin rights, the inbox now holds all unconfirmed communities
+		assertNull(inbox.get(1, true));
+
+		inbox.put(1, true, inbox.getVersion(), new int[] { 3, 4 });
+
+		assertArrayEquals(new int[] { 3, 4 }, inbox.get(1, true));
+		assertNull(inbox.get(1, false));
+	}
+}
@@ -0,0 +1,158 @@
+package at.fhj.swd13.pse.test.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.fhj.swd13.pse.cache.RatingCounters;
+import at.fhj.swd13.pse.repository.RatingCountRepository;
+
+public class RatingCountersTest {
+
+	/**
+	 * counter table in memory
+	 */
+	private static class MemoryRepository implements RatingCountRepository {
+
+		final Map<Integer, Long> table = new HashMap<Integer, Long>();
+
+		int loads;
+
+		int writes;
+
+		@Override
+		public synchronized Map<Integer, Long> loadCounts(Collection<Integer> messageIds) {
+
+			++loads;
+
+			final Map<Integer, Long> counts = new HashMap<Integer, Long>();
+
+			for (Integer id : messageIds) {
+				if (table.containsKey(id)) {
+					counts.put(id, table.get(id));
+				}
+			}
+
+			return counts;
+		}
+
+		@Override
+		public synchronized void addDeltas(Map<Integer, Long> deltas) {
+
+			++writes;
+
+			for (Map.Entry<Integer, Long> delta : deltas.entrySet()) {
+
+				final Long count = table.get(delta.getKey());
+
+				table.put(delta.getKey(), (count == null ? 0 : count) + delta.getValue());
+			}
+		}
+	}
+
+	private MemoryRepository repository;
+
+	private RatingCounters counters;
+
+	@Before
+	public void setup() {
+
+		repository = new MemoryRepository();
+		repository.table.put(1, 10L);
+
+		counters = new RatingCounters(repository);
+	}
+
+	@Test
+	public void loadOnceWhenCold() {
+
+		assertEquals(10, counters.get(1));
+		assertEquals(10, counters.get(1));
+		assertEquals(0, counters.get(2));
+
+		assertEquals(2, repository.loads);
+	}
+
+	@Test
+	public void countBeforeLoad() {
+
+		counters.increment(1);
+		counters.increment(1);
+
+		assertEquals(12, counters.get(1));
+	}
+
+	@Test
+	public void flushWritesDeltasOnce() {
+
+		counters.increment(1);
+		counters.increment(2);
+		counters.decrement(1);
+		counters.increment(2);
+
+		counters.flush();
+
+		assertEquals(Long.valueOf(10), repository.table.get(1));
+		assertEquals(Long.valueOf(2), repository.table.get(2));
+		assertEquals(1, repository.writes);
+
+		// nothing pending, nothing written
+		counters.flush();
+		assertEquals(1, repository.writes);
+
+		Map<Integer, Long> counts = counters.getAll(Arrays.asList(1, 2));
+
+		assertEquals(Long.valueOf(10), counts.get(1));
+		assertEquals(Long.valueOf(2), counts.get(2));
+	}
+
+	@Test
+	public void concurrentLikes() throws Exception {
+
+		final int threads = 8;
+		final int likes = 10000;
+
+		assertEquals(10, counters.get(1));
+
+		List<Thread> workers = new ArrayList<Thread>();
+
+		for (int t = 0; t < threads; ++t) {
+
+			workers.add(new Thread() {
+
+				@Override
+				public void run() {
+					for (int i = 0; i < likes; ++i) {
+						counters.increment(1);
+					}
+				}
+			});
+		}
+
+		for (Thread worker : workers) {
+			worker.start();
+		}
+
+		// flush while counting
+		while (workers.get(0).isAlive()) {
+			counters.flush();
+		}
+
+		for (Thread worker : workers) {
+			worker.join();
+		}
+
+		counters.flush();
+
+		assertEquals(10 + threads * likes, counters.get(1));
+		assertEquals(Long.valueOf(10 + threads * likes), repository.table.get(1));
+	}
+}
@@ -0,0 +1,132 @@
+package at.fhj.swd13.pse.test.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.fhj.swd13.pse.cache.TagDictionary;
+import at.fhj.swd13.pse.repository.TagRepository;
+
+public class TagDictionaryTest {
+
+	/**
+	 * tag table in memory
+	 */
+	private static class MemoryRepository implements TagRepository {
+
+		final Map<Integer, String> table = new HashMap<Integer, String>();
+
+		int lookups;
+
+		@Override
+		public Map<String, Integer> findTagIds(Collection<String> tokens) {
+
+			++lookups;
+
+			final Map<String, Integer> tagIds = new HashMap<String, Integer>();
+
+			for (Map.Entry<Integer, String> tag : table.entrySet()) {
+				if (tokens.contains(tag.getValue())) {
+					tagIds.put(tag.getValue(), tag.getKey());
+				}
+			}
+
+			return tagIds;
+		}
+
+		@Override
+		public Map<Integer, String> loadTokens() {
+			return new HashMap<Integer, String>(table);
+		}
+
+		@Override
+		public List<int[]> loadMessageTags(int afterMessageTagId, int maxRows) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private MemoryRepository repository;
+
+	private TagDictionary dictionary;
+
+	@Before
+	public void setup() {
+
+		repository = new MemoryRepository();
+
+		for (int tagId = 1; tagId <= 1000; ++tagId) {
+			repository.table.put(tagId, "tag" + tagId);
+		}
+
+		dictionary = new TagDictionary(repository);
+		dictionary.load();
+	}
+
+	@Test
+	public void lookupBothWays() {
+
+		assertEquals(1000, dictionary.size());
+		assertEquals(17, dictionary.getTagId("tag17"));
+		assertEquals("tag999", dictionary.getToken(999));
+		assertEquals(TagDictionary.UNKNOWN, dictionary.getTagId("nope"));
+		assertNull(dictionary.getToken(1001));
+		assertNull(dictionary.getToken(0));
+	}
+
+	@Test
+	public void tokensInterned() {
+		assertSame(new String("tag5").intern(), dictionary.getToken(5));
+	}
+
+	@Test
+	public void knownTagsWithoutQuery() {
+
+		final Map<String, Integer> tagIds = dictionary.getTagIds(Arrays.asList("tag1", "tag2"));
+
+		assertEquals(2, tagIds.size());
+		assertEquals(0, repository.lookups);
+	}
+
+	@Test
+	public void unknownTagsLookedUpOnce() {
+
+		repository.table.put(2000, "new");
+
+		assertEquals(Integer.valueOf(2000), dictionary.getTagIds(Arrays.asList("new", "tag1")).get("new"));
+		assertEquals(1, repository.lookups);
+
+		dictionary.getTagIds(Arrays.asList("new"));
+		assertEquals(1, repository.lookups);
+	}
+
+	@Test
+	public void putChangesToken() {
+
+		dictionary.put(5, "renamed");
+
+		assertEquals(5, dictionary.getTagId("renamed"));
+		assertEquals(TagDictionary.UNKNOWN, dictionary.getTagId("tag5"));
+		assertEquals(1000, dictionary.size());
+	}
+
+	@Test
+	public void remove() {
+
+		dictionary.remove(5);
+		dictionary.remove(5);
+
+		assertEquals(TagDictionary.UNKNOWN, dictionary.getTagId("tag5"));
+		assertNull(dictionary.getToken(5));
+		assertEquals(999, dictionary.size());
+		assertEquals(6, dictionary.getTagId("tag6"));
+	}
+}
@@ -0,0 +1,216 @@
+package at.fhj.swd13.pse.test.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Test;
+
+import at.fhj.swd13.pse.cache.TimelineBuffer;
+import at.fhj.swd13.pse.cache.TimelineCache;
+import at.fhj.swd13.pse.cache.TimelineCache.OwnerType;
+import at.fhj.swd13.pse.db.entity.Community;
+import at.fhj.swd13.pse.db.entity.Message;
+import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.dto.FeedItem;
+
+public class TimelineBufferTest {
+
+	@Test
+	public void newestFirst() {
+
+		TimelineBuffer buffer = new TimelineBuffer(10);
+
+		for (int i = 1; i <= 5; ++i) {
+			buffer.add(i * 1000, i);
+		}
+
+		assertArrayEquals(new int[] { 5, 4, 3 }, buffer.page(0, -1, 3));
+		assertArrayEquals(new int[] { 2, 1 }, buffer.page(3000, 3, 3));
+	}
+
+	@Test
+	public void outOfOrderInsert() {
+
+		TimelineBuffer buffer = new TimelineBuffer(10);
+
+		buffer.add(1000, 1);
+		buffer.add(3000, 3);
+		buffer.add(2000, 2);
+		buffer.add(3000, 4);
+
+		assertArrayEquals(new int[] { 4, 3, 2, 1 }, buffer.page(0, -1, 10));
+		assertFalse(buffer.add(2000, 2));
+	}
+
+	@Test
+	public void dropOldestWhenFull() {
+
+		TimelineBuffer buffer = new TimelineBuffer(4);
+
+		for (int i = 1; i <= 6; ++i) {
+			buffer.add(i * 1000, i);
+		}
+
+		assertEquals(4, buffer.size());
+		assertFalse(buffer.isComplete());
+		assertArrayEquals(new int[] { 6, 5, 4, 3 }, buffer.page(0, -1, 4));
+
+		// page reaches beyond the buffered prefix
+		assertNull(buffer.page(4000, 4, 2));
+
+		// older than everything buffered
+		assertFalse(buffer.add(500, 99));
+	}
+
+	@Test
+	public void completeBufferAnswersShortPages() {
+
+		TimelineBuffer buffer = new TimelineBuffer(10);
+
+		buffer.add(1000, 1);
+		buffer.add(2000, 2);
+
+		assertArrayEquals(new int[] { 1 }, buffer.page(2000, 2, 5));
+		assertArrayEquals(new int[0], buffer.page(1000, 1, 5));
+	}
+
+	@Test
+	public void cacheEvictsLeastRecentlyUsed() {
+
+		TimelineCache cache = new TimelineCache(16, 32);
+
+		cache.seed(OwnerType.COMMUNITY, 1, 0, Collections.<FeedItem> emptyList(), true);
+		cache.seed(OwnerType.COMMUNITY, 2, 0, Collections.<FeedItem> emptyList(), true);
+
+		// touch 1, so 2 is the eldest
+		assertArrayEquals(new int[0], cache.page(OwnerType.COMMUNITY, 1, null, 5, 0));
+
+		cache.seed(OwnerType.COMMUNITY, 3, 0, Collections.<FeedItem> emptyList(), true);
+
+		assertEquals(2, cache.getOwnerCount());
+		assertNull(cache.page(OwnerType.COMMUNITY, 2, null, 5, 0));
+		assertTrue(cache.getBufferedCapacity() <= 32);
+	}
+
+	@Test
+	public void appendToRecipients() {
+
+		TimelineCache cache = new TimelineCache();
+
+		cache.seedPerson(7, 0, Collections.<FeedItem> emptyList(), true, new int[0], new int[0], 0);
+		cache.seedPerson(8, 0, Collections.<FeedItem> emptyList(), true, new int[0], new int[0], 0);
+
+		Person author = new Person();
+		author.setPersonId(7);
+
+		Message message = new Message();
+		message.setMessageId(42);
+		message.setCreatedOn(new Date());
+		message.setPerson(author);
+
+		cache.append(message, new int[] { 7 });
+
+		assertArrayEquals(new int[] { 42 }, cache.page(OwnerType.PERSON, 7, null, 5, 0));
+		assertArrayEquals(new int[0], cache.page(OwnerType.PERSON, 8, null, 5, 0));
+
+		// fan-out-on-read sources changed
+		assertNull(cache.page(OwnerType.PERSON, 7, null, 5, 1));
+	}
+
+	@Test
+	public void appendToReaders() {
+
+		TimelineCache cache = new TimelineCache();
+
+		cache.seed(OwnerType.COMMUNITY, 3, 0, Collections.<FeedItem> emptyList(), true);
+		cache.seed(OwnerType.COMMUNITY, 4, 0, Collections.<FeedItem> emptyList(), true);
+		cache.seedPerson(7, 0, Collections.<FeedItem> emptyList(), true, new int[] { 3 }, new int[0], 0);
+		cache.seedPerson(8, 0, Collections.<FeedItem> emptyList(), true, new int[0], new int[] { 9 }, 0);
+		cache.seedPerson(10, 0, Collections.<FeedItem> emptyList(), true, new int[] { 4 }, new int[] { 11 }, 0);
+
+		Person author = new Person();
+		author.setPersonId(9);
+
+		Community community = new Community();
+		community.setCommunityId(3);
+
+		Message message = new Message();
+		message.setMessageId(42);
+		message.setCreatedOn(new Date());
+		message.setPerson(author);
+		message.setCommunity(community);
+
+		cache.append(message, new int[0]);
+
+		assertArrayEquals(new int[] { 42 }, cache.page(OwnerType.COMMUNITY, 3, null, 5, 0));
+		assertArrayEquals(new int[0], cache.page(OwnerType.COMMUNITY, 4, null, 5, 0));
+		assertArrayEquals(new int[] { 42 }, cache.page(OwnerType.PERSON, 7, null, 5, 0));
+		assertArrayEquals(new int[] { 42 }, cache.page(OwnerType.PERSON, 8, null, 5, 0));
+		assertArrayEquals(new int[0], cache.page(OwnerType.PERSON, 10, null, 5, 0));
+
+		// an evicted reader is not seeded again by an append
+		cache.evict(OwnerType.PERSON, 7);
+		message.setMessageId(43);
+		cache.append(message, new int[0]);
+
+		assertNull(cache.page(OwnerType.PERSON, 7, null, 5, 0));
+		assertArrayEquals(new int[] { 43, 42 }, cache.page(OwnerType.PERSON, 8, null, 5, 0));
+	}
+
+	@Test
+	public void seedRefusedAfterInterleavedAppend() {
+
+		TimelineCache cache = new TimelineCache();
+
+		Person author = new Person();
+		author.setPersonId(9);
+
+		Community community = new Community();
+		community.setCommunityId(3);
+
+		Message message = new Message();
+		message.setMessageId(42);
+		message.setCreatedOn(new Date());
+		message.setPerson(author);
+		message.setCommunity(community);
+
+		// the first pages are read, then the message is committed and appended
+		long readVersion = cache.getVersion();
+
+		cache.append(message, new int[] { 7 });
+
+		assertFalse(cache.seed(OwnerType.FEED, 0, readVersion, Collections.<FeedItem> emptyList(), true));
+		assertFalse(cache.seed(OwnerType.COMMUNITY, 3, readVersion, Collections.<FeedItem> emptyList(), true));
+		assertFalse(cache.seedPerson(7, readVersion, Collections.<FeedItem> emptyList(), true, new int[0],
+				new int[0], 0));
+		assertFalse(cache.seedPerson(8, readVersion, Collections.<FeedItem> emptyList(), true, new int[] { 3 },
+				new int[0], 0));
+		assertFalse(cache.seedPerson(10, readVersion, Collections.<FeedItem> emptyList(), true, new int[0],
+				new int[] { 9 }, 0));
+
+		assertNull(cache.page(OwnerType.FEED, 0, null, 5, 0));
+		assertNull(cache.page(OwnerType.PERSON, 7, null, 5, 0));
+
+		// owners the message does not belong to are seeded
+		assertTrue(cache.seed(OwnerType.COMMUNITY, 4, readVersion, Collections.<FeedItem> emptyList(), true));
+		assertTrue(cache.seedPerson(11, readVersion, Collections.<FeedItem> emptyList(), true, new int[] { 4 },
+				new int[] { 12 }, 0));
+
+		// a page read after the append is seeded
+		assertTrue(cache.seedPerson(7, cache.getVersion(), Collections.<FeedItem> emptyList(), true, new int[0],
+				new int[0], 0));
+
+		// appends that are no longer remembered might have belonged to anyone
+		for (int i = 0; i < TimelineCache.RECENT_APPENDS; ++i) {
+			cache.append(message, new int[0]);
+		}
+
+		assertFalse(cache.seed(OwnerType.COMMUNITY, 5, readVersion, Collections.<FeedItem> emptyList(), true));
+	}
+}
@@ -0,0 +1,167 @@
+package at.fhj.swd13.pse.test.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import at.fhj.swd13.pse.cache.CountMinSketch;
+import at.fhj.swd13.pse.cache.TrendingTags;
+import at.fhj.swd13.pse.cache.TrendingTags.Window;
+import at.fhj.swd13.pse.dto.TagCount;
+
+public class TrendingTagsTest {
+
+	private static final long START = 1000L * 3600 * 24 * 365 * 40;
+
+	@Test
+	public void sketchNeverUnderestimates() {
+
+		final CountMinSketch sketch = new CountMinSketch(256, 4);
+		final int[] counts = new int[5000];
+		final Random random = new Random(42);
+
+		for (int i = 0; i < 50000; ++i) {
+
+			final int key = random.nextInt(counts.length);
+
+			sketch.add(key, 1);
+			++counts[key];
+		}
+
+		int exact = 0;
+
+		for (int key = 0; key < counts.length; ++key) {
+
+			final int estimate = sketch.estimate(key);
+
+			assertTrue(estimate >= counts[key]);
+
+			if (estimate == counts[key]) {
+				++exact;
+			}
+		}
+
+		assertEquals(50000, sketch.getTotal());
+		assertTrue(exact > 0);
+	}
+
+	@Test
+	public void sketchSubtract() {
+
+		final CountMinSketch window = new CountMinSketch(64, 2);
+		final CountMinSketch bucket = new CountMinSketch(64, 2);
+
+		window.add(7, 3);
+		window.add(8, 2);
+		bucket.add(7, 3);
+
+		window.subtract(bucket);
+
+		assertEquals(0, window.estimate(7));
+		assertEquals(2, window.estimate(8));
+		assertEquals(2, window.getTotal());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void sketchWidthPowerOfTwo() {
+		new CountMinSketch(100, 4);
+	}
+
+	@Test
+	public void emptyBeforePublish() {
+
+		final TrendingTags trending = new TrendingTags();
+
+		trending.record(1, "java", START);
+
+		assertEquals(0, trending.getTop(Window.HOUR, 10).length);
+	}
+
+	@Test
+	public void topTagsMostUsedFirst() {
+
+		final TrendingTags trending = new TrendingTags();
+
+		for (int i = 0; i < 5; ++i) {
+			trending.record(1, "java", START);
+		}
+
+		for (int i = 0; i < 3; ++i) {
+			trending.record(2, "jpa", START);
+		}
+
+		trending.record(3, "cdi", START);
+		trending.publish(START);
+
+		final TagCount[] top = trending.getTop(Window.MINUTE, 2);
+
+		assertEquals(2, top.length);
+		assertEquals("java", top[0].getToken());
+		assertEquals(5, top[0].getCount());
+		assertEquals("jpa", top[1].getToken());
+		assertEquals(3, top[1].getCount());
+
+		assertEquals(3, trending.getTop(Window.DAY, 10).length);
+	}
+
+	@Test
+	public void oldUsesFallOutOfTheWindow() {
+
+		final TrendingTags trending = new TrendingTags();
+
+		trending.record(1, "java", START);
+		trending.record(1, "java", START + 30000);
+		trending.record(2, "jpa", START + 90000);
+		trending.publish(START + 90000);
+
+		// the minute only holds the last use, the hour all of them
+		final TagCount[] minute = trending.getTop(Window.MINUTE, 10);
+
+		assertEquals(1, minute.length);
+		assertEquals("jpa", minute[0].getToken());
+
+		final TagCount[] hour = trending.getTop(Window.HOUR, 10);
+
+		assertEquals(2, hour.length);
+		assertEquals("java", hour[0].getToken());
+		assertEquals(2, hour[0].getCount());
+
+		trending.publish(START + 3 * 3600000L);
+
+		assertEquals(0, trending.getTop(Window.HOUR, 10).length);
+		assertEquals(2, trending.getTop(Window.DAY, 10).length);
+	}
+
+	@Test
+	public void heavyHittersFoundInLongTail() {
+
+		final TrendingTags trending = new TrendingTags();
+		final Random random = new Random(7);
+
+		// 20000 tags used once or twice, 10 tags used often in between
+		for (int i = 0; i < 40000; ++i) {
+
+			trending.record(1000 + random.nextInt(20000), "tail", START);
+
+			if (i % 100 == 0) {
+				for (int hot = 1; hot <= 10; ++hot) {
+					trending.record(hot, "hot" + hot, START);
+				}
+			}
+		}
+
+		trending.publish(START);
+
+		final TagCount[] top = trending.getTop(Window.MINUTE, 10);
+
+		assertEquals(10, top.length);
+
+		for (TagCount count : top) {
+			assertTrue(count.toString(), count.getTagId() <= 10);
+			assertTrue(count.getCount() >= 400);
+		}
+	}
+}
@@ -1,7 +1,9 @@
 package at.fhj.swd13.pse.test.db;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -11,6 +13,7 @@ import at.fhj.swd13.pse.db.DbContextProvider;
 import at.fhj.swd13.pse.db.DbContextProviderImpl;
 import at.fhj.swd13.pse.db.dao.CommunityDAO;
 import at.fhj.swd13.pse.db.entity.Community;
+import at.fhj.swd13.pse.db.entity.Person;
 import at.fhj.swd13.pse.db.entity.ParameterException;
 
 public class DbCommunityTest {
@@ -82,6 +85,44 @@ public class DbCommunityTest {
 		}
 	}
 	
+	@Test
+	public void isMember() throws Exception {
+
+		int communityId;
+		int personId;
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			Person creator = dbContext.getPersonDAO().getById(1);
+
+			Community c = new Community("Test-IsMember");
+			c.setCreatedBy(creator);
+
+			dbContext.getCommunityDAO().insert(c);
+			dbContext.persist(c.addMember(creator, true));
+
+			assertTrue(c.isMember(creator));
+			assertNull(c.addMember(creator, false));
+
+			dbContext.commit();
+
+			communityId = c.getCommunityId();
+			personId = creator.getPersonId();
+		}
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			dbContext.clearCache();
+
+			assertTrue(dbContext.getCommunityDAO().isMember(communityId, personId));
+			assertFalse(dbContext.getCommunityDAO().isMember(communityId, personId + 1000000));
+
+			dbContext.getCommunityDAO().remove(communityId);
+
+			dbContext.commit();
+		}
+	}
+
 	@Test(expected=ParameterException.class)
 	public void removeIdUnpersisted() throws Exception {
 		
@@ -1,5 +1,10 @@
 package at.fhj.swd13.pse.test.db;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -35,4 +40,63 @@ public class DbContextTest {
 			dbContext.rollback();
 		}
 	}
+
+	@Test
+	public void afterCommitRunsOnCommit() throws Exception {
+
+		final List<String> ran = new ArrayList<String>();
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			dbContext.afterCommit(record(ran, "first"));
+			dbContext.afterCommit(record(ran, "second"));
+
+			assertEquals(0, ran.size());
+
+			dbContext.commit();
+		}
+
+		assertEquals(2, ran.size());
+		assertEquals("first", ran.get(0));
+		assertEquals("second", ran.get(1));
+	}
+
+	@Test
+	public void afterCommitDroppedOnRollback() throws Exception {
+
+		final List<String> ran = new ArrayList<String>();
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			dbContext.afterCommit(record(ran, "rolled back"));
+			dbContext.rollback();
+		}
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+			dbContext.afterCommit(record(ran, "closed"));
+		}
+
+		assertEquals(0, ran.size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void afterCommitOnClosedTx() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			dbContext.commit();
+			dbContext.afterCommit(record(new ArrayList<String>(), "late"));
+		}
+	}
+
+	private static Runnable record(final List<String> ran, final String name) {
+
+		return new Runnable() {
+
+			@Override
+			public void run() {
+				ran.add(name);
+			}
+		};
+	}
 }
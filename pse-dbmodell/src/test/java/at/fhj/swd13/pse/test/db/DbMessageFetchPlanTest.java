@@ -0,0 +1,248 @@
+package at.fhj.swd13.pse.test.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import at.fhj.swd13.pse.db.DbContext;
+import at.fhj.swd13.pse.db.DbContextProvider;
+import at.fhj.swd13.pse.db.DbContextProviderImpl;
+import at.fhj.swd13.pse.db.entity.Community;
+import at.fhj.swd13.pse.db.entity.DeliverySystem;
+import at.fhj.swd13.pse.db.entity.Message;
+import at.fhj.swd13.pse.db.entity.MessageTag;
+import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.db.entity.Tag;
+import at.fhj.swd13.pse.repository.FeedCursor;
+import at.fhj.swd13.pse.repository.MessageFetchPlan;
+import at.fhj.swd13.pse.repository.MessageRepository;
+import at.fhj.swd13.pse.repository.MessageRepositoryImpl;
+
+public class DbMessageFetchPlanTest {
+
+	private static final int PAGE_SIZE = 25;
+
+	private static final int NUMBER_OF_MESSAGES = 2 * PAGE_SIZE + 1;
+	private static final int NUMBER_OF_AUTHORS = 5;
+	private static final int NUMBER_OF_COMMUNITIES = 3;
+	private static final int NUMBER_OF_TIES = 7;
+
+	private static final String PREFIX = "FETCHPLAN_";
+
+	private static DbContextProvider contextProvider;
+
+	/**
+	 * ids of the messages sharing one created_on, ascending
+	 */
+	private static final int[] tiedMessageIds = new int[NUMBER_OF_TIES];
+
+	private static Date tiedCreatedOn;
+
+	@BeforeClass
+	public static void setup() throws Exception {
+
+		contextProvider = new DbContextProviderImpl();
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			final Person[] authors = new Person[NUMBER_OF_AUTHORS];
+
+			for (int i = 0; i < authors.length; ++i) {
+				authors[i] = new Person(PREFIX + i, "Author " + i, "Fetch", "12345678");
+				dbContext.getPersonDAO().insert(authors[i]);
+			}
+
+			final Community[] communities = new Community[NUMBER_OF_COMMUNITIES];
+
+			for (int i = 0; i < communities.length; ++i) {
+				communities[i] = new Community(PREFIX + i);
+				communities[i].setCreatedBy(authors[0]);
+				dbContext.getCommunityDAO().insert(communities[i]);
+			}
+
+			final Tag tag = new Tag();
+			tag.setToken(PREFIX + "TAG");
+			dbContext.getTagDAO().insert(tag);
+
+			final DeliverySystem deliverySystem = dbContext.getEntityManager().find(DeliverySystem.class, 1);
+
+			// in the future, so the fixture is the newest page of the feed
+			final long createdOn = System.currentTimeMillis() + 24L * 3600 * 1000;
+
+			for (int i = 0; i < NUMBER_OF_MESSAGES; ++i) {
+
+				final Message message = new Message();
+				message.setHeadline(PREFIX);
+				message.setMessage("message " + i);
+				message.setPerson(authors[i % authors.length]);
+				message.setCommunity(i % 4 == 0 ? null : communities[i % communities.length]);
+				message.setDeliverySystem(deliverySystem);
+				message.setCreatedAt(new Date());
+				message.setCreatedOn(new Date(createdOn + i * 1000L));
+				message.setValidFrom(message.getCreatedOn());
+
+				dbContext.persist(message);
+
+				final MessageTag messageTag = new MessageTag();
+				messageTag.setMessage(message);
+				messageTag.setTag(tag);
+				messageTag.setCreatedAt(new Date());
+
+				dbContext.persist(messageTag);
+			}
+
+			// an hour older than the fixture and on a full second, created_on has no fraction
+			tiedCreatedOn = new Date((createdOn / 1000 - 3600) * 1000);
+
+			final Message[] tied = new Message[NUMBER_OF_TIES];
+
+			for (int i = 0; i < tied.length; ++i) {
+
+				tied[i] = new Message();
+				tied[i].setHeadline(PREFIX);
+				tied[i].setMessage("tied message " + i);
+				tied[i].setPerson(authors[i % authors.length]);
+				tied[i].setDeliverySystem(deliverySystem);
+				tied[i].setCreatedAt(new Date());
+				tied[i].setCreatedOn(tiedCreatedOn);
+				tied[i].setValidFrom(tiedCreatedOn);
+
+				dbContext.persist(tied[i]);
+			}
+
+			dbContext.commit();
+
+			for (int i = 0; i < tied.length; ++i) {
+				tiedMessageIds[i] = tied[i].getMessageId();
+			}
+		}
+	}
+
+	@AfterClass
+	public static void teardown() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			// message_tag rows are deleted by the foreign key
+			dbContext.getEntityManager().createNativeQuery("DELETE FROM message WHERE headline = ?1")
+					.setParameter(1, PREFIX).executeUpdate();
+			dbContext.getEntityManager().createNativeQuery("DELETE FROM tag WHERE token LIKE ?1")
+					.setParameter(1, PREFIX + "%").executeUpdate();
+			dbContext.getEntityManager().createNativeQuery("DELETE FROM community WHERE name LIKE ?1")
+					.setParameter(1, PREFIX + "%").executeUpdate();
+			dbContext.getEntityManager().createNativeQuery("DELETE FROM person WHERE user_name LIKE ?1")
+					.setParameter(1, PREFIX + "%").executeUpdate();
+
+			dbContext.commit();
+		}
+	}
+
+	@Test
+	public void feedPageHasConstantQueryCount() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			dbContext.clearCache();
+
+			MessageRepository repository = new MessageRepositoryImpl(dbContext.getEntityManager());
+
+			SqlStatementCounter.reset();
+
+			List<Message> messages = repository.loadMessagePage(null, null, PAGE_SIZE, MessageFetchPlan.FEED);
+
+			assertEquals(PAGE_SIZE, messages.size());
+
+			for (Message m : messages) {
+
+				assertEquals(PREFIX, m.getHeadline());
+				assertNotNull(m.getPerson().getLastName());
+				assertNotNull(m.getDeliverySystem().getName());
+
+				if (m.getCommunity() != null) {
+					assertNotNull(m.getCommunity().getName());
+				}
+			}
+
+			final int maxQueries = 1 + MessageFetchPlan.FEED.getAttributes().length;
+
+			assertTrue("executed " + SqlStatementCounter.get() + " statements for " + messages.size() + " messages",
+					SqlStatementCounter.get() <= maxQueries);
+		}
+	}
+
+	@Test
+	public void secondPageSameQueryCount() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			MessageRepository repository = new MessageRepositoryImpl(dbContext.getEntityManager());
+
+			List<Message> first = repository.loadMessagePage(null, null, 2, MessageFetchPlan.ADMIN);
+
+			assertEquals(2, first.size());
+
+			dbContext.clearCache();
+			SqlStatementCounter.reset();
+
+			List<Message> second = repository.loadMessagePage(null, FeedCursor.of(first.get(0)), PAGE_SIZE,
+					MessageFetchPlan.ADMIN);
+
+			assertEquals(PAGE_SIZE, second.size());
+			assertEquals(first.get(1).getMessageId(), second.get(0).getMessageId());
+
+			for (Message m : second) {
+
+				assertEquals(PREFIX, m.getHeadline());
+				assertNotNull(m.getPerson().getLastName());
+				assertNotNull(m.getDeliverySystem().getName());
+			}
+
+			assertTrue("executed " + SqlStatementCounter.get() + " statements for " + second.size() + " messages",
+					SqlStatementCounter.get() <= 1 + MessageFetchPlan.ADMIN.getAttributes().length);
+		}
+	}
+
+	@Test
+	public void pagesOverTiedCreatedOn() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			MessageRepository repository = new MessageRepositoryImpl(dbContext.getEntityManager());
+
+			// right before the tied messages, pages of 3 split them twice
+			FeedCursor after = new FeedCursor(new Date(tiedCreatedOn.getTime() + 1000), 0);
+
+			List<Integer> seen = new ArrayList<Integer>();
+
+			while (seen.size() < NUMBER_OF_TIES) {
+
+				List<Message> page = repository.loadMessagePage(null, FeedCursor.parse(after.toToken()), 3,
+						MessageFetchPlan.FEED);
+
+				assertFalse("tied messages missing", page.isEmpty());
+
+				for (Message m : page) {
+
+					assertFalse("message " + m.getMessageId() + " delivered twice", seen.contains(m.getMessageId()));
+					seen.add(m.getMessageId());
+				}
+
+				after = FeedCursor.of(page.get(page.size() - 1));
+			}
+
+			// newest first, so by descending id, without gaps
+			for (int i = 0; i < NUMBER_OF_TIES; ++i) {
+				assertEquals(tiedMessageIds[NUMBER_OF_TIES - 1 - i], (int) seen.get(i));
+			}
+		}
+	}
+}
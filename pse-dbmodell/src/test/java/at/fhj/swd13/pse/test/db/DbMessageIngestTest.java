@@ -0,0 +1,129 @@
+package at.fhj.swd13.pse.test.db;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import at.fhj.swd13.pse.db.DbContext;
+import at.fhj.swd13.pse.db.DbContextProvider;
+import at.fhj.swd13.pse.db.DbContextProviderImpl;
+import at.fhj.swd13.pse.db.EntityNotFoundException;
+import at.fhj.swd13.pse.dto.IngestMessage;
+import at.fhj.swd13.pse.ingest.IngestListener;
+import at.fhj.swd13.pse.ingest.IngestResult;
+import at.fhj.swd13.pse.ingest.MessageIngester;
+
+public class DbMessageIngestTest {
+
+	private static final int NUMBER_OF_MESSAGES = 5000;
+	private static final String HEADLINE = "INGEST_TEST";
+	private static final String TAG_PREFIX = "INGEST_TAG_";
+
+	private static DbContextProvider contextProvider;
+
+	@BeforeClass
+	public static void setup() {
+
+		contextProvider = new DbContextProviderImpl();
+	}
+
+	@After
+	public void teardown() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			// message_tag rows are deleted by the foreign key
+			dbContext.getEntityManager().createNativeQuery("DELETE FROM message WHERE headline = ?1")
+					.setParameter(1, HEADLINE).executeUpdate();
+			dbContext.getEntityManager().createNativeQuery("DELETE FROM tag WHERE token LIKE ?1")
+					.setParameter(1, TAG_PREFIX + "%").executeUpdate();
+
+			dbContext.commit();
+		}
+	}
+
+	@Test
+	public void ingestInChunks() throws Exception {
+
+		List<IngestMessage> messages = new ArrayList<IngestMessage>(NUMBER_OF_MESSAGES + 1);
+
+		for (int i = 0; i < NUMBER_OF_MESSAGES; ++i) {
+			messages.add(new IngestMessage("pse_system", i % 2 == 0 ? "Portal-News" : null, HEADLINE, "message " + i,
+					null, null, Arrays.asList(TAG_PREFIX + (i % 10), TAG_PREFIX + "ALL")));
+		}
+
+		messages.add(new IngestMessage("INGEST_NO_SUCH_USER", null, HEADLINE, "rejected", null, null, null));
+
+		final List<Integer> published = new ArrayList<Integer>();
+
+		IngestResult result = new MessageIngester(contextProvider, 1000, null, new IngestListener() {
+
+			@Override
+			public void chunkCommitted(final int[] messageIds) {
+
+				for (int messageId : messageIds) {
+					published.add(messageId);
+				}
+			}
+		}).ingest("sms", messages.iterator());
+
+		assertEquals(NUMBER_OF_MESSAGES, result.getMessages());
+		assertEquals(NUMBER_OF_MESSAGES, published.size());
+		assertEquals(2 * NUMBER_OF_MESSAGES, result.getMessageTags());
+		assertEquals(1, result.getRejected());
+		assertEquals(6, result.getChunks());
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			Number count = (Number) dbContext.getEntityManager()
+					.createNativeQuery("SELECT COUNT(*) FROM message_tag mt JOIN tag t ON t.tag_id = mt.tag_id WHERE t.token = ?1")
+					.setParameter(1, TAG_PREFIX + "ALL").getSingleResult();
+
+			assertEquals(NUMBER_OF_MESSAGES, count.intValue());
+		}
+	}
+
+	@Test
+	public void namesDifferingInCase() throws Exception {
+
+		// the tag exists in lower case
+		new MessageIngester(contextProvider).ingest("sms", Arrays.asList(new IngestMessage("pse_system", null,
+				HEADLINE, "lower", null, null, Arrays.asList(TAG_PREFIX + "mixed"))).iterator());
+
+		List<IngestMessage> messages = Arrays.asList(
+				new IngestMessage("pse_system", "portal-news", HEADLINE, "upper", null, null, Arrays.asList(TAG_PREFIX
+						+ "MIXED")),
+				new IngestMessage("pse_system", "PORTAL-NEWS", HEADLINE, "both", null, null, Arrays.asList(TAG_PREFIX
+						+ "Mixed", TAG_PREFIX + "mixed")));
+
+		IngestResult result = new MessageIngester(contextProvider).ingest("sms", messages.iterator());
+
+		assertEquals(2, result.getMessages());
+		assertEquals(0, result.getRejected());
+		assertEquals(2, result.getMessageTags());
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			Number tags = (Number) dbContext.getEntityManager()
+					.createNativeQuery("SELECT COUNT(*) FROM tag WHERE token LIKE ?1")
+					.setParameter(1, TAG_PREFIX + "%").getSingleResult();
+
+			assertEquals(1, tags.intValue());
+		}
+	}
+
+	@Test(expected = EntityNotFoundException.class)
+	public void unknownDeliverySystem() throws Exception {
+
+		List<IngestMessage> messages = Arrays.asList(new IngestMessage("pse_system", null, HEADLINE, "x", null, null,
+				null));
+
+		new MessageIngester(contextProvider).ingest("INGEST_NONE", messages.iterator());
+	}
+}
@@ -0,0 +1,88 @@
+package at.fhj.swd13.pse.test.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import at.fhj.swd13.pse.db.DbContext;
+import at.fhj.swd13.pse.db.DbContextProvider;
+import at.fhj.swd13.pse.db.DbContextProviderImpl;
+import at.fhj.swd13.pse.db.dao.PersonFetchGroup;
+import at.fhj.swd13.pse.db.entity.CommunityMember;
+import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.db.entity.PersonRelation;
+
+public class DbPersonFetchGroupTest {
+
+	private static final String USER_NAME = "pse_system";
+
+	private static DbContextProvider contextProvider;
+
+	@BeforeClass
+	public static void setup() {
+
+		contextProvider = new DbContextProviderImpl();
+	}
+
+	@Test
+	public void basicLoadsPersonOnly() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			dbContext.clearCache();
+			SqlStatementCounter.reset();
+
+			Person person = dbContext.getPersonDAO().getByUsername(USER_NAME, PersonFetchGroup.BASIC);
+
+			assertNotNull(person);
+			assertNotNull(person.getLastName());
+			assertEquals(1, SqlStatementCounter.get());
+		}
+	}
+
+	@Test
+	public void socialNeedsNoFurtherQueries() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			dbContext.clearCache();
+
+			Person person = dbContext.getPersonDAO().getByUsername(USER_NAME, PersonFetchGroup.SOCIAL);
+
+			assertNotNull(person);
+
+			SqlStatementCounter.reset();
+
+			for (PersonRelation relation : person.getPersonSourceRelations()) {
+				relation.getTargetPerson().getLastName();
+			}
+
+			for (PersonRelation relation : person.getPersonTargetRelations()) {
+				relation.getSourcePerson().getLastName();
+			}
+
+			for (CommunityMember membership : person.getMemberships()) {
+				membership.getCommunity().getName();
+			}
+
+			assertEquals(0, SqlStatementCounter.get());
+		}
+	}
+
+	@Test
+	public void fetchGroupByIdSamePerson() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			Person person = dbContext.getPersonDAO().getByUsername(USER_NAME);
+
+			dbContext.clearCache();
+
+			Person profile = dbContext.getPersonDAO().getById(person.getPersonId(), PersonFetchGroup.PROFILE);
+
+			assertEquals(USER_NAME, profile.getUserName());
+		}
+	}
+}
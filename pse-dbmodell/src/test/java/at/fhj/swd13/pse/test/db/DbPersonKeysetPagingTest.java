@@ -0,0 +1,164 @@
+package at.fhj.swd13.pse.test.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import at.fhj.swd13.pse.db.DbContext;
+import at.fhj.swd13.pse.db.DbContextProvider;
+import at.fhj.swd13.pse.db.DbContextProviderImpl;
+import at.fhj.swd13.pse.db.dao.PersonCursor;
+import at.fhj.swd13.pse.db.dao.PersonDAO;
+import at.fhj.swd13.pse.db.entity.Person;
+
+public class DbPersonKeysetPagingTest {
+
+	private static final int NUMBER_OF_USERS = 20000;
+	private static final int PAGE_SIZE = 50;
+	private static final String USER_NAME_PREFIX = "KEYSET_USER_";
+	private static final String LAST_NAME_PREFIX = "KEYSET_";
+
+	private static DbContextProvider contextProvider;
+
+	@BeforeClass
+	public static void setup() throws Exception {
+
+		contextProvider = new DbContextProviderImpl();
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			Connection connection = dbContext.getConnection();
+
+			try (PreparedStatement insert = connection
+					.prepareStatement("INSERT INTO person (user_name, last_name, first_name, hashed_password) VALUES (?, ?, ?, '--')")) {
+
+				for (int i = 0; i < NUMBER_OF_USERS; ++i) {
+
+					// two persons per last name, every third without first name
+					insert.setString(1, USER_NAME_PREFIX + String.format("%05d", i));
+					insert.setString(2, LAST_NAME_PREFIX + String.format("%05d", i / 2));
+					insert.setString(3, i % 3 == 0 ? null : "Gustav");
+					insert.addBatch();
+				}
+
+				insert.executeBatch();
+			}
+
+			dbContext.commit();
+		}
+	}
+
+	@AfterClass
+	public static void teardown() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			dbContext.getEntityManager().createNativeQuery("DELETE FROM person WHERE user_name LIKE ?1")
+					.setParameter(1, USER_NAME_PREFIX + "%").executeUpdate();
+
+			dbContext.commit();
+		}
+	}
+
+	@Test
+	public void walkAllPages() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			PersonDAO personDao = dbContext.getPersonDAO();
+
+			Set<Integer> seen = new HashSet<Integer>();
+			int testUsers = 0;
+			Person previous = null;
+			PersonCursor cursor = null;
+
+			List<Person> page;
+
+			do {
+				page = personDao.getPersonsAfter(cursor, PAGE_SIZE);
+
+				for (Person person : page) {
+
+					assertTrue("delivered twice: " + person.getUserName(), seen.add(person.getPersonId()));
+
+					// other persons may be ordered by the collation of the database
+					if (person.getUserName().startsWith(USER_NAME_PREFIX)) {
+
+						if (previous != null) {
+							assertTrue(previous.getUserName() + " before " + person.getUserName(),
+									compare(previous, person) < 0);
+						}
+
+						++testUsers;
+						previous = person;
+					}
+				}
+
+				if (!page.isEmpty()) {
+					cursor = PersonCursor.of(page.get(page.size() - 1));
+				}
+
+				dbContext.clearCache();
+
+			} while (page.size() == PAGE_SIZE);
+
+			assertEquals(NUMBER_OF_USERS, testUsers);
+		}
+	}
+
+	@Test
+	public void deepPageMatchesOffsetPage() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			PersonDAO personDao = dbContext.getPersonDAO();
+
+			Person deep = personDao.getByUsername(USER_NAME_PREFIX + String.format("%05d", NUMBER_OF_USERS - 2 * PAGE_SIZE));
+
+			Number before = (Number) dbContext.getEntityManager()
+					.createNativeQuery("SELECT COUNT(*) FROM person WHERE last_name < ?1")
+					.setParameter(1, deep.getLastName()).getSingleResult();
+
+			// the deep person is one of the two persons with its last name
+			List<Person> offsetPage = personDao.getAllPersons(before.intValue(), PAGE_SIZE + 2);
+			int deepIndex = offsetPage.get(0).getPersonId() == deep.getPersonId() ? 0 : 1;
+
+			assertEquals(deep.getPersonId(), offsetPage.get(deepIndex).getPersonId());
+
+			List<Person> keysetPage = personDao.getPersonsAfter(PersonCursor.of(deep), PAGE_SIZE);
+
+			assertEquals(PAGE_SIZE, keysetPage.size());
+
+			for (int i = 0; i < PAGE_SIZE; ++i) {
+				assertEquals(offsetPage.get(deepIndex + 1 + i).getPersonId(), keysetPage.get(i).getPersonId());
+			}
+		}
+	}
+
+	/**
+	 * order of the directory: last name, first name (null first), id
+	 */
+	private static int compare(final Person a, final Person b) {
+
+		int result = a.getLastName().compareTo(b.getLastName());
+
+		if (result == 0) {
+			if (a.getFirstName() == null || b.getFirstName() == null) {
+				result = (a.getFirstName() == null ? 0 : 1) - (b.getFirstName() == null ? 0 : 1);
+			} else {
+				result = a.getFirstName().compareTo(b.getFirstName());
+			}
+		}
+
+		return result != 0 ? result : Integer.compare(a.getPersonId(), b.getPersonId());
+	}
+}
@@ -0,0 +1,240 @@
+package at.fhj.swd13.pse.test.db;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import at.fhj.swd13.pse.db.DbContext;
+import at.fhj.swd13.pse.db.DbContextProvider;
+import at.fhj.swd13.pse.db.DbContextProviderImpl;
+import at.fhj.swd13.pse.db.entity.Community;
+import at.fhj.swd13.pse.db.entity.CommunityMember;
+import at.fhj.swd13.pse.db.entity.DeliverySystem;
+import at.fhj.swd13.pse.db.entity.Message;
+import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.dto.FeedItem;
+import at.fhj.swd13.pse.repository.FeedCursor;
+import at.fhj.swd13.pse.repository.TimelineRepository;
+import at.fhj.swd13.pse.repository.TimelineRepositoryImpl;
+
+public class DbTimelineRepositoryTest {
+
+	/**
+	 * sources with more than two recipients are fanned out on read
+	 */
+	private static final int FAN_OUT_LIMIT = 2;
+
+	private static final String PREFIX = "TIMELINE_";
+
+	private static DbContextProvider contextProvider;
+
+	private static Person author;
+	private static Person member1;
+	private static Person member2;
+	private static Community community;
+
+	private static Person star;
+	private static Person fan1;
+
+	private static Person riser;
+	private static Person follower1;
+	private static Person follower2;
+	private static Person follower3;
+
+	private static long createdOn;
+
+	@BeforeClass
+	public static void setup() throws Exception {
+
+		contextProvider = new DbContextProviderImpl();
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			author = insertPerson(dbContext, "author");
+			member1 = insertPerson(dbContext, "member1");
+			member2 = insertPerson(dbContext, "member2");
+
+			community = new Community(PREFIX + "community");
+			community.setCreatedBy(author);
+			dbContext.getCommunityDAO().insert(community);
+
+			dbContext.persist(new CommunityMember(community, member1));
+			dbContext.persist(new CommunityMember(community, member2));
+
+			// three fans, above the limit
+			star = insertPerson(dbContext, "star");
+			fan1 = insertPerson(dbContext, "fan1");
+
+			dbContext.getPersonDAO().createRelation(fan1, star);
+			dbContext.getPersonDAO().createRelation(insertPerson(dbContext, "fan2"), star);
+			dbContext.getPersonDAO().createRelation(insertPerson(dbContext, "fan3"), star);
+
+			// two followers, the third one is added by the test
+			riser = insertPerson(dbContext, "riser");
+			follower1 = insertPerson(dbContext, "follower1");
+			follower2 = insertPerson(dbContext, "follower2");
+			follower3 = insertPerson(dbContext, "follower3");
+
+			dbContext.getPersonDAO().createRelation(follower1, riser);
+			dbContext.getPersonDAO().createRelation(follower2, riser);
+
+			dbContext.commit();
+		}
+
+		// in the future, so the fixture is the newest part of every timeline
+		createdOn = System.currentTimeMillis() + 24L * 3600 * 1000;
+	}
+
+	@AfterClass
+	public static void teardown() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			// timeline entries and memberships are deleted by the foreign keys
+			dbContext.getEntityManager().createNativeQuery(
+					"DELETE r FROM person_relation r JOIN person p ON p.person_id = r.target_person_id WHERE p.user_name LIKE ?1")
+					.setParameter(1, PREFIX + "%").executeUpdate();
+			dbContext.getEntityManager().createNativeQuery("DELETE FROM message WHERE headline = ?1")
+					.setParameter(1, PREFIX).executeUpdate();
+			dbContext.getEntityManager().createNativeQuery("DELETE FROM community WHERE name LIKE ?1")
+					.setParameter(1, PREFIX + "%").executeUpdate();
+			dbContext.getEntityManager().createNativeQuery("DELETE FROM person WHERE user_name LIKE ?1")
+					.setParameter(1, PREFIX + "%").executeUpdate();
+
+			dbContext.commit();
+		}
+	}
+
+	@Test
+	public void communityPostWrittenToMembers() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			TimelineRepository repository = new TimelineRepositoryImpl(dbContext.getEntityManager(), FAN_OUT_LIMIT);
+
+			Message message = post(dbContext, author, community);
+
+			int[] expected = { author.getPersonId(), member1.getPersonId(), member2.getPersonId() };
+			Arrays.sort(expected);
+
+			assertArrayEquals(expected, repository.fanOut(message));
+			assertEquals(0, repository.getReadSourcesVersion());
+
+			assertArrayEquals(new int[] { message.getMessageId() },
+					messageIds(repository.loadTimelinePage(member1.getPersonId(), null, 10)));
+			assertArrayEquals(new int[] { message.getMessageId() },
+					messageIds(repository.loadTimelinePage(member2.getPersonId(), null, 10)));
+			assertArrayEquals(new int[0], messageIds(repository.loadTimelinePage(fan1.getPersonId(), null, 10)));
+
+			dbContext.commit();
+		}
+	}
+
+	@Test
+	public void authorAboveLimitReadOnDemand() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			TimelineRepository repository = new TimelineRepositoryImpl(dbContext.getEntityManager(), FAN_OUT_LIMIT);
+
+			Message message = post(dbContext, star, null);
+
+			// only the author gets an entry
+			assertArrayEquals(new int[] { star.getPersonId() }, repository.fanOut(message));
+			assertEquals(1, repository.getReadSourcesVersion());
+			assertArrayEquals(new int[] { star.getPersonId() }, repository.loadReadAuthorIds(fan1.getPersonId()));
+
+			assertArrayEquals(new int[] { message.getMessageId() },
+					messageIds(repository.loadTimelinePage(fan1.getPersonId(), null, 10)));
+
+			dbContext.commit();
+		}
+	}
+
+	@Test
+	public void noDuplicateAfterSwitchToRead() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			TimelineRepository repository = new TimelineRepositoryImpl(dbContext.getEntityManager(), FAN_OUT_LIMIT);
+
+			Message written = post(dbContext, riser, null);
+
+			assertEquals(3, repository.fanOut(written).length);
+
+			// the third follower moves the author above the limit
+			dbContext.getPersonDAO().createRelation(follower3, riser);
+
+			Message read = post(dbContext, riser, null);
+
+			assertArrayEquals(new int[] { riser.getPersonId() }, repository.fanOut(read));
+			assertEquals(1, repository.getReadSourcesVersion());
+
+			// the written message is also found through the read source
+			List<FeedItem> first = repository.loadTimelinePage(follower1.getPersonId(), null, 10);
+
+			assertArrayEquals(new int[] { read.getMessageId(), written.getMessageId() }, messageIds(first));
+
+			assertArrayEquals(new int[] { written.getMessageId() },
+					messageIds(repository.loadTimelinePage(follower1.getPersonId(), FeedCursor.of(first.get(0)), 10)));
+
+			// the new follower reads both messages of the author, cut at the page size
+			assertArrayEquals(new int[] { read.getMessageId(), written.getMessageId() },
+					messageIds(repository.loadTimelinePage(follower3.getPersonId(), null, 10)));
+			assertArrayEquals(new int[] { read.getMessageId() },
+					messageIds(repository.loadTimelinePage(follower3.getPersonId(), null, 1)));
+
+			dbContext.commit();
+		}
+	}
+
+	private static Person insertPerson(final DbContext dbContext, final String name) {
+
+		final Person person = new Person(PREFIX + name, name, "Timeline", "12345678");
+		dbContext.getPersonDAO().insert(person);
+
+		return person;
+	}
+
+	/**
+	 * Persist a message one second after the previous one and flush it to get
+	 * its id
+	 */
+	private static Message post(final DbContext dbContext, final Person person, final Community community) {
+
+		final Message message = new Message();
+		message.setHeadline(PREFIX);
+		message.setMessage("message by " + person.getUserName());
+		message.setPerson(person);
+		message.setCommunity(community);
+		message.setDeliverySystem(dbContext.getEntityManager().find(DeliverySystem.class, 1));
+		message.setCreatedAt(new Date());
+		message.setCreatedOn(new Date(createdOn));
+		message.setValidFrom(message.getCreatedOn());
+
+		createdOn += 1000;
+
+		dbContext.persist(message);
+		dbContext.getEntityManager().flush();
+
+		return message;
+	}
+
+	private static int[] messageIds(final List<FeedItem> items) {
+
+		final int[] ids = new int[items.size()];
+
+		for (int i = 0; i < ids.length; ++i) {
+			ids[i] = items.get(i).getMessageId();
+		}
+
+		return ids;
+	}
+}
@@ -0,0 +1,37 @@
+package at.fhj.swd13.pse.test.db;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.persistence.logging.DefaultSessionLog;
+import org.eclipse.persistence.logging.SessionLog;
+import org.eclipse.persistence.logging.SessionLogEntry;
+
+/**
+ * Counts the SQL statements executed by the test persistence unit. It is
+ * registered as logger in the test persistence.xml, which logs the sql
+ * category at level FINE and everything else at WARNING. Statements are
+ * counted but not printed
+ *
+ */
+public class SqlStatementCounter extends DefaultSessionLog {
+
+	private static final AtomicInteger count = new AtomicInteger();
+
+	@Override
+	public void log(SessionLogEntry entry) {
+
+		if (SessionLog.SQL.equals(entry.getNameSpace())) {
+			count.incrementAndGet();
+		} else {
+			super.log(entry);
+		}
+	}
+
+	public static void reset() {
+		count.set(0);
+	}
+
+	public static int get() {
+		return count.get();
+	}
+}
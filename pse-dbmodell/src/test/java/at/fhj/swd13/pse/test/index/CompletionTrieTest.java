@@ -0,0 +1,92 @@
+package at.fhj.swd13.pse.test.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.fhj.swd13.pse.index.Completion;
+import at.fhj.swd13.pse.index.CompletionTrie;
+
+public class CompletionTrieTest {
+
+	private CompletionTrie trie;
+
+	@Before
+	public void setup() {
+
+		trie = new CompletionTrie();
+
+		trie.put(1, "java", 50, "java");
+		trie.put(2, "javascript", 80, "javascript");
+		trie.put(3, "jakarta", 10, "jakarta");
+		trie.put(4, "Anna Maier (amaier)", 5, "amaier", "Anna", "Maier");
+		trie.put(5, "jpa", 50, "jpa");
+	}
+
+	@Test
+	public void topKByWeight() {
+
+		assertEquals(ids(2, 1, 3), ids(trie.complete("ja", 10)));
+		assertEquals(ids(2, 1), ids(trie.complete("JA", 2)));
+		assertEquals(ids(2, 1, 5, 3), ids(trie.complete("j", 10)));
+		assertTrue(trie.complete("x", 10).isEmpty());
+		assertTrue(trie.complete("", 10).isEmpty());
+	}
+
+	@Test
+	public void entryFoundByEveryKeyOnce() {
+
+		assertEquals(ids(4), ids(trie.complete("mai", 10)));
+		assertEquals(ids(4), ids(trie.complete("an", 10)));
+		assertEquals(ids(4), ids(trie.complete("a", 10)));
+		assertEquals("Anna Maier (amaier)", trie.complete("mai", 1).get(0).getLabel());
+	}
+
+	@Test
+	public void updateWeightAndRemove() {
+
+		trie.setWeight(3, 100);
+
+		assertEquals(ids(3, 2, 1), ids(trie.complete("ja", 10)));
+
+		trie.remove(2);
+		trie.remove(3);
+
+		assertEquals(ids(1), ids(trie.complete("ja", 10)));
+		assertTrue(trie.complete("javas", 10).isEmpty());
+		assertEquals(3, trie.size());
+
+		// renamed entries are only found by their new keys
+		trie.put(1, "kotlin", 50, "kotlin");
+
+		assertTrue(trie.complete("ja", 10).isEmpty());
+		assertEquals(ids(1), ids(trie.complete("kot", 10)));
+	}
+
+	private static List<Integer> ids(final int... ids) {
+
+		List<Integer> result = new ArrayList<Integer>();
+
+		for (int id : ids) {
+			result.add(id);
+		}
+
+		return result;
+	}
+
+	private static List<Integer> ids(final List<Completion> completions) {
+
+		List<Integer> result = new ArrayList<Integer>();
+
+		for (Completion completion : completions) {
+			result.add(completion.getId());
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,188 @@
+package at.fhj.swd13.pse.test.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import at.fhj.swd13.pse.index.ConnectionPath;
+import at.fhj.swd13.pse.index.ConnectionPathFinder;
+import at.fhj.swd13.pse.index.SocialGraph;
+import at.fhj.swd13.pse.test.Benchmark;
+
+public class ConnectionPathFinderTest {
+
+	private static final int NODES = 100000;
+
+	private static final int EDGES_PER_NODE = 5;
+
+	private static final int QUERIES = 2000;
+
+	private static final int MAX_LENGTH = 6;
+
+	private static final long TIMEOUT_MILLIS = 1000;
+
+	@Test
+	public void shortestPathInEitherDirection() {
+
+		SocialGraph graph = new SocialGraph();
+
+		// 1 -> 2 -> 3 -> 4 -> 5 and a shortcut 6 -> 1, 6 -> 4
+		graph.load(new int[] { 1, 2, 3, 4, 6, 6 }, new int[] { 2, 3, 4, 5, 1, 4 }, 6);
+
+		ConnectionPath path = new ConnectionPathFinder(graph).find(1, 5, MAX_LENGTH, TIMEOUT_MILLIS);
+
+		assertTrue(path.isFound());
+		assertArrayEquals(new int[] { 1, 6, 4, 5 }, path.getPersonIds());
+		assertEquals(3, path.getLength());
+
+		ConnectionPath back = new ConnectionPathFinder(graph).find(5, 2, MAX_LENGTH, TIMEOUT_MILLIS);
+
+		assertEquals(3, back.getLength());
+		assertEquals(5, back.getPersonIds()[0]);
+		assertEquals(2, back.getPersonIds()[3]);
+	}
+
+	@Test
+	public void lengthLimit() {
+
+		SocialGraph graph = new SocialGraph();
+
+		graph.load(new int[] { 1, 2, 3 }, new int[] { 2, 3, 4 }, 3);
+
+		ConnectionPathFinder finder = new ConnectionPathFinder(graph);
+
+		assertFalse(finder.find(1, 4, 2, TIMEOUT_MILLIS).isFound());
+		assertTrue(finder.find(1, 4, 3, TIMEOUT_MILLIS).isFound());
+		assertFalse(finder.find(1, 9, MAX_LENGTH, TIMEOUT_MILLIS).isFound());
+		assertFalse(finder.find(1, 9, MAX_LENGTH, TIMEOUT_MILLIS).isTimedOut());
+		assertArrayEquals(new int[] { 3 }, finder.find(3, 3, 0, TIMEOUT_MILLIS).getPersonIds());
+	}
+
+	@Test
+	public void sameLengthAsSingleSidedSearch() {
+
+		Random random = new Random(3);
+		SocialGraph graph = randomGraph(random, 2000, 2);
+		ConnectionPathFinder finder = new ConnectionPathFinder(graph);
+
+		for (int i = 0; i < 200; ++i) {
+
+			int from = 1 + random.nextInt(2000);
+			int to = 1 + random.nextInt(2000);
+
+			ConnectionPath path = finder.find(from, to, MAX_LENGTH, TIMEOUT_MILLIS);
+
+			assertEquals(distance(graph, from, to, MAX_LENGTH), path.getLength());
+
+			int[] ids = path.getPersonIds();
+
+			for (int j = 1; j < ids.length; ++j) {
+				assertTrue(graph.isRelated(ids[j - 1], ids[j]));
+			}
+		}
+	}
+
+	/**
+	 * Latency on a synthetic graph of NODES persons, the p99 must stay below
+	 * 10 ms. Wall clock time, run with -Pbenchmark on an otherwise idle machine
+	 */
+	@Test
+	@Category(Benchmark.class)
+	public void latencyOnLargeGraph() {
+
+		Random random = new Random(11);
+		SocialGraph graph = randomGraph(random, NODES, EDGES_PER_NODE);
+		ConnectionPathFinder finder = new ConnectionPathFinder(graph);
+
+		// warm up
+		for (int i = 0; i < QUERIES; ++i) {
+			finder.find(1 + random.nextInt(NODES), 1 + random.nextInt(NODES), MAX_LENGTH, TIMEOUT_MILLIS);
+		}
+
+		long[] nanos = new long[QUERIES];
+		int found = 0;
+
+		for (int i = 0; i < QUERIES; ++i) {
+
+			int from = 1 + random.nextInt(NODES);
+			int to = 1 + random.nextInt(NODES);
+
+			long start = System.nanoTime();
+			ConnectionPath path = finder.find(from, to, MAX_LENGTH, TIMEOUT_MILLIS);
+			nanos[i] = System.nanoTime() - start;
+
+			if (path.isFound()) {
+				++found;
+			}
+		}
+
+		Arrays.sort(nanos);
+
+		double p50 = nanos[QUERIES / 2] / 1e6;
+		double p99 = nanos[QUERIES * 99 / 100] / 1e6;
+
+		assertTrue(String.format("connection path on %d persons, %d relations: %d of %d found, p50 %.3f ms, p99 %.3f ms",
+				NODES, graph.getEdgeCount(), found, QUERIES, p50, p99), p99 < 10);
+	}
+
+	private static SocialGraph randomGraph(final Random random, final int nodes, final int edgesPerNode) {
+
+		int[] sources = new int[nodes * edgesPerNode];
+		int[] targets = new int[sources.length];
+
+		for (int i = 0; i < sources.length; ++i) {
+			sources[i] = 1 + i / edgesPerNode;
+			targets[i] = 1 + random.nextInt(nodes);
+		}
+
+		SocialGraph graph = new SocialGraph();
+		graph.load(sources, targets, sources.length);
+
+		return graph;
+	}
+
+	/**
+	 * plain breadth first search, -1 if farther than maxLength
+	 */
+	private static int distance(final SocialGraph graph, final int from, final int to, final int maxLength) {
+
+		int[] depth = new int[graph.getVertexBound() + 1];
+		Arrays.fill(depth, -1);
+
+		int[] queue = new int[depth.length];
+		int head = 0;
+		int tail = 0;
+
+		depth[from] = 0;
+		queue[tail++] = from;
+
+		while (head < tail) {
+
+			int person = queue[head++];
+
+			if (person == to) {
+				return depth[person] <= maxLength ? depth[person] : -1;
+			}
+
+			int[][] all = { graph.getTargets(person), graph.getSources(person) };
+
+			for (int[] neighbours : all) {
+				for (int next : neighbours) {
+					if (depth[next] < 0) {
+						depth[next] = depth[person] + 1;
+						queue[tail++] = next;
+					}
+				}
+			}
+		}
+
+		return -1;
+	}
+}
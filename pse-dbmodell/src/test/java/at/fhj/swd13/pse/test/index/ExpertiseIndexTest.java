@@ -0,0 +1,159 @@
+package at.fhj.swd13.pse.test.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.fhj.swd13.pse.cache.TagDictionary;
+import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.dto.PersonName;
+import at.fhj.swd13.pse.index.ExpertiseIndex;
+import at.fhj.swd13.pse.index.TagExpression;
+import at.fhj.swd13.pse.repository.PersonRepository;
+
+public class ExpertiseIndexTest {
+
+	private static final int JAVA = 1;
+	private static final int JPA = 2;
+	private static final int JSF = 3;
+
+	/**
+	 * person_tag table in memory, rows of { person tag id, person id, tag id }
+	 */
+	private static class MemoryRepository implements PersonRepository {
+
+		final List<int[]> personTags = new ArrayList<int[]>();
+
+		int loads;
+
+		void tag(int personId, int tagId) {
+			personTags.add(new int[] { personTags.size() + 1, personId, tagId });
+		}
+
+		@Override
+		public List<int[]> loadPersonTags(int afterPersonTagId, int maxRows) {
+
+			++loads;
+
+			final List<int[]> rows = new ArrayList<int[]>();
+
+			for (int[] row : personTags) {
+				if (row[0] > afterPersonTagId && rows.size() < maxRows) {
+					rows.add(row);
+				}
+			}
+
+			return rows;
+		}
+
+		@Override
+		public List<Person> findByIds(int[] personIds) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<PersonName> loadNames(int afterPersonId, int maxRows) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<int[]> loadRelations(int afterRelationId, int maxRows) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<int[]> loadMemberships(int afterMembershipId, int maxRows) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private MemoryRepository repository;
+
+	private ExpertiseIndex index;
+
+	@Before
+	public void setup() {
+
+		repository = new MemoryRepository();
+
+		// java: 1..6, jpa: 2, 3, 5, jsf: 5, 6
+		for (int personId = 1; personId <= 6; ++personId) {
+			repository.tag(personId, JAVA);
+		}
+
+		repository.tag(2, JPA);
+		repository.tag(3, JPA);
+		repository.tag(5, JPA);
+		repository.tag(5, JSF);
+		repository.tag(6, JSF);
+
+		// every token is known, the dictionary never reads the database
+		TagDictionary dictionary = new TagDictionary(null);
+		dictionary.put(JAVA, "java");
+		dictionary.put(JPA, "jpa");
+		dictionary.put(JSF, "jsf");
+
+		index = new ExpertiseIndex(repository, dictionary);
+	}
+
+	@Test
+	public void andOr() {
+
+		assertArrayEquals(new int[] { 2, 3, 5 }, index.evaluate(TagExpression.parse("java AND jpa")).toArray());
+		assertArrayEquals(new int[] { 2, 3, 5, 6 }, index.evaluate(TagExpression.parse("jpa OR jsf")).toArray());
+		assertArrayEquals(new int[] { 5 }, index.evaluate(TagExpression.parse("jpa jsf")).toArray());
+		assertArrayEquals(new int[] { 1, 4 }, index.evaluate(TagExpression.parse("java AND NOT jpa AND NOT jsf"))
+				.toArray());
+
+		assertEquals(1, repository.loads);
+	}
+
+	@Test
+	public void pagingByLastId() {
+
+		TagExpression java = TagExpression.parse("java");
+
+		int[] first = index.findPersonIds(java, 0, 4);
+
+		assertArrayEquals(new int[] { 6, 5, 4, 3 }, first);
+
+		int[] second = index.findPersonIds(java, first[first.length - 1], 4);
+
+		assertArrayEquals(new int[] { 2, 1 }, second);
+		assertArrayEquals(new int[0], index.findPersonIds(java, second[second.length - 1], 4));
+	}
+
+	@Test
+	public void removePerson() {
+
+		index.removePerson(5);
+
+		assertFalse(index.hasTag(JPA, 5));
+		assertFalse(index.hasTag(JSF, 5));
+		assertEquals(5, index.count(JAVA));
+		assertArrayEquals(new int[] { 6 }, index.evaluate(TagExpression.parse("jsf")).toArray());
+
+		index.remove(JSF, 6);
+
+		assertEquals(0, index.count(JSF));
+		assertArrayEquals(new int[0], index.evaluate(TagExpression.parse("java AND jsf")).toArray());
+	}
+
+	@Test
+	public void changesBeforeLoadKept() {
+
+		// recorded before the first query loads the table
+		index.add(JSF, 7);
+
+		assertTrue(index.hasTag(JSF, 7));
+		assertTrue(index.hasTag(JSF, 6));
+		assertEquals(3, index.count(JSF));
+	}
+}
@@ -0,0 +1,97 @@
+package at.fhj.swd13.pse.test.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import at.fhj.swd13.pse.index.IdBitmap;
+import at.fhj.swd13.pse.index.TagExpression;
+
+public class IdBitmapTest {
+
+	@Test
+	public void addRemoveAcrossContainerTypes() {
+
+		IdBitmap bitmap = new IdBitmap();
+
+		// more than ARRAY_MAX ids in one container switches to a bitmap
+		for (int id = 0; id < 10000; id += 2) {
+			assertTrue(bitmap.add(id));
+		}
+
+		assertFalse(bitmap.add(4));
+		assertEquals(5000, bitmap.cardinality());
+		assertTrue(bitmap.contains(9998));
+		assertFalse(bitmap.contains(9999));
+
+		for (int id = 0; id < 10000; id += 4) {
+			assertTrue(bitmap.remove(id));
+		}
+
+		// and back to an array
+		assertEquals(2500, bitmap.cardinality());
+		assertFalse(bitmap.contains(8));
+		assertTrue(bitmap.contains(10));
+		assertFalse(bitmap.remove(8));
+	}
+
+	@Test
+	public void setOperations() {
+
+		IdBitmap a = IdBitmap.of(1, 2, 3, 70000, 200000);
+		IdBitmap b = IdBitmap.of(2, 3, 4, 200000);
+
+		assertArrayEquals(new int[] { 2, 3, 200000 }, a.and(b).toArray());
+		assertArrayEquals(new int[] { 1, 2, 3, 4, 70000, 200000 }, a.or(b).toArray());
+		assertArrayEquals(new int[] { 1, 70000 }, a.andNot(b).toArray());
+
+		// operands are not changed
+		assertEquals(5, a.cardinality());
+		assertEquals(4, b.cardinality());
+	}
+
+	@Test
+	public void highestBelow() {
+
+		IdBitmap bitmap = IdBitmap.of(5, 10, 65535, 65536, 131072);
+
+		assertArrayEquals(new int[] { 131072, 65536, 65535 }, bitmap.highest(-1, 3));
+		assertArrayEquals(new int[] { 65535, 10 }, bitmap.highest(65536, 2));
+		assertArrayEquals(new int[] { 5 }, bitmap.highest(10, 10));
+		assertArrayEquals(new int[0], bitmap.highest(5, 10));
+	}
+
+	@Test
+	public void evaluateExpression() {
+
+		Map<String, IdBitmap> bitmaps = new HashMap<String, IdBitmap>();
+
+		bitmaps.put("java", IdBitmap.of(1, 2, 3, 4, 5));
+		bitmaps.put("jpa", IdBitmap.of(2, 3));
+		bitmaps.put("jsf", IdBitmap.of(5, 6));
+		bitmaps.put("draft", IdBitmap.of(3));
+
+		TagExpression expression = TagExpression.parse("java AND (jpa OR jsf) AND NOT draft");
+
+		assertArrayEquals(new int[] { 2, 5 }, expression.evaluate(bitmaps).toArray());
+		assertArrayEquals(new int[] { 2, 3 }, TagExpression.parse("java jpa").evaluate(bitmaps).toArray());
+		assertArrayEquals(new int[] { 2, 3, 5, 6 }, TagExpression.parse("jpa OR jsf OR unknown").evaluate(bitmaps)
+				.toArray());
+		assertEquals(4, expression.getTokens().size());
+
+		// the result of a single tag is a copy
+		TagExpression.parse("jpa").evaluate(bitmaps).add(99);
+		assertFalse(bitmaps.get("jpa").contains(99));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void malformedExpression() {
+		TagExpression.parse("java AND (jpa OR");
+	}
+}
@@ -0,0 +1,113 @@
+package at.fhj.swd13.pse.test.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import at.fhj.swd13.pse.index.InvertedIndex;
+import at.fhj.swd13.pse.index.PostingsList;
+import at.fhj.swd13.pse.index.SearchHit;
+import at.fhj.swd13.pse.index.TextTokenizer;
+
+public class InvertedIndexTest {
+
+	@Test
+	public void tokenizeAndFold() {
+
+		assertEquals(Arrays.asList("grusse", "aus", "der", "strasse", "cafe", "42"),
+				TextTokenizer.tokenize("Gr\u00fc\u00dfe aus der-Stra\u00dfe: CAF\u00c9 #42 a"));
+	}
+
+	@Test
+	public void postingsRoundTrip() {
+
+		PostingsList list = new PostingsList();
+
+		list.put(5, 1);
+		list.put(300, 2);
+		list.put(100000, 3);
+		list.put(7, 4);
+		list.put(300, 5);
+
+		int[] docIds = new int[list.size()];
+		int[] frequencies = new int[list.size()];
+
+		list.decode(docIds, frequencies);
+
+		assertArrayEquals(new int[] { 5, 7, 300, 100000 }, docIds);
+		assertArrayEquals(new int[] { 1, 4, 5, 3 }, frequencies);
+
+		assertTrue(list.remove(7));
+		assertFalse(list.remove(8));
+		assertEquals(3, list.size());
+
+		// gaps 6, 295, 99700 need 1, 2 and 3 bytes, the frequencies 1 each
+		assertEquals(9, list.byteSize());
+	}
+
+	@Test
+	public void allTermsMustMatch() {
+
+		InvertedIndex index = new InvertedIndex();
+
+		index.put(1, "Kantine", "Heute gibt es Schnitzel");
+		index.put(2, null, "Schnitzel morgen wieder");
+		index.put(3, "Sitzung", "Die Sitzung heute entf\u00e4llt");
+
+		assertEquals(Arrays.asList(1), ids(index.search("schnitzel heute", 10)));
+		assertEquals(Arrays.asList(3), ids(index.search("ENTFALLT", 10)));
+		assertTrue(index.search("pizza", 10).isEmpty());
+		assertTrue(index.search(" - ", 10).isEmpty());
+	}
+
+	@Test
+	public void headlineRanksHigher() {
+
+		InvertedIndex index = new InvertedIndex();
+
+		index.put(1, null, "Neues vom Betriebsausflug nach Graz");
+		index.put(2, "Betriebsausflug", "Anmeldung bis Freitag");
+		index.put(3, null, "Kein Thema");
+
+		List<SearchHit> hits = index.search("betriebsausflug", 10);
+
+		assertEquals(Arrays.asList(2, 1), ids(hits));
+		assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+
+		assertEquals(Arrays.asList(2), ids(index.search("betriebsausflug", 1)));
+	}
+
+	@Test
+	public void updateAndRemove() {
+
+		InvertedIndex index = new InvertedIndex();
+
+		index.put(1, null, "alter Text");
+		index.put(1, null, "neuer Text");
+
+		assertTrue(index.search("alter", 10).isEmpty());
+		assertEquals(Arrays.asList(1), ids(index.search("neuer", 10)));
+
+		assertTrue(index.remove(1));
+		assertTrue(index.search("text", 10).isEmpty());
+		assertEquals(0, index.size());
+		assertEquals(0, index.getTermCount());
+	}
+
+	private static List<Integer> ids(List<SearchHit> hits) {
+
+		Integer[] ids = new Integer[hits.size()];
+
+		for (int i = 0; i < ids.length; ++i) {
+			ids[i] = hits.get(i).getDocId();
+		}
+
+		return Arrays.asList(ids);
+	}
+}
@@ -0,0 +1,128 @@
+package at.fhj.swd13.pse.test.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import at.fhj.swd13.pse.index.SocialGraph;
+
+public class SocialGraphTest {
+
+	@Test
+	public void loadSortsAndDeduplicates() {
+
+		SocialGraph graph = new SocialGraph();
+
+		graph.load(new int[] { 3, 1, 3, 3, 7 }, new int[] { 9, 2, 4, 9, 1 }, 5);
+
+		assertEquals(4, graph.getEdgeCount());
+		assertArrayEquals(new int[] { 4, 9 }, graph.getTargets(3));
+		assertArrayEquals(new int[] { 3 }, graph.getSources(9));
+		assertArrayEquals(new int[] { 7 }, graph.getSources(1));
+		assertEquals(2, graph.getOutDegree(3));
+		assertEquals(0, graph.getOutDegree(100));
+		assertEquals(0, graph.getInDegree(-1));
+	}
+
+	@Test
+	public void relationChecks() {
+
+		SocialGraph graph = new SocialGraph();
+
+		graph.load(new int[] { 1, 2 }, new int[] { 2, 3 }, 2);
+
+		assertTrue(graph.hasEdge(1, 2));
+		assertFalse(graph.hasEdge(2, 1));
+		assertTrue(graph.isRelated(2, 1));
+		assertTrue(graph.isRelated(3, 2));
+		assertFalse(graph.isRelated(1, 3));
+	}
+
+	@Test
+	public void incrementalChanges() {
+
+		SocialGraph graph = new SocialGraph();
+
+		graph.load(new int[] { 1 }, new int[] { 2 }, 1);
+
+		assertTrue(graph.addEdge(1, 5));
+		assertFalse(graph.addEdge(1, 5));
+		assertTrue(graph.addEdge(50, 1));
+		assertArrayEquals(new int[] { 2, 5 }, graph.getTargets(1));
+		assertArrayEquals(new int[] { 50 }, graph.getSources(1));
+
+		assertTrue(graph.removeEdge(1, 2));
+		assertFalse(graph.removeEdge(1, 2));
+		assertArrayEquals(new int[0], graph.getSources(2));
+
+		assertEquals(2, graph.removeVertex(1));
+		assertEquals(0, graph.getEdgeCount());
+		assertEquals(0, graph.getOutDegree(50));
+
+		graph.compact();
+
+		assertEquals(0, graph.getEdgeCount());
+		assertArrayEquals(new int[0], graph.getTargets(1));
+	}
+
+	@Test
+	public void selfRelationRemovedOnce() {
+
+		SocialGraph graph = new SocialGraph();
+
+		graph.addEdge(4, 4);
+		graph.addEdge(4, 6);
+
+		assertEquals(2, graph.removeVertex(4));
+		assertEquals(0, graph.getEdgeCount());
+	}
+
+	@Test
+	public void sameAsSetOfPairs() {
+
+		Random random = new Random(42);
+		SocialGraph graph = new SocialGraph(8);
+		Set<Long> expected = new HashSet<Long>();
+
+		for (int i = 0; i < 20000; ++i) {
+
+			int source = random.nextInt(200);
+			int target = random.nextInt(200);
+
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key(source, target)), graph.removeEdge(source, target));
+			} else {
+				assertEquals(expected.add(key(source, target)), graph.addEdge(source, target));
+			}
+		}
+
+		assertEquals(expected.size(), graph.getEdgeCount());
+
+		for (int source = 0; source < 200; ++source) {
+
+			int degree = 0;
+
+			for (int target = 0; target < 200; ++target) {
+
+				assertEquals(expected.contains(key(source, target)), graph.hasEdge(source, target));
+
+				if (expected.contains(key(source, target))) {
+					++degree;
+				}
+			}
+
+			assertEquals(degree, graph.getOutDegree(source));
+		}
+	}
+
+	private static long key(final int source, final int target) {
+		return ((long) source << 32) | target;
+	}
+}
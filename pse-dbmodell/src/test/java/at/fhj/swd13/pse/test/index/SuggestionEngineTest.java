@@ -0,0 +1,114 @@
+package at.fhj.swd13.pse.test.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import at.fhj.swd13.pse.index.SocialGraph;
+import at.fhj.swd13.pse.index.Suggestion;
+import at.fhj.swd13.pse.index.SuggestionEngine;
+
+public class SuggestionEngineTest {
+
+	@Test
+	public void friendsOfFriendsRankedByPaths() {
+
+		SocialGraph relations = new SocialGraph();
+
+		// 1 knows 2 and 4, both know 3; 2 also knows 5
+		relations.load(new int[] { 1, 1, 2, 3, 2 }, new int[] { 2, 4, 3, 4, 5 }, 5);
+
+		Suggestion[] suggestions = engine(relations, new SocialGraph(), new SocialGraph()).suggest(1, 10);
+
+		assertEquals(2, suggestions.length);
+		assertEquals(3, suggestions[0].getPersonId());
+		assertEquals(5, suggestions[1].getPersonId());
+		assertTrue(suggestions[0].getScore() > suggestions[1].getScore());
+	}
+
+	@Test
+	public void relatedPersonsAndSelfNotSuggested() {
+
+		SocialGraph relations = new SocialGraph();
+		SocialGraph memberships = new SocialGraph();
+
+		relations.load(new int[] { 1 }, new int[] { 2 }, 1);
+		// 1, 2 and 3 are in community 100
+		memberships.load(new int[] { 1, 2, 3 }, new int[] { 100, 100, 100 }, 3);
+
+		Suggestion[] suggestions = engine(relations, memberships, new SocialGraph()).suggest(1, 10);
+
+		assertEquals(1, suggestions.length);
+		assertEquals(3, suggestions[0].getPersonId());
+	}
+
+	@Test
+	public void smallGroupsCountMore() {
+
+		SocialGraph tags = new SocialGraph();
+
+		// 1 and 2 share a rare tag, 1 and 3 a common one
+		tags.load(new int[] { 1, 2, 1, 3, 4, 5, 6 }, new int[] { 7, 7, 8, 8, 8, 8, 8 }, 7);
+
+		Suggestion[] suggestions = engine(new SocialGraph(), new SocialGraph(), tags).suggest(1, 1);
+
+		assertEquals(1, suggestions.length);
+		assertEquals(2, suggestions[0].getPersonId());
+	}
+
+	@Test
+	public void parallelSameAsSequential() {
+
+		Random random = new Random(7);
+		SocialGraph relations = new SocialGraph();
+		SocialGraph memberships = new SocialGraph();
+		SocialGraph tags = new SocialGraph();
+
+		for (int i = 0; i < 3000; ++i) {
+			relations.addEdge(1 + random.nextInt(500), 1 + random.nextInt(500));
+			memberships.addEdge(1 + random.nextInt(500), random.nextInt(30));
+			tags.addEdge(1 + random.nextInt(500), random.nextInt(50));
+		}
+
+		SuggestionEngine engine = engine(relations, memberships, tags);
+
+		int[] personIds = new int[500];
+
+		for (int i = 0; i < personIds.length; ++i) {
+			personIds[i] = i + 1;
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			Map<Integer, Suggestion[]> all = engine.suggestAll(personIds, 10, pool);
+
+			assertEquals(personIds.length, all.size());
+
+			for (int personId : personIds) {
+
+				Suggestion[] expected = engine.suggest(personId, 10);
+				Suggestion[] actual = all.get(personId);
+
+				assertEquals(expected.length, actual.length);
+
+				for (int i = 0; i < expected.length; ++i) {
+					assertEquals(expected[i].getPersonId(), actual[i].getPersonId());
+					assertTrue(!relations.isRelated(personId, actual[i].getPersonId()));
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static SuggestionEngine engine(final SocialGraph relations, final SocialGraph memberships,
+			final SocialGraph tags) {
+		return new SuggestionEngine(relations, memberships, tags);
+	}
+}
@@ -0,0 +1,59 @@
+package at.fhj.swd13.pse.test.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.fhj.swd13.pse.index.TrigramIndex;
+
+public class TrigramIndexTest {
+
+	private TrigramIndex index;
+
+	@Before
+	public void setup() {
+
+		index = new TrigramIndex();
+
+		index.put(1, "Maier Anna", "amaier", "Anna", "Maier");
+		index.put(2, "Hofmaier Max", "mhofmaier", "Max", "Hofmaier");
+		index.put(3, "M\u00fcller Bernd", "bmueller", "Bernd", "M\u00fcller");
+		index.put(4, "Ma Li", "lma", "Li", "Ma");
+	}
+
+	@Test
+	public void substringRankedByPosition() {
+
+		// exact before prefix before inner substring
+		assertArrayEquals(new int[] { 1, 2 }, index.search("maier", 10));
+		// same rank, by last name
+		assertArrayEquals(new int[] { 2, 1 }, index.search("aie", 10));
+		assertArrayEquals(new int[] { 2 }, index.search("hofm", 10));
+	}
+
+	@Test
+	public void shortQueryAndFolding() {
+
+		assertArrayEquals(new int[] { 4, 2, 1 }, index.search("ma", 10));
+		assertArrayEquals(new int[] { 3 }, index.search("MULL", 10));
+		assertArrayEquals(new int[] { 4 }, index.search("ma", 1));
+		assertArrayEquals(new int[0], index.search("xyz", 10));
+		assertArrayEquals(new int[0], index.search(" ", 10));
+	}
+
+	@Test
+	public void replaceAndRemove() {
+
+		index.put(1, "Huber Anna", "ahuber", "Anna", "Huber");
+
+		assertArrayEquals(new int[] { 2 }, index.search("maier", 10));
+		assertArrayEquals(new int[] { 1 }, index.search("huber", 10));
+
+		index.remove(2);
+
+		assertArrayEquals(new int[0], index.search("maier", 10));
+		assertEquals(3, index.size());
+	}
+}
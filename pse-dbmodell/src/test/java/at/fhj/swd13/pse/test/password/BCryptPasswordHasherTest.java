@@ -0,0 +1,63 @@
+package at.fhj.swd13.pse.test.password;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.password.BCryptPasswordHasher;
+import at.fhj.swd13.pse.password.PasswordHashers;
+
+public class BCryptPasswordHasherTest {
+
+	@After
+	public void teardown() {
+		PasswordHashers.set(null);
+	}
+
+	@Test
+	public void readWorkFactor() {
+
+		String hash = new BCryptPasswordHasher(5).hash("12345678");
+
+		assertEquals(5, BCryptPasswordHasher.logRoundsOf(hash));
+		assertEquals(-1, BCryptPasswordHasher.logRoundsOf("--"));
+		assertEquals(-1, BCryptPasswordHasher.logRoundsOf(null));
+
+		assertFalse(new BCryptPasswordHasher(5).needsRehash(hash));
+		assertTrue(new BCryptPasswordHasher(6).needsRehash(hash));
+		assertFalse(new BCryptPasswordHasher(5).matches("12345678", "--"));
+	}
+
+	@Test
+	public void rehashOnMatchingPassword() {
+
+		PasswordHashers.set(new BCryptPasswordHasher(4));
+
+		Person person = new Person("REHASH_USER", "Rehash", null, "12345678");
+		String oldHash = person.getHashedPassword();
+
+		PasswordHashers.set(new BCryptPasswordHasher(5));
+
+		// a wrong password leaves the hash alone
+		assertFalse(person.isMatchingPassword("12345679"));
+		assertEquals(oldHash, person.getHashedPassword());
+
+		assertTrue(person.isMatchingPassword("12345678"));
+		assertNotEquals(oldHash, person.getHashedPassword());
+		assertEquals(5, BCryptPasswordHasher.logRoundsOf(person.getHashedPassword()));
+		assertTrue(person.isMatchingPassword("12345678"));
+	}
+
+	@Test
+	public void calibrateWithinBounds() {
+
+		int logRounds = BCryptPasswordHasher.calibrate(20, 4, 8).getLogRounds();
+
+		assertTrue(logRounds >= 4 && logRounds <= 8);
+	}
+}
@@ -0,0 +1,102 @@
+package at.fhj.swd13.pse.test.password;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import at.fhj.swd13.pse.db.WeakPasswordException;
+import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.password.BCryptPasswordHasher;
+import at.fhj.swd13.pse.password.PasswordHashExecutor;
+import at.fhj.swd13.pse.password.PasswordHashers;
+
+public class PasswordHashExecutorTest {
+
+	private PasswordHashExecutor executor;
+
+	@Before
+	public void setup() {
+		executor = new PasswordHashExecutor(1, 1);
+	}
+
+	@After
+	public void teardown() {
+		executor.stop();
+		PasswordHashers.set(null);
+	}
+
+	@Test
+	public void hashAndMatch() throws Exception {
+
+		String hash = executor.hash("12345678").get();
+
+		assertTrue(executor.matches("12345678", hash).get());
+		assertFalse(executor.matches("12345679", hash).get());
+		assertFalse(executor.matches("12345678", "--").get());
+
+		// a precomputed hash is accepted by the entity
+		Person person = new Person("HASH_USER", "Hash", null);
+		person.setHashedPassword(hash);
+
+		assertTrue(person.isMatchingPassword("12345678"));
+	}
+
+	@Test(expected = WeakPasswordException.class)
+	public void weakPasswordFailsOnCaller() {
+		executor.hash("123");
+	}
+
+	@Test
+	public void fullQueueRejects() throws Exception {
+
+		final CountDownLatch release = new CountDownLatch(1);
+
+		PasswordHashers.set(new BCryptPasswordHasher(BCryptPasswordHasher.MIN_LOG_ROUNDS) {
+
+			@Override
+			public String hash(final String plainPassword) {
+				try {
+					release.await();
+				} catch (InterruptedException x) {
+					Thread.currentThread().interrupt();
+				}
+				return super.hash(plainPassword);
+			}
+		});
+
+		List<CompletableFuture<String>> futures = new ArrayList<CompletableFuture<String>>();
+
+		// one running, one queued, the rest is rejected
+		for (int i = 0; i < 4; ++i) {
+			futures.add(executor.hash("12345678"));
+		}
+
+		release.countDown();
+
+		int rejected = 0;
+
+		for (CompletableFuture<String> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException x) {
+				assertTrue(x.getCause() instanceof RejectedExecutionException);
+				++rejected;
+			}
+		}
+
+		assertEquals(2, rejected);
+		assertEquals(2, executor.getRejectedCount());
+		assertEquals(0, executor.getQueueDepth());
+	}
+}
@@ -0,0 +1,50 @@
+package at.fhj.swd13.pse.test.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import at.fhj.swd13.pse.repository.FeedCursor;
+
+public class FeedCursorTest {
+
+	@Test
+	public void roundTrip() {
+
+		FeedCursor cursor = new FeedCursor(new Date(1420070400123L), 4711);
+
+		FeedCursor parsed = FeedCursor.parse(cursor.toToken());
+
+		assertEquals(cursor.getCreatedOn(), parsed.getCreatedOn());
+		assertEquals(cursor.getMessageId(), parsed.getMessageId());
+		assertEquals(cursor.toToken(), parsed.toToken());
+	}
+
+	@Test
+	public void noToken() {
+
+		assertNull(FeedCursor.parse(null));
+		assertNull(FeedCursor.parse(""));
+	}
+
+	@Test
+	public void malformed() {
+
+		final String[] tokens = { "abc", ".1", "1.", "1.2.3", "1,2", "1.zz!", "zzzzzzzzzzzzzz.1", "1.zzzzzzz", " 1.2" };
+
+		for (String token : tokens) {
+
+			try {
+				FeedCursor.parse(token);
+				fail("accepted " + token);
+
+			} catch (IllegalArgumentException x) {
+				// expected
+			}
+		}
+	}
+}
@@ -129,6 +129,70 @@ public class DbChatServiceCommunity {
 		toDelete.add(chatService.createChatCommunity( "gustl", "confirmed", false));		
 	}
 	
+	@Test
+	public void unconfirmedCommunities() throws Exception {
+
+		toDelete.add(chatService.createChatCommunity(plainPerson.getUserName(), "unconfirmedInbox", false));
+		toDelete.add(chatService.createChatCommunity(adminPerson.getUserName(), "confirmedInbox", false));
+
+		try (DbContext context = contextProvider.getDbContext()) {
+
+			Person plain = context.getPersonDAO().getById(plainPerson.getPersonId());
+
+			List<Community> mine = chatService.getMyUnconfirmedCommunites(plain, context);
+
+			assertEquals(1, mine.size());
+			assertEquals("unconfirmedInbox", mine.get(0).getName());
+
+			Person admin = context.getPersonDAO().getById(adminPerson.getPersonId());
+
+			List<String> names = new ArrayList<String>();
+
+			for (Community c : chatService.getMyUnconfirmedCommunites(admin, context)) {
+				assertFalse(c.isConfirmed());
+				names.add(c.getName());
+			}
+
+			assertTrue(names.contains("unconfirmedInbox"));
+			assertFalse(names.contains("confirmedInbox"));
+		}
+	}
+
+	@Test
+	public void confirm() throws Exception {
+
+		Community community = chatService.createChatCommunity(plainPerson.getUserName(), "toConfirm", false);
+		toDelete.add(community);
+
+		chatService.confirmCommunity(adminPerson.getUserName(), community.getCommunityId());
+
+		try (DbContext context = contextProvider.getDbContext()) {
+			context.clearCache();
+
+			Community c = context.getCommunityDAO().getByName("toConfirm");
+			assertTrue(c.isConfirmed());
+			assertEquals(adminPerson.getPersonId(), c.getConfirmedBy().getPersonId());
+
+			Person plain = context.getPersonDAO().getById(plainPerson.getPersonId());
+			assertTrue(chatService.getMyUnconfirmedCommunites(plain, context).isEmpty());
+		}
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void confirmByNonAdmin() throws Exception {
+
+		Community community = chatService.createChatCommunity(plainPerson.getUserName(), "notConfirmed", false);
+		toDelete.add(community);
+
+		chatService.confirmCommunity(plainPerson.getUserName(), community.getCommunityId());
+	}
+
+	@Test(expected=EntityNotFoundException.class)
+	public void confirmUnknownCommunity() throws Exception {
+
+		chatService.confirmCommunity(adminPerson.getUserName(), -1);
+	}
+
 	@Test
 	public void sanityPersonCommunity() throws Exception {
 
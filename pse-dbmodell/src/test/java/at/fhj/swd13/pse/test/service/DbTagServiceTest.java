@@ -0,0 +1,56 @@
+package at.fhj.swd13.pse.test.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.fhj.swd13.pse.db.DbContext;
+import at.fhj.swd13.pse.db.DbContextProvider;
+import at.fhj.swd13.pse.db.DbContextProviderImpl;
+import at.fhj.swd13.pse.db.EntityNotFoundException;
+import at.fhj.swd13.pse.db.entity.Tag;
+import at.fhj.swd13.pse.service.TagService;
+
+public class DbTagServiceTest {
+
+	private DbContextProvider contextProvider;
+
+	private TagService tagService;
+
+	@Before
+	public void setup() {
+
+		contextProvider = new DbContextProviderImpl();
+
+		tagService = new TagService();
+		tagService.setDbContext(contextProvider);
+	}
+
+	@Test
+	public void createRemoveCycle() throws Exception {
+
+		Tag tag = tagService.createTag("TAGSERVICE_TEST", "created by the tag service test");
+
+		assertFalse(tag.getTagId() == 0);
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+			assertEquals("TAGSERVICE_TEST", dbContext.getTagDAO().getById(tag.getTagId()).getToken());
+		}
+
+		tagService.removeTag(tag.getTagId());
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+			dbContext.clearCache();
+
+			assertNull(dbContext.getTagDAO().getById(tag.getTagId()));
+		}
+	}
+
+	@Test(expected = EntityNotFoundException.class)
+	public void removeUnknownTag() throws Exception {
+		tagService.removeTag(-1);
+	}
+}
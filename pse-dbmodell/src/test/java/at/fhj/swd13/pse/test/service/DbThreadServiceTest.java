@@ -0,0 +1,256 @@
+package at.fhj.swd13.pse.test.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import at.fhj.swd13.pse.db.DbContext;
+import at.fhj.swd13.pse.db.DbContextProvider;
+import at.fhj.swd13.pse.db.DbContextProviderImpl;
+import at.fhj.swd13.pse.db.EntityNotFoundException;
+import at.fhj.swd13.pse.db.entity.DeliverySystem;
+import at.fhj.swd13.pse.db.entity.Message;
+import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.dto.ThreadNode;
+import at.fhj.swd13.pse.repository.MessageRepositoryImpl;
+import at.fhj.swd13.pse.service.ThreadService;
+import at.fhj.swd13.pse.service.ThreadServiceImpl;
+import at.fhj.swd13.pse.test.db.SqlStatementCounter;
+
+public class DbThreadServiceTest {
+
+	private static final String HEADLINE = "THREAD_TEST";
+
+	/**
+	 * direct replies of each reply of the large thread, so the large thread
+	 * has more than MAX_NODES messages
+	 */
+	private static final int LARGE_FAN_OUT = ThreadService.MAX_REPLIES;
+
+	private static DbContextProvider contextProvider;
+
+	/**
+	 * root, r1 (r1a (r1a1 (r1a1x)), r1b, r1c), r2, r3
+	 */
+	private static int rootId;
+
+	private static int largeRootId;
+
+	private static long createdOn;
+
+	@BeforeClass
+	public static void setup() throws Exception {
+
+		contextProvider = new DbContextProviderImpl();
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			final Person author = dbContext.getPersonDAO().getById(1);
+			final DeliverySystem deliverySystem = dbContext.getEntityManager().find(DeliverySystem.class, 1);
+
+			createdOn = System.currentTimeMillis();
+
+			final Message root = post(dbContext, author, deliverySystem, null, "root");
+			final Message r1 = post(dbContext, author, deliverySystem, root, "r1");
+
+			post(dbContext, author, deliverySystem, root, "r2");
+			post(dbContext, author, deliverySystem, root, "r3");
+
+			final Message r1a = post(dbContext, author, deliverySystem, r1, "r1a");
+
+			post(dbContext, author, deliverySystem, r1, "r1b");
+			post(dbContext, author, deliverySystem, r1, "r1c");
+
+			final Message r1a1 = post(dbContext, author, deliverySystem, r1a, "r1a1");
+
+			post(dbContext, author, deliverySystem, r1a1, "r1a1x");
+
+			final Message largeRoot = post(dbContext, author, deliverySystem, null, "large");
+
+			for (int i = 0; i * LARGE_FAN_OUT <= ThreadService.MAX_NODES; ++i) {
+
+				final Message reply = post(dbContext, author, deliverySystem, largeRoot, "large " + i);
+
+				for (int j = 0; j < LARGE_FAN_OUT; ++j) {
+					post(dbContext, author, deliverySystem, reply, "large " + i + "." + j);
+				}
+			}
+
+			dbContext.commit();
+
+			rootId = root.getMessageId();
+			largeRootId = largeRoot.getMessageId();
+		}
+	}
+
+	@AfterClass
+	public static void teardown() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			// replies first, they have higher ids than the messages they reply to
+			dbContext.getEntityManager()
+					.createNativeQuery("DELETE FROM message WHERE headline = ?1 ORDER BY message_id DESC")
+					.setParameter(1, HEADLINE).executeUpdate();
+
+			dbContext.commit();
+		}
+	}
+
+	@Test
+	public void fullTreeOneQueryPerLevel() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			dbContext.clearCache();
+			SqlStatementCounter.reset();
+
+			final ThreadNode root = newService(dbContext).loadThread(rootId, ThreadService.MAX_DEPTH,
+					ThreadService.MAX_REPLIES);
+
+			// four levels of replies, one more level query that finds none
+			// and one query for the content of all messages
+			assertEquals(4 + 1 + 1, SqlStatementCounter.get());
+
+			assertEquals("root", root.getItem().getMessage());
+			assertReplies(root, "r1", "r2", "r3");
+			assertFalse(root.isMoreReplies());
+
+			final ThreadNode r1 = root.getReplies().get(0);
+
+			assertReplies(r1, "r1a", "r1b", "r1c");
+			assertReplies(r1.getReplies().get(0), "r1a1");
+			assertReplies(r1.getReplies().get(0).getReplies().get(0), "r1a1x");
+			assertReplies(root.getReplies().get(1));
+		}
+	}
+
+	@Test
+	public void depthLimit() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			SqlStatementCounter.reset();
+
+			final ThreadNode root = newService(dbContext).loadThread(rootId, 2, ThreadService.MAX_REPLIES);
+
+			// two levels and the level below to count their replies
+			assertEquals(2 + 1 + 1, SqlStatementCounter.get());
+
+			final ThreadNode r1a = root.getReplies().get(0).getReplies().get(0);
+
+			assertReplies(r1a);
+			assertEquals(1, r1a.getReplyCount());
+			assertTrue(r1a.isMoreReplies());
+		}
+	}
+
+	@Test
+	public void depthCappedAtMaxDepth() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			final ThreadNode root = newService(dbContext).loadThread(rootId, ThreadService.MAX_DEPTH + 5,
+					ThreadService.MAX_REPLIES);
+
+			assertReplies(root, "r1", "r2", "r3");
+		}
+	}
+
+	@Test
+	public void repliesLimit() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			final ThreadNode root = newService(dbContext).loadThread(rootId, ThreadService.MAX_DEPTH, 2);
+
+			assertReplies(root, "r1", "r2");
+			assertEquals(3, root.getReplyCount());
+			assertTrue(root.isMoreReplies());
+
+			assertReplies(root.getReplies().get(0), "r1a", "r1b");
+		}
+	}
+
+	@Test
+	public void nodesLimit() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+
+			final ThreadNode root = newService(dbContext).loadThread(largeRootId, ThreadService.MAX_DEPTH,
+					ThreadService.MAX_REPLIES);
+
+			assertEquals(ThreadService.MAX_NODES, count(root));
+			assertTrue(root.getReplies().get(root.getReplies().size() - 1).isMoreReplies());
+		}
+	}
+
+	@Test(expected = EntityNotFoundException.class)
+	public void unknownRoot() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+			newService(dbContext).loadThread(-1, 1, 1);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeDepth() throws Exception {
+
+		try (DbContext dbContext = contextProvider.getDbContext()) {
+			newService(dbContext).loadThread(rootId, -1, 1);
+		}
+	}
+
+	private static ThreadService newService(final DbContext dbContext) {
+		return new ThreadServiceImpl(new MessageRepositoryImpl(dbContext.getEntityManager()));
+	}
+
+	private static Message post(final DbContext dbContext, final Person author, final DeliverySystem deliverySystem,
+			final Message parent, final String text) {
+
+		final Message message = new Message();
+		message.setHeadline(HEADLINE);
+		message.setMessage(text);
+		message.setPerson(author);
+		message.setDeliverySystem(deliverySystem);
+		message.setMessageBean(parent);
+		message.setCreatedAt(new Date());
+
+		// distinct times, so the replies are in posting order
+		message.setCreatedOn(new Date(createdOn += 1000));
+		message.setValidFrom(message.getCreatedOn());
+
+		dbContext.persist(message);
+
+		return message;
+	}
+
+	private static void assertReplies(final ThreadNode node, final String... texts) {
+
+		final List<ThreadNode> replies = node.getReplies();
+
+		assertEquals(texts.length, replies.size());
+
+		for (int i = 0; i < texts.length; ++i) {
+			assertEquals(texts[i], replies.get(i).getItem().getMessage());
+		}
+	}
+
+	private static int count(final ThreadNode node) {
+
+		int nodes = 1;
+
+		for (ThreadNode reply : node.getReplies()) {
+			nodes += count(reply);
+		}
+
+		return nodes;
+	}
+}
@@ -1,7 +1,10 @@
 package at.fhj.swd13.pse.test.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -14,6 +17,10 @@ import at.fhj.swd13.pse.db.DbContext;
 import at.fhj.swd13.pse.db.DbContextProvider;
 import at.fhj.swd13.pse.db.DbContextProviderImpl;
 import at.fhj.swd13.pse.db.entity.Person;
+import at.fhj.swd13.pse.db.entity.Tag;
+import at.fhj.swd13.pse.password.PasswordHashExecutor;
+import at.fhj.swd13.pse.service.ChunkListener;
+import at.fhj.swd13.pse.service.TagService;
 import at.fhj.swd13.pse.service.UserService;
 
 public class DbUserServiceTest {
@@ -22,6 +29,8 @@ public class DbUserServiceTest {
 
 	private UserService userService;
 
+	private PasswordHashExecutor passwordHashExecutor;
+
 	
 	private List<Object> toDelete = new ArrayList<Object>();
 
@@ -30,8 +39,11 @@ public class DbUserServiceTest {
 
 		contextProvider = new DbContextProviderImpl();
 		
+		passwordHashExecutor = new PasswordHashExecutor(2, 16);
+
 		userService = new UserService();
 		userService.setDbContext(contextProvider);
+		userService.setPasswordHashExecutor(passwordHashExecutor);
 		
 		try (DbContext context = contextProvider.getDbContext()) {
 
@@ -44,6 +56,8 @@ public class DbUserServiceTest {
 	@After
 	public void teardown() throws Exception {
 
+		passwordHashExecutor.stop();
+
 		try (DbContext context = contextProvider.getDbContext()) {
 
 			for (Object o : toDelete) {
@@ -68,4 +82,121 @@ public class DbUserServiceTest {
 			assertNotNull(p.getHashedPassword());
 		}
 	}
+
+	@Test
+	public void setDefaultPasswordWithoutExecutor() throws Exception {
+
+		UserService plainService = new UserService();
+		plainService.setDbContext(contextProvider);
+
+		// hashed on the calling thread
+		assertEquals(1, plainService.updateNullPasswords());
+
+		try (DbContext context = contextProvider.getDbContext()) {
+			context.clearCache();
+
+			assertTrue(context.getPersonDAO().getById(1).isMatchingPassword(UserService.DEFAULT_PASSWORD));
+		}
+	}
+
+	@Test
+	public void createAndRemovePerson() throws Exception {
+
+		Person person = userService.createPerson(new Person("USERSERVICE_TEST", "Service", "User", "12345678"));
+
+		assertTrue(person.getPersonId() != 0);
+
+		try (DbContext context = contextProvider.getDbContext()) {
+			assertNotNull(context.getPersonDAO().getByUsername("USERSERVICE_TEST"));
+		}
+
+		userService.removePerson(person.getPersonId());
+
+		try (DbContext context = contextProvider.getDbContext()) {
+			context.clearCache();
+
+			assertNull(context.getPersonDAO().getByUsername("USERSERVICE_TEST"));
+		}
+	}
+
+	@Test
+	public void createAndRemoveRelations() throws Exception {
+
+		Person target = userService.createPerson(new Person("USERSERVICE_TARGET", "Service", "Target", "12345678"));
+
+		try {
+			userService.createRelation(1, target.getPersonId());
+
+			assertEquals(1, userService.removeTargetRelations(target.getPersonId()));
+			assertEquals(0, userService.removeTargetRelations(target.getPersonId()));
+
+		} finally {
+			userService.removePerson(target.getPersonId());
+		}
+	}
+
+	@Test
+	public void addAndRemoveTag() throws Exception {
+
+		TagService tagService = new TagService();
+		tagService.setDbContext(contextProvider);
+
+		Person person = userService.createPerson(new Person("USERSERVICE_TAGGED", "Service", "Tagged", "12345678"));
+		Tag tag = tagService.createTag("USERSERVICE_TAG", "tag of the user service test");
+
+		try {
+			userService.addTag(person.getPersonId(), tag.getTagId());
+			userService.addTag(person.getPersonId(), tag.getTagId());
+
+			try (DbContext context = contextProvider.getDbContext()) {
+				context.clearCache();
+
+				Person tagged = context.getPersonDAO().getById(person.getPersonId());
+
+				assertEquals(1, tagged.getPersonTags().size());
+				assertTrue(tagged.hasTag(context.getTagDAO().getById(tag.getTagId())));
+			}
+
+			userService.removeTag(person.getPersonId(), tag.getTagId());
+
+			try (DbContext context = contextProvider.getDbContext()) {
+				context.clearCache();
+
+				assertFalse(context.getPersonDAO().getById(person.getPersonId())
+						.hasTag(context.getTagDAO().getById(tag.getTagId())));
+			}
+
+		} finally {
+			userService.removePerson(person.getPersonId());
+			tagService.removeTag(tag.getTagId());
+		}
+	}
+
+	@Test
+	public void setDefaultPasswordInChunks() throws Exception {
+
+		final List<Integer> lastIds = new ArrayList<Integer>();
+
+		int count = userService.updateNullPasswords(0, 1, passwordHashExecutor, new ChunkListener() {
+
+			@Override
+			public void chunkCommitted(int lastId, int rows, long workMillis, long commitMillis) {
+				assertEquals(1, rows);
+				lastIds.add(lastId);
+			}
+		});
+
+		assertEquals(1, count);
+		assertEquals(1, lastIds.size());
+		assertEquals(1, lastIds.get(0).intValue());
+
+		// resuming after the last chunk finds nothing left
+		assertEquals(0, userService.updateNullPasswords(lastIds.get(0), 1, passwordHashExecutor, null));
+
+		try (DbContext context = contextProvider.getDbContext()) {
+			context.clearCache();
+
+			assertTrue(context.getPersonDAO().getById(1).isMatchingPassword(UserService.DEFAULT_PASSWORD));
+		}
+	}
 }